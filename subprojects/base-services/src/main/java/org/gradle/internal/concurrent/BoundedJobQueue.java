@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs jobs on a fixed number of worker threads. The queue of jobs waiting for a worker is bounded, so that the thread adding the jobs blocks rather than getting
+ * far ahead of the workers. This allows the results that a job is given to be read one at a time and discarded once the job has run.
+ *
+ * <p>When there is only a single thread, the jobs are run in the thread that adds them instead, as handing them to another thread would only add overhead.</p>
+ *
+ * <p>Once a job has failed, the remaining jobs are skipped, and the failure is rethrown by {@link #stop()}.</p>
+ */
+public class BoundedJobQueue implements Stoppable {
+    private static final int QUEUED_JOBS_PER_THREAD = 4;
+    private static final Runnable END = new Runnable() {
+        public void run() {
+        }
+    };
+    private final int threads;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final StoppableExecutor executor;
+
+    public BoundedJobQueue(ExecutorFactory executorFactory, String displayName, int threads) {
+        if (threads > 1) {
+            this.threads = threads;
+            queue = new ArrayBlockingQueue<Runnable>(threads * QUEUED_JOBS_PER_THREAD);
+            executor = executorFactory.create(displayName);
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Worker());
+            }
+        } else {
+            this.threads = 0;
+            queue = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Adds a job to the queue, blocking while the queue is full.
+     */
+    public void add(Runnable job) {
+        if (executor == null) {
+            runJob(job);
+        } else {
+            put(job);
+        }
+    }
+
+    /**
+     * Blocks until all jobs have been run, then rethrows the first failure of a job, if any.
+     */
+    public void stop() {
+        if (executor != null) {
+            for (int i = 0; i < threads; i++) {
+                put(END);
+            }
+            executor.stop();
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+
+    private void put(Runnable job) {
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void runJob(Runnable job) {
+        if (failure.get() == null) {
+            try {
+                job.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            try {
+                for (Runnable job = queue.take(); job != END; job = queue.take()) {
+                    runJob(job);
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+}
@@ -15,26 +15,87 @@
  */
 package org.gradle.util.hash;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.UncheckedException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class HashUtil {
+    /**
+     * The name of a fast, non-cryptographic 128 bit hash algorithm. It can be used anywhere an algorithm name is accepted, but must only be used where the hashes
+     * do not need to be resistant to deliberate collisions, such as for detecting changes to a file.
+     */
+    public static final String MURMUR3_128 = "MURMUR3-128";
+
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Map<String, MessageDigest>> FILE_DIGESTS = new ThreadLocal<Map<String, MessageDigest>>() {
+        @Override
+        protected Map<String, MessageDigest> initialValue() {
+            return new HashMap<String, MessageDigest>();
+        }
+    };
+
+    private static final ThreadLocal<ByteBuffer> FILE_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(FILE_BUFFER_SIZE);
+        }
+    };
+
     public static HashValue createHash(String scriptText, String algorithm) {
         MessageDigest messageDigest = createMessageDigest(algorithm);
         messageDigest.update(scriptText.getBytes());
         return new HashValue(messageDigest.digest());
     }
 
+    /**
+     * Calculates the hash of the given file. The file is read through a {@link FileChannel} into a direct buffer, and the buffer and message digest are reused
+     * for the next file hashed by the current thread.
+     */
     public static HashValue createHash(File file, String algorithm) {
+        MessageDigest messageDigest = getFileDigest(algorithm);
+        ByteBuffer buffer = FILE_BUFFER.get();
         try {
-            return createHash(new FileInputStream(file), algorithm);
-        } catch (FileNotFoundException e) {
+            FileInputStream instr = new FileInputStream(file);
+            try {
+                FileChannel channel = instr.getChannel();
+                while (true) {
+                    buffer.clear();
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    messageDigest.update(buffer);
+                }
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        return new HashValue(messageDigest.digest());
+    }
+
+    private static MessageDigest getFileDigest(String algorithm) {
+        Map<String, MessageDigest> digests = FILE_DIGESTS.get();
+        MessageDigest messageDigest = digests.get(algorithm);
+        if (messageDigest == null) {
+            messageDigest = createMessageDigest(algorithm);
+            digests.put(algorithm, messageDigest);
+        } else {
+            // May still hold some content, if hashing the previous file failed
+            messageDigest.reset();
+        }
+        return messageDigest;
     }
 
     public static HashValue createHash(InputStream instr, String algorithm) {
@@ -59,6 +120,9 @@ public class HashUtil {
     }
 
     private static MessageDigest createMessageDigest(String algorithm) {
+        if (algorithm.equals(MURMUR3_128)) {
+            return new HashFunctionMessageDigest(algorithm, Hashing.murmur3_128());
+        }
         try {
             return MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException e) {
@@ -81,4 +145,40 @@ public class HashUtil {
     public static HashValue sha1(File file) {
         return createHash(file, "SHA1");
     }
+
+    /**
+     * Adapts a Guava {@link HashFunction} to a {@link MessageDigest}.
+     */
+    private static class HashFunctionMessageDigest extends MessageDigest {
+        private final HashFunction hashFunction;
+        private com.google.common.hash.Hasher hasher;
+
+        HashFunctionMessageDigest(String algorithm, HashFunction hashFunction) {
+            super(algorithm);
+            this.hashFunction = hashFunction;
+            hasher = hashFunction.newHasher();
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            hasher.putByte(input);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+            hasher.putBytes(input, offset, len);
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            byte[] hash = hasher.hash().asBytes();
+            engineReset();
+            return hash;
+        }
+
+        @Override
+        protected void engineReset() {
+            hasher = hashFunction.newHasher();
+        }
+    }
 }
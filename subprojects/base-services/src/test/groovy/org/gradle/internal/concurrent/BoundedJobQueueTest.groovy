@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent
+
+import spock.lang.Specification
+
+class BoundedJobQueueTest extends Specification {
+    private final ExecutorFactory executorFactory = new DefaultExecutorFactory()
+
+    def "runs all jobs using multiple threads"() {
+        def queue = new BoundedJobQueue(executorFactory, "jobs", 4)
+        def completed = Collections.synchronizedList([])
+        def threads = Collections.synchronizedSet([] as Set)
+
+        when:
+        100.times { index ->
+            queue.add({ threads << Thread.currentThread(); completed << index } as Runnable)
+        }
+        queue.stop()
+
+        then:
+        completed.sort() == (0..<100).toList()
+        !threads.contains(Thread.currentThread())
+    }
+
+    def "runs jobs in the calling thread when there is a single thread"() {
+        ExecutorFactory executorFactory = Mock()
+        def queue = new BoundedJobQueue(executorFactory, "jobs", 1)
+        def threads = []
+
+        when:
+        3.times { queue.add({ threads << Thread.currentThread() } as Runnable) }
+        queue.stop()
+
+        then:
+        threads == [Thread.currentThread()] * 3
+        0 * executorFactory._
+    }
+
+    def "skips remaining jobs and rethrows failure on stop"() {
+        def queue = new BoundedJobQueue(executorFactory, "jobs", threads)
+        def failure = new RuntimeException("broken")
+        def completed = Collections.synchronizedList([])
+
+        when:
+        queue.add({ throw failure } as Runnable)
+        Thread.sleep(100)
+        10.times { index -> queue.add({ completed << index } as Runnable) }
+        queue.stop()
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        completed.empty
+
+        where:
+        threads << [1, 3]
+    }
+}
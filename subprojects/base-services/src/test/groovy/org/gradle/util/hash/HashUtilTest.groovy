@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.util.hash
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class HashUtilTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir
+
+    @Unroll
+    def "creates #algorithm hash of file"() {
+        def file = tmpDir.file("file.txt")
+        file.text = "hello world"
+
+        expect:
+        HashUtil.createHash(file, algorithm).asHexString() == hash
+
+        where:
+        algorithm            | hash
+        "MD5"                | "5eb63bbbe01eeed093cb22bb8f5acdc3"
+        "SHA1"               | "2aae6c35c94fcfb415dbe95f408b9ce91ee846ed"
+        HashUtil.MURMUR3_128 | "e617feb46603f53b163eb607d4697ab"
+    }
+
+    @Unroll
+    def "hash of file larger than buffer is the same as the hash of its content for #algorithm"() {
+        def content = new byte[200 * 1024 + 17]
+        new Random(1).nextBytes(content)
+        def file = tmpDir.file("file.bin")
+        file.bytes = content
+
+        expect:
+        HashUtil.createHash(file, algorithm) == HashUtil.createHash(new ByteArrayInputStream(content), algorithm)
+
+        where:
+        algorithm << ["MD5", HashUtil.MURMUR3_128]
+    }
+
+    def "hashes empty file"() {
+        def file = tmpDir.createFile("empty")
+
+        expect:
+        HashUtil.createHash(file, "MD5").asHexString() == "d41d8cd98f00b204e9800998ecf8427e"
+    }
+
+    def "hash of file is not affected by failure to hash previous file"() {
+        def file = tmpDir.file("file.txt")
+        file.text = "hello world"
+
+        when:
+        HashUtil.createHash(tmpDir.file("missing"), "MD5")
+
+        then:
+        thrown(UncheckedIOException)
+
+        and:
+        HashUtil.createHash(file, "MD5").asHexString() == "5eb63bbbe01eeed093cb22bb8f5acdc3"
+    }
+
+    def "can hash string using non-cryptographic algorithm"() {
+        expect:
+        HashUtil.createHash("hello world", HashUtil.MURMUR3_128).asHexString() == "e617feb46603f53b163eb607d4697ab"
+    }
+}
@@ -37,6 +37,7 @@ import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleResolutionCache;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleResolutionCache;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionPrefetchExecutor;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.StartParameterResolutionOverride;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryDependencyMetadataCache;
@@ -49,6 +50,7 @@ import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProjectModuleRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.DefaultBaseRepositoryFactory;
 import org.gradle.api.internal.artifacts.repositories.cachemanager.DownloadingRepositoryArtifactCache;
@@ -72,6 +74,7 @@ import org.gradle.api.internal.notations.api.NotationParser;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
@@ -84,6 +87,7 @@ import java.io.File;
 import java.util.List;
 
 public class DefaultDependencyManagementServices extends DefaultServiceRegistry implements DependencyManagementServices {
+    private static final int PREFETCH_THREADS = 4;
 
     public DefaultDependencyManagementServices(ServiceRegistry parent) {
         super(parent);
@@ -191,6 +195,19 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
         );
     }
 
+    protected ModuleVersionPrefetchExecutor createModuleVersionPrefetchExecutor() {
+        return new ModuleVersionPrefetchExecutor(get(ExecutorFactory.class), PREFETCH_THREADS);
+    }
+
+    protected ResolvedGraphCache createResolvedGraphCache() {
+        return new ResolvedGraphCache(
+                get(ArtifactCacheMetaData.class),
+                get(CacheLockingManager.class),
+                get(ModuleDescriptorCache.class),
+                get(StartParameter.class)
+        );
+    }
+
     protected ArtifactAtRepositoryCachedArtifactIndex createArtifactAtRepositoryCachedResolutionIndex() {
         return new ArtifactAtRepositoryCachedArtifactIndex(new File(get(ArtifactCacheMetaData.class).getCacheDir(), "artifact-at-repository.bin"),
                 get(BuildCommencedTimeProvider.class),
@@ -291,7 +308,10 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
                         get(PublishModuleDescriptorConverter.class)),
                 get(CacheLockingManager.class),
                 get(IvyContextManager.class),
-                get(ResolutionResultsStoreFactory.class));
+                get(ResolutionResultsStoreFactory.class),
+                get(ExecutorFactory.class),
+                get(ModuleVersionPrefetchExecutor.class),
+                get(ResolvedGraphCache.class));
         return new ErrorHandlingArtifactDependencyResolver(
                 new ShortcircuitEmptyConfigsArtifactDependencyResolver(
                         new SelfResolvingDependencyResolver(
@@ -121,7 +121,11 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return extraAttributes.get(Dependency.CLASSIFIER);
     }
     
-    public File getFile() {
+    public synchronized boolean isFileResolved() {
+        return file != null;
+    }
+
+    public synchronized File getFile() {
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Resolves the files of a set of artifacts on a fixed number of worker threads, so that the files are downloaded concurrently rather than one at a time as
+ * they are requested. The number of concurrent downloads from each repository is limited separately, by the repository. When the repositories do not
+ * support concurrent access, such as when one of them uses an Ivy resolver, the files are resolved one at a time as they are requested.
+ *
+ * <p>A failure to resolve the file of an artifact is ignored, so that it is reported when the file is requested.</p>
+ */
+public class ArtifactDownloader {
+    /**
+     * The system property that sets the number of artifacts that are downloaded concurrently from a repository. Set this to 1 to download the artifacts
+     * one at a time.
+     */
+    public final static String MAX_CONNECTIONS_PER_REPOSITORY_PROPERTY = "org.gradle.resolution.maxConnectionsPerRepository";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_REPOSITORY = 4;
+    private static final int MIN_THREADS = 8;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactDownloader.class);
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private final int threads;
+
+    /**
+     * @param concurrentDownloadSupported Whether the repositories the artifacts are resolved from can be accessed concurrently. See {@link
+     * org.gradle.api.internal.artifacts.ivyservice.ivyresolve.IvyAdapter#isConcurrentResolveSupported()}.
+     */
+    public ArtifactDownloader(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, boolean concurrentDownloadSupported) {
+        this(executorFactory, cacheLockingManager, concurrentDownloadSupported ? threadsFor(getMaxConnectionsPerRepository()) : 1);
+    }
+
+    ArtifactDownloader(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, int threads) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+        this.threads = threads;
+    }
+
+    public static int getMaxConnectionsPerRepository() {
+        String value = System.getProperty(MAX_CONNECTIONS_PER_REPOSITORY_PROPERTY);
+        if (value == null) {
+            return DEFAULT_MAX_CONNECTIONS_PER_REPOSITORY;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid value '{}' for system property '{}'.", value, MAX_CONNECTIONS_PER_REPOSITORY_PROPERTY);
+            return DEFAULT_MAX_CONNECTIONS_PER_REPOSITORY;
+        }
+    }
+
+    private static int threadsFor(int maxConnectionsPerRepository) {
+        // Allows for downloading from more than one repository at a time
+        return maxConnectionsPerRepository > 1 ? Math.max(MIN_THREADS, maxConnectionsPerRepository) : 1;
+    }
+
+    /**
+     * Resolves the files of the given artifacts that have not been resolved yet. Blocks until all of them have been attempted.
+     */
+    public void download(Collection<? extends ResolvedArtifact> artifacts) {
+        final Queue<ResolvedArtifact> pending = new ConcurrentLinkedQueue<ResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact && !((DefaultResolvedArtifact) artifact).isFileResolved()) {
+                pending.add(artifact);
+            }
+        }
+        if (threads <= 1 || pending.size() <= 1) {
+            // Resolved as they are requested
+            return;
+        }
+
+        LOGGER.debug("Downloading {} artifacts using {} threads.", pending.size(), threads);
+        final StoppableExecutor executor = executorFactory.create("Artifact download");
+        final List<Runnable> workers = new ArrayList<Runnable>();
+        for (int i = 0; i < Math.min(threads, pending.size()); i++) {
+            workers.add(new Runnable() {
+                public void run() {
+                    for (ResolvedArtifact artifact = pending.poll(); artifact != null; artifact = pending.poll()) {
+                        try {
+                            artifact.getFile();
+                        } catch (Throwable t) {
+                            LOGGER.debug(String.format("Could not download %s in the background.", artifact), t);
+                        }
+                    }
+                }
+            });
+        }
+        // Each download locks the cache for itself, so this thread must not hold the cache lock while waiting for them
+        cacheLockingManager.useCache("download artifacts", new Runnable() {
+            public void run() {
+                cacheLockingManager.longRunningOperation("Wait for artifact downloads", new Runnable() {
+                    public void run() {
+                        for (Runnable worker : workers) {
+                            executor.execute(worker);
+                        }
+                        executor.stop();
+                    }
+                });
+            }
+        });
+    }
+}
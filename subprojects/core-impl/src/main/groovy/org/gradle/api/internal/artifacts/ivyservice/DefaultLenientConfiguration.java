@@ -32,11 +32,13 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private CacheLockingManager cacheLockingManager;
     private final Configuration configuration;
     private ResolvedConfigurationResults results;
+    private final ArtifactDownloader artifactDownloader;
 
-    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager) {
+    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager, ArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.results = results;
         this.cacheLockingManager = cacheLockingManager;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -88,6 +90,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        artifactDownloader.download(allArtifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
@@ -105,6 +108,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     }
 
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
+        artifactDownloader.download(artifacts);
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
@@ -39,6 +39,11 @@ public interface ModuleVersionIdResolveResult {
      */
     ModuleVersionResolveResult resolve() throws ModuleVersionResolveException;
 
+    /**
+     * Starts resolving the meta-data for this module version in the background, if supported, so that {@link #resolve()} does not have to wait as long for it.
+     */
+    void prefetch();
+
     /**
      * @return why given id was selected. Should return a value even if the resolve failed.
      */
@@ -41,6 +41,10 @@ class SubstitutedModuleVersionIdResolveResult implements ModuleVersionIdResolveR
         return result.resolve();
     }
 
+    public void prefetch() {
+        result.prefetch();
+    }
+
     public ModuleVersionSelectionReason getSelectionReason() {
         return selectionReason;
     }
@@ -68,6 +68,9 @@ public class VersionForcingDependencyToModuleResolver implements DependencyToMod
             throw failure;
         }
 
+        public void prefetch() {
+        }
+
         public ModuleVersionSelectionReason getSelectionReason() {
             return VersionSelectionReasons.REQUESTED;
         }
@@ -19,16 +19,21 @@ import org.gradle.api.artifacts.ArtifactIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.BuildableArtifactResolveResult;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 
+import java.util.concurrent.Semaphore;
+
 /**
- * A wrapper around a {@link ModuleVersionRepository} that handles locking/unlocking the cache.
+ * A wrapper around a {@link ModuleVersionRepository} that handles locking/unlocking the cache. Also limits the number of artifacts that are downloaded from the
+ * repository at the same time.
  */
 public class CacheLockingModuleVersionRepository implements ModuleVersionRepository {
     private final ModuleVersionRepository repository;
     private final CacheLockingManager cacheLockingManager;
+    private final Semaphore downloads;
 
-    public CacheLockingModuleVersionRepository(ModuleVersionRepository repository, CacheLockingManager cacheLockingManager) {
+    public CacheLockingModuleVersionRepository(ModuleVersionRepository repository, CacheLockingManager cacheLockingManager, int maxConcurrentDownloads) {
         this.repository = repository;
         this.cacheLockingManager = cacheLockingManager;
+        this.downloads = new Semaphore(maxConcurrentDownloads);
     }
 
     public String getId() {
@@ -50,7 +55,12 @@ public class CacheLockingModuleVersionRepository implements ModuleVersionReposit
     public void resolve(final ArtifactIdentifier artifact, final BuildableArtifactResolveResult result, final ModuleSource moduleSource) {
         cacheLockingManager.longRunningOperation(String.format("Download %s using repository %s", artifact, getId()), new Runnable() {
             public void run() {
-                repository.resolve(artifact, result, moduleSource);
+                downloads.acquireUninterruptibly();
+                try {
+                    repository.resolve(artifact, result, moduleSource);
+                } finally {
+                    downloads.release();
+                }
             }
         });
     }
@@ -23,11 +23,13 @@ class DefaultIvyAdapter implements IvyAdapter {
     private final VersionMatcher versionMatcher;
     private final LatestStrategy latestStrategy;
     private final DependencyToModuleVersionResolver userResolver;
+    private final boolean concurrentResolveSupported;
 
-    public DefaultIvyAdapter(VersionMatcher versionMatcher, LatestStrategy latestStrategy, DependencyToModuleVersionResolver userResolverChain) {
+    public DefaultIvyAdapter(VersionMatcher versionMatcher, LatestStrategy latestStrategy, DependencyToModuleVersionResolver userResolverChain, boolean concurrentResolveSupported) {
         this.versionMatcher = versionMatcher;
         this.latestStrategy = latestStrategy;
         userResolver = userResolverChain;
+        this.concurrentResolveSupported = concurrentResolveSupported;
     }
 
     public LatestStrategy getLatestStrategy() {
@@ -41,4 +43,8 @@ class DefaultIvyAdapter implements IvyAdapter {
     public DependencyToModuleVersionResolver getDependencyToModuleResolver() {
         return userResolver;
     }
+
+    public boolean isConcurrentResolveSupported() {
+        return concurrentResolveSupported;
+    }
 }
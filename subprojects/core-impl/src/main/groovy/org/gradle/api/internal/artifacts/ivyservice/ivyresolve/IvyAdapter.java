@@ -25,4 +25,9 @@ public interface IvyAdapter {
     LatestStrategy getLatestStrategy();
 
     DependencyToModuleVersionResolver getDependencyToModuleResolver();
+
+    /**
+     * Returns true when module versions can be resolved concurrently. This is not the case when a repository uses an Ivy resolver, as these are not thread-safe.
+     */
+    boolean isConcurrentResolveSupported();
 }
@@ -25,18 +25,32 @@ import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionMatcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons;
+import org.gradle.internal.UncheckedException;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * A {@link org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionIdResolver} implementation which returns lazy resolvers that don't actually retrieve module descriptors until
- * required.
+ * required. When given a {@link ModuleVersionPrefetcher}, the module descriptor for a static version can be retrieved in the background before it is required.
  */
 public class LazyDependencyToModuleResolver implements DependencyToModuleVersionIdResolver {
     private final DependencyToModuleVersionResolver dependencyResolver;
     private final VersionMatcher versionMatcher;
+    private final ModuleVersionPrefetcher prefetcher;
+    private final Set<ModuleVersionIdentifier> prefetched = new HashSet<ModuleVersionIdentifier>();
 
     public LazyDependencyToModuleResolver(DependencyToModuleVersionResolver dependencyResolver, VersionMatcher versionMatcher) {
+        this(dependencyResolver, versionMatcher, null);
+    }
+
+    public LazyDependencyToModuleResolver(DependencyToModuleVersionResolver dependencyResolver, VersionMatcher versionMatcher, ModuleVersionPrefetcher prefetcher) {
         this.dependencyResolver = dependencyResolver;
         this.versionMatcher = versionMatcher;
+        this.prefetcher = prefetcher;
     }
 
     public ModuleVersionIdResolveResult resolve(DependencyMetaData dependency) {
@@ -66,7 +80,11 @@ public class LazyDependencyToModuleResolver implements DependencyToModuleVersion
 
     private abstract class AbstractVersionResolveResult implements ModuleVersionIdResolveResult {
         final DependencyMetaData dependency;
-        private BuildableModuleVersionResolveResult resolveResult;
+        final FutureTask<ModuleVersionResolveResult> resolveResult = new FutureTask<ModuleVersionResolveResult>(new Callable<ModuleVersionResolveResult>() {
+            public ModuleVersionResolveResult call() {
+                return doResolve();
+            }
+        });
 
         public AbstractVersionResolveResult(DependencyMetaData dependency) {
             this.dependency = dependency;
@@ -77,28 +95,43 @@ public class LazyDependencyToModuleResolver implements DependencyToModuleVersion
         }
 
         public ModuleVersionResolveResult resolve() {
-            if (resolveResult == null) {
-                resolveResult = new DefaultBuildableModuleVersionResolveResult();
+            // Does nothing when the resolve has already been run, or is running in the background
+            resolveResult.run();
+            if (!resolveResult.isDone()) {
+                prefetcher.waitFor(resolveResult);
+            }
+            try {
+                return resolveResult.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
+
+        public void prefetch() {
+        }
+
+        private ModuleVersionResolveResult doResolve() {
+            BuildableModuleVersionResolveResult result = new DefaultBuildableModuleVersionResolveResult();
+            try {
                 try {
-                    try {
-                        dependencyResolver.resolve(dependency, resolveResult);
-                    } catch (Throwable t) {
-                        throw new ModuleVersionResolveException(dependency.getRequested(), t);
-                    }
-                    if (resolveResult.getFailure() instanceof ModuleVersionNotFoundException) {
-                        throw notFound();
-                    }
-                    if (resolveResult.getFailure() != null) {
-                        throw resolveResult.getFailure();
-                    }
-                    checkDescriptor(resolveResult.getMetaData());
-                    resolveResult.setArtifactResolver(new ErrorHandlingArtifactResolver(resolveResult.getArtifactResolver()));
-                } catch (ModuleVersionResolveException e) {
-                    resolveResult.failed(e);
+                    dependencyResolver.resolve(dependency, result);
+                } catch (Throwable t) {
+                    throw new ModuleVersionResolveException(dependency.getRequested(), t);
                 }
+                if (result.getFailure() instanceof ModuleVersionNotFoundException) {
+                    throw notFound();
+                }
+                if (result.getFailure() != null) {
+                    throw result.getFailure();
+                }
+                checkDescriptor(result.getMetaData());
+                result.setArtifactResolver(new ErrorHandlingArtifactResolver(result.getArtifactResolver()));
+            } catch (ModuleVersionResolveException e) {
+                result.failed(e);
             }
-
-            return resolveResult;
+            return result;
         }
 
         public ModuleVersionSelectionReason getSelectionReason() {
@@ -136,6 +169,14 @@ public class LazyDependencyToModuleResolver implements DependencyToModuleVersion
             return VersionSelectionReasons.REQUESTED;
         }
 
+        @Override
+        public void prefetch() {
+            // Only the first resolve for a module version is run in the background, as the others are usually served from the in-memory cache
+            if (prefetcher != null && !resolveResult.isDone() && prefetched.add(id)) {
+                prefetcher.prefetch(resolveResult);
+            }
+        }
+
         @Override
         protected void checkDescriptor(ModuleVersionMetaData metaData) {
             if (!id.equals(metaData.getId())) {
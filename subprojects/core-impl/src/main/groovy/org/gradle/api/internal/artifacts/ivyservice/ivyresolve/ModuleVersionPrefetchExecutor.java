@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The worker threads that {@link ModuleVersionPrefetcher} runs module version resolves on. There is one for each build, shared by all the dependency graphs
+ * that the build resolves, so that the number of threads stays the same however many configurations are resolved, one after another or concurrently.
+ *
+ * <p>The threads are started when the first resolve is scheduled.</p>
+ */
+public class ModuleVersionPrefetchExecutor implements Executor, Stoppable {
+    private final ExecutorFactory executorFactory;
+    private final int threads;
+    private StoppableExecutor executor;
+
+    public ModuleVersionPrefetchExecutor(ExecutorFactory executorFactory, int threads) {
+        this.executorFactory = executorFactory;
+        this.threads = threads;
+    }
+
+    public synchronized void execute(Runnable command) {
+        if (executor == null) {
+            executor = executorFactory.create("Module version prefetch", threads);
+        }
+        executor.execute(command);
+    }
+
+    /**
+     * Waits for the scheduled resolves to complete, then stops the threads.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
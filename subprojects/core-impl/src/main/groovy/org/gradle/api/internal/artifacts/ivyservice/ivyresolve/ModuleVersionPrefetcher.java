@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Runs module version resolves in the background on a shared set of worker threads, so that the meta-data for the dependencies of a module can be fetched
+ * concurrently while the dependency graph is traversed by a single thread. There is one prefetcher for each dependency graph that is resolved.
+ *
+ * <p>A resolve runs with the artifact cache locked and with the Ivy instance of the thread that traverses the graph, the same as a resolve run by that thread.
+ * As a resolve releases the cache lock while it accesses a remote repository, it is the repository accesses that run concurrently.</p>
+ */
+public class ModuleVersionPrefetcher implements Stoppable {
+    /**
+     * Set this system property to false to resolve the module versions of a dependency graph one at a time.
+     */
+    public final static String TOGGLE_PROPERTY = "org.gradle.resolution.prefetch";
+
+    private final Executor executor;
+    private final CacheLockingManager cacheLockingManager;
+    private final Ivy ivy;
+    private final Object lock = new Object();
+    private int scheduled;
+    private volatile boolean stopped;
+
+    /**
+     * @param executor The worker threads to run the resolves on, usually a {@link ModuleVersionPrefetchExecutor} shared with other prefetchers.
+     */
+    public ModuleVersionPrefetcher(Executor executor, CacheLockingManager cacheLockingManager, Ivy ivy) {
+        this.executor = executor;
+        this.cacheLockingManager = cacheLockingManager;
+        this.ivy = ivy;
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    /**
+     * Schedules the given resolve to run in the background. A worker thread skips the resolve when it has already been run by the time the worker takes it,
+     * or when this prefetcher has been stopped.
+     */
+    public void prefetch(final RunnableFuture<?> resolve) {
+        synchronized (lock) {
+            scheduled++;
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (!stopped && !resolve.isDone()) {
+                        ModuleVersionPrefetcher.this.run(resolve);
+                    }
+                } finally {
+                    synchronized (lock) {
+                        scheduled--;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the given resolve, which is running in the background, to complete. Releases the cache lock while waiting, so that the resolves running in
+     * the background can use the cache.
+     */
+    public void waitFor(final Future<?> resolve) {
+        cacheLockingManager.longRunningOperation("Wait for module version resolved in background", new Runnable() {
+            public void run() {
+                try {
+                    resolve.get();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                } catch (ExecutionException e) {
+                    // Reported by the thread that uses the result
+                }
+            }
+        });
+    }
+
+    /**
+     * Discards the resolves that have not been started, and waits for the running resolves to complete. Does not stop the worker threads, which are
+     * shared.
+     */
+    public void stop() {
+        stopped = true;
+        cacheLockingManager.longRunningOperation("Wait for module versions resolved in background", new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    while (scheduled > 0) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            throw UncheckedException.throwAsUncheckedException(e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void run(final RunnableFuture<?> resolve) {
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            cacheLockingManager.useCache("Resolve module version in background", resolve);
+        } finally {
+            IvyContext.popContext();
+        }
+    }
+}
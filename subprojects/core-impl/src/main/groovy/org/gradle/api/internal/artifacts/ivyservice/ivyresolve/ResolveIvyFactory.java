@@ -22,6 +22,7 @@ import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.settings.IvySettings;
 import org.gradle.api.artifacts.cache.ResolutionRules;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactDownloader;
 import org.gradle.api.internal.artifacts.ivyservice.BuildableModuleVersionResolveResult;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver;
@@ -68,12 +69,14 @@ public class ResolveIvyFactory {
 
         UserResolverChain userResolverChain = new UserResolverChain(versionMatcher, comparatorLatestStrategy);
         DependencyToModuleVersionResolver parentLookupResolver = new ParentModuleLookupResolver(userResolverChain, cacheLockingManager);
+        boolean concurrentResolveSupported = true;
 
         for (ResolutionAwareRepository repository : repositories) {
             ConfiguredModuleVersionRepository moduleVersionRepository = repository.createResolver();
 
             if (moduleVersionRepository instanceof IvyAwareModuleVersionRepository) {
                 ivyContextualize((IvyAwareModuleVersionRepository) moduleVersionRepository, userResolverChain, configuration.getName());
+                concurrentResolveSupported = false;
             }
             if (moduleVersionRepository instanceof ExternalResourceResolver) {
                 // TODO:DAZ Should have type for this
@@ -84,10 +87,10 @@ public class ResolveIvyFactory {
             if (moduleVersionRepository.isLocal()) {
                 localAwareRepository = new LocalModuleVersionRepository(moduleVersionRepository);
             } else {
-                ModuleVersionRepository wrapperRepository = new CacheLockingModuleVersionRepository(moduleVersionRepository, cacheLockingManager);
+                ModuleVersionRepository wrapperRepository = new CacheLockingModuleVersionRepository(moduleVersionRepository, cacheLockingManager, ArtifactDownloader.getMaxConnectionsPerRepository());
                 wrapperRepository = startParameterResolutionOverride.overrideModuleVersionRepository(wrapperRepository);
                 localAwareRepository = new CachingModuleVersionRepository(wrapperRepository, moduleResolutionCache, moduleDescriptorCache, artifactAtRepositoryCachedResolutionIndex,
-                        parentLookupResolver, configuration.getResolutionStrategy().getCachePolicy(), timeProvider);
+                        configuration.getResolutionStrategy().getCachePolicy(), timeProvider);
             }
             if (moduleVersionRepository.isDynamicResolveMode()) {
                 localAwareRepository = new IvyDynamicResolveModuleVersionRepository(localAwareRepository);
@@ -96,7 +99,7 @@ public class ResolveIvyFactory {
             userResolverChain.add(localAwareRepository);
         }
 
-        return new DefaultIvyAdapter(versionMatcher, comparatorLatestStrategy, userResolverChain);
+        return new DefaultIvyAdapter(versionMatcher, comparatorLatestStrategy, userResolverChain, concurrentResolveSupported);
     }
 
     private void ivyContextualize(IvyAwareModuleVersionRepository ivyAwareRepository, UserResolverChain userResolverChain, String configurationName) {
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.License;
 import org.apache.ivy.core.module.id.ModuleId;
@@ -23,22 +25,22 @@ import org.apache.ivy.plugins.parser.m2.PomDependencyMgt;
 import org.apache.ivy.util.XMLHelper;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.externalresource.LocallyAvailableExternalResource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.parsers.DocumentBuilder;
 import java.io.*;
 import java.util.*;
 
 
 /**
  * Copied from org.apache.ivy.plugins.parser.m2.PomReader.
+ *
+ * <p>Rather than building a DOM for the POM, the POM is read in a single pass using SAX, keeping only the elements that are used to build the module
+ * descriptor. As with the DOM based reader, only the first occurrence of an element is used where a single element is expected. The group, artifact and
+ * version values returned by this reader are interned, as the same values are read from many POMs.</p>
  */
 public class PomReader {
 
@@ -66,50 +68,39 @@ public class PomReader {
     private static final String DISTRIBUTION_MGT = "distributionManagement";
     private static final String RELOCATION = "relocation";
     private static final String PROPERTIES = "properties";
+    private static final String BUILD = "build";
     private static final String PLUGINS = "plugins";
     private static final String PLUGIN = "plugin";
     private static final String TYPE = "type";
 
+    private static final Interner<String> COORDINATES = Interners.newWeakInterner();
+
     private Map<String, String> properties = new HashMap<String, String>();
 
-    private final Element projectElement;
-    private final Element parentElement;
+    private final ProjectElement projectElement = new ProjectElement();
 
     public PomReader(final LocallyAvailableExternalResource resource) throws IOException, SAXException {
         final String systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
-        Document pomDomDoc = resource.withContent(new Transformer<Document, InputStream>() {
-            public Document transform(InputStream inputStream) {
+        final PomHandler handler = new PomHandler(projectElement);
+        resource.withContent(new Transformer<Object, InputStream>() {
+            public Object transform(InputStream inputStream) {
                 try {
-                    return parseToDom(inputStream, systemId);
+                    InputSource source = new InputSource(new AddDTDFilterInputStream(inputStream));
+                    source.setSystemId(systemId);
+                    XMLHelper.parse(source, null, handler, null);
+                    return null;
                 } catch (Exception e) {
                     throw new MetaDataParseException("POM", resource, e);
                 }
             }
         });
-        projectElement = pomDomDoc.getDocumentElement();
-        if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
+        if (!PROJECT.equals(handler.rootName) && !MODEL.equals(handler.rootName)) {
             throw new SAXParseException("project must be the root tag", systemId, systemId, 0, 0);
         }
-        parentElement = getFirstChildElement(projectElement, PARENT);
-    }
-
-    public static Document parseToDom(InputStream stream, String systemId) throws IOException, SAXException {
-        EntityResolver entityResolver = new EntityResolver() {
-            public InputSource resolveEntity(String publicId, String systemId)
-                    throws SAXException, IOException {
-                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                    return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
-                }
-                return null;
-            }
-        };
-        InputStream dtdStream = new AddDTDFilterInputStream(stream);
-        DocumentBuilder docBuilder = XMLHelper.getDocBuilder(entityResolver);
-        return docBuilder.parse(dtdStream, systemId);
     }
 
     public boolean hasParent() {
-        return parentElement != null;
+        return projectElement.parent != null;
     }
 
     /**
@@ -125,60 +116,63 @@ public class PomReader {
 
 
     public String getGroupId() {
-        String groupId = getFirstChildText(projectElement , GROUP_ID);
+        String groupId = projectElement.get(GROUP_ID);
         if (groupId == null) {
-            groupId = getFirstChildText(parentElement, GROUP_ID);
+            groupId = getParentText(GROUP_ID);
         }
-        return replaceProps(groupId);
+        return replaceCoordinateProps(groupId);
 
     }
 
     public String getParentGroupId() {
-        String groupId = getFirstChildText(parentElement , GROUP_ID);
+        String groupId = getParentText(GROUP_ID);
         if (groupId == null) {
-            groupId = getFirstChildText(projectElement, GROUP_ID);
+            groupId = projectElement.get(GROUP_ID);
         }
-        return replaceProps(groupId);
+        return replaceCoordinateProps(groupId);
     }
 
 
 
     public String getArtifactId() {
-        String val = getFirstChildText(projectElement , ARTIFACT_ID);
+        String val = projectElement.get(ARTIFACT_ID);
         if (val == null) {
-            val = getFirstChildText(parentElement, ARTIFACT_ID);
+            val = getParentText(ARTIFACT_ID);
         }
-        return replaceProps(val);
+        return replaceCoordinateProps(val);
     }
 
     public String getParentArtifactId() {
-        String val = getFirstChildText(parentElement , ARTIFACT_ID);
+        String val = getParentText(ARTIFACT_ID);
         if (val == null) {
-            val = getFirstChildText(projectElement, ARTIFACT_ID);
+            val = projectElement.get(ARTIFACT_ID);
         }
-        return replaceProps(val);
+        return replaceCoordinateProps(val);
     }
 
 
     public String getVersion() {
-        String val = getFirstChildText(projectElement , VERSION);
+        String val = projectElement.get(VERSION);
         if (val == null) {
-            val = getFirstChildText(parentElement, VERSION);
+            val = getParentText(VERSION);
         }
-        return replaceProps(val);
+        return replaceCoordinateProps(val);
     }
 
     public String getParentVersion() {
-        String val = getFirstChildText(parentElement , VERSION);
+        String val = getParentText(VERSION);
         if (val == null) {
-            val = getFirstChildText(projectElement, VERSION);
+            val = projectElement.get(VERSION);
         }
-        return replaceProps(val);
+        return replaceCoordinateProps(val);
     }
 
+    private String getParentText(String name) {
+        return projectElement.parent == null ? null : projectElement.parent.get(name);
+    }
 
     public String getPackaging() {
-        String val = getFirstChildText(projectElement , PACKAGING);
+        String val = projectElement.get(PACKAGING);
         if (val == null) {
             val = "jar";
         }
@@ -186,7 +180,7 @@ public class PomReader {
     }
 
     public String getHomePage() {
-        String val = getFirstChildText(projectElement , HOMEPAGE);
+        String val = projectElement.get(HOMEPAGE);
         if (val == null) {
             val = "";
         }
@@ -194,7 +188,7 @@ public class PomReader {
     }
 
     public String getDescription() {
-        String val = getFirstChildText(projectElement , DESCRIPTION);
+        String val = projectElement.get(DESCRIPTION);
         if (val == null) {
             val = "";
         }
@@ -202,43 +196,38 @@ public class PomReader {
     }
 
     public License[] getLicenses() {
-        Element licenses = getFirstChildElement(projectElement, LICENSES);
-        if (licenses == null) {
+        if (projectElement.licenses == null) {
             return new License[0];
         }
-        licenses.normalize();
         List<License> lics = new ArrayList<License>();
-        for (Element license : getAllChilds(licenses)) {
-            if (LICENSE.equals(license.getNodeName())) {
-                String name = getFirstChildText(license, LICENSE_NAME);
-                String url = getFirstChildText(license, LICENSE_URL);
-
-                if ((name == null) && (url == null)) {
-                    // move to next license
-                    continue;
-                }
+        for (Fields license : projectElement.licenses) {
+            String name = license.get(LICENSE_NAME);
+            String url = license.get(LICENSE_URL);
 
-                if (name == null) {
-                    // The license name is required in Ivy but not in a POM!
-                    name = "Unknown License";
-                }
+            if ((name == null) && (url == null)) {
+                // move to next license
+                continue;
+            }
 
-                lics.add(new License(name, url));
+            if (name == null) {
+                // The license name is required in Ivy but not in a POM!
+                name = "Unknown License";
             }
+
+            lics.add(new License(name, url));
         }
         return lics.toArray(new License[lics.size()]);
     }
 
 
     public ModuleRevisionId getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
+        Fields relocation = projectElement.relocation;
         if (relocation == null) {
             return null;
         } else {
-            String relocGroupId = getFirstChildText(relocation, GROUP_ID);
-            String relocArtId = getFirstChildText(relocation, ARTIFACT_ID);
-            String relocVersion = getFirstChildText(relocation, VERSION);
+            String relocGroupId = relocation.get(GROUP_ID);
+            String relocArtId = relocation.get(ARTIFACT_ID);
+            String relocVersion = relocation.get(VERSION);
             relocGroupId = relocGroupId == null ? getGroupId() : relocGroupId;
             relocArtId = relocArtId == null ? getArtifactId() : relocArtId;
             relocVersion = relocVersion == null ? getVersion() : relocVersion;
@@ -247,15 +236,10 @@ public class PomReader {
     }
 
     public List<PomDependencyData> getDependencies() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
         List<PomDependencyData> dependencies = new LinkedList<PomDependencyData>();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyData((Element) node));
-                }
+        if (projectElement.dependencies != null) {
+            for (DependencyElement dependency : projectElement.dependencies) {
+                dependencies.add(new PomDependencyData(dependency));
             }
         }
         return dependencies;
@@ -263,25 +247,19 @@ public class PomReader {
 
 
     public List<PomDependencyMgt> getDependencyMgt() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
-        dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
         List<PomDependencyMgt> dependencies = new LinkedList<PomDependencyMgt>();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyMgtElement((Element) node));
-                }
+        if (projectElement.dependencyMgt != null) {
+            for (DependencyElement dependency : projectElement.dependencyMgt) {
+                dependencies.add(new PomDependencyMgtElement(dependency));
             }
         }
         return dependencies;
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final DependencyElement depElement;
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(DependencyElement depElement) {
             this.depElement = depElement;
         }
 
@@ -289,44 +267,39 @@ public class PomReader {
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getGroupId()
          */
         public String getGroupId() {
-            String val = getFirstChildText(depElement , GROUP_ID);
-            return replaceProps(val);
+            String val = depElement.get(GROUP_ID);
+            return replaceCoordinateProps(val);
         }
 
         /* (non-Javadoc)
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getArtifaceId()
          */
         public String getArtifactId() {
-            String val = getFirstChildText(depElement , ARTIFACT_ID);
-            return replaceProps(val);
+            String val = depElement.get(ARTIFACT_ID);
+            return replaceCoordinateProps(val);
         }
 
         /* (non-Javadoc)
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getVersion()
          */
         public String getVersion() {
-            String val = getFirstChildText(depElement , VERSION);
-            return replaceProps(val);
+            String val = depElement.get(VERSION);
+            return replaceCoordinateProps(val);
         }
 
         public String getScope() {
-            String val = getFirstChildText(depElement , SCOPE);
+            String val = depElement.get(SCOPE);
             return replaceProps(val);
         }
 
         public List<ModuleId> getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             List<ModuleId> exclusions = new LinkedList<ModuleId>();
-            if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
-                        if ((groupId != null) && (artifactId != null)) {
-                            exclusions.add(ModuleId.newInstance(groupId, artifactId));
-                        }
+            if (depElement.exclusions != null) {
+                for (Fields exclusion : depElement.exclusions) {
+                    String groupId = exclusion.get(GROUP_ID);
+                    String artifactId = exclusion.get(ARTIFACT_ID);
+                    if ((groupId != null) && (artifactId != null)) {
+                        exclusions.add(ModuleId.newInstance(groupId, artifactId));
                     }
                 }
             }
@@ -336,45 +309,34 @@ public class PomReader {
 
     public List<PomPluginElement> getPlugins() {
         List<PomPluginElement> plugins = new LinkedList<PomPluginElement>();
-
-        Element buildElement = getFirstChildElement(projectElement, "build");
-        if (buildElement == null) {
-            return plugins;
-        }
-
-        Element pluginsElement = getFirstChildElement(buildElement, PLUGINS);
-        if (pluginsElement != null) {
-            NodeList childs = pluginsElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && PLUGIN.equals(node.getNodeName())) {
-                    plugins.add(new PomPluginElement((Element) node));
-                }
+        if (projectElement.plugins != null) {
+            for (Fields plugin : projectElement.plugins) {
+                plugins.add(new PomPluginElement(plugin));
             }
         }
         return plugins;
     }
 
     public class PomPluginElement implements PomDependencyMgt {
-        private Element pluginElement;
+        private Fields pluginElement;
 
-        PomPluginElement(Element pluginElement) {
+        PomPluginElement(Fields pluginElement) {
             this.pluginElement = pluginElement;
         }
 
         public String getGroupId() {
-            String val = getFirstChildText(pluginElement , GROUP_ID);
-            return replaceProps(val);
+            String val = pluginElement.get(GROUP_ID);
+            return replaceCoordinateProps(val);
         }
 
         public String getArtifactId() {
-            String val = getFirstChildText(pluginElement , ARTIFACT_ID);
-            return replaceProps(val);
+            String val = pluginElement.get(ARTIFACT_ID);
+            return replaceCoordinateProps(val);
         }
 
         public String getVersion() {
-            String val = getFirstChildText(pluginElement , VERSION);
-            return replaceProps(val);
+            String val = pluginElement.get(VERSION);
+            return replaceCoordinateProps(val);
         }
 
         public String getScope() {
@@ -388,30 +350,30 @@ public class PomReader {
 
 
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
-        PomDependencyData(Element depElement) {
+        private final DependencyElement depElement;
+        PomDependencyData(DependencyElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
 
         public String getScope() {
-            String val = getFirstChildText(depElement , SCOPE);
+            String val = depElement.get(SCOPE);
             return replaceProps(val);
         }
 
         public String getClassifier() {
-            String val = getFirstChildText(depElement , CLASSIFIER);
+            String val = depElement.get(CLASSIFIER);
             return replaceProps(val);
         }
 
         public String getType() {
-            String val = getFirstChildText(depElement, TYPE);
+            String val = depElement.get(TYPE);
             return replaceProps(val);
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL);
-            return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
+            String val = depElement.get(OPTIONAL);
+            return "true".equalsIgnoreCase(val);
         }
     }
 
@@ -420,12 +382,8 @@ public class PomReader {
      */
     public Map<String, String> getPomProperties() {
         Map<String, String> pomProperties = new HashMap<String, String>();
-        Element propsEl = getFirstChildElement(projectElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Element prop : getAllChilds(propsEl)) {
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+        if (projectElement.properties != null) {
+            pomProperties.putAll(projectElement.properties);
         }
         return pomProperties;
     }
@@ -433,76 +391,310 @@ public class PomReader {
     private String replaceProps(String val) {
         if (val == null) {
             return null;
+        } else if (val.indexOf("${") < 0) {
+            return val.trim();
         } else {
             return IvyPatternHelper.substituteVariables(val, properties).trim();
         }
     }
 
-    private static String getTextContent(Element element) {
-        StringBuilder result = new StringBuilder();
+    private String replaceCoordinateProps(String val) {
+        String result = replaceProps(val);
+        return result == null ? null : COORDINATES.intern(result);
+    }
 
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
+    /**
+     * The content of an element that is kept by the reader. Returns the content to keep for each child element, or null to skip the child element.
+     */
+    private abstract static class ElementContent {
+        ElementContent child(String name) {
+            return null;
+        }
+    }
+
+    /**
+     * The text of the first occurrence of each of the given child elements of an element.
+     */
+    private static class Fields extends ElementContent {
+        private final String[] names;
+        private final String[] values;
+
+        Fields(String... names) {
+            this.names = names;
+            this.values = new String[names.length];
+        }
 
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
+        @Override
+        ElementContent child(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    if (values[i] != null) {
+                        return null;
+                    }
+                    final int index = i;
+                    return new Text() {
+                        void setText(String text) {
+                            values[index] = text;
+                        }
+                    };
+                }
             }
+            return null;
         }
 
-        return result.toString();
+        String get(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
     }
 
-    private static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
-        if (node != null) {
-            return getTextContent(node);
-        } else {
+    /**
+     * The text of an element, which does not include the text of its child elements.
+     */
+    private abstract static class Text extends ElementContent {
+        abstract void setText(String text);
+    }
+
+    /**
+     * All occurrences of a given child element of an element.
+     */
+    private abstract static class Elements<T extends ElementContent> extends ElementContent {
+        private final String name;
+        private final List<T> elements;
+
+        Elements(String name, List<T> elements) {
+            this.name = name;
+            this.elements = elements;
+        }
+
+        @Override
+        ElementContent child(String name) {
+            if (this.name.equals(name)) {
+                T element = create();
+                elements.add(element);
+                return element;
+            }
             return null;
         }
+
+        abstract T create();
     }
 
-    private static Element getFirstChildElement(Element parentElem, String name) {
-        if (parentElem == null) {
-            return null;
+    private static class DependencyElement extends Fields {
+        private List<Fields> exclusions;
+
+        DependencyElement() {
+            super(GROUP_ID, ARTIFACT_ID, VERSION, SCOPE, CLASSIFIER, TYPE, OPTIONAL);
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+
+        @Override
+        ElementContent child(String name) {
+            if (EXCLUSIONS.equals(name)) {
+                if (exclusions != null) {
+                    return null;
+                }
+                exclusions = new ArrayList<Fields>();
+                return new Elements<Fields>(EXCLUSION, exclusions) {
+                    Fields create() {
+                        return new Fields(GROUP_ID, ARTIFACT_ID);
+                    }
+                };
             }
+            return super.child(name);
+        }
+    }
+
+    private static class DependencyElements extends Elements<DependencyElement> {
+        DependencyElements(List<DependencyElement> elements) {
+            super(DEPENDENCY, elements);
+        }
+
+        DependencyElement create() {
+            return new DependencyElement();
         }
-        return null;
     }
 
-    private static List<Element> getAllChilds(Element parent) {
-        List<Element> r = new LinkedList<Element>();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add((Element) node);
+    private static class ProjectElement extends Fields {
+        private Fields parent;
+        private List<Fields> licenses;
+        private boolean hasDistributionMgt;
+        private Fields relocation;
+        private List<DependencyElement> dependencies;
+        private boolean hasDependencyMgt;
+        private List<DependencyElement> dependencyMgt;
+        private boolean hasBuild;
+        private List<Fields> plugins;
+        private Map<String, String> properties;
+
+        ProjectElement() {
+            super(GROUP_ID, ARTIFACT_ID, VERSION, PACKAGING, HOMEPAGE, DESCRIPTION);
+        }
+
+        @Override
+        ElementContent child(String name) {
+            if (PARENT.equals(name)) {
+                if (parent != null) {
+                    return null;
+                }
+                parent = new Fields(GROUP_ID, ARTIFACT_ID, VERSION);
+                return parent;
+            }
+            if (LICENSES.equals(name)) {
+                if (licenses != null) {
+                    return null;
+                }
+                licenses = new ArrayList<Fields>();
+                return new Elements<Fields>(LICENSE, licenses) {
+                    Fields create() {
+                        return new Fields(LICENSE_NAME, LICENSE_URL);
+                    }
+                };
+            }
+            if (DISTRIBUTION_MGT.equals(name)) {
+                if (hasDistributionMgt) {
+                    return null;
+                }
+                hasDistributionMgt = true;
+                return new ElementContent() {
+                    ElementContent child(String name) {
+                        if (!RELOCATION.equals(name) || relocation != null) {
+                            return null;
+                        }
+                        relocation = new Fields(GROUP_ID, ARTIFACT_ID, VERSION);
+                        return relocation;
+                    }
+                };
+            }
+            if (DEPENDENCIES.equals(name)) {
+                if (dependencies != null) {
+                    return null;
+                }
+                dependencies = new ArrayList<DependencyElement>();
+                return new DependencyElements(dependencies);
+            }
+            if (DEPENDENCY_MGT.equals(name)) {
+                if (hasDependencyMgt) {
+                    return null;
+                }
+                hasDependencyMgt = true;
+                return new ElementContent() {
+                    ElementContent child(String name) {
+                        if (!DEPENDENCIES.equals(name) || dependencyMgt != null) {
+                            return null;
+                        }
+                        dependencyMgt = new ArrayList<DependencyElement>();
+                        return new DependencyElements(dependencyMgt);
+                    }
+                };
+            }
+            if (BUILD.equals(name)) {
+                if (hasBuild) {
+                    return null;
+                }
+                hasBuild = true;
+                return new ElementContent() {
+                    ElementContent child(String name) {
+                        if (!PLUGINS.equals(name) || plugins != null) {
+                            return null;
+                        }
+                        plugins = new ArrayList<Fields>();
+                        return new Elements<Fields>(PLUGIN, plugins) {
+                            Fields create() {
+                                return new Fields(GROUP_ID, ARTIFACT_ID, VERSION);
+                            }
+                        };
+                    }
+                };
+            }
+            if (PROPERTIES.equals(name)) {
+                if (properties != null) {
+                    return null;
                 }
+                properties = new HashMap<String, String>();
+                return new ElementContent() {
+                    ElementContent child(final String name) {
+                        return new Text() {
+                            void setText(String text) {
+                                properties.put(name, text);
+                            }
+                        };
+                    }
+                };
+            }
+            return super.child(name);
+        }
+    }
+
+    /**
+     * Collects the content of the elements that are kept by the reader. Ignores all other elements, without collecting their text.
+     */
+    private static class PomHandler extends DefaultHandler {
+        private final ElementContent project;
+        private final LinkedList<ElementContent> elements = new LinkedList<ElementContent>();
+        private final StringBuilder text = new StringBuilder();
+        private String rootName;
+
+        PomHandler(ElementContent project) {
+            this.project = project;
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+            }
+            return null;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            ElementContent content;
+            if (rootName == null) {
+                rootName = qName;
+                content = PROJECT.equals(qName) || MODEL.equals(qName) ? project : null;
+            } else {
+                ElementContent parent = elements.getFirst();
+                content = parent == null ? null : parent.child(qName);
+            }
+            if (content instanceof Text) {
+                text.setLength(0);
+            }
+            elements.addFirst(content);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (elements.getFirst() instanceof Text) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            ElementContent content = elements.removeFirst();
+            if (content instanceof Text) {
+                ((Text) content).setText(text.toString());
             }
         }
-        return r;
     }
 
-    private static final class AddDTDFilterInputStream extends FilterInputStream {
+    static final class AddDTDFilterInputStream extends FilterInputStream {
         private static final int MARK = 10000;
         private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
 
         private int count;
         private byte[] prefix = DOCTYPE.getBytes();
 
-        private AddDTDFilterInputStream(InputStream in) throws IOException {
+        AddDTDFilterInputStream(InputStream in) throws IOException {
             super(new BufferedInputStream(in));
 
             this.in.mark(MARK);
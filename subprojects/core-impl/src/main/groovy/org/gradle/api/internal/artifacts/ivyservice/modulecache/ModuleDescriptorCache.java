@@ -18,7 +18,6 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ResolvedModuleVersion;
-import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleSource;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionRepository;
 
@@ -27,8 +26,12 @@ import java.math.BigInteger;
 public interface ModuleDescriptorCache {
     CachedModuleDescriptor cacheModuleDescriptor(ModuleVersionRepository repository, ModuleVersionIdentifier resolvedModuleVersionIdentifier, ModuleDescriptor moduleDescriptor, ModuleSource moduleSource, boolean isChanging);
 
-    // TODO:DAZ Should not need a resolver to parse the cached descriptors: descriptor should be self-contained.
-    CachedModuleDescriptor getCachedModuleDescriptor(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier, DependencyToModuleVersionResolver resolver);
+    CachedModuleDescriptor getCachedModuleDescriptor(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier);
+
+    /**
+     * Returns the time that the module descriptor was last cached, or 0 when no module descriptor is cached.
+     */
+    long getModuleDescriptorTimestamp(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier);
 
     interface CachedModuleDescriptor {
         ResolvedModuleVersion getModuleVersion();
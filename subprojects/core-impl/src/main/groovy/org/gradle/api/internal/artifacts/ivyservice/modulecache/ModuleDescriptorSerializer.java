@@ -0,0 +1,488 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.MapMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.messaging.serialize.DataStreamBackedSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * Serializes the module descriptors held in the artifact cache using a compact binary format, in place of an ivy.xml file.
+ *
+ * <p>A serialized descriptor is self-contained: the content inherited from parent descriptors is written as part of the descriptor, and the references to
+ * the parent descriptors are not written. So no other descriptor needs to be resolved to read it. Strings that occur more than once in a descriptor are
+ * written once, and referenced by index after that.</p>
+ *
+ * <p>The data written is the same as the data written to a cached ivy.xml file by {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}.
+ * The first value written is the format version. A descriptor written using a different format version is read as null.</p>
+ */
+public class ModuleDescriptorSerializer extends DataStreamBackedSerializer<ModuleDescriptor> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleDescriptorSerializer.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final int NULL_STRING = -1;
+    private static final int NEW_STRING = -2;
+
+    @Override
+    public ModuleDescriptor read(DataInput dataInput) throws IOException {
+        int formatVersion = dataInput.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            LOGGER.debug("Ignoring cached module descriptor with unsupported format version {}.", formatVersion);
+            return null;
+        }
+        return new Reader(dataInput).readDescriptor();
+    }
+
+    @Override
+    public void write(DataOutput dataOutput, ModuleDescriptor descriptor) throws IOException {
+        dataOutput.writeInt(FORMAT_VERSION);
+        new Writer(dataOutput).writeDescriptor(descriptor);
+    }
+
+    private static class Writer {
+        private final DataOutput output;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private Writer(DataOutput output) {
+            this.output = output;
+        }
+
+        void writeDescriptor(ModuleDescriptor md) throws IOException {
+            writeRevisionId(md.getModuleRevisionId());
+            writeRevisionId(md.getResolvedModuleRevisionId());
+            writeString(md.getStatus());
+            writeDate(md.getPublicationDate());
+            writeDate(md.getResolvedPublicationDate());
+            output.writeLong(md.getLastModified());
+            output.writeBoolean(md.isDefault());
+            writeString(md.getHomePage());
+            writeString(md.getDescription());
+            writeStringMap(md.getExtraAttributesNamespaces());
+            writeStringMap(md.getExtraInfo());
+
+            License[] licenses = md.getLicenses();
+            output.writeInt(licenses.length);
+            for (License license : licenses) {
+                writeString(license.getName());
+                writeString(license.getUrl());
+            }
+
+            Configuration[] configurations = md.getConfigurations();
+            output.writeInt(configurations.length);
+            for (Configuration configuration : configurations) {
+                writeConfiguration(configuration);
+            }
+
+            writeArtifacts(md);
+
+            DependencyDescriptor[] dependencies = md.getDependencies();
+            output.writeInt(dependencies.length);
+            for (DependencyDescriptor dependency : dependencies) {
+                writeDependency(dependency);
+            }
+
+            ExcludeRule[] excludeRules = md.getAllExcludeRules();
+            output.writeInt(excludeRules.length);
+            for (ExcludeRule excludeRule : excludeRules) {
+                writeRule(excludeRule);
+            }
+
+            writeMediators(md);
+        }
+
+        private void writeConfiguration(Configuration configuration) throws IOException {
+            writeString(configuration.getName());
+            writeString(configuration.getVisibility().toString());
+            writeString(configuration.getDescription());
+            writeStrings(configuration.getExtends());
+            output.writeBoolean(configuration.isTransitive());
+            writeString(configuration.getDeprecated());
+            writeStringMap(configuration.getQualifiedExtraAttributes());
+        }
+
+        private void writeArtifacts(ModuleDescriptor md) throws IOException {
+            Map<Artifact, List<String>> artifacts = new LinkedHashMap<Artifact, List<String>>();
+            for (Artifact artifact : md.getAllArtifacts()) {
+                artifacts.put(artifact, new ArrayList<String>());
+            }
+            for (String configuration : md.getConfigurationsNames()) {
+                for (Artifact artifact : md.getArtifacts(configuration)) {
+                    artifacts.get(artifact).add(configuration);
+                }
+            }
+            output.writeInt(artifacts.size());
+            for (Map.Entry<Artifact, List<String>> entry : artifacts.entrySet()) {
+                Artifact artifact = entry.getKey();
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeUrl(artifact.getUrl());
+                writeStringMap(artifact.getQualifiedExtraAttributes());
+                writeStrings(entry.getValue().toArray(new String[entry.getValue().size()]));
+            }
+        }
+
+        private void writeDependency(DependencyDescriptor dependency) throws IOException {
+            ModuleRevisionId revisionId = dependency.getDependencyRevisionId();
+            writeRevisionId(revisionId);
+            ModuleRevisionId dynamicConstraintRevisionId = dependency.getDynamicConstraintDependencyRevisionId();
+            if (dynamicConstraintRevisionId.equals(revisionId)) {
+                output.writeBoolean(false);
+            } else {
+                output.writeBoolean(true);
+                writeRevisionId(dynamicConstraintRevisionId);
+            }
+            output.writeBoolean(dependency.isForce());
+            output.writeBoolean(dependency.isChanging());
+            output.writeBoolean(dependency.isTransitive());
+
+            String[] moduleConfigurations = dependency.getModuleConfigurations();
+            output.writeInt(moduleConfigurations.length);
+            for (String moduleConfiguration : moduleConfigurations) {
+                writeString(moduleConfiguration);
+                writeStrings(dependency.getDependencyConfigurations(moduleConfiguration));
+            }
+
+            DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+            output.writeInt(artifacts.length);
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeUrl(artifact.getUrl());
+                writeStringMap(artifact.getQualifiedExtraAttributes());
+                writeStrings(artifact.getConfigurations());
+            }
+
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            output.writeInt(includeRules.length);
+            for (IncludeRule includeRule : includeRules) {
+                writeRule(includeRule);
+            }
+
+            ExcludeRule[] excludeRules = dependency.getAllExcludeRules();
+            output.writeInt(excludeRules.length);
+            for (ExcludeRule excludeRule : excludeRules) {
+                writeRule(excludeRule);
+            }
+        }
+
+        private void writeRule(IncludeRule rule) throws IOException {
+            writeArtifactId(rule.getId());
+            writeString(rule.getMatcher().getName());
+            writeStringMap(rule.getQualifiedExtraAttributes());
+            writeStrings(rule.getConfigurations());
+        }
+
+        private void writeRule(ExcludeRule rule) throws IOException {
+            writeArtifactId(rule.getId());
+            writeString(rule.getMatcher().getName());
+            writeStringMap(rule.getQualifiedExtraAttributes());
+            writeStrings(rule.getConfigurations());
+        }
+
+        private void writeMediators(ModuleDescriptor md) throws IOException {
+            Map<MapMatcher, OverrideDependencyDescriptorMediator> overrides = new LinkedHashMap<MapMatcher, OverrideDependencyDescriptorMediator>();
+            for (Object o : md.getAllDependencyDescriptorMediators().getAllRules().entrySet()) {
+                Map.Entry rule = (Map.Entry) o;
+                if (rule.getValue() instanceof OverrideDependencyDescriptorMediator) {
+                    overrides.put((MapMatcher) rule.getKey(), (OverrideDependencyDescriptorMediator) rule.getValue());
+                } else {
+                    LOGGER.debug("Ignoring unhandled DependencyDescriptorMediator: {}", rule.getValue().getClass());
+                }
+            }
+            output.writeInt(overrides.size());
+            for (Map.Entry<MapMatcher, OverrideDependencyDescriptorMediator> entry : overrides.entrySet()) {
+                MapMatcher matcher = entry.getKey();
+                writeString((String) matcher.getAttributes().get(IvyPatternHelper.ORGANISATION_KEY));
+                writeString((String) matcher.getAttributes().get(IvyPatternHelper.MODULE_KEY));
+                writeString(matcher.getPatternMatcher().getName());
+                writeString(entry.getValue().getBranch());
+                writeString(entry.getValue().getVersion());
+            }
+        }
+
+        private void writeArtifactId(ArtifactId artifactId) throws IOException {
+            writeString(artifactId.getModuleId().getOrganisation());
+            writeString(artifactId.getModuleId().getName());
+            writeString(artifactId.getName());
+            writeString(artifactId.getType());
+            writeString(artifactId.getExt());
+        }
+
+        private void writeRevisionId(ModuleRevisionId revisionId) throws IOException {
+            writeString(revisionId.getOrganisation());
+            writeString(revisionId.getName());
+            writeString(revisionId.getBranch());
+            writeString(revisionId.getRevision());
+            writeStringMap(revisionId.getQualifiedExtraAttributes());
+        }
+
+        private void writeDate(Date date) throws IOException {
+            output.writeBoolean(date != null);
+            if (date != null) {
+                output.writeLong(date.getTime());
+            }
+        }
+
+        private void writeUrl(URL url) throws IOException {
+            writeString(url == null ? null : url.toExternalForm());
+        }
+
+        private void writeStrings(String[] values) throws IOException {
+            output.writeInt(values.length);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeStringMap(Map<?, ?> values) throws IOException {
+            output.writeInt(values.size());
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                writeString(entry.getKey().toString());
+                writeString(entry.getValue() == null ? null : entry.getValue().toString());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                output.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                output.writeInt(index);
+                return;
+            }
+            strings.put(value, strings.size());
+            output.writeInt(NEW_STRING);
+            byte[] bytes = value.getBytes("UTF-8");
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static class Reader {
+        private final DataInput input;
+        private final List<String> strings = new ArrayList<String>();
+        private DefaultModuleDescriptor md;
+
+        private Reader(DataInput input) {
+            this.input = input;
+        }
+
+        ModuleDescriptor readDescriptor() throws IOException {
+            md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+            md.setModuleRevisionId(readRevisionId());
+            md.setResolvedModuleRevisionId(readRevisionId());
+            md.setStatus(readString());
+            md.setPublicationDate(readDate());
+            md.setResolvedPublicationDate(readDate());
+            md.setLastModified(input.readLong());
+            md.setDefault(input.readBoolean());
+            md.setHomePage(readString());
+            md.setDescription(readString());
+            for (Map.Entry<String, String> namespace : readStringMap().entrySet()) {
+                md.addExtraAttributeNamespace(namespace.getKey(), namespace.getValue());
+            }
+            for (Map.Entry<String, String> extraInfo : readStringMap().entrySet()) {
+                md.addExtraInfo(extraInfo.getKey(), extraInfo.getValue());
+            }
+
+            int licenses = input.readInt();
+            for (int i = 0; i < licenses; i++) {
+                md.addLicense(new License(readString(), readString()));
+            }
+
+            int configurations = input.readInt();
+            for (int i = 0; i < configurations; i++) {
+                md.addConfiguration(readConfiguration());
+            }
+
+            int artifacts = input.readInt();
+            for (int i = 0; i < artifacts; i++) {
+                MDArtifact artifact = new MDArtifact(md, readString(), readString(), readString(), readUrl(), readStringMap());
+                for (String configuration : readStrings()) {
+                    artifact.addConfiguration(configuration);
+                    md.addArtifact(configuration, artifact);
+                }
+            }
+
+            int dependencies = input.readInt();
+            for (int i = 0; i < dependencies; i++) {
+                md.addDependency(readDependency());
+            }
+
+            int excludeRules = input.readInt();
+            for (int i = 0; i < excludeRules; i++) {
+                DefaultExcludeRule excludeRule = new DefaultExcludeRule(readArtifactId(), readMatcher(), readStringMap());
+                for (String configuration : readStrings()) {
+                    excludeRule.addConfiguration(configuration);
+                }
+                md.addExcludeRule(excludeRule);
+            }
+
+            int overrides = input.readInt();
+            for (int i = 0; i < overrides; i++) {
+                ModuleId moduleId = ModuleId.newInstance(readString(), readString());
+                PatternMatcher matcher = readMatcher();
+                md.addDependencyDescriptorMediator(moduleId, matcher, new OverrideDependencyDescriptorMediator(readString(), readString()));
+            }
+
+            md.setModuleArtifact(DefaultArtifact.newIvyArtifact(md.getResolvedModuleRevisionId(), md.getPublicationDate()));
+            return md;
+        }
+
+        private Configuration readConfiguration() throws IOException {
+            String name = readString();
+            Configuration.Visibility visibility = Configuration.Visibility.getVisibility(readString());
+            String description = readString();
+            String[] extendsFrom = readStrings();
+            boolean transitive = input.readBoolean();
+            String deprecated = readString();
+            Configuration configuration = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> attribute : readStringMap().entrySet()) {
+                configuration.setExtraAttribute(attribute.getKey(), attribute.getValue());
+            }
+            return configuration;
+        }
+
+        private DependencyDescriptor readDependency() throws IOException {
+            ModuleRevisionId revisionId = readRevisionId();
+            ModuleRevisionId dynamicConstraintRevisionId = input.readBoolean() ? readRevisionId() : revisionId;
+            boolean force = input.readBoolean();
+            boolean changing = input.readBoolean();
+            boolean transitive = input.readBoolean();
+            DefaultDependencyDescriptor dependency = new DefaultDependencyDescriptor(md, revisionId, dynamicConstraintRevisionId, force, changing, transitive);
+
+            int moduleConfigurations = input.readInt();
+            for (int i = 0; i < moduleConfigurations; i++) {
+                String moduleConfiguration = readString();
+                for (String dependencyConfiguration : readStrings()) {
+                    dependency.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+                }
+            }
+
+            int artifacts = input.readInt();
+            for (int i = 0; i < artifacts; i++) {
+                DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dependency, readString(), readString(), readString(), readUrl(), readStringMap());
+                for (String configuration : readStrings()) {
+                    artifact.addConfiguration(configuration);
+                    dependency.addDependencyArtifact(configuration, artifact);
+                }
+            }
+
+            int includeRules = input.readInt();
+            for (int i = 0; i < includeRules; i++) {
+                DefaultIncludeRule includeRule = new DefaultIncludeRule(readArtifactId(), readMatcher(), readStringMap());
+                for (String configuration : readStrings()) {
+                    includeRule.addConfiguration(configuration);
+                    dependency.addIncludeRule(configuration, includeRule);
+                }
+            }
+
+            int excludeRules = input.readInt();
+            for (int i = 0; i < excludeRules; i++) {
+                DefaultExcludeRule excludeRule = new DefaultExcludeRule(readArtifactId(), readMatcher(), readStringMap());
+                for (String configuration : readStrings()) {
+                    excludeRule.addConfiguration(configuration);
+                    dependency.addExcludeRule(configuration, excludeRule);
+                }
+            }
+            return dependency;
+        }
+
+        private ArtifactId readArtifactId() throws IOException {
+            ModuleId moduleId = ModuleId.newInstance(readString(), readString());
+            return new ArtifactId(moduleId, readString(), readString(), readString());
+        }
+
+        private PatternMatcher readMatcher() throws IOException {
+            String name = readString();
+            PatternMatcher matcher = ResolverStrategy.INSTANCE.getPatternMatcher(name);
+            if (matcher == null) {
+                throw new IOException(String.format("Unknown matcher '%s'.", name));
+            }
+            return matcher;
+        }
+
+        private ModuleRevisionId readRevisionId() throws IOException {
+            String organisation = readString();
+            String name = readString();
+            String branch = readString();
+            String revision = readString();
+            return ModuleRevisionId.newInstance(organisation, name, branch, revision, readStringMap());
+        }
+
+        private Date readDate() throws IOException {
+            return input.readBoolean() ? new Date(input.readLong()) : null;
+        }
+
+        private URL readUrl() throws IOException {
+            String url = readString();
+            return url == null ? null : new URL(url);
+        }
+
+        private String[] readStrings() throws IOException {
+            String[] values = new String[input.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        private Map<String, String> readStringMap() throws IOException {
+            int count = input.readInt();
+            if (count == 0) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            for (int i = 0; i < count; i++) {
+                values.put(readString(), readString());
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int index = input.readInt();
+            if (index == NULL_STRING) {
+                return null;
+            }
+            if (index != NEW_STRING) {
+                return strings.get(index);
+            }
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            String value = new String(bytes, "UTF-8");
+            strings.add(value);
+            return value;
+        }
+    }
+}
@@ -19,46 +19,52 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
-import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver;
-import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionRepository;
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext;
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ModuleDescriptorParser;
 import org.gradle.api.internal.filestore.PathKeyFileStore;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 
-import java.io.File;
+import java.io.*;
 
 public class ModuleDescriptorStore {
 
-    public static final String FILE_PATH_PATTERN = "module-metadata/%s/%s/%s/%s/ivy.xml";
-    private final ModuleDescriptorParser parser;
+    public static final String FILE_PATH_PATTERN = "module-metadata/%s/%s/%s/%s/descriptor.bin";
     private final PathKeyFileStore pathKeyFileStore;
-    private final IvyModuleDescriptorWriter ivyModuleDescriptorWriter;
+    private final ModuleDescriptorSerializer serializer;
 
-    public ModuleDescriptorStore(PathKeyFileStore pathKeyFileStore, IvyModuleDescriptorWriter ivyModuleDescriptorWriter, ModuleDescriptorParser ivyXmlModuleDescriptorParser) {
+    public ModuleDescriptorStore(PathKeyFileStore pathKeyFileStore, ModuleDescriptorSerializer serializer) {
         this.pathKeyFileStore = pathKeyFileStore;
-        this.ivyModuleDescriptorWriter = ivyModuleDescriptorWriter;
-        parser = ivyXmlModuleDescriptorParser;
+        this.serializer = serializer;
     }
 
-    // TODO:DAZ Persisted module descriptors should be self-contained: should not need to resolve included descriptors
-    public ModuleDescriptor getModuleDescriptor(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier, DependencyToModuleVersionResolver resolver) {
+    public ModuleDescriptor getModuleDescriptor(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier) {
         String filePath = getFilePath(repository, moduleVersionIdentifier);
         final LocallyAvailableResource resource = pathKeyFileStore.get(filePath);
         if (resource != null) {
-            return parseModuleDescriptorFile(resource.getFile(), resolver);
+            return readModuleDescriptorFile(resource.getFile());
         }
         return null;
     }
 
+    /**
+     * Returns the time that the module descriptor was last written to this store, or 0 when it is not in this store.
+     */
+    public long getModuleDescriptorTimestamp(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier) {
+        LocallyAvailableResource resource = pathKeyFileStore.get(getFilePath(repository, moduleVersionIdentifier));
+        return resource == null ? 0 : resource.getFile().lastModified();
+    }
+
     public LocallyAvailableResource putModuleDescriptor(ModuleVersionRepository repository, final ModuleDescriptor moduleDescriptor) {
         String filePath = getFilePath(repository, moduleDescriptor.getModuleRevisionId());
         return pathKeyFileStore.add(filePath, new Action<File>() {
             public void execute(File moduleDescriptorFile) {
                 try {
-                    ivyModuleDescriptorWriter.write(moduleDescriptor, moduleDescriptorFile);
+                    OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(moduleDescriptorFile));
+                    try {
+                        serializer.write(outputStream, moduleDescriptor);
+                    } finally {
+                        outputStream.close();
+                    }
                 } catch (Exception e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
@@ -66,9 +72,17 @@ public class ModuleDescriptorStore {
         });
     }
 
-    private ModuleDescriptor parseModuleDescriptorFile(File moduleDescriptorFile, DependencyToModuleVersionResolver resolver) {
-        DescriptorParseContext parserSettings = new CachedModuleDescriptorParseContext(resolver, "integration");
-        return parser.parseDescriptor(parserSettings, moduleDescriptorFile, false);
+    private ModuleDescriptor readModuleDescriptorFile(File moduleDescriptorFile) {
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(moduleDescriptorFile));
+            try {
+                return serializer.read(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
     }
 
     private String getFilePath(ModuleVersionRepository repository, ModuleRevisionId moduleRevisionId) {
@@ -78,4 +92,4 @@ public class ModuleDescriptorStore {
     private String getFilePath(ModuleVersionRepository repository, ModuleVersionIdentifier moduleVersionIdentifier) {
         return String.format(FILE_PATH_PATTERN, moduleVersionIdentifier.getGroup(), moduleVersionIdentifier.getName(), moduleVersionIdentifier.getVersion(), repository.getId());
     }
-}
\ No newline at end of file
+}
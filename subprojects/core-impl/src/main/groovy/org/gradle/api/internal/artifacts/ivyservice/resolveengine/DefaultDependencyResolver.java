@@ -26,11 +26,14 @@ import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.IvyAdapter;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.LazyDependencyToModuleResolver;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionPrefetchExecutor;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectModuleRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientResultsStore;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolvedConfigurationListener;
@@ -38,6 +41,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.Streami
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.cache.BinaryStore;
 import org.gradle.api.internal.cache.Store;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,10 +56,14 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     private final CacheLockingManager cacheLockingManager;
     private final IvyContextManager ivyContextManager;
     private final ResolutionResultsStoreFactory storeFactory;
+    private final ExecutorFactory executorFactory;
+    private final ModuleVersionPrefetchExecutor prefetchExecutor;
+    private final ResolvedGraphCache graphCache;
 
     public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, ModuleDescriptorConverter moduleDescriptorConverter, ResolvedArtifactFactory resolvedArtifactFactory,
                                      ProjectModuleRegistry projectModuleRegistry, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager,
-                                     ResolutionResultsStoreFactory storeFactory) {
+                                     ResolutionResultsStoreFactory storeFactory, ExecutorFactory executorFactory, ModuleVersionPrefetchExecutor prefetchExecutor,
+                                     ResolvedGraphCache graphCache) {
         this.ivyFactory = ivyFactory;
         this.moduleDescriptorConverter = moduleDescriptorConverter;
         this.resolvedArtifactFactory = resolvedArtifactFactory;
@@ -63,6 +71,9 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         this.cacheLockingManager = cacheLockingManager;
         this.ivyContextManager = ivyContextManager;
         this.storeFactory = storeFactory;
+        this.executorFactory = executorFactory;
+        this.prefetchExecutor = prefetchExecutor;
+        this.graphCache = graphCache;
     }
 
     public ResolverResults resolve(final ConfigurationInternal configuration, final List<? extends ResolutionAwareRepository> repositories) throws ResolveException {
@@ -71,23 +82,6 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             public ResolverResults transform(Ivy ivy) {
                 IvyAdapter ivyAdapter = ivyFactory.create(configuration, repositories);
 
-                DependencyToModuleVersionResolver dependencyResolver = ivyAdapter.getDependencyToModuleResolver();
-                dependencyResolver = new ClientModuleResolver(dependencyResolver);
-                ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectModuleRegistry, dependencyResolver, moduleDescriptorConverter);
-                dependencyResolver = projectDependencyResolver;
-                DependencyToModuleVersionIdResolver idResolver = new LazyDependencyToModuleResolver(dependencyResolver, ivyAdapter.getVersionMatcher());
-                idResolver = new VersionForcingDependencyToModuleResolver(idResolver, configuration.getResolutionStrategy().getDependencyResolveRule());
-
-                ModuleConflictResolver conflictResolver;
-                if (configuration.getResolutionStrategy().getConflictResolution() instanceof StrictConflictResolution) {
-                    conflictResolver = new StrictConflictResolver();
-                } else {
-                    conflictResolver = new LatestModuleConflictResolver(ivyAdapter.getLatestStrategy());
-                }
-                conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
-
-                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, conflictResolver, new DefaultDependencyToConfigurationResolver());
-
                 BinaryStore newModelStore = storeFactory.createBinaryStore("new-model");
                 Store<ResolvedModuleVersionResult> newModelCache = storeFactory.createNewModelCache(configuration);
                 ResolvedConfigurationListener newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, newModelCache);
@@ -97,10 +91,51 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 TransientResultsStore oldModelResults = new TransientResultsStore(oldModelStore, oldModelCache);
                 DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(resolvedArtifactFactory, oldModelResults);
 
-                builder.resolve(configuration, newModelBuilder, oldModelBuilder);
-                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager);
+                ResolvedGraphCache.ResolveInputs inputs = ResolvedGraphCache.isEnabled() ? graphCache.getInputs(configuration, repositories) : null;
+                if (inputs == null) {
+                    resolveGraph(configuration, ivy, ivyAdapter, newModelBuilder, oldModelBuilder);
+                } else if (!graphCache.replay(inputs, newModelBuilder, oldModelBuilder, ivyAdapter.getDependencyToModuleResolver())) {
+                    ResolvedGraphRecorder recorder = graphCache.createRecorder(inputs, newModelBuilder, oldModelBuilder);
+                    resolveGraph(configuration, ivy, ivyAdapter, recorder, recorder);
+                    graphCache.store(inputs, recorder);
+                }
+
+                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager, new ArtifactDownloader(executorFactory, cacheLockingManager, ivyAdapter.isConcurrentResolveSupported()));
                 return new ResolverResults(new DefaultResolvedConfiguration(result), newModelBuilder.complete());
             }
         });
     }
+
+    private void resolveGraph(ConfigurationInternal configuration, Ivy ivy, IvyAdapter ivyAdapter, ResolvedConfigurationListener newModelBuilder, ResolvedConfigurationBuilder oldModelBuilder) {
+        DependencyToModuleVersionResolver dependencyResolver = ivyAdapter.getDependencyToModuleResolver();
+        if (oldModelBuilder instanceof ResolvedGraphRecorder) {
+            dependencyResolver = ((ResolvedGraphRecorder) oldModelBuilder).discardOnDynamicOrChanging(dependencyResolver, ivyAdapter.getVersionMatcher());
+        }
+        dependencyResolver = new ClientModuleResolver(dependencyResolver);
+        ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectModuleRegistry, dependencyResolver, moduleDescriptorConverter);
+        dependencyResolver = projectDependencyResolver;
+        ModuleVersionPrefetcher prefetcher = null;
+        if (ivyAdapter.isConcurrentResolveSupported() && ModuleVersionPrefetcher.isEnabled()) {
+            prefetcher = new ModuleVersionPrefetcher(prefetchExecutor, cacheLockingManager, ivy);
+        }
+        DependencyToModuleVersionIdResolver idResolver = new LazyDependencyToModuleResolver(dependencyResolver, ivyAdapter.getVersionMatcher(), prefetcher);
+        idResolver = new VersionForcingDependencyToModuleResolver(idResolver, configuration.getResolutionStrategy().getDependencyResolveRule());
+
+        ModuleConflictResolver conflictResolver;
+        if (configuration.getResolutionStrategy().getConflictResolution() instanceof StrictConflictResolution) {
+            conflictResolver = new StrictConflictResolver();
+        } else {
+            conflictResolver = new LatestModuleConflictResolver(ivyAdapter.getLatestStrategy());
+        }
+        conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
+
+        DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, conflictResolver, new DefaultDependencyToConfigurationResolver());
+        try {
+            builder.resolve(configuration, newModelBuilder, oldModelBuilder);
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.stop();
+            }
+        }
+    }
 }
@@ -88,6 +88,11 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                // Start fetching the meta-data for the edges, so that it is fetched concurrently while the edges are visited in order
+                for (DependencyEdge dependency : dependencies) {
+                    dependency.prefetch();
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -298,6 +303,12 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        public void prefetch() {
+            if (targetModuleRevision == null) {
+                selector.prefetch();
+            }
+        }
+
         public boolean isTransitive() {
             return from.isTransitive() && dependencyMetaData.isTransitive();
         }
@@ -900,7 +911,9 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = resolver.resolve(dependencyMetaData);
+            if (idResolveResult == null) {
+                idResolveResult = resolver.resolve(dependencyMetaData);
+            }
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -914,6 +927,20 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        /**
+         * Resolves this selector to a module version id, without adding the module version to the graph, and starts fetching the meta-data for the module
+         * version in the background.
+         */
+        public void prefetch() {
+            if (targetModuleRevision != null || failure != null || idResolveResult != null) {
+                return;
+            }
+            idResolveResult = resolver.resolve(dependencyMetaData);
+            if (idResolveResult.getFailure() == null) {
+                idResolveResult.prefetch();
+            }
+        }
+
         public void restart(ModuleVersionResolveState moduleRevision) {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
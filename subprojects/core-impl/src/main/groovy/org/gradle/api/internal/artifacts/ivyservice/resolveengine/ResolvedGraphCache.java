@@ -0,0 +1,279 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.gradle.StartParameter;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleVersionRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.IvyAwareModuleVersionRepository;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleDescriptorCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolvedConfigurationListener;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.messaging.serialize.DataStreamBackedSerializer;
+import org.gradle.messaging.serialize.DefaultSerializer;
+import org.gradle.util.hash.HashUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A persistent cache of the results of resolving the dependency graph of a configuration, so that the graph does not need to be resolved again when nothing
+ * that it depends on has changed. The results are replayed from the cache when the following are the same as when the results were cached:
+ *
+ * <ul>
+ * <li>The declared dependencies and exclude rules of the configuration and the configurations it extends.</li>
+ * <li>The resolution strategy of the configuration.</li>
+ * <li>The repositories.</li>
+ * <li>The times that the meta-data of the resolved module versions were cached.</li>
+ * </ul>
+ *
+ * <p>Only results that cannot change while all of these stay the same are cached. So a configuration is not cached when it has project dependencies, client
+ * modules, changing dependencies, or dependency resolve rules, or when it uses local or custom Ivy repositories. Results that contain dynamic versions,
+ * changing modules or failures are not cached either, as these are checked for updates based on the cache policy.</p>
+ */
+public class ResolvedGraphCache {
+    /**
+     * Set this system property to true to cache the results of resolving dependency graphs.
+     */
+    public final static String TOGGLE_PROPERTY = "org.gradle.resolution.cacheResolvedGraphs";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+
+    private final ArtifactCacheMetaData cacheMetadata;
+    private final CacheLockingManager cacheLockingManager;
+    private final ModuleDescriptorCache moduleDescriptorCache;
+    private final StartParameter startParameter;
+    private PersistentIndexedCache<String, CachedGraph> cache;
+
+    public ResolvedGraphCache(ArtifactCacheMetaData cacheMetadata, CacheLockingManager cacheLockingManager, ModuleDescriptorCache moduleDescriptorCache,
+                              StartParameter startParameter) {
+        this.cacheMetadata = cacheMetadata;
+        this.cacheLockingManager = cacheLockingManager;
+        this.moduleDescriptorCache = moduleDescriptorCache;
+        this.startParameter = startParameter;
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    private PersistentIndexedCache<String, CachedGraph> getCache() {
+        if (cache == null) {
+            cache = initCache();
+        }
+        return cache;
+    }
+
+    private PersistentIndexedCache<String, CachedGraph> initCache() {
+        File resolvedGraphsFile = new File(cacheMetadata.getCacheDir(), "resolved-graphs.bin");
+        return cacheLockingManager.createCache(resolvedGraphsFile, new DefaultSerializer<String>(), new CachedGraphSerializer());
+    }
+
+    /**
+     * Calculates the inputs of resolving the given configuration, or returns null when the results of resolving the configuration cannot be cached.
+     */
+    public ResolveInputs getInputs(ConfigurationInternal configuration, Iterable<? extends ResolutionAwareRepository> repositories) {
+        StringBuilder fingerprint = new StringBuilder();
+        Module module = configuration.getModule();
+        fingerprint.append(String.format("%s:%s:%s:%s;", module.getGroup(), module.getName(), module.getVersion(), module.getStatus()));
+
+        List<ModuleDependency> moduleDependencies = new ArrayList<ModuleDependency>();
+        for (Configuration each : configuration.getHierarchy()) {
+            fingerprint.append(String.format("conf %s:%s:%s;", each.getName(), each.isTransitive(), each.isVisible()));
+            appendExcludeRules(each.getExcludeRules(), fingerprint);
+            for (Dependency dependency : each.getDependencies()) {
+                if (!(dependency instanceof ModuleDependency)) {
+                    // Resolved outside the dependency graph
+                    continue;
+                }
+                if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule || ((ExternalModuleDependency) dependency).isChanging()) {
+                    LOGGER.debug("Not caching results for {}, as it has dependency {}.", configuration, dependency);
+                    return null;
+                }
+                ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+                moduleDependencies.add(moduleDependency);
+                fingerprint.append(String.format("dep %s:%s:%s:%s:%s:%s;", moduleDependency.getGroup(), moduleDependency.getName(), moduleDependency.getVersion(),
+                        moduleDependency.getConfiguration(), moduleDependency.isTransitive(), moduleDependency.isForce()));
+                for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+                    fingerprint.append(String.format("artifact %s:%s:%s:%s:%s;", artifact.getName(), artifact.getType(), artifact.getExtension(), artifact.getClassifier(),
+                            artifact.getUrl()));
+                }
+                appendExcludeRules(moduleDependency.getExcludeRules(), fingerprint);
+            }
+        }
+
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.hasDependencyResolveRules()) {
+            LOGGER.debug("Not caching results for {}, as it has dependency resolve rules.", configuration);
+            return null;
+        }
+        fingerprint.append(String.format("strategy %s;", resolutionStrategy.getConflictResolution().getClass().getName()));
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            fingerprint.append(String.format("force %s:%s:%s;", forcedModule.getGroup(), forcedModule.getName(), forcedModule.getVersion()));
+        }
+
+        List<ConfiguredModuleVersionRepository> moduleVersionRepositories = new ArrayList<ConfiguredModuleVersionRepository>();
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleVersionRepository moduleVersionRepository = repository.createResolver();
+            if (moduleVersionRepository.isLocal() || moduleVersionRepository instanceof IvyAwareModuleVersionRepository) {
+                LOGGER.debug("Not caching results for {}, as it uses repository {}.", configuration, moduleVersionRepository.getName());
+                return null;
+            }
+            moduleVersionRepositories.add(moduleVersionRepository);
+            fingerprint.append(String.format("repo %s:%s;", moduleVersionRepository.getId(), moduleVersionRepository.isDynamicResolveMode()));
+        }
+
+        String key = String.format("%s:%s%s", module.getGroup(), module.getName(), configuration.getPath());
+        return new ResolveInputs(key, HashUtil.createHash(fingerprint.toString(), "MD5").asHexString(), moduleDependencies, moduleVersionRepositories);
+    }
+
+    private void appendExcludeRules(Collection<ExcludeRule> excludeRules, StringBuilder fingerprint) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            fingerprint.append(String.format("exclude %s:%s;", excludeRule.getGroup(), excludeRule.getModule()));
+        }
+    }
+
+    /**
+     * Replays the cached results for the given inputs into the given result builders.
+     *
+     * @return true if the results were replayed, false if there are no cached results for the inputs.
+     */
+    public boolean replay(ResolveInputs inputs, ResolvedConfigurationListener listener, ResolvedConfigurationBuilder builder, DependencyToModuleVersionResolver resolver) {
+        if (startParameter.isRefreshDependencies()) {
+            return false;
+        }
+        CachedGraph cachedGraph = getCache().get(inputs.key);
+        if (cachedGraph == null || !cachedGraph.inputsHash.equals(inputs.hash)) {
+            return false;
+        }
+        if (!cachedGraph.metaDataHash.equals(getMetaDataHash(cachedGraph.modules, inputs.repositories))) {
+            LOGGER.debug("Not using cached results for {}, as module meta-data has been cached since.", inputs.key);
+            return false;
+        }
+        LOGGER.debug("Using cached results for {}.", inputs.key);
+        ResolvedGraphRecorder.replay(cachedGraph.recording, inputs.moduleDependencies, listener, builder, resolver);
+        return true;
+    }
+
+    /**
+     * Creates a recorder for the results of resolving the graph for the given inputs, which passes the results on to the given result builders.
+     */
+    public ResolvedGraphRecorder createRecorder(ResolveInputs inputs, ResolvedConfigurationListener listener, ResolvedConfigurationBuilder builder) {
+        return new ResolvedGraphRecorder(listener, builder, inputs.moduleDependencies);
+    }
+
+    /**
+     * Caches the recorded results for the given inputs, if the results can be cached.
+     */
+    public void store(ResolveInputs inputs, ResolvedGraphRecorder recorder) {
+        byte[] recording = recorder.getRecording();
+        if (recording == null) {
+            LOGGER.debug("Not caching results for {}.", inputs.key);
+            return;
+        }
+        List<ModuleVersionIdentifier> modules = new ArrayList<ModuleVersionIdentifier>(recorder.getModules());
+        getCache().put(inputs.key, new CachedGraph(inputs.hash, modules, getMetaDataHash(modules, inputs.repositories), recording));
+    }
+
+    private String getMetaDataHash(List<ModuleVersionIdentifier> modules, List<ConfiguredModuleVersionRepository> repositories) {
+        StringBuilder timestamps = new StringBuilder();
+        for (ModuleVersionIdentifier module : modules) {
+            for (ConfiguredModuleVersionRepository repository : repositories) {
+                timestamps.append(moduleDescriptorCache.getModuleDescriptorTimestamp(repository, module)).append(';');
+            }
+        }
+        return HashUtil.createHash(timestamps.toString(), "MD5").asHexString();
+    }
+
+    /**
+     * The inputs of resolving the dependency graph of a configuration.
+     */
+    public static class ResolveInputs {
+        private final String key;
+        private final String hash;
+        private final List<ModuleDependency> moduleDependencies;
+        private final List<ConfiguredModuleVersionRepository> repositories;
+
+        private ResolveInputs(String key, String hash, List<ModuleDependency> moduleDependencies, List<ConfiguredModuleVersionRepository> repositories) {
+            this.key = key;
+            this.hash = hash;
+            this.moduleDependencies = moduleDependencies;
+            this.repositories = repositories;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    private static class CachedGraph {
+        private final String inputsHash;
+        private final List<ModuleVersionIdentifier> modules;
+        private final String metaDataHash;
+        private final byte[] recording;
+
+        private CachedGraph(String inputsHash, List<ModuleVersionIdentifier> modules, String metaDataHash, byte[] recording) {
+            this.inputsHash = inputsHash;
+            this.modules = modules;
+            this.metaDataHash = metaDataHash;
+            this.recording = recording;
+        }
+    }
+
+    private static class CachedGraphSerializer extends DataStreamBackedSerializer<CachedGraph> {
+        private final ModuleVersionIdentifierSerializer identifierSerializer = new ModuleVersionIdentifierSerializer();
+
+        @Override
+        public void write(DataOutput dataOutput, CachedGraph value) throws IOException {
+            dataOutput.writeUTF(value.inputsHash);
+            dataOutput.writeInt(value.modules.size());
+            for (ModuleVersionIdentifier module : value.modules) {
+                identifierSerializer.write(dataOutput, module);
+            }
+            dataOutput.writeUTF(value.metaDataHash);
+            dataOutput.writeInt(value.recording.length);
+            dataOutput.write(value.recording);
+        }
+
+        @Override
+        public CachedGraph read(DataInput dataInput) throws IOException {
+            String inputsHash = dataInput.readUTF();
+            int count = dataInput.readInt();
+            List<ModuleVersionIdentifier> modules = new ArrayList<ModuleVersionIdentifier>(count);
+            for (int i = 0; i < count; i++) {
+                modules.add(identifierSerializer.read(dataInput));
+            }
+            String metaDataHash = dataInput.readUTF();
+            byte[] recording = new byte[dataInput.readInt()];
+            dataInput.readFully(recording);
+            return new CachedGraph(inputsHash, modules, metaDataHash, recording);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.UnresolvedDependency;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.*;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ArtifactResolveException;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.DefaultDependencyMetaData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.DependencyMetaData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionMatcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResultSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolvedConfigurationListener;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+
+import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
+
+/**
+ * Records the results of resolving a dependency graph, as they are passed to the result builders by {@link DependencyGraphBuilder}, so that they can later be
+ * replayed into new result builders without resolving the graph again. Results that contain failures are not recorded.
+ */
+public class ResolvedGraphRecorder implements ResolvedConfigurationListener, ResolvedConfigurationBuilder {
+    private static final byte ROOT = 1;
+    private static final byte MODULE = 2;
+    private static final byte DEPENDENCIES = 3;
+    private static final byte NEW_DEPENDENCY = 4;
+    private static final byte ARTIFACT = 5;
+    private static final byte CHILD = 6;
+    private static final byte PARENT_ARTIFACTS = 7;
+    private static final byte FIRST_LEVEL = 8;
+    private static final byte DONE = 9;
+
+    private final ResolvedConfigurationListener listener;
+    private final ResolvedConfigurationBuilder builder;
+    private final List<ModuleDependency> moduleDependencies;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(bytes);
+    private final Set<ModuleVersionIdentifier> modules = new LinkedHashSet<ModuleVersionIdentifier>();
+    private ModuleVersionIdentifier root;
+    private boolean done;
+    private volatile boolean discarded;
+
+    /**
+     * @param moduleDependencies The declared dependencies of the configuration, which first level dependencies are recorded as an index into.
+     */
+    public ResolvedGraphRecorder(ResolvedConfigurationListener listener, ResolvedConfigurationBuilder builder, List<ModuleDependency> moduleDependencies) {
+        this.listener = listener;
+        this.builder = builder;
+        this.moduleDependencies = moduleDependencies;
+    }
+
+    /**
+     * Discards the recording, because the results depend on something that cannot be checked when they are replayed. May be called from any thread.
+     */
+    public void discard() {
+        discarded = true;
+    }
+
+    /**
+     * Wraps the given resolver so that the recording is discarded when a dynamic version or a changing module is resolved, as these are checked for updates
+     * based on the cache policy rather than on the inputs of the resolve.
+     */
+    public DependencyToModuleVersionResolver discardOnDynamicOrChanging(final DependencyToModuleVersionResolver resolver, final VersionMatcher versionMatcher) {
+        return new DependencyToModuleVersionResolver() {
+            public void resolve(DependencyMetaData dependency, BuildableModuleVersionResolveResult result) {
+                if (dependency.isChanging() || versionMatcher.isDynamic(dependency.getRequested().getVersion())) {
+                    discard();
+                }
+                resolver.resolve(dependency, result);
+                if (result.getFailure() == null && result.getMetaData().isChanging()) {
+                    discard();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the recorded results, or null when the results have been discarded or are not complete.
+     */
+    public byte[] getRecording() {
+        if (discarded || !done) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the module versions in the recorded results, other than the root module.
+     */
+    public Set<ModuleVersionIdentifier> getModules() {
+        return modules;
+    }
+
+    public ResolvedConfigurationListener start(ModuleVersionIdentifier root) {
+        listener.start(root);
+        this.root = root;
+        try {
+            output.writeByte(ROOT);
+            new ModuleVersionIdentifierSerializer().write((DataOutput) output, root);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        return this;
+    }
+
+    public void resolvedModuleVersion(ModuleVersionSelection moduleVersion) {
+        listener.resolvedModuleVersion(moduleVersion);
+        if (!moduleVersion.getSelectedId().equals(root)) {
+            modules.add(moduleVersion.getSelectedId());
+        }
+        try {
+            output.writeByte(MODULE);
+            new ModuleVersionSelectionSerializer().write((DataOutput) output, moduleVersion);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    public void resolvedConfiguration(ModuleVersionIdentifier id, Collection<? extends InternalDependencyResult> dependencies) {
+        listener.resolvedConfiguration(id, dependencies);
+        try {
+            output.writeByte(DEPENDENCIES);
+            new ModuleVersionIdentifierSerializer().write((DataOutput) output, id);
+            output.writeInt(dependencies.size());
+            InternalDependencyResultSerializer serializer = new InternalDependencyResultSerializer();
+            for (InternalDependencyResult dependency : dependencies) {
+                if (dependency.getFailure() != null) {
+                    discard();
+                }
+                serializer.write(output, dependency);
+            }
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    public ResolutionResult complete() {
+        return listener.complete();
+    }
+
+    public void addFirstLevelDependency(ModuleDependency moduleDependency, ResolvedConfigurationIdentifier dependency) {
+        builder.addFirstLevelDependency(moduleDependency, dependency);
+        int index = indexOf(moduleDependency);
+        if (index < 0) {
+            discard();
+        }
+        writeIds(FIRST_LEVEL, dependency);
+        try {
+            output.writeInt(index);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    private int indexOf(ModuleDependency moduleDependency) {
+        for (int i = 0; i < moduleDependencies.size(); i++) {
+            if (moduleDependencies.get(i) == moduleDependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void addUnresolvedDependency(UnresolvedDependency unresolvedDependency) {
+        builder.addUnresolvedDependency(unresolvedDependency);
+        discard();
+    }
+
+    public void addChild(ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child) {
+        builder.addChild(parent, child);
+        writeIds(CHILD, parent, child);
+    }
+
+    public void done(ResolvedConfigurationIdentifier root) {
+        builder.done(root);
+        writeIds(DONE, root);
+        done = true;
+    }
+
+    public void addParentSpecificArtifacts(ResolvedConfigurationIdentifier child, ResolvedConfigurationIdentifier parent, Set<ResolvedArtifact> artifacts) {
+        builder.addParentSpecificArtifacts(child, parent, artifacts);
+        writeIds(PARENT_ARTIFACTS, child, parent);
+        try {
+            output.writeInt(artifacts.size());
+            for (ResolvedArtifact artifact : artifacts) {
+                output.writeLong(((DefaultResolvedArtifact) artifact).getId());
+            }
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    public void newResolvedDependency(ResolvedConfigurationIdentifier id) {
+        builder.newResolvedDependency(id);
+        writeIds(NEW_DEPENDENCY, id);
+    }
+
+    public ResolvedArtifact newArtifact(ResolvedConfigurationIdentifier owner, Artifact artifact, ArtifactResolver artifactResolver) {
+        ResolvedArtifact resolvedArtifact = builder.newArtifact(owner, artifact, artifactResolver);
+        writeIds(ARTIFACT, owner);
+        try {
+            output.writeLong(((DefaultResolvedArtifact) resolvedArtifact).getId());
+            writeArtifact(artifact);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        return resolvedArtifact;
+    }
+
+    private void writeIds(byte type, ResolvedConfigurationIdentifier... ids) {
+        try {
+            output.writeByte(type);
+            ResolvedConfigurationIdentifierSerializer serializer = new ResolvedConfigurationIdentifierSerializer();
+            for (ResolvedConfigurationIdentifier id : ids) {
+                serializer.write((DataOutput) output, id);
+            }
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    private void writeArtifact(Artifact artifact) throws IOException {
+        ModuleRevisionId moduleRevisionId = artifact.getModuleRevisionId();
+        output.writeUTF(moduleRevisionId.getOrganisation());
+        output.writeUTF(moduleRevisionId.getName());
+        output.writeUTF(moduleRevisionId.getRevision());
+        output.writeUTF(artifact.getName());
+        output.writeUTF(artifact.getType());
+        output.writeUTF(artifact.getExt());
+        output.writeBoolean(artifact.getUrl() != null);
+        if (artifact.getUrl() != null) {
+            output.writeUTF(artifact.getUrl().toExternalForm());
+        }
+        Map<?, ?> attributes = artifact.getQualifiedExtraAttributes();
+        output.writeInt(attributes.size());
+        for (Map.Entry<?, ?> entry : attributes.entrySet()) {
+            output.writeUTF(entry.getKey().toString());
+            output.writeUTF(entry.getValue().toString());
+        }
+    }
+
+    /**
+     * Replays recorded results into the given result builders. The files of the replayed artifacts are resolved using the given resolver, which is used to look
+     * up the module version that owns an artifact when the file of the artifact is first requested.
+     */
+    public static void replay(byte[] recording, List<ModuleDependency> moduleDependencies, ResolvedConfigurationListener listener,
+                              ResolvedConfigurationBuilder builder, DependencyToModuleVersionResolver resolver) {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(recording));
+        ModuleVersionIdentifierSerializer idSerializer = new ModuleVersionIdentifierSerializer();
+        ResolvedConfigurationIdentifierSerializer configurationSerializer = new ResolvedConfigurationIdentifierSerializer();
+        InternalDependencyResultSerializer dependencySerializer = new InternalDependencyResultSerializer();
+        Map<ModuleVersionSelector, ModuleVersionResolveException> failures = Collections.emptyMap();
+        Map<Long, ResolvedArtifact> artifacts = new HashMap<Long, ResolvedArtifact>();
+        Map<ModuleVersionIdentifier, ArtifactResolver> artifactResolvers = new HashMap<ModuleVersionIdentifier, ArtifactResolver>();
+        try {
+            while (true) {
+                byte type = input.readByte();
+                switch (type) {
+                    case ROOT:
+                        listener.start(idSerializer.read((DataInput) input));
+                        break;
+                    case MODULE:
+                        listener.resolvedModuleVersion(new ModuleVersionSelectionSerializer().read((DataInput) input));
+                        break;
+                    case DEPENDENCIES:
+                        ModuleVersionIdentifier from = idSerializer.read((DataInput) input);
+                        int count = input.readInt();
+                        List<InternalDependencyResult> dependencies = new ArrayList<InternalDependencyResult>(count);
+                        for (int i = 0; i < count; i++) {
+                            dependencies.add(dependencySerializer.read(input, failures));
+                        }
+                        listener.resolvedConfiguration(from, dependencies);
+                        break;
+                    case NEW_DEPENDENCY:
+                        builder.newResolvedDependency(configurationSerializer.read((DataInput) input));
+                        break;
+                    case ARTIFACT:
+                        ResolvedConfigurationIdentifier owner = configurationSerializer.read((DataInput) input);
+                        long id = input.readLong();
+                        ArtifactResolver artifactResolver = artifactResolvers.get(owner.getId());
+                        if (artifactResolver == null) {
+                            artifactResolver = new ModuleVersionArtifactResolver(resolver, owner.getId());
+                            artifactResolvers.put(owner.getId(), artifactResolver);
+                        }
+                        artifacts.put(id, builder.newArtifact(owner, readArtifact(input), artifactResolver));
+                        break;
+                    case CHILD:
+                        ResolvedConfigurationIdentifier parent = configurationSerializer.read((DataInput) input);
+                        builder.addChild(parent, configurationSerializer.read((DataInput) input));
+                        break;
+                    case PARENT_ARTIFACTS:
+                        ResolvedConfigurationIdentifier child = configurationSerializer.read((DataInput) input);
+                        parent = configurationSerializer.read((DataInput) input);
+                        count = input.readInt();
+                        Set<ResolvedArtifact> parentArtifacts = new LinkedHashSet<ResolvedArtifact>();
+                        for (int i = 0; i < count; i++) {
+                            parentArtifacts.add(artifacts.get(input.readLong()));
+                        }
+                        builder.addParentSpecificArtifacts(child, parent, parentArtifacts);
+                        break;
+                    case FIRST_LEVEL:
+                        ResolvedConfigurationIdentifier dependency = configurationSerializer.read((DataInput) input);
+                        builder.addFirstLevelDependency(moduleDependencies.get(input.readInt()), dependency);
+                        break;
+                    case DONE:
+                        builder.done(configurationSerializer.read((DataInput) input));
+                        return;
+                    default:
+                        throw new IllegalArgumentException("Unknown value type: " + type);
+                }
+            }
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    private static Artifact readArtifact(DataInput input) throws IOException {
+        ModuleRevisionId moduleRevisionId = ModuleRevisionId.newInstance(input.readUTF(), input.readUTF(), input.readUTF());
+        String name = input.readUTF();
+        String type = input.readUTF();
+        String ext = input.readUTF();
+        URL url = input.readBoolean() ? new URL(input.readUTF()) : null;
+        int count = input.readInt();
+        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        for (int i = 0; i < count; i++) {
+            attributes.put(input.readUTF(), input.readUTF());
+        }
+        return new DefaultArtifact(moduleRevisionId, null, name, type, ext, url, attributes);
+    }
+
+    /**
+     * Resolves the artifacts of a replayed module version. Looks up the module version, and so the repository that it was found in, when the first artifact
+     * is resolved.
+     */
+    private static class ModuleVersionArtifactResolver implements ArtifactResolver {
+        private final DependencyToModuleVersionResolver resolver;
+        private final ModuleVersionIdentifier id;
+        private ModuleVersionResolveResult moduleVersion;
+
+        public ModuleVersionArtifactResolver(DependencyToModuleVersionResolver resolver, ModuleVersionIdentifier id) {
+            this.resolver = resolver;
+            this.id = id;
+        }
+
+        public void resolve(Artifact artifact, BuildableArtifactResolveResult result) {
+            try {
+                getModuleVersion().getArtifactResolver().resolve(artifact, result);
+            } catch (Throwable t) {
+                result.failed(new ArtifactResolveException(artifact, t));
+            }
+        }
+
+        private synchronized ModuleVersionResolveResult getModuleVersion() {
+            if (moduleVersion == null) {
+                ModuleRevisionId moduleRevisionId = ModuleRevisionId.newInstance(id.getGroup(), id.getName(), id.getVersion());
+                DefaultBuildableModuleVersionResolveResult result = new DefaultBuildableModuleVersionResolveResult();
+                resolver.resolve(new DefaultDependencyMetaData(new DefaultDependencyDescriptor(moduleRevisionId, false, false)), result);
+                moduleVersion = result;
+            }
+            return moduleVersion;
+        }
+    }
+}
@@ -27,14 +27,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Accesses the resources of a repository over HTTP. Can be used concurrently by multiple threads: each thread has its own set of open resources, so that
+ * starting a new request only closes the resources that the same thread abandoned.
+ */
 public class HttpResourceAccessor implements ExternalResourceAccessor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpResourceAccessor.class);
     private final HttpClientHelper http;
 
-    private final List<ExternalResource> openResources = new ArrayList<ExternalResource>();
+    private final ThreadLocal<List<ExternalResource>> openResources = new ThreadLocal<List<ExternalResource>>() {
+        @Override
+        protected List<ExternalResource> initialValue() {
+            return Collections.synchronizedList(new ArrayList<ExternalResource>());
+        }
+    };
 
     public HttpResourceAccessor(HttpClientHelper http) {
         this.http = http;
@@ -45,15 +55,16 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
         LOGGER.debug("Constructing external resource: {}", location);
         HttpResponse response = http.performGet(location);
         if (response != null) {
+            final List<ExternalResource> threadResources = openResources.get();
             HttpResponseResource resource = new HttpResponseResource("GET", location, response) {
                 @Override
                 public void close() throws IOException {
                     super.close();
-                    HttpResourceAccessor.this.openResources.remove(this);
+                    threadResources.remove(this);
                 }
             };
-
-            return recordOpenGetResource(resource);
+            threadResources.add(resource);
+            return resource;
         } else {
             return null;
         }
@@ -66,13 +77,14 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
         return response == null ? null : new HttpResponseResource("HEAD", location, response).getMetaData();
     }
 
-    private HttpResponseResource recordOpenGetResource(HttpResponseResource httpResource) {
-        openResources.add(httpResource);
-        return httpResource;
-    }
-
     private void abortOpenResources() {
-        for (ExternalResource openResource : openResources) {
+        List<ExternalResource> threadResources = openResources.get();
+        List<ExternalResource> abandonedResources;
+        synchronized (threadResources) {
+            abandonedResources = new ArrayList<ExternalResource>(threadResources);
+            threadResources.clear();
+        }
+        for (ExternalResource openResource : abandonedResources) {
             LOGGER.warn("Forcing close on abandoned resource: " + openResource);
             try {
                 openResource.close();
@@ -80,7 +92,6 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
                 LOGGER.warn("Failed to close abandoned resource", e);
             }
         }
-        openResources.clear();
     }
 
     public HashValue getResourceSha1(String location) {
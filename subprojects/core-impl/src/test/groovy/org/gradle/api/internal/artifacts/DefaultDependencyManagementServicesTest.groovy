@@ -33,6 +33,7 @@ import org.gradle.cache.internal.FileLockManager
 import org.gradle.initialization.ProjectAccessListener
 import org.gradle.internal.Factory
 import org.gradle.internal.TimeProvider
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.reflect.Instantiator
 import org.gradle.internal.service.ServiceRegistry
 import org.gradle.listener.ListenerManager
@@ -69,6 +70,7 @@ class DefaultDependencyManagementServicesTest extends Specification {
         _ * parent.get(ProjectAccessListener) >> Mock(ProjectAccessListener)
         _ * parent.get(FileResolver) >> Stub(FileResolver)
         _ * parent.get(TopLevelDependencyManagementServices) >> Mock(TopLevelDependencyManagementServices)
+        _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
     }
 
     private CacheRepository initCacheRepository() {
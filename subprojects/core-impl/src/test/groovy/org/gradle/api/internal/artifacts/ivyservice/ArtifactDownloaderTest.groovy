@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.apache.ivy.core.module.descriptor.Artifact
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@Timeout(60)
+class ArtifactDownloaderTest extends Specification {
+    // Spock mocks synchronise the threads that use them, so the cache locking manager is a hand-written fake
+    final operations = new CopyOnWriteArrayList<String>()
+    final cacheLockingManager = [
+            useCache: { String displayName, Runnable action ->
+                operations << "useCache"
+                action.run()
+            },
+            longRunningOperation: { String displayName, Runnable action ->
+                operations << "longRunningOperation"
+                action.run()
+            }
+    ] as CacheLockingManager
+    final executorFactory = new DefaultExecutorFactory()
+    final downloader = new ArtifactDownloader(executorFactory, cacheLockingManager, 4)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "resolves files of artifacts concurrently"() {
+        def allStarted = new CountDownLatch(3)
+        def threads = new CopyOnWriteArrayList<Thread>()
+        def artifacts = (1..3).collect { index ->
+            artifact {
+                threads << Thread.currentThread()
+                allStarted.countDown()
+                assert allStarted.await(20, TimeUnit.SECONDS)
+                new File("file-$index")
+            }
+        }
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        artifacts.every { it.fileResolved }
+        artifacts*.file == [new File("file-1"), new File("file-2"), new File("file-3")]
+        threads.size() == 3
+        !threads.contains(Thread.currentThread())
+        operations == ["useCache", "longRunningOperation"]
+    }
+
+    def "does not resolve files of artifacts that have already been resolved"() {
+        def calls = new CopyOnWriteArrayList<String>()
+        def resolved = artifact { calls << "resolved"; new File("resolved") }
+        def notResolved = (1..2).collect { index -> artifact { calls << "not-resolved"; new File("not-resolved-$index") } }
+        resolved.file
+
+        when:
+        downloader.download([resolved] + notResolved)
+
+        then:
+        calls == ["resolved", "not-resolved", "not-resolved"]
+    }
+
+    def "does not start threads when there is at most one file to resolve"() {
+        def resolved = artifact { new File("resolved") }
+        def notResolved = artifact { throw new AssertionError("should not be resolved") }
+        resolved.file
+
+        when:
+        downloader.download([resolved, notResolved])
+        downloader.download([])
+
+        then:
+        !notResolved.fileResolved
+        operations.empty
+    }
+
+    def "does not start threads when limited to one connection per repository"() {
+        def downloader = new ArtifactDownloader(executorFactory, cacheLockingManager, 1)
+        def artifacts = (1..2).collect { artifact { throw new AssertionError("should not be resolved") } }
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        artifacts.every { !it.fileResolved }
+        operations.empty
+    }
+
+    def "does not start threads when the repositories do not support concurrent access"() {
+        def downloader = new ArtifactDownloader(executorFactory, cacheLockingManager, false)
+        def artifacts = (1..2).collect { artifact { throw new AssertionError("should not be resolved") } }
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        artifacts.every { !it.fileResolved }
+        operations.empty
+    }
+
+    def "failure to resolve file is reported when file is requested"() {
+        def failure = new RuntimeException("broken")
+        def attempts = new CopyOnWriteArrayList<String>()
+        def broken = artifact { attempts << "attempt"; throw failure }
+        def ok = artifact { new File("ok") }
+
+        when:
+        downloader.download([broken, ok])
+
+        then:
+        ok.fileResolved
+        !broken.fileResolved
+
+        when:
+        broken.file
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+        attempts.size() == 2
+    }
+
+    def "ignores artifacts whose files cannot be resolved in the background"() {
+        def artifacts = [Stub(ResolvedArtifact), Stub(ResolvedArtifact)]
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        operations.empty
+    }
+
+    def artifact(Closure<File> source) {
+        Artifact ivyArtifact = Stub() {
+            getName() >> "name"
+            getType() >> "type"
+            getExt() >> "ext"
+            getQualifiedExtraAttributes() >> [:]
+        }
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), {} as Factory, ivyArtifact, source as Factory<File>, 0)
+    }
+}
@@ -19,7 +19,6 @@ package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
 import org.gradle.api.artifacts.ArtifactIdentifier
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
 import org.gradle.api.internal.artifacts.ivyservice.BuildableArtifactResolveResult
-import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleResolutionCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleDescriptorCache
 import org.gradle.api.internal.externalresource.cached.CachedArtifactIndex
@@ -36,10 +35,9 @@ class CachingModuleVersionRepositoryTest extends Specification {
     final moduleResolutionCache = Mock(ModuleResolutionCache)
     final moduleDescriptorCache = Mock(ModuleDescriptorCache)
     final artifactAtRepositoryCache = Mock(CachedArtifactIndex)
-    final resolver = Mock(DependencyToModuleVersionResolver)
     final cachePolicy = Mock(CachePolicy)
     CachingModuleVersionRepository repo = new CachingModuleVersionRepository(realRepo, moduleResolutionCache, moduleDescriptorCache, artifactAtRepositoryCache,
-            resolver, cachePolicy, new TrueTimeProvider())
+            cachePolicy, new TrueTimeProvider())
     int descriptorHash = 1234
     CachingModuleVersionRepository.CachingModuleSource moduleSource = Mock()
 
@@ -90,6 +90,55 @@ class LazyDependencyToModuleResolverTest extends Specification {
         0 * target._
     }
 
+    def "resolves module for static version dependency in the background when prefetched"() {
+        def prefetcher = Mock(ModuleVersionPrefetcher)
+        def resolver = new LazyDependencyToModuleResolver(target, matcher, prefetcher)
+        def dependency = dependency()
+        def module = module()
+        def prefetched
+
+        when:
+        def idResolveResult = resolver.resolve(dependency)
+        idResolveResult.prefetch()
+        resolver.resolve(dependency).prefetch()
+
+        then:
+        1 * prefetcher.prefetch(_) >> { prefetched = it[0] }
+        0 * target._
+
+        when:
+        prefetched.run()
+
+        then:
+        1 * target.resolve(dependency, _) >> { args -> args[1].resolved(moduleIdentifier(module), module, Mock(ArtifactResolver))}
+
+        when:
+        def moduleResolveResult = idResolveResult.resolve()
+
+        then:
+        moduleResolveResult.metaData.descriptor == module
+
+        and:
+        0 * target._
+        0 * prefetcher._
+    }
+
+    def "does not prefetch module for dynamic version dependency"() {
+        def prefetcher = Mock(ModuleVersionPrefetcher)
+        def resolver = new LazyDependencyToModuleResolver(target, matcher, prefetcher)
+        def dependency = dependency()
+        def module = module()
+        given:
+        matcher.isDynamic(_) >> true
+
+        when:
+        resolver.resolve(dependency).prefetch()
+
+        then:
+        1 * target.resolve(dependency, _) >> { args -> args[1].resolved(moduleIdentifier(module), module, Mock(ArtifactResolver))}
+        0 * prefetcher._
+    }
+
     def moduleIdentifier(ModuleDescriptor moduleDescriptor) {
         return new DefaultModuleVersionIdentifier(moduleDescriptor.moduleRevisionId.organisation, moduleDescriptor.moduleRevisionId.name, moduleDescriptor.moduleRevisionId.revision)
     }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.apache.ivy.Ivy
+import org.apache.ivy.core.IvyContext
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.FutureTask
+
+@Timeout(60)
+class ModuleVersionPrefetcherTest extends Specification {
+    // Spock mocks synchronise the threads that use them, so the cache locking manager is a hand-written fake
+    final operations = new CopyOnWriteArrayList<String>()
+    final onLongRunningOperation = new CopyOnWriteArrayList<Runnable>()
+    final cacheLockingManager = [
+            useCache: { String displayName, Runnable action ->
+                operations << "useCache"
+                action.run()
+            },
+            longRunningOperation: { String displayName, Runnable action ->
+                operations << "longRunningOperation"
+                onLongRunningOperation*.run()
+                action.run()
+            }
+    ] as CacheLockingManager
+    final executorFactory = new DefaultExecutorFactory()
+    final ivy = new Ivy()
+    final executor = new ModuleVersionPrefetchExecutor(executorFactory, 2)
+    final prefetcher = new ModuleVersionPrefetcher(executor, cacheLockingManager, ivy)
+
+    def cleanup() {
+        executor.stop()
+        executorFactory.stop()
+    }
+
+    def "runs resolve in the background with the cache locked and in an Ivy context"() {
+        def resolve = new FutureTask({ [Thread.currentThread(), IvyContext.context.ivy] })
+
+        when:
+        prefetcher.prefetch(resolve)
+        def result = resolve.get()
+        prefetcher.stop()
+
+        then:
+        result[0] != Thread.currentThread()
+        result[1].is(ivy)
+        operations == ["useCache", "longRunningOperation"]
+    }
+
+    def "does not run resolve in the background when it has already been run"() {
+        def resolve = new FutureTask({ "result" })
+
+        when:
+        resolve.run()
+        prefetcher.prefetch(resolve)
+        prefetcher.stop()
+
+        then:
+        resolve.get() == "result"
+        operations == ["longRunningOperation"]
+    }
+
+    def "releases cache lock while waiting for resolve running in the background"() {
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def resolve = new FutureTask({
+            started.countDown()
+            release.await()
+            "result"
+        })
+        onLongRunningOperation << { release.countDown() }
+
+        when:
+        prefetcher.prefetch(resolve)
+        started.await()
+        prefetcher.waitFor(resolve)
+
+        then:
+        resolve.done
+        resolve.get() == "result"
+        operations == ["useCache", "longRunningOperation"]
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "discards resolves that have not been started when stopped"() {
+        def started = new CountDownLatch(2)
+        def release = new CountDownLatch(1)
+        def blocking = (1..2).collect {
+            new FutureTask({
+                started.countDown()
+                release.await()
+            })
+        }
+        def queued = new FutureTask({ "result" })
+        onLongRunningOperation << { release.countDown() }
+
+        when:
+        blocking.each { prefetcher.prefetch(it) }
+        started.await()
+        prefetcher.prefetch(queued)
+        prefetcher.stop()
+
+        then:
+        blocking.every { it.done }
+        !queued.done
+    }
+
+    def "runs the resolves of several dependency graphs on the same threads"() {
+        def executor = new ModuleVersionPrefetchExecutor(executorFactory, 1)
+        def prefetcher1 = new ModuleVersionPrefetcher(executor, cacheLockingManager, ivy)
+        def prefetcher2 = new ModuleVersionPrefetcher(executor, cacheLockingManager, ivy)
+        def resolve1 = new FutureTask({ Thread.currentThread() })
+        def resolve2 = new FutureTask({ Thread.currentThread() })
+
+        when:
+        prefetcher1.prefetch(resolve1)
+        def thread1 = resolve1.get()
+        prefetcher1.stop()
+        prefetcher2.prefetch(resolve2)
+        def thread2 = resolve2.get()
+        prefetcher2.stop()
+
+        then:
+        thread1 != Thread.currentThread()
+        thread1.is(thread2)
+
+        cleanup:
+        executor.stop()
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.apache.ivy.core.module.id.ModuleId
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.gradle.api.internal.externalresource.DefaultLocallyAvailableExternalResource
+import org.gradle.internal.resource.local.DefaultLocallyAvailableResource
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.xml.sax.SAXParseException
+import spock.lang.Specification
+
+class PomReaderTest extends Specification {
+    @Rule public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "reads project and parent coordinates"() {
+        def pom = pomReader """
+<project>
+    <parent>
+        <groupId>group-parent</groupId>
+        <artifactId>artifact-parent</artifactId>
+        <version>version-parent</version>
+    </parent>
+    <artifactId>artifact-one</artifactId>
+    <packaging>war</packaging>
+    <url>http://example.org</url>
+    <description>
+        Some description
+    </description>
+</project>
+"""
+
+        expect:
+        pom.hasParent()
+        pom.groupId == "group-parent"
+        pom.artifactId == "artifact-one"
+        pom.version == "version-parent"
+        pom.parentGroupId == "group-parent"
+        pom.parentArtifactId == "artifact-parent"
+        pom.parentVersion == "version-parent"
+        pom.packaging == "war"
+        pom.homePage == "http://example.org"
+        pom.description == "Some description"
+    }
+
+    def "uses defaults for missing elements"() {
+        def pom = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</project>
+"""
+
+        expect:
+        !pom.hasParent()
+        pom.packaging == "jar"
+        pom.homePage == ""
+        pom.description == ""
+        pom.licenses.length == 0
+        pom.relocation == null
+        pom.dependencies.empty
+        pom.dependencyMgt.empty
+        pom.plugins.empty
+        pom.pomProperties.isEmpty()
+    }
+
+    def "reads dependencies, dependency management and plugins"() {
+        def pom = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+            <scope>test</scope>
+            <classifier>jdk15</classifier>
+            <type>test-jar</type>
+            <optional>true</optional>
+            <exclusions>
+                <exclusion>
+                    <groupId>group-three</groupId>
+                    <artifactId>artifact-three</artifactId>
+                </exclusion>
+                <exclusion>
+                    <groupId>incomplete</groupId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+    <dependencyManagement>
+        <dependencies>
+            <dependency>
+                <groupId>group-four</groupId>
+                <artifactId>artifact-four</artifactId>
+                <version>version-four</version>
+                <scope>import</scope>
+            </dependency>
+        </dependencies>
+    </dependencyManagement>
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>group-five</groupId>
+                <artifactId>artifact-five</artifactId>
+                <version>version-five</version>
+                <configuration>
+                    <groupId>ignored</groupId>
+                </configuration>
+            </plugin>
+        </plugins>
+    </build>
+</project>
+"""
+
+        when:
+        def dependency = pom.dependencies.first()
+        def managed = pom.dependencyMgt.first()
+        def plugin = pom.plugins.first()
+
+        then:
+        pom.dependencies.size() == 1
+        dependency.groupId == "group-two"
+        dependency.artifactId == "artifact-two"
+        dependency.version == "version-two"
+        dependency.scope == "test"
+        dependency.classifier == "jdk15"
+        dependency.type == "test-jar"
+        dependency.optional
+        dependency.excludedModules == [ModuleId.newInstance("group-three", "artifact-three")]
+
+        pom.dependencyMgt.size() == 1
+        managed.groupId == "group-four"
+        managed.artifactId == "artifact-four"
+        managed.version == "version-four"
+        managed.scope == "import"
+        managed.excludedModules.empty
+
+        pom.plugins.size() == 1
+        plugin.groupId == "group-five"
+        plugin.artifactId == "artifact-five"
+        plugin.version == "version-five"
+    }
+
+    def "reads licenses and relocation"() {
+        def pom = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <licenses>
+        <license>
+            <name>Apache</name>
+            <url>http://www.apache.org/licenses/LICENSE-2.0</url>
+        </license>
+        <license>
+            <url>http://example.org/license</url>
+        </license>
+        <license/>
+    </licenses>
+    <distributionManagement>
+        <relocation>
+            <groupId>group-two</groupId>
+        </relocation>
+    </distributionManagement>
+</project>
+"""
+
+        expect:
+        pom.licenses*.name == ["Apache", "Unknown License"]
+        pom.licenses*.url == ["http://www.apache.org/licenses/LICENSE-2.0", "http://example.org/license"]
+        pom.relocation == ModuleRevisionId.newInstance("group-two", "artifact-one", "version-one")
+    }
+
+    def "substitutes properties"() {
+        def pom = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>\${base.version}-SNAPSHOT</version>
+    <properties>
+        <base.version>1.2</base.version>
+        <other.version>3.4</other.version>
+    </properties>
+    <dependencies>
+        <dependency>
+            <groupId>\${project.groupId}</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>\${other.version}</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+
+        when:
+        pom.pomProperties.each { key, value -> pom.setProperty(key, value) }
+        pom.setProperty("project.groupId", pom.groupId)
+
+        then:
+        pom.pomProperties == ["base.version": "1.2", "other.version": "3.4"]
+        pom.version == "1.2-SNAPSHOT"
+        pom.dependencies.first().groupId == "group-one"
+        pom.dependencies.first().version == "3.4"
+    }
+
+    def "uses only the first occurrence of an element"() {
+        def pom = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <groupId>group-two</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <dependencies>
+        <dependency>
+            <groupId>group-three</groupId>
+            <artifactId>artifact-three</artifactId>
+            <version>version-three</version>
+        </dependency>
+    </dependencies>
+    <dependencies>
+        <dependency>
+            <groupId>group-four</groupId>
+            <artifactId>artifact-four</artifactId>
+            <version>version-four</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+
+        expect:
+        pom.groupId == "group-one"
+        pom.dependencies*.artifactId == ["artifact-three"]
+    }
+
+    def "text of an element includes CDATA and entities but not child elements"() {
+        def pom = pomReader """<?xml version="1.0" encoding="UTF-8"?>
+<project>
+    <groupId>group<!-- comment -->-one</groupId>
+    <artifactId><![CDATA[artifact]]>-one<ignored>text</ignored></artifactId>
+    <version>version-one</version>
+    <description>Caf&eacute; &amp; more</description>
+</project>
+"""
+
+        expect:
+        pom.groupId == "group-one"
+        pom.artifactId == "artifact-one"
+        pom.description == "Café & more"
+    }
+
+    def "accepts model as the root element"() {
+        def pom = pomReader """
+<model>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</model>
+"""
+
+        expect:
+        pom.artifactId == "artifact-one"
+    }
+
+    def "fails when the root element is not project"() {
+        when:
+        pomReader """
+<module>
+    <groupId>group-one</groupId>
+</module>
+"""
+
+        then:
+        SAXParseException e = thrown()
+        e.message == "project must be the root tag"
+    }
+
+    def "interns group, artifact and version values"() {
+        def pom1 = pomReader """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+        def pom2 = pomReader """
+<project>
+    <groupId>group-two</groupId>
+    <artifactId>artifact-two</artifactId>
+    <version>version-two</version>
+</project>
+"""
+
+        expect:
+        pom1.dependencies.first().groupId.is(pom2.groupId)
+        pom1.dependencies.first().artifactId.is(pom2.artifactId)
+        pom1.dependencies.first().version.is(pom2.version)
+    }
+
+    private PomReader pomReader(String text) {
+        TestFile pomFile = tmpDir.file("pom.xml")
+        pomFile.text = text
+        def resource = new DefaultLocallyAvailableExternalResource(pomFile.toURI().toString(), new DefaultLocallyAvailableResource(pomFile))
+        return new PomReader(resource)
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.apache.ivy.core.module.descriptor.OverrideDependencyDescriptorMediator
+import org.apache.ivy.core.module.id.ModuleId
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DisconnectedDescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ModuleDescriptorSerializerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    final serializer = new ModuleDescriptorSerializer()
+    final parser = new IvyXmlModuleDescriptorParser()
+
+    def "serialized descriptor has the same content as the original"() {
+        def ivyFile = temporaryFolder.file("ivy.xml")
+        ivyFile.text = getClass().getResource("/org/gradle/api/internal/artifacts/ivyservice/ivyresolve/parser/test-full.xml").text
+        def original = parser.parseDescriptor(new DisconnectedDescriptorParseContext(), ivyFile, false)
+        original.addDependencyDescriptorMediator(ModuleId.newInstance("org.test", "managed"), ExactPatternMatcher.INSTANCE, new OverrideDependencyDescriptorMediator(null, "1.2"))
+
+        when:
+        def copy = roundTrip(original)
+
+        then:
+        toXml(copy) == toXml(original)
+        copy.moduleRevisionId == original.moduleRevisionId
+        copy.publicationDate == original.publicationDate
+        copy.dependencies.length == original.dependencies.length
+        copy.allExcludeRules.length == original.allExcludeRules.length
+        copy.allDependencyDescriptorMediators.allRules.size() == 1
+        copy.metadataArtifact == original.metadataArtifact
+    }
+
+    def "serialized descriptor includes content inherited from parent and does not reference the parent"() {
+        temporaryFolder.file("ivy.xml") << """
+<ivy-module version="2.0">
+    <info organisation="org.test" module="parent" revision="1.0" status="release"/>
+    <configurations>
+        <conf name="compile"/>
+    </configurations>
+    <dependencies>
+        <dependency org="org.test" name="from-parent" rev="2.0" conf="compile->default"/>
+    </dependencies>
+</ivy-module>
+"""
+        def ivyFile = temporaryFolder.file("child/ivy.xml") << """
+<ivy-module version="2.2">
+    <info module="child" revision="1.1">
+        <extends organisation="org.test" module="parent" revision="1.0"/>
+    </info>
+    <dependencies>
+        <dependency org="org.test" name="from-child" rev="3.0" conf="compile->default"/>
+    </dependencies>
+</ivy-module>
+"""
+        def original = parser.parseDescriptor(new DisconnectedDescriptorParseContext(), ivyFile, false)
+
+        when:
+        def copy = roundTrip(original)
+
+        then:
+        original.inheritedDescriptors.length == 1
+        copy.inheritedDescriptors.length == 0
+        copy.moduleRevisionId == ModuleRevisionId.newInstance("org.test", "child", "1.1")
+        copy.configurationsNames as List == ["compile"]
+        copy.dependencies*.dependencyRevisionId*.name == ["from-parent", "from-child"]
+    }
+
+    def "reads descriptor written using another format version as null"() {
+        def bytes = new ByteArrayOutputStream()
+        new DataOutputStream(bytes).writeInt(0)
+
+        expect:
+        serializer.read(new ByteArrayInputStream(bytes.toByteArray())) == null
+    }
+
+    def "serialized descriptor is smaller than ivy.xml"() {
+        def ivyFile = temporaryFolder.file("ivy.xml")
+        ivyFile.text = getClass().getResource("/org/gradle/api/internal/artifacts/ivyservice/ivyresolve/parser/test-full.xml").text
+        def original = parser.parseDescriptor(new DisconnectedDescriptorParseContext(), ivyFile, false)
+
+        expect:
+        serialize(original).length < toXml(original).getBytes("UTF-8").length
+    }
+
+    private ModuleDescriptor roundTrip(ModuleDescriptor descriptor) {
+        return serializer.read(new ByteArrayInputStream(serialize(descriptor)))
+    }
+
+    private byte[] serialize(ModuleDescriptor descriptor) {
+        def bytes = new ByteArrayOutputStream()
+        serializer.write(bytes, descriptor)
+        return bytes.toByteArray()
+    }
+
+    private String toXml(ModuleDescriptor descriptor) {
+        def file = temporaryFolder.createFile("descriptor.xml")
+        new IvyXmlModuleDescriptorWriter().write(descriptor, file)
+        return file.text
+    }
+}
@@ -19,10 +19,7 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor
 import org.apache.ivy.core.module.id.ModuleRevisionId
 import org.gradle.api.artifacts.ModuleVersionIdentifier
-import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver
-import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleVersionRepository
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
 import org.gradle.api.internal.filestore.PathKeyFileStore
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -38,13 +35,11 @@ class ModuleDescriptorStoreTest extends Specification {
     ModuleVersionRepository repository = Mock()
     LocallyAvailableResource fileStoreEntry = Mock()
     ModuleDescriptor moduleDescriptor = Mock()
-    IvyModuleDescriptorWriter ivyModuleDescriptorWriter = Mock()
-    IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser = Mock()
+    ModuleDescriptorSerializer serializer = Mock()
     ModuleVersionIdentifier moduleVersionIdentifier = Mock()
-    def resolver = Mock(DependencyToModuleVersionResolver)
 
     def setup() {
-        store = new ModuleDescriptorStore(pathKeyFileStore, ivyModuleDescriptorWriter, ivyXmlModuleDescriptorParser);
+        store = new ModuleDescriptorStore(pathKeyFileStore, serializer);
         _ * repository.getId() >> "repositoryId"
         _ * moduleVersionIdentifier.group >> "org.test"
         _ * moduleVersionIdentifier.name >> "testArtifact"
@@ -54,16 +49,16 @@ class ModuleDescriptorStoreTest extends Specification {
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
         when:
-        pathKeyFileStore.get("module-metadata/org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        pathKeyFileStore.get("module-metadata/org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
         then:
-        null == store.getModuleDescriptor(repository, moduleVersionIdentifier, resolver)
+        null == store.getModuleDescriptor(repository, moduleVersionIdentifier)
     }
 
     def "getModuleDescriptorFile uses PathKeyFileStore to get file"() {
         when:
-        store.getModuleDescriptor(repository, moduleVersionIdentifier, resolver);
+        store.getModuleDescriptor(repository, moduleVersionIdentifier);
         then:
-        1 * pathKeyFileStore.get("module-metadata/org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        1 * pathKeyFileStore.get("module-metadata/org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
     }
 
     def "putModuleDescriptor uses PathKeyFileStore to write file"() {
@@ -75,9 +70,23 @@ class ModuleDescriptorStoreTest extends Specification {
         when:
         store.putModuleDescriptor(repository, moduleDescriptor);
         then:
-        1 * pathKeyFileStore.add("module-metadata/org.test/testArtifact/1.0/repositoryId/ivy.xml", _) >> { path, action ->
+        1 * pathKeyFileStore.add("module-metadata/org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
             action.execute(descriptorFile); fileStoreEntry
         };
-        1 * ivyModuleDescriptorWriter.write(moduleDescriptor, descriptorFile)
+        1 * serializer.write(_ as OutputStream, moduleDescriptor)
+    }
+
+    def "getModuleDescriptor uses serializer to read file"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        _ * fileStoreEntry.file >> descriptorFile
+
+        when:
+        def result = store.getModuleDescriptor(repository, moduleVersionIdentifier)
+
+        then:
+        result == moduleDescriptor
+        1 * pathKeyFileStore.get("module-metadata/org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> fileStoreEntry
+        1 * serializer.read(_ as InputStream) >> moduleDescriptor
     }
 }
\ No newline at end of file
@@ -129,6 +129,20 @@ public class DefaultResolutionStrategySpec extends Specification {
         0 * details._
     }
 
+    def "knows whether dependency resolve rules have been added"() {
+        when:
+        strategy.force 'org:foo:2.0'
+
+        then:
+        !strategy.hasDependencyResolveRules()
+
+        when:
+        strategy.eachDependency({ it.useVersion("1.0") } as Action)
+
+        then:
+        strategy.hasDependencyResolveRules()
+    }
+
     def "copied instance does not share state"() {
         when:
         def copy = strategy.copy()
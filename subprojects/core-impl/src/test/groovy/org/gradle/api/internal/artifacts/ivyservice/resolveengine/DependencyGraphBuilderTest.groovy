@@ -75,11 +75,62 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(a, b, c)
     }
 
+    def "prefetches the meta-data for the outgoing edges of a configuration before visiting them in order"() {
+        given:
+        def a = revision("a")
+        def b = revision("b")
+        def descriptorA = dependsOn(root.descriptor, a.descriptor.moduleRevisionId)
+        def descriptorB = dependsOn(root.descriptor, b.descriptor.moduleRevisionId)
+        ModuleVersionIdResolveResult resultA = Mock()
+        ModuleVersionIdResolveResult resultB = Mock()
+        _ * resultA.id >> a.id
+        _ * resultB.id >> b.id
+        ModuleVersionResolveResult resolveResultA = Mock()
+        _ * resolveResultA.metaData >> a
+        ModuleVersionResolveResult resolveResultB = Mock()
+        _ * resolveResultB.metaData >> b
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * dependencyResolver.resolve({it.descriptor == descriptorA}) >> resultA
+        1 * resultA.prefetch()
+        then:
+        1 * dependencyResolver.resolve({it.descriptor == descriptorB}) >> resultB
+        1 * resultB.prefetch()
+        then:
+        1 * resultA.resolve() >> resolveResultA
+        then:
+        1 * resultB.resolve() >> resolveResultB
+
+        and:
+        modules(result) == ids(a, b)
+    }
+
+    def "does not prefetch the meta-data for an edge whose selector cannot be resolved"() {
+        given:
+        def a = revision("a")
+        def descriptor = dependsOn(root.descriptor, a.descriptor.moduleRevisionId)
+        ModuleVersionIdResolveResult idResult = Mock()
+        _ * idResult.failure >> new ModuleVersionResolveException(newSelector("group", "a", "1.0"), "broken")
+        _ * idResult.selectionReason >> VersionSelectionReasons.REQUESTED
+
+        when:
+        resolve()
+
+        then:
+        1 * dependencyResolver.resolve({it.descriptor == descriptor}) >> idResult
+        0 * idResult.prefetch()
+        0 * idResult.resolve()
+    }
+
     private DefaultLenientConfiguration resolve() {
         def results = new DefaultResolvedConfigurationBuilder(Stub(ResolvedArtifactFactory),
                 new TransientResultsStore(new DummyBinaryStore(), new DummyStore()))
         builder.resolve(configuration, listener, results)
-        new DefaultLenientConfiguration(configuration, results, Stub(CacheLockingManager))
+        new DefaultLenientConfiguration(configuration, results, Stub(CacheLockingManager), Stub(ArtifactDownloader))
     }
 
     def "correctly notifies the resolved configuration listener"() {
@@ -870,6 +921,7 @@ class DependencyGraphBuilderTest extends Specification {
         _ * result.id >> to.id;
         _ * result.failure >> null
         _ * result.selectionReason >> null
+        _ * result.prefetch()
         0 * result._
     }
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.gradle.StartParameter
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.Module
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.internal.DefaultDomainObjectSet
+import org.gradle.api.internal.artifacts.DefaultDependencySet
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.DependencyToModuleVersionResolver
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleVersionRepository
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleDescriptorCache
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.LatestConflictResolution
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolvedConfigurationListener
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.cache.PersistentIndexedCache
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons.REQUESTED
+
+class ResolvedGraphCacheTest extends Specification {
+    final entries = [:]
+    final backingCache = [get: { entries[it] }, put: { key, value -> entries[key] = value }, remove: { entries.remove(it) }] as PersistentIndexedCache
+    final cacheLockingManager = Stub(CacheLockingManager) {
+        createCache(_, _, _) >> backingCache
+    }
+    final moduleDescriptorCache = Mock(ModuleDescriptorCache)
+    final startParameter = new StartParameter()
+    final cacheMetaData = Stub(ArtifactCacheMetaData) {
+        getCacheDir() >> new File("cache")
+    }
+    final cache = new ResolvedGraphCache(cacheMetaData, cacheLockingManager, moduleDescriptorCache, startParameter)
+    final resolutionStrategy = Stub(ResolutionStrategyInternal) {
+        getConflictResolution() >> new LatestConflictResolution()
+    }
+    final dependencies = new DefaultDomainObjectSet<Dependency>(Dependency)
+    final configuration = Stub(ConfigurationInternal) {
+        getModule() >> Stub(Module) {
+            getGroup() >> "org"
+            getName() >> "project"
+        }
+        getPath() >> ":compile"
+        getResolutionStrategy() >> resolutionStrategy
+        getDependencies() >> new DefaultDependencySet("dependencies", dependencies)
+        getExcludeRules() >> ([] as Set)
+    }
+    final moduleVersionRepository = Stub(ConfiguredModuleVersionRepository) {
+        getId() >> "repo"
+    }
+    final repository = Stub(ResolutionAwareRepository) {
+        createResolver() >> moduleVersionRepository
+    }
+    final repositories = [repository]
+
+    def setup() {
+        configuration.getHierarchy() >> ([configuration] as Set)
+    }
+
+    def "inputs change when the declared dependencies change"() {
+        dependencies.add(new DefaultExternalModuleDependency("org", "dep", "1.0"))
+        def inputs = cache.getInputs(configuration, repositories)
+
+        when:
+        dependencies.add(new DefaultExternalModuleDependency("org", "other", "1.0"))
+
+        then:
+        inputs != null
+        cache.getInputs(configuration, repositories).hash == cache.getInputs(configuration, repositories).hash
+        cache.getInputs(configuration, repositories).hash != inputs.hash
+    }
+
+    def "results are not cached for a configuration with a changing or project dependency"() {
+        when:
+        dependencies.add(dependency)
+
+        then:
+        cache.getInputs(configuration, repositories) == null
+
+        where:
+        dependency << [new DefaultExternalModuleDependency("org", "dep", "1.0").setChanging(true), Stub(ProjectDependency)]
+    }
+
+    def "results are not cached for a configuration with dependency resolve rules"() {
+        resolutionStrategy.hasDependencyResolveRules() >> true
+
+        expect:
+        cache.getInputs(configuration, repositories) == null
+    }
+
+    def "results are not cached for a configuration that uses a local repository"() {
+        moduleVersionRepository.isLocal() >> true
+
+        expect:
+        cache.getInputs(configuration, repositories) == null
+    }
+
+    def "replays stored results while the meta-data of the resolved module versions is unchanged"() {
+        def inputs = cache.getInputs(configuration, repositories)
+        def listener = Mock(ResolvedConfigurationListener)
+        def builder = Mock(ResolvedConfigurationBuilder)
+        _ * moduleDescriptorCache.getModuleDescriptorTimestamp(moduleVersionRepository, newId("org", "dep", "1.0")) >>> [1000, 1000, 2000]
+
+        when:
+        cache.store(inputs, record(cache.createRecorder(inputs, Stub(ResolvedConfigurationListener), Stub(ResolvedConfigurationBuilder))))
+
+        then:
+        entries.size() == 1
+
+        when:
+        def replayed = cache.replay(inputs, listener, builder, Stub(DependencyToModuleVersionResolver))
+
+        then:
+        replayed
+        1 * listener.start(newId("org", "project", "unspecified"))
+        1 * listener.resolvedModuleVersion({ it.selectedId == newId("org", "dep", "1.0") })
+        1 * builder.done(_)
+
+        when:
+        replayed = cache.replay(inputs, listener, builder, Stub(DependencyToModuleVersionResolver))
+
+        then:
+        !replayed
+        0 * listener._
+        0 * builder._
+    }
+
+    def "does not replay results when refreshing dependencies"() {
+        def inputs = cache.getInputs(configuration, repositories)
+        cache.store(inputs, record(cache.createRecorder(inputs, Stub(ResolvedConfigurationListener), Stub(ResolvedConfigurationBuilder))))
+        startParameter.refreshDependencies = true
+
+        expect:
+        !cache.replay(inputs, Stub(ResolvedConfigurationListener), Stub(ResolvedConfigurationBuilder), Stub(DependencyToModuleVersionResolver))
+    }
+
+    def "does not store discarded results"() {
+        def inputs = cache.getInputs(configuration, repositories)
+        def recorder = record(cache.createRecorder(inputs, Stub(ResolvedConfigurationListener), Stub(ResolvedConfigurationBuilder)))
+
+        when:
+        recorder.discard()
+        cache.store(inputs, recorder)
+
+        then:
+        entries.isEmpty()
+    }
+
+    def record(ResolvedGraphRecorder recorder) {
+        def root = newId("org", "project", "unspecified")
+        recorder.start(root)
+        recorder.resolvedModuleVersion(new DefaultModuleVersionSelection(newId("org", "dep", "1.0"), REQUESTED))
+        recorder.done(new ResolvedConfigurationIdentifier(root, "compile"))
+        return recorder
+    }
+}
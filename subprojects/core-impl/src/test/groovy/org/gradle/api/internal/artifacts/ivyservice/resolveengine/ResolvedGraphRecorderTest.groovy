@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.apache.ivy.core.module.descriptor.DefaultArtifact
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.UnresolvedDependency
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.*
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.DefaultDependencyMetaData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.DependencyMetaData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionMatcher
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientResultsStore
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.*
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultPrinter.printGraph
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons.REQUESTED
+
+class ResolvedGraphRecorderTest extends Specification {
+    final lockingManager = Stub(CacheLockingManager) {
+        useCache(_, _) >> { String operation, Factory action -> action.create() }
+    }
+    final ivyContextManager = Stub(IvyContextManager) {
+        withIvy(_) >> { args -> args[0].transform(null) }
+    }
+    final root = newId("org", "root", "1.0")
+    final rootConfiguration = new ResolvedConfigurationIdentifier(root, "default")
+    final dep = newId("org", "dep", "2.0")
+    final depConfiguration = new ResolvedConfigurationIdentifier(dep, "default")
+    final moduleDependency = Stub(ModuleDependency)
+    final moduleDependencies = [moduleDependency]
+
+    def "replays recorded results into new result builders"() {
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), moduleDependencies)
+        resolve(recorder)
+        def recording = recorder.recording
+
+        def newModel = newModelBuilder()
+        def oldModel = oldModelBuilder()
+
+        when:
+        ResolvedGraphRecorder.replay(recording, moduleDependencies, newModel, oldModel, Stub(DependencyToModuleVersionResolver))
+
+        then:
+        recording != null
+        recorder.modules == [dep] as Set
+        printGraph(newModel.complete().root) == """org:root:1.0
+  org:dep:2.0 [root]
+"""
+        def firstLevel = oldModel.more().firstLevelDependencies
+        firstLevel.keySet() == [moduleDependency] as Set
+        def resolvedDependency = firstLevel[moduleDependency]
+        resolvedDependency.module.id == dep
+        resolvedDependency.parents*.moduleName == ["root"]
+        resolvedDependency.moduleArtifacts*.name == ["dep"]
+        resolvedDependency.moduleArtifacts*.classifier == ["sources"]
+        resolvedDependency.getParentArtifacts(oldModel.more().root)*.name == ["dep"]
+        oldModel.artifacts*.name == ["dep"]
+    }
+
+    def "resolves the files of replayed artifacts using the module version of the artifact"() {
+        def file = new File("dep.jar")
+        def artifactResolver = Mock(ArtifactResolver)
+        def resolver = { DependencyMetaData dependency, BuildableModuleVersionResolveResult result ->
+            assert dependency.requested == newSelector("org", "dep", "2.0")
+            result.resolved(dep, DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("org", "dep", "2.0")), artifactResolver)
+        } as DependencyToModuleVersionResolver
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), moduleDependencies)
+        resolve(recorder)
+        def oldModel = oldModelBuilder()
+        ResolvedGraphRecorder.replay(recorder.recording, moduleDependencies, newModelBuilder(), oldModel, resolver)
+
+        when:
+        def files = oldModel.artifacts*.file
+
+        then:
+        files == [file]
+        1 * artifactResolver.resolve({ it.name == "dep" }, _) >> { args -> args[1].resolved(file) }
+    }
+
+    def "does not provide a recording when the results have not been completed"() {
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), moduleDependencies)
+
+        when:
+        recorder.start(root)
+        recorder.newResolvedDependency(rootConfiguration)
+
+        then:
+        recorder.recording == null
+    }
+
+    def "discards the recording when a dependency cannot be resolved"() {
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), moduleDependencies)
+
+        when:
+        recorder.start(root)
+        recorder.newResolvedDependency(rootConfiguration)
+        recorder.resolvedConfiguration(root, [
+                new DefaultInternalDependencyResult(newSelector("org", "dep", "2.0"), null, REQUESTED, new ModuleVersionResolveException(newSelector("org", "dep", "2.0"), new RuntimeException()))
+        ])
+        recorder.addUnresolvedDependency(Stub(UnresolvedDependency))
+        recorder.done(rootConfiguration)
+
+        then:
+        recorder.recording == null
+    }
+
+    def "discards the recording when a first level dependency is not a declared dependency"() {
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), [])
+
+        when:
+        resolve(recorder)
+
+        then:
+        recorder.recording == null
+    }
+
+    def "discards the recording when a dynamic version is resolved"() {
+        def versionMatcher = Stub(VersionMatcher) {
+            isDynamic("1.+") >> true
+        }
+        def target = { DependencyMetaData dependency, BuildableModuleVersionResolveResult result ->
+            result.resolved(dep, DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("org", "dep", "2.0")), Stub(ArtifactResolver))
+        } as DependencyToModuleVersionResolver
+        def recorder = new ResolvedGraphRecorder(newModelBuilder(), oldModelBuilder(), moduleDependencies)
+        def resolver = recorder.discardOnDynamicOrChanging(target, versionMatcher)
+
+        when:
+        resolver.resolve(dependency("2.0"), new DefaultBuildableModuleVersionResolveResult())
+        resolve(recorder)
+
+        then:
+        recorder.recording != null
+
+        when:
+        resolver.resolve(dependency("1.+"), new DefaultBuildableModuleVersionResolveResult())
+
+        then:
+        recorder.recording == null
+    }
+
+    def dependency(String version) {
+        return new DefaultDependencyMetaData(new DefaultDependencyDescriptor(ModuleRevisionId.newInstance("org", "dep", version), false, false))
+    }
+
+    def resolve(ResolvedGraphRecorder recorder) {
+        recorder.start(root)
+        recorder.newResolvedDependency(rootConfiguration)
+        recorder.resolvedModuleVersion(new DefaultModuleVersionSelection(dep, REQUESTED))
+        recorder.newResolvedDependency(depConfiguration)
+        recorder.resolvedConfiguration(root, [
+                new DefaultInternalDependencyResult(newSelector("org", "dep", "2.0"), new DefaultModuleVersionSelection(dep, REQUESTED), REQUESTED, null)
+        ])
+        def artifact = recorder.newArtifact(depConfiguration, new DefaultArtifact(ModuleRevisionId.newInstance("org", "dep", "2.0"), null, "dep", "jar", "jar", ["m:classifier": "sources"]), Stub(ArtifactResolver))
+        recorder.addChild(rootConfiguration, depConfiguration)
+        recorder.addParentSpecificArtifacts(depConfiguration, rootConfiguration, [artifact] as Set)
+        recorder.addFirstLevelDependency(moduleDependency, depConfiguration)
+        recorder.done(rootConfiguration)
+    }
+
+    def newModelBuilder() {
+        return new StreamingResolutionResultBuilder(new DummyBinaryStore(), new DummyStore())
+    }
+
+    def oldModelBuilder() {
+        return new DefaultResolvedConfigurationBuilder(new ResolvedArtifactFactory(lockingManager, ivyContextManager), new TransientResultsStore(new DummyBinaryStore(), new DummyStore()))
+    }
+}
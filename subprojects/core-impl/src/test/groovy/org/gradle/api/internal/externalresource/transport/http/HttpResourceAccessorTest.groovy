@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.externalresource.transport.http
+
+import org.apache.http.HttpResponse
+import org.apache.http.HttpVersion
+import org.apache.http.entity.BasicHttpEntity
+import org.apache.http.message.BasicHttpResponse
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class HttpResourceAccessorTest extends ConcurrentSpec {
+    def http = Mock(HttpClientHelper)
+    def accessor = new HttpResourceAccessor(http)
+    def contentA = new TestContent()
+    def contentB = new TestContent()
+
+    def setup() {
+        http.performGet("http://repo/a") >> response(contentA)
+        http.performGet("http://repo/b") >> response(contentB)
+    }
+
+    def "closes the resource a thread abandoned when the thread requests another resource"() {
+        when:
+        accessor.getResource("http://repo/a")
+        accessor.getResource("http://repo/b")
+
+        then:
+        contentA.closed
+        !contentB.closed
+    }
+
+    def "does not close the resource of another thread when GET requests overlap"() {
+        def closedByOtherThread = null
+
+        when:
+        async {
+            start {
+                def resource = accessor.getResource("http://repo/a")
+                instant.aOpened
+                thread.blockUntil.bOpened
+                closedByOtherThread = contentA.closed
+                resource.close()
+            }
+            start {
+                thread.blockUntil.aOpened
+                def resource = accessor.getResource("http://repo/b")
+                instant.bOpened
+                resource.close()
+            }
+        }
+
+        then:
+        closedByOtherThread == false
+        contentA.closed
+        contentB.closed
+    }
+
+    private static HttpResponse response(InputStream content) {
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK")
+        def entity = new BasicHttpEntity()
+        entity.content = content
+        response.entity = entity
+        return response
+    }
+
+    private static class TestContent extends ByteArrayInputStream {
+        boolean closed
+
+        TestContent() {
+            super(new byte[0])
+        }
+
+        @Override
+        void close() {
+            closed = true
+        }
+    }
+}
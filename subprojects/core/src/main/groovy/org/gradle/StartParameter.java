@@ -77,6 +77,7 @@ public class StartParameter extends LoggingConfiguration implements Serializable
     private boolean recompileScripts;
     private int parallelThreadCount;
     private boolean configureOnDemand;
+    private boolean parallelTasksWithinProject;
 
     /**
      * Sets the project's cache location. Set to null to use the default location.
@@ -155,6 +156,7 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         p.refreshDependencies = refreshDependencies;
         p.parallelThreadCount = parallelThreadCount;
         p.configureOnDemand = configureOnDemand;
+        p.parallelTasksWithinProject = parallelTasksWithinProject;
 
         return p;
     }
@@ -662,6 +664,7 @@ public class StartParameter extends LoggingConfiguration implements Serializable
                 + ", refreshDependencies=" + refreshDependencies
                 + ", parallelThreadCount=" + parallelThreadCount
                 + ", configureOnDemand=" + configureOnDemand
+                + ", parallelTasksWithinProject=" + parallelTasksWithinProject
                 + '}';
     }
 
@@ -676,4 +679,23 @@ public class StartParameter extends LoggingConfiguration implements Serializable
     public void setConfigureOnDemand(boolean configureOnDemand) {
         this.configureOnDemand = configureOnDemand;
     }
+
+    /**
+     * Returns true if tasks of the same project may be executed in parallel, when parallel execution is enabled.
+     * Tasks of the same project are only executed in parallel when their declared inputs and outputs do not overlap.
+     */
+    @Incubating
+    public boolean isParallelTasksWithinProject() {
+        return parallelTasksWithinProject;
+    }
+
+    /**
+     * Specifies whether tasks of the same project may be executed in parallel, when parallel execution is enabled.
+     *
+     * @see #isParallelTasksWithinProject()
+     */
+    @Incubating
+    public void setParallelTasksWithinProject(boolean parallelTasksWithinProject) {
+        this.parallelTasksWithinProject = parallelTasksWithinProject;
+    }
 }
\ No newline at end of file
@@ -15,33 +15,115 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.messaging.serialize.DataStreamBackedSerializer;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class CachingHasher implements Hasher {
+    private static final String WRITER_FILE_NAME = "writer.bin";
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
+    private final InMemoryFileHashCache inMemoryCache;
+    private final PersistentCache writerStore;
+    private volatile boolean inMemoryCacheChecked;
 
     public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess) {
+        this(hasher, cacheAccess, null, null);
+    }
+
+    /**
+     * @param inMemoryCache The hashes kept in the heap in front of the persistent cache, or null to use the persistent cache only.
+     * @param writerStore The cache shared by all builds that records which process last wrote file hashes. Only used when there is an in-memory cache.
+     */
+    public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess, InMemoryFileHashCache inMemoryCache, PersistentCache writerStore) {
         this.hasher = hasher;
+        this.inMemoryCache = inMemoryCache;
+        this.writerStore = writerStore;
         cache = cacheAccess.createCache("fileHashes", File.class, FileInfo.class, new FileInfoSerializer());
     }
 
     public byte[] hash(File file) {
-        FileInfo info = cache.get(file);
+        return hash(Collections.singletonList(file)).get(0);
+    }
+
+    /**
+     * Looks up all of the files in the cache first, then hashes the files that have changed using a single call to the delegate hasher, and finally writes the
+     * new hashes back to the cache.
+     */
+    public List<byte[]> hash(List<File> files) {
+        if (inMemoryCache != null) {
+            discardInMemoryHashesIfWrittenByOtherProcess();
+        }
+
+        List<byte[]> hashes = new ArrayList<byte[]>(files.size());
+        List<Integer> changedIndexes = new ArrayList<Integer>();
+        List<File> changedFiles = new ArrayList<File>();
+        List<FileInfo> changedInfos = new ArrayList<FileInfo>();
+        for (File file : files) {
+            long length = file.length();
+            long timestamp = file.lastModified();
 
-        long length = file.length();
-        timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
-            return info.hash;
+            FileInfo info = inMemoryCache == null ? null : inMemoryCache.get(file);
+            if (info != null && info.isUpToDate(length, timestamp)) {
+                hashes.add(info.hash);
+                continue;
+            }
+
+            info = cache.get(file);
+            if (info != null && info.isUpToDate(length, timestamp)) {
+                hashes.add(info.hash);
+                if (inMemoryCache != null) {
+                    inMemoryCache.put(file, info);
+                }
+            } else {
+                hashes.add(null);
+                changedIndexes.add(hashes.size() - 1);
+                changedFiles.add(file);
+                changedInfos.add(new FileInfo(null, length, timestamp));
+            }
+        }
+        if (changedFiles.isEmpty()) {
+            return hashes;
         }
 
-        byte[] hash = hasher.hash(file);
-        cache.put(file, new FileInfo(hash, length, timestamp));
-        return hash;
+        List<byte[]> changedHashes = hasher.hash(changedFiles);
+        for (int i = 0; i < changedFiles.size(); i++) {
+            File file = changedFiles.get(i);
+            byte[] hash = changedHashes.get(i);
+            FileInfo info = new FileInfo(hash, changedInfos.get(i).length, changedInfos.get(i).timestamp);
+            cache.put(file, info);
+            if (inMemoryCache != null) {
+                inMemoryCache.put(file, info);
+            }
+            hashes.set(changedIndexes.get(i), hash);
+        }
+        return hashes;
+    }
+
+    /**
+     * Another process may have written a different hash for a file that it saw with the same length and timestamp, for example when the file was changed twice
+     * within the resolution of the file system timestamps. So, the hashes in the heap can only be trusted when this process was the last to hash files. This
+     * process claims the marker shared by all builds before it writes any hashes in a build, so the check is only needed once per build.
+     */
+    private void discardInMemoryHashesIfWrittenByOtherProcess() {
+        if (inMemoryCacheChecked) {
+            return;
+        }
+        synchronized (this) {
+            if (!inMemoryCacheChecked) {
+                writerStore.useCache("Check file hash writer", new Runnable() {
+                    public void run() {
+                        inMemoryCache.discardIfWrittenByOtherProcess(new File(writerStore.getBaseDir(), WRITER_FILE_NAME));
+                    }
+                });
+                inMemoryCacheChecked = true;
+            }
+        }
     }
 
     public static class FileInfo implements Serializable {
@@ -54,6 +136,10 @@ public class CachingHasher implements Hasher {
             this.length = length;
             this.timestamp = timestamp;
         }
+
+        private boolean isUpToDate(long length, long timestamp) {
+            return length == this.length && timestamp == this.timestamp;
+        }
     }
 
     private static class FileInfoSerializer extends DataStreamBackedSerializer<FileInfo> {
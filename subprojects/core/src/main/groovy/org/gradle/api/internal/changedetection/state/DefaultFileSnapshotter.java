@@ -16,13 +16,14 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
-import java.math.BigInteger;
 import java.util.*;
 
 public class DefaultFileSnapshotter implements FileSnapshotter {
@@ -35,120 +36,163 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(new HashMap<String, FileSnapshot>());
+        return new FileCollectionSnapshotImpl.Builder().build();
     }
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
-        final Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        final FileCollectionSnapshotImpl.Builder builder = new FileCollectionSnapshotImpl.Builder();
         final Set<File> theFiles = sourceFiles.getAsFileTree().getFiles();
-        cacheAccess.useCache("Create file snapshot", new Runnable() {
+        // Hashing the files can take a while, so allow other tasks to create their snapshots at the same time
+        cacheAccess.useCacheConcurrently("Create file snapshot", new Runnable() {
             public void run() {
+                List<File> regularFiles = new ArrayList<File>();
                 for (File file : theFiles) {
                     if (file.isFile()) {
-                        snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
+                        regularFiles.add(file);
                     } else if (file.isDirectory()) {
-                        snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+                        builder.addDirectory(file.getAbsolutePath());
                     } else {
-                        snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+                        builder.addMissingFile(file.getAbsolutePath());
                     }
                 }
+                // Hash all of the regular files in one go, so that the hasher can batch its work
+                List<byte[]> hashes = hasher.hash(regularFiles);
+                for (int i = 0; i < regularFiles.size(); i++) {
+                    builder.addFile(regularFiles.get(i).getAbsolutePath(), hashes.get(i));
+                }
             }
         });
-        return new FileCollectionSnapshotImpl(snapshots);
+        return builder.build();
     }
 
-    static interface FileSnapshot {
-        boolean isUpToDate(FileSnapshot snapshot);
-    }
+    /**
+     * A snapshot of a collection of files, held in a few arrays rather than an object per file. The paths are sorted and interned, and the hashes of all the
+     * files are kept one after the other in a single array. Two snapshots are compared by walking both of them in path order, so a diff does not need to build any
+     * maps.
+     */
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+        static final byte DIRECTORY = 1;
+        static final byte MISSING_FILE = 2;
+        static final byte FILE = 3;
+        private static final Interner<String> PATHS = Interners.newWeakInterner();
 
-    static class FileHashSnapshot implements FileSnapshot {
-        final byte[] hash;
+        private final String[] paths;
+        private final byte[] kinds;
+        private final int hashLength;
+        private final byte[] hashes;
 
-        public FileHashSnapshot(byte[] hash) {
-            this.hash = hash;
+        private FileCollectionSnapshotImpl(String[] paths, byte[] kinds, int hashLength, byte[] hashes) {
+            this.paths = paths;
+            this.kinds = kinds;
+            this.hashLength = hashLength;
+            this.hashes = hashes;
         }
 
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            if (!(snapshot instanceof FileHashSnapshot)) {
-                return false;
-            }
-
-            FileHashSnapshot other = (FileHashSnapshot) snapshot;
-            return Arrays.equals(hash, other.hash);
+        int size() {
+            return paths.length;
         }
 
-        @Override
-        public String toString() {
-            return new BigInteger(1, hash).toString(16);
+        String getPath(int index) {
+            return paths[index];
         }
-    }
 
-    static class DirSnapshot implements FileSnapshot {
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            return snapshot instanceof DirSnapshot;
+        byte getKind(int index) {
+            return kinds[index];
         }
-    }
 
-    static class MissingFileSnapshot implements FileSnapshot {
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            return snapshot instanceof MissingFileSnapshot;
+        /**
+         * Returns the hash of the entry with the given index, or null if the entry is not a regular file.
+         */
+        byte[] getHash(int index) {
+            if (kinds[index] != FILE) {
+                return null;
+            }
+            byte[] hash = new byte[hashLength];
+            System.arraycopy(hashes, index * hashLength, hash, 0, hashLength);
+            return hash;
         }
-    }
 
-    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, FileSnapshot> snapshots;
+        /**
+         * Returns the index of the given path, or a negative value if this snapshot does not contain the path.
+         */
+        int indexOf(String path) {
+            return Arrays.binarySearch(paths, path);
+        }
 
-        public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+        private boolean isUpToDate(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (kinds[index] != other.kinds[otherIndex]) {
+                return false;
+            }
+            if (kinds[index] != FILE) {
+                return true;
+            }
+            if (hashLength != other.hashLength) {
+                return false;
+            }
+            int offset = index * hashLength;
+            int otherOffset = otherIndex * hashLength;
+            for (int i = 0; i < hashLength; i++) {
+                if (hashes[offset + i] != other.hashes[otherOffset + i]) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < paths.length; i++) {
+                if (kinds[i] == FILE) {
+                    files.add(new File(paths[i]));
                 }
             }
             return new SimpleFileCollection(files);
         }
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, FileSnapshot> otherSnapshots = new HashMap<String, FileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
-
+            final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
+                private int current;
+                private int previous;
 
                 public boolean next(ChangeListener<String> listener) {
-                    while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        FileSnapshot otherFile = otherSnapshots.remove(currentFile);
-
-                        if (otherFile == null) {
-                            listener.added(currentFile);
+                    while (current < paths.length || previous < other.paths.length) {
+                        int order = compare(current, other, previous);
+                        if (order < 0) {
+                            listener.added(paths[current++]);
                             return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
+                        }
+                        if (order > 0) {
+                            listener.removed(other.paths[previous++]);
+                            return true;
+                        }
+                        boolean upToDate = isUpToDate(current, other, previous);
+                        current++;
+                        previous++;
+                        if (!upToDate) {
+                            listener.changed(paths[current - 1]);
                             return true;
                         }
                     }
-
-                    // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
-                    }
-
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
-                    }
-
                     return false;
                 }
             };
         }
 
+        /**
+         * Compares the entry with the given index in this snapshot with the entry with the given index in the other snapshot, treating the end of either snapshot
+         * as coming after all the paths.
+         */
+        private int compare(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (index == paths.length) {
+                return 1;
+            }
+            if (otherIndex == other.paths.length) {
+                return -1;
+            }
+            return paths[index].compareTo(other.paths[otherIndex]);
+        }
+
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
             final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
             return new Diff() {
@@ -158,28 +202,139 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, FileSnapshot> newSnapshots = new HashMap<String, FileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, FileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                    Builder builder = new Builder();
+                    // The merged snapshot is the target plus the changes, so walk the target and the two snapshots being compared in path order
+                    int current = 0;
+                    int previous = 0;
+                    int targetIndex = 0;
+                    while (current < paths.length || previous < other.paths.length) {
+                        int order = compare(current, other, previous);
+                        String path = order <= 0 ? paths[current] : other.paths[previous];
+                        while (targetIndex < target.paths.length && target.paths[targetIndex].compareTo(path) < 0) {
+                            builder.add(target, targetIndex++);
+                        }
+                        boolean targetContainsPath = targetIndex < target.paths.length && target.paths[targetIndex].equals(path);
+
+                        if (order < 0 || (order == 0 && !isUpToDate(current, other, previous))) {
+                            DefaultMerge merge = new DefaultMerge();
+                            if (order < 0) {
+                                listener.added(merge);
+                            } else {
+                                listener.changed(merge);
+                            }
+                            if (!merge.ignore) {
+                                builder.add(FileCollectionSnapshotImpl.this, current);
+                                if (targetContainsPath) {
+                                    targetIndex++;
+                                }
+                            }
+                        } else if (order > 0) {
+                            DefaultMerge merge = new DefaultMerge();
+                            listener.removed(merge);
+                            if (!merge.ignore && targetContainsPath) {
+                                targetIndex++;
+                            }
+                        }
+
+                        if (order <= 0) {
+                            current++;
+                        }
+                        if (order >= 0) {
+                            previous++;
+                        }
+                    }
+                    while (targetIndex < target.paths.length) {
+                        builder.add(target, targetIndex++);
+                    }
+                    return builder.build();
                 }
             };
         }
 
-        private void diff(Map<String, FileSnapshot> snapshots, Map<String, FileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
-            Map<String, FileSnapshot> otherSnapshots = new HashMap<String, FileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                FileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        private static class DefaultMerge implements Merge {
+            private boolean ignore;
+
+            public void ignore() {
+                ignore = true;
+            }
+        }
+
+        /**
+         * Collects the entries of a snapshot, in any order. When a path is added more than once, the last entry for the path wins.
+         */
+        static class Builder {
+            private final List<String> paths = new ArrayList<String>();
+            private final List<Byte> kinds = new ArrayList<Byte>();
+            private final List<byte[]> hashes = new ArrayList<byte[]>();
+            private int hashLength;
+
+            public Builder addFile(String path, byte[] hash) {
+                if (hashLength == 0) {
+                    hashLength = hash.length;
+                } else if (hash.length != hashLength) {
+                    throw new IllegalArgumentException(String.format("Cannot add hash of %s bytes to snapshot containing hashes of %s bytes.", hash.length, hashLength));
                 }
+                return add(path, FILE, hash);
             }
-            for (Map.Entry<String, FileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+
+            public Builder addDirectory(String path) {
+                return add(path, DIRECTORY, null);
             }
-        }
 
+            public Builder addMissingFile(String path) {
+                return add(path, MISSING_FILE, null);
+            }
+
+            private Builder add(FileCollectionSnapshotImpl snapshot, int index) {
+                byte kind = snapshot.kinds[index];
+                return kind == FILE ? addFile(snapshot.paths[index], snapshot.getHash(index)) : add(snapshot.paths[index], kind, null);
+            }
+
+            private Builder add(String path, byte kind, byte[] hash) {
+                paths.add(path);
+                kinds.add(kind);
+                hashes.add(hash);
+                return this;
+            }
+
+            public FileCollectionSnapshotImpl build() {
+                Integer[] order = new Integer[paths.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                // A stable sort, so that the last entry added for a path comes last
+                Arrays.sort(order, new Comparator<Integer>() {
+                    public int compare(Integer index1, Integer index2) {
+                        return paths.get(index1).compareTo(paths.get(index2));
+                    }
+                });
+
+                int count = 0;
+                for (int i = 0; i < order.length; i++) {
+                    if (i == order.length - 1 || !paths.get(order[i]).equals(paths.get(order[i + 1]))) {
+                        count++;
+                    }
+                }
+
+                String[] sortedPaths = new String[count];
+                byte[] sortedKinds = new byte[count];
+                byte[] sortedHashes = new byte[count * hashLength];
+                int next = 0;
+                for (int i = 0; i < order.length; i++) {
+                    int index = order[i];
+                    if (i < order.length - 1 && paths.get(index).equals(paths.get(order[i + 1]))) {
+                        continue;
+                    }
+                    sortedPaths[next] = PATHS.intern(paths.get(index));
+                    sortedKinds[next] = kinds.get(index);
+                    byte[] hash = hashes.get(index);
+                    if (hash != null) {
+                        System.arraycopy(hash, 0, sortedHashes, next * hashLength, hashLength);
+                    }
+                    next++;
+                }
+                return new FileCollectionSnapshotImpl(sortedPaths, sortedKinds, hashLength, sortedHashes);
+            }
+        }
     }
 }
@@ -21,49 +21,42 @@ import org.gradle.messaging.serialize.DataStreamBackedSerializer;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 class DefaultFileSnapshotterSerializer extends DataStreamBackedSerializer<FileCollectionSnapshot> {
 
     @Override
     public FileCollectionSnapshot read(DataInput dataInput) throws Exception {
-        Map<String, DefaultFileSnapshotter.FileSnapshot> snapshots = new HashMap<String, DefaultFileSnapshotter.FileSnapshot>();
-        DefaultFileSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl(snapshots);
+        DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder builder = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder();
         int snapshotsCount = dataInput.readInt();
         for (int i = 0; i < snapshotsCount; i++) {
             String key = dataInput.readUTF();
             byte fileSnapshotKind = dataInput.readByte();
-            if (fileSnapshotKind == 1) {
-                snapshots.put(key, new DefaultFileSnapshotter.DirSnapshot());
-            } else if (fileSnapshotKind == 2) {
-                snapshots.put(key, new DefaultFileSnapshotter.MissingFileSnapshot());
-            } else if (fileSnapshotKind == 3) {
+            if (fileSnapshotKind == DefaultFileSnapshotter.FileCollectionSnapshotImpl.DIRECTORY) {
+                builder.addDirectory(key);
+            } else if (fileSnapshotKind == DefaultFileSnapshotter.FileCollectionSnapshotImpl.MISSING_FILE) {
+                builder.addMissingFile(key);
+            } else if (fileSnapshotKind == DefaultFileSnapshotter.FileCollectionSnapshotImpl.FILE) {
                 byte hashSize = dataInput.readByte();
                 byte[] hash = new byte[hashSize];
                 dataInput.readFully(hash);
-                snapshots.put(key, new DefaultFileSnapshotter.FileHashSnapshot(hash));
+                builder.addFile(key, hash);
             } else {
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
         }
-        return snapshot;
+        return builder.build();
     }
 
     @Override
     public void write(DataOutput dataOutput, FileCollectionSnapshot value) throws IOException {
         DefaultFileSnapshotter.FileCollectionSnapshotImpl cached = (DefaultFileSnapshotter.FileCollectionSnapshotImpl) value;
-        dataOutput.writeInt(cached.snapshots.size());
-        for (String key : cached.snapshots.keySet()) {
-            dataOutput.writeUTF(key);
-            DefaultFileSnapshotter.FileSnapshot fileSnapshot = cached.snapshots.get(key);
-            if (fileSnapshot instanceof DefaultFileSnapshotter.DirSnapshot) {
-                dataOutput.writeByte(1);
-            } else if (fileSnapshot instanceof DefaultFileSnapshotter.MissingFileSnapshot) {
-                dataOutput.writeByte(2);
-            } else if (fileSnapshot instanceof DefaultFileSnapshotter.FileHashSnapshot) {
-                dataOutput.writeByte(3);
-                byte[] hash = ((DefaultFileSnapshotter.FileHashSnapshot) fileSnapshot).hash;
+        dataOutput.writeInt(cached.size());
+        for (int i = 0; i < cached.size(); i++) {
+            dataOutput.writeUTF(cached.getPath(i));
+            byte kind = cached.getKind(i);
+            dataOutput.writeByte(kind);
+            if (kind == DefaultFileSnapshotter.FileCollectionSnapshotImpl.FILE) {
+                byte[] hash = cached.getHash(i);
                 dataOutput.writeByte(hash.length);
                 dataOutput.write(hash);
             }
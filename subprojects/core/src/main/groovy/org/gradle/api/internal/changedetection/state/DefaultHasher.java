@@ -18,9 +18,29 @@ package org.gradle.api.internal.changedetection.state;
 import org.gradle.util.hash.HashUtil;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DefaultHasher implements Hasher {
+    private final String algorithm;
+
+    public DefaultHasher() {
+        this("MD5");
+    }
+
+    public DefaultHasher(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
     public byte[] hash(File file) {
-        return HashUtil.createHash(file, "MD5").asByteArray();
+        return HashUtil.createHash(file, algorithm).asByteArray();
+    }
+
+    public List<byte[]> hash(List<File> files) {
+        List<byte[]> hashes = new ArrayList<byte[]>(files.size());
+        for (File file : files) {
+            hashes.add(hash(file));
+        }
+        return hashes;
     }
 }
\ No newline at end of file
@@ -74,6 +74,10 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
         getCache().useCache(operationDisplayName, action);
     }
 
+    public void useCacheConcurrently(String operationDisplayName, Runnable action) {
+        getCache().useCacheConcurrently(operationDisplayName, action);
+    }
+
     public void longRunningOperation(String operationDisplayName, Runnable action) {
         getCache().longRunningOperation(operationDisplayName, action);
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.id.RandomLongIdGenerator;
+
+import java.io.*;
+
+/**
+ * Keeps the most recently used file hashes in the heap, so that later builds run by this process can reuse them without looking them up in the persistent
+ * file hash cache. Shared by all builds run by this process, so that it survives between builds in the daemon.
+ *
+ * <p>Each instance has a unique id, which is recorded in a marker file shared by all builds at the start of each build that hashes files. When some other
+ * process has recorded its id since, the entries held in the heap are discarded. The marker has the same scope as the entries, so switching between builds of
+ * different projects in the same process does not discard them.</p>
+ */
+public class InMemoryFileHashCache implements Stoppable {
+    static final int MAX_ENTRIES = 100000;
+    private final long writerId = new RandomLongIdGenerator().generateId();
+    private final Cache<File, CachingHasher.FileInfo> entries;
+
+    public InMemoryFileHashCache() {
+        this(MAX_ENTRIES);
+    }
+
+    InMemoryFileHashCache(int maxEntries) {
+        entries = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public long getWriterId() {
+        return writerId;
+    }
+
+    public CachingHasher.FileInfo get(File file) {
+        return entries.getIfPresent(file);
+    }
+
+    public void put(File file, CachingHasher.FileInfo info) {
+        entries.put(file, info);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Discards the entries when another process has recorded its id in the given marker file since this instance last did, and then records the id of this
+     * instance. The caller is responsible for locking the marker file.
+     */
+    public void discardIfWrittenByOtherProcess(File markerFile) {
+        try {
+            if (markerFile.isFile()) {
+                DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(markerFile)));
+                try {
+                    if (inputStream.readLong() == writerId) {
+                        return;
+                    }
+                } catch (EOFException e) {
+                    // Not completely written, so treat as written by another process
+                } finally {
+                    inputStream.close();
+                }
+            }
+            invalidateAll();
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(markerFile)));
+            try {
+                outputStream.writeLong(writerId);
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    public void stop() {
+        invalidateAll();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Hasher} that spreads the hashing of a batch of files across a bounded number of worker threads. The hashes are always returned in the order of the
+ * files, and when several files cannot be hashed the failure for the first of these files is rethrown, regardless of the order in which the workers ran.
+ *
+ * <p>The worker threads are shared by all batches, including batches hashed at the same time by different threads, and are kept until this hasher is
+ * stopped.</p>
+ */
+public class ParallelHasher implements Hasher, Stoppable {
+    static final int MIN_FILES_PER_WORKER = 16;
+    private final Hasher hasher;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+    private StoppableExecutor executor;
+
+    public ParallelHasher(Hasher hasher, ExecutorFactory executorFactory) {
+        this(hasher, executorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    ParallelHasher(Hasher hasher, ExecutorFactory executorFactory, int maxWorkers) {
+        this.hasher = hasher;
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
+    }
+
+    public byte[] hash(File file) {
+        return hasher.hash(file);
+    }
+
+    public List<byte[]> hash(List<File> files) {
+        int workerCount = Math.min(maxWorkers, files.size() / MIN_FILES_PER_WORKER);
+        if (workerCount <= 1) {
+            return hasher.hash(files);
+        }
+
+        HashJob job = new HashJob(files);
+        StoppableExecutor executor = getExecutor();
+        for (int i = 1; i < workerCount; i++) {
+            executor.execute(job);
+        }
+        // The current thread also does some of the work, rather than waiting idle for the workers
+        job.run();
+        job.awaitWorkers();
+        return job.getHashes();
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            // The calling thread also hashes, so one less thread than the maximum number of workers is needed
+            executor = executorFactory.create("File hasher", maxWorkers - 1);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            try {
+                executor.stop();
+            } finally {
+                executor = null;
+            }
+        }
+    }
+
+    private class HashJob implements Runnable {
+        private final List<File> files;
+        private final byte[][] hashes;
+        private final Throwable[] failures;
+        private final AtomicInteger next = new AtomicInteger();
+        private int runningWorkers;
+        private boolean finished;
+
+        public HashJob(List<File> files) {
+            this.files = files;
+            hashes = new byte[files.size()][];
+            failures = new Throwable[files.size()];
+        }
+
+        public void run() {
+            synchronized (this) {
+                // A worker that only gets to run once the batch has been completed by other threads has nothing left to do
+                if (finished) {
+                    return;
+                }
+                runningWorkers++;
+            }
+            try {
+                for (int index = next.getAndIncrement(); index < files.size(); index = next.getAndIncrement()) {
+                    try {
+                        hashes[index] = hasher.hash(files.get(index));
+                    } catch (Throwable t) {
+                        failures[index] = t;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    runningWorkers--;
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits for the workers that are still hashing files of this batch. Workers that have not started yet will not do any work for this batch.
+         */
+        public synchronized void awaitWorkers() {
+            finished = true;
+            while (runningWorkers > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        /**
+         * Must only be called once all workers have finished, as {@link #awaitWorkers()} provides the happens-before edge for the results of the other threads.
+         */
+        public List<byte[]> getHashes() {
+            for (Throwable failure : failures) {
+                if (failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+            }
+            return Arrays.asList(hashes);
+        }
+    }
+}
@@ -36,6 +36,15 @@ public interface TaskArtifactStateCacheAccess {
      */
     void useCache(String operationDisplayName, Runnable action);
 
+    /**
+     * Performs some work against the cache, allowing other threads to perform work through this method at the same time. Acquires the same locks as
+     * {@link #useCache(String, Runnable)}, but shares them with the other threads.
+     *
+     * <p>The caches created by this cache access may be used concurrently by the action. The action must not rely on other threads leaving a cache unchanged
+     * between two operations.</p>
+     */
+    void useCacheConcurrently(String operationDisplayName, Runnable action);
+
     /**
      * Performs some long running operation. Releases all locks while the operation is running, and reacquires the locks at the end of
      * the long running operation.
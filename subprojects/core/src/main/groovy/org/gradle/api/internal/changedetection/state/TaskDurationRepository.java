@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The durations of previous task executions, keyed by task path.
+ */
+public interface TaskDurationRepository {
+    /**
+     * Returns the duration in milliseconds of the most recent execution of each of the given tasks. Tasks that have not been executed before are not included in the result.
+     */
+    Map<String, Long> getDurations(Collection<String> taskPaths);
+
+    /**
+     * Records the duration in milliseconds of the given task executions.
+     */
+    void updateDurations(Map<String, Long> durations);
+}
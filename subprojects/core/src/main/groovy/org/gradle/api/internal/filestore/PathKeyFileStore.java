@@ -57,6 +57,12 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
      */
     public static final String IN_PROGRESS_MARKER_FILE_SUFFIX = ".fslck";
 
+    /*
+        When moving or copying a file into the filestore, the file is first written alongside the entry with this suffix,
+        then renamed to the entry. This means that the entry does not exist until it is complete.
+     */
+    public static final String STAGING_FILE_SUFFIX = ".fspart";
+
     private File baseDir;
     private final DeleteActionImpl deleteAction = new DeleteActionImpl(new IdentityFileResolver());
 
@@ -85,6 +91,7 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
         File markerFile = getInProgressMarkerFile(file);
         if (markerFile.exists()) {
             deleteAction.delete(file);
+            deleteAction.delete(getStagingFile(file));
             deleteAction.delete(markerFile);
         }
         return file;
@@ -113,10 +120,19 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
 
         return doAdd(destination, error, new Action<File>() {
             public void execute(File file) {
-                if (isMove) {
-                    GFileUtils.moveFile(source, destination);
-                } else {
-                    GFileUtils.copyFile(source, destination);
+                File stagingFile = getStagingFile(destination);
+                deleteAction.delete(stagingFile);
+                try {
+                    if (isMove) {
+                        GFileUtils.moveFile(source, stagingFile);
+                    } else {
+                        GFileUtils.copyFile(source, stagingFile);
+                    }
+                    if (!stagingFile.renameTo(destination)) {
+                        GFileUtils.moveFile(stagingFile, destination);
+                    }
+                } finally {
+                    deleteAction.delete(stagingFile);
                 }
             }
         });
@@ -153,7 +169,7 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
                 final File file = fileDetails.getFile();
                 // We cannot clean in progress markers, or in progress files here because
                 // the file system visitor stuff can't handle the file system mutating while visiting
-                if (!isInProgressMarkerFile(file) && !isInProgressFile(file)) {
+                if (!isInProgressMarkerFile(file) && !isStagingFile(file) && !isInProgressFile(file)) {
                     entries.add(entryAt(file));
                 }
             }
@@ -170,6 +186,14 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
         return file.getName().endsWith(IN_PROGRESS_MARKER_FILE_SUFFIX);
     }
 
+    private File getStagingFile(File file) {
+        return new File(file.getParent(), file.getName() + STAGING_FILE_SUFFIX);
+    }
+
+    private boolean isStagingFile(File file) {
+        return file.getName().endsWith(STAGING_FILE_SUFFIX);
+    }
+
     private boolean isInProgressFile(File file) {
         return getInProgressMarkerFile(file).exists();
     }
@@ -15,6 +15,7 @@
  */
 package org.gradle.cache;
 
+import org.gradle.internal.Factory;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
@@ -38,6 +39,23 @@ public interface PersistentCache extends CacheAccess {
      */
     File getBaseDir();
 
+    /**
+     * Performs some work against the cache, allowing other threads of this process to perform work through this method at the same time. Acquires the same locks
+     * as {@link #useCache(String, org.gradle.internal.Factory)}, but shares them with the other threads, and waits for any work done through
+     * {@link #useCache(String, org.gradle.internal.Factory)} to complete.
+     *
+     * <p>The indexed caches contained within this cache may be used concurrently by the action. The action must not rely on other threads leaving a cache unchanged
+     * between two operations.</p>
+     */
+    <T> T useCacheConcurrently(String operationDisplayName, Factory<? extends T> action);
+
+    /**
+     * Performs some work against the cache, allowing other threads of this process to perform work through this method at the same time.
+     *
+     * @see #useCacheConcurrently(String, org.gradle.internal.Factory)
+     */
+    void useCacheConcurrently(String operationDisplayName, Runnable action);
+
     /**
      * Creates an indexed cache implementation that is contained within this cache. This method may be used at any time.
      *
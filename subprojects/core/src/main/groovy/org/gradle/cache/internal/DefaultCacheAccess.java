@@ -51,6 +51,10 @@ public class DefaultCacheAccess implements CacheAccess {
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread owner;
+    private final Set<Thread> sharedOwners = new HashSet<Thread>();
+    private boolean sharedWorkStarted;
+    private boolean sharedWorkStarting;
+    private int waitingOwners;
     private FileLockManager.LockMode lockMode;
     private FileLock fileLock;
     private boolean contended;
@@ -119,6 +123,9 @@ public class DefaultCacheAccess implements CacheAccess {
         } finally {
             lockMode = null;
             owner = null;
+            sharedOwners.clear();
+            sharedWorkStarted = false;
+            sharedWorkStarting = false;
             lock.unlock();
         }
     }
@@ -155,29 +162,142 @@ public class DefaultCacheAccess implements CacheAccess {
         }
     }
 
+    /**
+     * Performs some work against the cache, sharing the ownership of the cache with other threads that are also using this method. The file lock is acquired when the
+     * first of these threads starts and is held until the last of them finishes. Work done through {@link #useCache(String, Factory)} by other threads waits until there
+     * are no more shared owners, and vice versa. Once a thread is waiting for exclusive ownership, no new shared owners are admitted, so that a steady stream of shared
+     * work cannot starve it.
+     *
+     * <p>The indexed caches created by this cache access can safely be used by several threads at the same time, but an action cannot rely on other threads not changing
+     * a cache between two operations. A nested call to {@link #useCache(String, Factory)} does not give the thread exclusive ownership, and a long running operation
+     * cannot be started from the action.</p>
+     */
+    public <T> T useCacheConcurrently(String operationDisplayName, Factory<? extends T> factory) {
+        if (lockMode == FileLockManager.LockMode.Shared) {
+            throw new UnsupportedOperationException("Not implemented yet.");
+        }
+
+        takeSharedOwnership(operationDisplayName);
+        try {
+            startSharedWork();
+            return factory.create();
+        } finally {
+            releaseSharedOwnership(operationDisplayName);
+        }
+    }
+
+    public void useCacheConcurrently(String operationDisplayName, Runnable action) {
+        useCacheConcurrently(operationDisplayName, Factories.toFactory(action));
+    }
+
     private void takeOwnership(String operationDisplayName) {
         lock.lock();
         try {
-            while (owner != null && owner != Thread.currentThread()) {
-                try {
-                    condition.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
-                }
+            Thread currentThread = Thread.currentThread();
+            if (!isOwnerOrNested(currentThread)) {
+                awaitExclusiveOwnership();
+            }
+            // When nested in shared work, the thread stays a shared owner
+            if (!sharedOwners.contains(currentThread)) {
+                owner = currentThread;
+            }
+            operations.pushCacheAction(operationDisplayName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void takeSharedOwnership(String operationDisplayName) {
+        lock.lock();
+        try {
+            Thread currentThread = Thread.currentThread();
+            while (!isOwnerOrNested(currentThread) && (owner != null || waitingOwners > 0)) {
+                awaitCondition();
+            }
+            // When nested in exclusive work, the thread stays the exclusive owner
+            if (owner != currentThread) {
+                sharedOwners.add(currentThread);
             }
-            owner = Thread.currentThread();
             operations.pushCacheAction(operationDisplayName);
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Waits until there is neither an exclusive owner nor any shared owners. Must be called while holding the lock.
+     */
+    private void awaitExclusiveOwnership() {
+        waitingOwners++;
+        try {
+            while (owner != null || !sharedOwners.isEmpty()) {
+                awaitCondition();
+            }
+        } finally {
+            waitingOwners--;
+            if (waitingOwners == 0) {
+                // Let in the shared owners that were held back
+                condition.signalAll();
+            }
+        }
+    }
+
+    private boolean isOwnerOrNested(Thread thread) {
+        return owner == thread || sharedOwners.contains(thread);
+    }
+
+    private void awaitCondition() {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Acquires the file lock, if not already held, on behalf of all of the shared owners. Only one of them acquires it, and the others wait for it to do so. As for
+     * exclusive work, the file lock is acquired without holding the lock, so that threads which only want to check the state of this cache access are not blocked
+     * while waiting for another process to release the file lock.
+     */
+    private void startSharedWork() {
+        lock.lock();
+        try {
+            while (sharedWorkStarting) {
+                awaitCondition();
+            }
+            if (fileLock != null) {
+                return;
+            }
+            sharedWorkStarting = true;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean started = false;
+        try {
+            started = onStartWork();
+        } finally {
+            lock.lock();
+            try {
+                sharedWorkStarting = false;
+                if (started && owner == null) {
+                    sharedWorkStarted = true;
+                }
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     private void releaseOwnership(String operationDisplayName) {
         lock.lock();
         try {
             operations.popCacheAction(operationDisplayName);
             if (!operations.isInCacheAction()) {
-                owner = null;
+                if (owner == Thread.currentThread()) {
+                    owner = null;
+                }
                 condition.signalAll();
             }
         } finally {
@@ -185,6 +305,25 @@ public class DefaultCacheAccess implements CacheAccess {
         }
     }
 
+    private void releaseSharedOwnership(String operationDisplayName) {
+        lock.lock();
+        try {
+            operations.popCacheAction(operationDisplayName);
+            if (!operations.isInCacheAction() && sharedOwners.remove(Thread.currentThread())) {
+                try {
+                    if (sharedOwners.isEmpty() && sharedWorkStarted) {
+                        sharedWorkStarted = false;
+                        onEndWork();
+                    }
+                } finally {
+                    condition.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         boolean isReentrant;
         lock.lock();
@@ -258,13 +397,7 @@ public class DefaultCacheAccess implements CacheAccess {
     private void restoreOwner(String description) {
         lock.lock();
         try {
-            while (owner != null) {
-                try {
-                    condition.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
-                }
-            }
+            awaitExclusiveOwnership();
             owner = Thread.currentThread();
             popLongRunningOperation(description);
         } finally {
@@ -371,12 +504,12 @@ public class DefaultCacheAccess implements CacheAccess {
             public void run() {
                 lock.lock();
                 try {
-                    LOG.debug("Detected file lock contention of {} (fileLock={}, contended={}, owner={})", cacheDiplayName, fileLock != null, contended, owner);
+                    LOG.debug("Detected file lock contention of {} (fileLock={}, contended={}, owner={}, shared owners={})", cacheDiplayName, fileLock != null, contended, owner, sharedOwners.size());
                     if (fileLock == null) {
                         //the lock may have been closed
                         return;
                     }
-                    if (owner != null) {
+                    if (owner != null || !sharedOwners.isEmpty()) {
                         contended = true;
                         return;
                     }
@@ -398,6 +531,15 @@ public class DefaultCacheAccess implements CacheAccess {
         return owner;
     }
 
+    Set<Thread> getSharedOwners() {
+        lock.lock();
+        try {
+            return new HashSet<Thread>(sharedOwners);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     FileAccess getFileAccess() {
         return fileAccess;
     }
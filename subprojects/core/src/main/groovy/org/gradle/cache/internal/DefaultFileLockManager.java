@@ -114,7 +114,9 @@ public class DefaultFileLockManager implements FileLockManager {
         private final String operationDisplayName;
         private java.nio.channels.FileLock lock;
         private RandomAccessFile lockFileAccess;
-        private boolean integrityViolated;
+        private volatile boolean integrityViolated;
+        private int activeWrites;
+        private boolean writeFailed;
         private int port;
         private final long lockId;
 
@@ -193,16 +195,45 @@ public class DefaultFileLockManager implements FileLockManager {
             }
 
             try {
-                integrityViolated = true;
-                markDirty();
-                action.run();
-                markClean();
-                integrityViolated = false;
+                beginWrite();
+                boolean successful = false;
+                try {
+                    action.run();
+                    successful = true;
+                } finally {
+                    endWrite(successful);
+                }
             } catch (Throwable t) {
                 throw throwAsUncheckedException(t);
             }
         }
 
+        /**
+         * Several threads may update different files protected by this lock at the same time. The lock file is marked dirty when the first of these updates starts,
+         * and marked clean again when the last one completes, provided that none of them failed.
+         */
+        private synchronized void beginWrite() throws IOException {
+            if (activeWrites == 0) {
+                markDirty();
+            }
+            activeWrites++;
+        }
+
+        private synchronized void endWrite(boolean successful) throws IOException {
+            activeWrites--;
+            if (!successful) {
+                integrityViolated = true;
+                writeFailed = true;
+            }
+            if (activeWrites == 0) {
+                if (!writeFailed) {
+                    markClean();
+                    integrityViolated = false;
+                }
+                writeFailed = false;
+            }
+        }
+
         private void assertOpen() {
             if (lock == null) {
                 throw new IllegalStateException("This lock has been closed.");
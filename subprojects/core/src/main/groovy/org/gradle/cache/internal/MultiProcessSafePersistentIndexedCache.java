@@ -31,7 +31,7 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         this.fileAccess = fileAccess;
     }
 
-    public V get(final K key) {
+    public synchronized V get(final K key) {
         final PersistentIndexedCache<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
@@ -44,7 +44,7 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         }
     }
 
-    public void put(final K key, final V value) {
+    public synchronized void put(final K key, final V value) {
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
@@ -55,7 +55,7 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         });
     }
 
-    public void remove(final K key) {
+    public synchronized void remove(final K key) {
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
@@ -73,6 +73,7 @@ public class MultiProcessSafePersistentIndexedCache<K, V> implements PersistentI
         close();
     }
 
+    // Not synchronized, as this is only called by the cache access when no thread is using the cache
     public void close() {
         if (cache != null) {
             try {
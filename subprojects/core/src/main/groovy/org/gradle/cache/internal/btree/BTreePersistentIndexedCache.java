@@ -41,11 +41,22 @@ import java.util.*;
 // todo - use more efficient lookup for free block with nearest size
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    /**
+     * The system property that specifies the maximum number of bytes of blocks that each cache keeps in the heap.
+     */
+    public static final String BLOCK_CACHE_SIZE_PROPERTY = "org.gradle.cache.blockCacheSize";
+    public static final long DEFAULT_BLOCK_CACHE_SIZE = 1024 * 1024;
+    /**
+     * The system property that, when set to true, makes each cache access its file through a memory mapped region rather than positioned reads and writes.
+     * Changes are forced to disk when the cache is closed, at the end of each unit of work.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.cache.memoryMapped";
     private final File cacheFile;
     private final Serializer<K> keySerializer;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final CachingBlockStore cachingStore;
     private final StateCheckBlockStore store;
     private HeaderBlock header;
 
@@ -55,12 +66,25 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, getDefaultBlockCacheSize());
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, long maxBlockCacheBytes) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, maxBlockCacheBytes, Boolean.getBoolean(MEMORY_MAPPED_PROPERTY));
+    }
+
+    /**
+     * @param memoryMapped when true, the cache file is accessed through a memory mapped region rather than positioned reads and writes.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, long maxBlockCacheBytes, boolean memoryMapped) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile, memoryMapped), maxBlockCacheBytes, IndexBlock.class, FreeListBlockStore.FreeListBlock.class, DataBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -69,6 +93,18 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private static long getDefaultBlockCacheSize() {
+        String value = System.getProperty(BLOCK_CACHE_SIZE_PROPERTY);
+        if (value == null) {
+            return DEFAULT_BLOCK_CACHE_SIZE;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s'.", value, BLOCK_CACHE_SIZE_PROPERTY), e);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
@@ -186,7 +222,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void close() {
-        LOGGER.debug("Closing {}", this);
+        LOGGER.debug("Closing {}. Block cache: {}", this, cachingStore.getStatistics());
         try {
             store.close();
         } catch (Exception e) {
@@ -194,6 +230,10 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    String getBlockCacheStatistics() {
+        return cachingStore.getStatistics();
+    }
+
     public boolean isOpen() {
         return store.isOpen();
     }
@@ -632,13 +672,11 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private class DataBlock extends BlockPayload {
         private int size;
         private byte[] serialisedValue;
-        private V value;
 
         private DataBlock() {
         }
 
         public DataBlock(V value) throws Exception {
-            this.value = value;
             setValue(value);
             size = serialisedValue.length;
         }
@@ -649,11 +687,11 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             this.serialisedValue = outStr.toByteArray();
         }
 
+        /**
+         * Deserializes the value each time it is called, as the block may be held in the block cache and shared between several lookups.
+         */
         public V getValue() throws Exception {
-            if (value == null) {
-                value = serializer.read(new ByteArrayInputStream(serialisedValue));
-            }
-            return value;
+            return serializer.read(new ByteArrayInputStream(serialisedValue));
         }
 
         @Override
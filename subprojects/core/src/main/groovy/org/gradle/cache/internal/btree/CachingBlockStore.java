@@ -15,34 +15,66 @@
  */
 package org.gradle.cache.internal.btree;
 
-import org.apache.commons.collections.map.LRUMap;
-
 import java.util.*;
 
+/**
+ * Keeps the most recently used blocks of the cacheable types in the heap, up to a maximum number of bytes. The size of a block is estimated from its
+ * serialized size, and is estimated again each time the block is written, as blocks are changed in place.
+ *
+ * <p>The cacheable types are given in order of priority. When the cache is full, the least recently used blocks of the lowest priority type are evicted
+ * first, so that a large number of cheap to read blocks, such as data blocks, do not displace the index blocks that every lookup has to visit.</p>
+ */
 public class CachingBlockStore implements BlockStore {
     private final BlockStore store;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
-    private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
-    private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
+    private final Map<Class<?>, Map<BlockPointer, CachedBlock>> blockCaches = new HashMap<Class<?>, Map<BlockPointer, CachedBlock>>();
+    private final List<Map<BlockPointer, CachedBlock>> evictionOrder = new ArrayList<Map<BlockPointer, CachedBlock>>();
+    private final long maxCacheBytes;
+    private long cacheBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
 
-    public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
+    public CachingBlockStore(BlockStore store, long maxCacheBytes, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
-        cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
+        this.maxCacheBytes = maxCacheBytes;
+        for (Class<? extends BlockPayload> type : cacheableBlockTypes) {
+            Map<BlockPointer, CachedBlock> blockCache = new LinkedHashMap<BlockPointer, CachedBlock>(16, 0.75f, true);
+            blockCaches.put(type, blockCache);
+            evictionOrder.add(0, blockCache);
+        }
+    }
+
+    /**
+     * Returns a description of the number of cache hits, misses and evictions since this store was last opened.
+     */
+    public String getStatistics() {
+        long reads = hits + misses;
+        int hitRate = reads == 0 ? 0 : (int) (hits * 100 / reads);
+        int blocks = 0;
+        for (Map<BlockPointer, CachedBlock> blockCache : evictionOrder) {
+            blocks += blockCache.size();
+        }
+        return String.format("%s hits, %s misses (%s%% hit rate), %s evictions, %s blocks (%s bytes) cached", hits, misses, hitRate, evictions, blocks,
+                cacheBytes);
     }
 
     public void open(Runnable initAction, Factory factory) {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
         store.open(initAction, factory);
     }
 
     public void close() {
         flush();
-        indexBlockCache.clear();
+        discardCachedBlocks();
         store.close();
     }
 
     public void clear() {
         dirty.clear();
-        indexBlockCache.clear();
+        discardCachedBlocks();
         store.clear();
     }
 
@@ -62,7 +94,7 @@ public class CachingBlockStore implements BlockStore {
 
     public void remove(BlockPayload block) {
         dirty.remove(block.getPos());
-        indexBlockCache.remove(block.getPos());
+        uncache(block);
         store.remove(block);
     }
 
@@ -77,9 +109,14 @@ public class CachingBlockStore implements BlockStore {
         if (block != null) {
             return block;
         }
-        block = payloadType.cast(indexBlockCache.get(pos));
-        if (block != null) {
-            return block;
+        Map<BlockPointer, CachedBlock> blockCache = blockCaches.get(payloadType);
+        if (blockCache != null) {
+            CachedBlock cached = blockCache.get(pos);
+            if (cached != null) {
+                hits++;
+                return payloadType.cast(cached.block);
+            }
+            misses++;
         }
         block = store.read(pos, payloadType);
         maybeCache(block);
@@ -93,8 +130,63 @@ public class CachingBlockStore implements BlockStore {
     }
 
     private <T extends BlockPayload> void maybeCache(T block) {
-        if (cachableTypes.contains(block.getClass())) {
-            indexBlockCache.put(block.getPos(), block);
+        Map<BlockPointer, CachedBlock> blockCache = blockCaches.get(block.getClass());
+        if (blockCache == null) {
+            return;
+        }
+        CachedBlock cached = blockCache.get(block.getPos());
+        if (cached != null && cached.block == block) {
+            cacheBytes += cached.updateSize();
+        } else {
+            cached = new CachedBlock(block);
+            CachedBlock previous = blockCache.put(block.getPos(), cached);
+            if (previous != null) {
+                cacheBytes -= previous.size;
+            }
+            cacheBytes += cached.size;
+        }
+        for (int i = 0; i < evictionOrder.size() && cacheBytes > maxCacheBytes; i++) {
+            Iterator<CachedBlock> iterator = evictionOrder.get(i).values().iterator();
+            while (cacheBytes > maxCacheBytes && iterator.hasNext()) {
+                CachedBlock eldest = iterator.next();
+                iterator.remove();
+                cacheBytes -= eldest.size;
+                evictions++;
+            }
+        }
+    }
+
+    private void uncache(BlockPayload block) {
+        Map<BlockPointer, CachedBlock> blockCache = blockCaches.get(block.getClass());
+        CachedBlock cached = blockCache == null ? null : blockCache.remove(block.getPos());
+        if (cached != null) {
+            cacheBytes -= cached.size;
+        }
+    }
+
+    private void discardCachedBlocks() {
+        for (Map<BlockPointer, CachedBlock> blockCache : evictionOrder) {
+            blockCache.clear();
+        }
+        cacheBytes = 0;
+    }
+
+    private static class CachedBlock {
+        final BlockPayload block;
+        int size;
+
+        private CachedBlock(BlockPayload block) {
+            this.block = block;
+            this.size = block.getSize();
+        }
+
+        /**
+         * Estimates the size of the block again, and returns the change in size.
+         */
+        int updateSize() {
+            int previousSize = size;
+            size = block.getSize();
+            return size - previousSize;
         }
     }
 }
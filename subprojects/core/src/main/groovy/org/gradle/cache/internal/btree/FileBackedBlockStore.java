@@ -18,16 +18,31 @@ package org.gradle.cache.internal.btree;
 import org.gradle.api.UncheckedIOException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.zip.CRC32;
 
 public class FileBackedBlockStore implements BlockStore {
-    private RandomAccessFile file;
+    private static final int LENGTH_TRAILER_MARKER = 0x4C454E47;
+    private static final int LENGTH_TRAILER_SIZE = Block.LONG_SIZE + Block.INT_SIZE;
+    private BlockFile file;
     private final File cacheFile;
+    private final boolean memoryMapped;
     private long nextBlock;
     private Factory factory;
 
     public FileBackedBlockStore(File cacheFile) {
+        this(cacheFile, false);
+    }
+
+    /**
+     * @param memoryMapped when true, blocks are read and written through a memory mapped region of the file, which grows as blocks are added. Otherwise,
+     * blocks are read and written using positioned reads and writes.
+     */
+    public FileBackedBlockStore(File cacheFile, boolean memoryMapped) {
         this.cacheFile = cacheFile;
+        this.memoryMapped = memoryMapped;
     }
 
     @Override
@@ -38,9 +53,9 @@ public class FileBackedBlockStore implements BlockStore {
     public void open(Runnable runnable, Factory factory) {
         this.factory = factory;
         try {
-            file = new RandomAccessFile(cacheFile, "rw");
+            file = memoryMapped ? new MappedBlockFile(cacheFile) : new RandomAccessBlockFile(cacheFile);
             nextBlock = file.length();
-            if (file.length() == 0) {
+            if (nextBlock == 0) {
                 runnable.run();
             }
         } catch (IOException e) {
@@ -77,6 +92,11 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void flush() {
+        try {
+            file.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
@@ -168,19 +188,21 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
-            file.seek(pos);
+            BlockPayload payload = getPayload();
 
-            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(new BufferedOutputStream(
-                    new RandomAccessFileOutputStream(file)));
-            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
+            // Pad
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            if (file.length() < finalSize) {
+                file.setLength(finalSize);
+            }
 
-            BlockPayload payload = getPayload();
+            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(file.getOutputStream(pos));
+            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
 
             // Write header
             outputStream.writeByte(BLOCK_MARKER);
             outputStream.writeByte(payload.getType());
             outputStream.writeInt(payloadSize);
-            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
 
             // Write body
             payload.write(outputStream);
@@ -188,11 +210,6 @@ public class FileBackedBlockStore implements BlockStore {
             // Write checksum
             outputStream.writeLong(checkSumOutputStream.checksum.getValue());
             outputStream.close();
-
-            // Pad
-            if (file.length() < finalSize) {
-                file.setLength(finalSize);
-            }
         }
 
         public void read() throws Exception {
@@ -201,10 +218,8 @@ public class FileBackedBlockStore implements BlockStore {
             if (pos + HEADER_SIZE >= file.length()) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
 
-            Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+            Crc32InputStream checkSumInputStream = new Crc32InputStream(file.getInputStream(pos));
             DataInputStream inputStream = new DataInputStream(checkSumInputStream);
 
             BlockPayload payload = getPayload();
@@ -241,6 +256,222 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    /**
+     * The contents of the backing file.
+     */
+    private interface BlockFile {
+        long length() throws IOException;
+
+        void setLength(long length) throws IOException;
+
+        InputStream getInputStream(long pos) throws IOException;
+
+        OutputStream getOutputStream(long pos) throws IOException;
+
+        void flush() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /**
+     * Returns the length of the blocks in the given file. This is the length of the file, unless the file ends with the length trailer left by a {@link
+     * MappedBlockFile} that could not trim the file.
+     */
+    private static long blocksLength(RandomAccessFile file) throws IOException {
+        long fileLength = file.length();
+        if (fileLength < LENGTH_TRAILER_SIZE) {
+            return fileLength;
+        }
+        file.seek(fileLength - LENGTH_TRAILER_SIZE);
+        long length = file.readLong();
+        if (file.readInt() != LENGTH_TRAILER_MARKER || length < 0 || length > fileLength - LENGTH_TRAILER_SIZE) {
+            return fileLength;
+        }
+        return length;
+    }
+
+    private static class RandomAccessBlockFile implements BlockFile {
+        private final RandomAccessFile file;
+
+        private RandomAccessBlockFile(File cacheFile) throws IOException {
+            file = new RandomAccessFile(cacheFile, "rw");
+            try {
+                long length = blocksLength(file);
+                if (length < file.length()) {
+                    file.setLength(length);
+                }
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        public long length() throws IOException {
+            return file.length();
+        }
+
+        public void setLength(long length) throws IOException {
+            file.setLength(length);
+        }
+
+        public InputStream getInputStream(long pos) throws IOException {
+            file.seek(pos);
+            return new BufferedInputStream(new RandomAccessFileInputStream(file));
+        }
+
+        public OutputStream getOutputStream(long pos) throws IOException {
+            file.seek(pos);
+            return new BufferedOutputStream(new RandomAccessFileOutputStream(file));
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Maps the file into memory, so that blocks are read and written without any system calls. The mapped region is larger than the blocks written so far,
+     * so that it does not need to be mapped again each time a block is added. Changes made through the mapped region are visible to other readers of the
+     * file straight away, so the region is only forced to disk when the store is closed, at the end of the unit of work, and not each time the store is
+     * flushed. The file is then trimmed to the length of the blocks.
+     *
+     * <p>Some platforms do not allow a file to be truncated while it is mapped. On these platforms, the file keeps the unused space at its end, and the
+     * length of the blocks is written to a trailer at the end of the file, so that the unused space is used for the blocks added when the file is next
+     * opened. An empty store is also marked by clearing the first byte of the file, so that the store is still empty when it is next opened.</p>
+     */
+    private static class MappedBlockFile implements BlockFile {
+        private static final int MIN_CAPACITY = 64 * 1024;
+        private static final int MAX_GROWTH = 64 * 1024 * 1024;
+        private final RandomAccessFile file;
+        private final File cacheFile;
+        private MappedByteBuffer buffer;
+        private long length;
+
+        private MappedBlockFile(File cacheFile) throws IOException {
+            this.cacheFile = cacheFile;
+            file = new RandomAccessFile(cacheFile, "rw");
+            try {
+                length = blocksLength(file);
+                if (length > 0) {
+                    map(file.length());
+                    if (buffer.get(0) == 0) {
+                        length = 0;
+                    }
+                }
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public void setLength(long newLength) throws IOException {
+            int capacity = buffer == null ? 0 : buffer.capacity();
+            // Keeps space for the length trailer
+            if (newLength + LENGTH_TRAILER_SIZE > capacity) {
+                long newCapacity = Math.max(newLength + LENGTH_TRAILER_SIZE, Math.max(MIN_CAPACITY, capacity + Math.min(capacity, MAX_GROWTH)));
+                map(newCapacity);
+            }
+            if (newLength == 0 && buffer != null) {
+                buffer.put(0, (byte) 0);
+            }
+            length = newLength;
+        }
+
+        private void map(long capacity) throws IOException {
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Cannot map %s into memory, as it would be larger than %s bytes.", cacheFile, Integer.MAX_VALUE));
+            }
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        public InputStream getInputStream(long pos) {
+            ByteBuffer region = buffer.duplicate();
+            region.limit((int) length);
+            region.position((int) pos);
+            return new ByteBufferInputStream(region);
+        }
+
+        public OutputStream getOutputStream(long pos) {
+            ByteBuffer region = buffer.duplicate();
+            region.limit((int) length);
+            region.position((int) pos);
+            return new ByteBufferOutputStream(region);
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws IOException {
+            try {
+                if (buffer != null) {
+                    buffer.force();
+                    buffer = null;
+                }
+                try {
+                    file.setLength(length);
+                } catch (IOException e) {
+                    // Cannot truncate a mapped file on this platform, leave the unused space at the end of the file and record the length of the blocks
+                    file.seek(file.length() - LENGTH_TRAILER_SIZE);
+                    file.writeLong(length);
+                    file.writeInt(LENGTH_TRAILER_MARKER);
+                }
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    private static class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
     private static class RandomAccessFileInputStream extends InputStream {
         private final RandomAccessFile file;
 
@@ -16,10 +16,12 @@
 
 package org.gradle.execution.taskgraph;
 
+import com.google.common.collect.Iterables;
 import org.gradle.api.CircularReferenceException;
 import org.gradle.api.Task;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
@@ -42,6 +44,16 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * A reusable implementation of TaskExecutionPlan. The {@link #addToTaskGraph(java.util.Collection)} and {@link #clear()} methods are NOT threadsafe, and callers must synchronize
  * access to these methods.
+ *
+ * <p>When execution starts, each task in the plan is given a count of its incomplete dependencies. These counts are updated as tasks change state, and the tasks that
+ * can be started are kept in a queue ordered by their position in the plan, so that finding the next task does not require a scan of the whole plan. A task that
+ * cannot start because of the running tasks of its project is moved to a queue for that project, and is put back when a task of the project completes.</p>
+ *
+ * <p>By default, only one task of a given project is executed at a time. When parallel tasks within a project are enabled, a task may start while other tasks of its
+ * project are running, provided that its declared inputs and outputs do not overlap with theirs.</p>
+ *
+ * <p>When a {@link TaskDurationRepository} is provided, the ready tasks are ordered by the recorded duration of the longest chain of tasks that depends on them, so
+ * that long chains are started as early as possible. The tasks of a given project are still started in the order of the plan.</p>
  */
 class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Lock lock = new ReentrantLock();
@@ -54,10 +66,41 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
-    private final List<String> runningProjects = new ArrayList<String>();
+    private final Map<String, List<TaskInfo>> runningProjects = new HashMap<String, List<TaskInfo>>();
+    private final boolean parallelTasksWithinProject;
+    private final Set<TaskInfo> resolvingMutationInfo = new HashSet<TaskInfo>();
+    private final TaskDurationRepository durationRepository;
+    private final Map<TaskInfo, Long> executionStartTimes = new HashMap<TaskInfo, Long>();
+    private final Map<String, Long> executionDurations = new HashMap<String, Long>();
+    private Map<String, Long> previousDurations = Collections.emptyMap();
+    private final Comparator<TaskInfo> executionOrder = new Comparator<TaskInfo>() {
+        public int compare(TaskInfo taskInfo1, TaskInfo taskInfo2) {
+            if (taskInfo1.getPriority() != taskInfo2.getPriority()) {
+                return taskInfo1.getPriority() > taskInfo2.getPriority() ? -1 : 1;
+            }
+            return taskInfo1.getExecutionIndex() - taskInfo2.getExecutionIndex();
+        }
+    };
+    private final TreeSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(executionOrder);
+    private final Map<String, Set<TaskInfo>> blockedTasks = new HashMap<String, Set<TaskInfo>>();
+    private final Set<TaskInfo> blockedTasksWithoutMutationInfo = new LinkedHashSet<TaskInfo>();
+    private boolean scheduled;
+    private int incompleteTasks;
+
+    public DefaultTaskExecutionPlan() {
+        this(false, null);
+    }
+
+    /**
+     * @param durationRepository The durations of previous task executions, used to prioritise the tasks. May be null, in which case tasks are started in the order of the plan.
+     */
+    public DefaultTaskExecutionPlan(boolean parallelTasksWithinProject, TaskDurationRepository durationRepository) {
+        this.parallelTasksWithinProject = parallelTasksWithinProject;
+        this.durationRepository = durationRepository;
+    }
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
-        List<TaskInfo> queue = new ArrayList<TaskInfo>();
+        List<TaskInfo> queue = new LinkedList<TaskInfo>();
 
         List<Task> sortedTasks = new ArrayList<Task>(tasks);
         Collections.sort(sortedTasks);
@@ -133,7 +176,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private void resolveTasksInUnknownState() {
-        List<TaskInfo> queue = new ArrayList<TaskInfo>(tasksInUnknownState);
+        List<TaskInfo> queue = new LinkedList<TaskInfo>(tasksInUnknownState);
         Set<TaskInfo> visiting = new HashSet<TaskInfo>();
 
         while (!queue.isEmpty()) {
@@ -190,7 +233,30 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public void determineExecutionPlan() {
-        List<TaskInfo> nodeQueue = new ArrayList<TaskInfo>(entryTasks);
+        scheduled = false;
+        try {
+            buildExecutionPlan();
+        } finally {
+            loadPreviousDurations();
+        }
+    }
+
+    /**
+     * Reads the durations of the tasks in the plan, while the plan is still being prepared, so that workers do not wait for the cache while holding the lock.
+     */
+    private void loadPreviousDurations() {
+        if (durationRepository == null) {
+            return;
+        }
+        List<String> taskPaths = new ArrayList<String>(executionPlan.size());
+        for (Task task : executionPlan.keySet()) {
+            taskPaths.add(task.getPath());
+        }
+        previousDurations = durationRepository.getDurations(taskPaths);
+    }
+
+    private void buildExecutionPlan() {
+        List<TaskInfo> nodeQueue = new LinkedList<TaskInfo>(entryTasks);
         Set<TaskInfo> visitingNodes = new HashSet<TaskInfo>();
         while (!nodeQueue.isEmpty()) {
             TaskInfo taskNode = nodeQueue.get(0);
@@ -281,6 +347,15 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             executionPlan.clear();
             failures.clear();
             runningProjects.clear();
+            resolvingMutationInfo.clear();
+            readyTasks.clear();
+            blockedTasks.clear();
+            blockedTasksWithoutMutationInfo.clear();
+            executionStartTimes.clear();
+            executionDurations.clear();
+            previousDurations = Collections.emptyMap();
+            scheduled = false;
+            incompleteTasks = 0;
         } finally {
             lock.unlock();
         }
@@ -299,43 +374,269 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public TaskInfo getTaskToExecute() {
+        TaskInfo started = null;
         lock.lock();
         try {
-            while (true) {
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                for (TaskInfo taskInfo : executionPlan.values()) {
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && !runningProjects.contains(taskInfo.getTask().getProject().getPath())) {
-                        nextMatching = taskInfo;
-                        break;
-                    }
-                }
-                if (allTasksComplete) {
+            scheduleTasks();
+            while (started == null) {
+                if (incompleteTasks == 0) {
                     return null;
                 }
-                if (nextMatching == null) {
+                if (readyTasks.isEmpty()) {
+                    TaskInfo unresolved = nextBlockedTaskWithoutMutationInfo();
+                    if (unresolved != null) {
+                        resolveMutationInfo(unresolved);
+                        continue;
+                    }
                     try {
                         condition.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
                     }
                 } else {
-                    if (nextMatching.allDependenciesSuccessful()) {
+                    TaskInfo nextMatching = readyTasks.first();
+                    if (!canRunWithRunningTasks(nextMatching)) {
+                        block(nextMatching);
+                    } else if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
-                        runningProjects.add(nextMatching.getTask().getProject().getPath());
-                        return nextMatching;
+                        readyTasks.remove(nextMatching);
+                        addRunningTask(nextMatching);
+                        if (durationRepository != null) {
+                            executionStartTimes.put(nextMatching, System.currentTimeMillis());
+                        }
+                        started = nextMatching;
                     } else {
-                        nextMatching.skipExecution();
+                        skipExecution(nextMatching);
                         condition.signalAll();
                     }
                 }
             }
+            if (needsMutationInfo(started)) {
+                // Determine the files of the task before it starts, so that they are not calculated while the task is executing
+                resolveMutationInfo(started);
+            }
+            return started;
         } finally {
             lock.unlock();
         }
     }
 
+    private boolean canRunWithRunningTasks(TaskInfo taskInfo) {
+        List<TaskInfo> runningTasks = runningProjects.get(taskInfo.getTask().getProject().getPath());
+        if (runningTasks == null) {
+            return true;
+        }
+        if (!parallelTasksWithinProject) {
+            return false;
+        }
+        TaskMutationInfo mutationInfo = taskInfo.getMutationInfo();
+        if (mutationInfo == null) {
+            return false;
+        }
+        for (TaskInfo runningTask : runningTasks) {
+            TaskMutationInfo runningMutationInfo = runningTask.getMutationInfo();
+            if (runningMutationInfo == null || mutationInfo.conflictsWith(runningMutationInfo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the given ready task to the queue of its project, until a task of the project completes.
+     */
+    private void block(TaskInfo taskInfo) {
+        readyTasks.remove(taskInfo);
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        Set<TaskInfo> projectTasks = blockedTasks.get(projectPath);
+        if (projectTasks == null) {
+            projectTasks = new TreeSet<TaskInfo>(executionOrder);
+            blockedTasks.put(projectPath, projectTasks);
+        }
+        projectTasks.add(taskInfo);
+        if (needsMutationInfo(taskInfo)) {
+            blockedTasksWithoutMutationInfo.add(taskInfo);
+        }
+    }
+
+    private void unblock(TaskInfo taskInfo) {
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        Set<TaskInfo> projectTasks = blockedTasks.get(projectPath);
+        if (projectTasks != null && projectTasks.remove(taskInfo)) {
+            blockedTasksWithoutMutationInfo.remove(taskInfo);
+            if (projectTasks.isEmpty()) {
+                blockedTasks.remove(projectPath);
+            }
+        }
+    }
+
+    /**
+     * Moves the blocked tasks of the given project back to the ready queue, as the running tasks of the project have changed.
+     */
+    private void unblockProject(String projectPath) {
+        Set<TaskInfo> projectTasks = blockedTasks.remove(projectPath);
+        if (projectTasks != null) {
+            readyTasks.addAll(projectTasks);
+            blockedTasksWithoutMutationInfo.removeAll(projectTasks);
+        }
+    }
+
+    private TaskInfo nextBlockedTaskWithoutMutationInfo() {
+        for (Iterator<TaskInfo> iterator = blockedTasksWithoutMutationInfo.iterator(); iterator.hasNext();) {
+            TaskInfo taskInfo = iterator.next();
+            iterator.remove();
+            if (needsMutationInfo(taskInfo)) {
+                return taskInfo;
+            }
+        }
+        return null;
+    }
+
+    private boolean needsMutationInfo(TaskInfo taskInfo) {
+        return parallelTasksWithinProject && taskInfo.getMutationInfo() == null && !resolvingMutationInfo.contains(taskInfo);
+    }
+
+    /**
+     * Determines the files of the given task. Resolving the files of a task can be expensive, so this is done without holding the lock, to allow other
+     * workers to continue to pick up and complete tasks in the meantime. Must be called while holding the lock.
+     */
+    private void resolveMutationInfo(TaskInfo taskInfo) {
+        resolvingMutationInfo.add(taskInfo);
+        TaskMutationInfo mutationInfo = null;
+        lock.unlock();
+        try {
+            mutationInfo = TaskMutationInfo.of(taskInfo.getTask());
+        } finally {
+            lock.lock();
+            resolvingMutationInfo.remove(taskInfo);
+            taskInfo.setMutationInfo(mutationInfo);
+            unblockProject(taskInfo.getTask().getProject().getPath());
+            condition.signalAll();
+        }
+    }
+
+    private void addRunningTask(TaskInfo taskInfo) {
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        List<TaskInfo> runningTasks = runningProjects.get(projectPath);
+        if (runningTasks == null) {
+            runningTasks = new ArrayList<TaskInfo>();
+            runningProjects.put(projectPath, runningTasks);
+        }
+        runningTasks.add(taskInfo);
+    }
+
+    private void removeRunningTask(TaskInfo taskInfo) {
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        List<TaskInfo> runningTasks = runningProjects.get(projectPath);
+        if (runningTasks != null && runningTasks.remove(taskInfo) && runningTasks.isEmpty()) {
+            runningProjects.remove(projectPath);
+        }
+        unblockProject(projectPath);
+    }
+
+    /**
+     * Calculates the dependency counts and the initial set of ready tasks, if not already done for the current plan.
+     */
+    private void scheduleTasks() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        readyTasks.clear();
+        blockedTasks.clear();
+        blockedTasksWithoutMutationInfo.clear();
+        incompleteTasks = 0;
+
+        int executionIndex = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            taskInfo.schedule(executionIndex++);
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            if (!taskInfo.isComplete()) {
+                incompleteTasks++;
+            }
+            for (TaskInfo dependency : Iterables.concat(taskInfo.getSoftSuccessors(), taskInfo.getHardSuccessors())) {
+                if (dependency.getExecutionIndex() >= 0) {
+                    dependency.getDependentNodes().add(taskInfo);
+                }
+                if (!dependency.isComplete()) {
+                    taskInfo.dependencyIncomplete();
+                }
+            }
+        }
+        if (durationRepository != null) {
+            assignPriorities();
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            updateReadyState(taskInfo);
+        }
+    }
+
+    /**
+     * Gives each task a priority equal to the recorded duration of the longest chain of tasks that starts with it. Tasks without a recorded duration count for nothing.
+     * A task is given at least the priority of the tasks that follow it in the same project, so that the tasks of a project keep their relative order.
+     */
+    private void assignPriorities() {
+        List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+        long[] chainDurations = new long[tasks.size()];
+        Map<String, Long> projectPriorities = new HashMap<String, Long>();
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = tasks.get(i);
+            long longestDependentChain = 0;
+            for (TaskInfo dependent : taskInfo.getDependentNodes()) {
+                longestDependentChain = Math.max(longestDependentChain, chainDurations[dependent.getExecutionIndex()]);
+            }
+            Long duration = previousDurations.get(taskInfo.getTask().getPath());
+            chainDurations[i] = longestDependentChain + (duration == null ? 0 : duration);
+
+            String projectPath = taskInfo.getTask().getProject().getPath();
+            Long laterProjectPriority = projectPriorities.get(projectPath);
+            long priority = laterProjectPriority == null ? chainDurations[i] : Math.max(chainDurations[i], laterProjectPriority);
+            taskInfo.setPriority(priority);
+            projectPriorities.put(projectPath, priority);
+        }
+    }
+
+    private void updateReadyState(TaskInfo taskInfo) {
+        unblock(taskInfo);
+        if (taskInfo.isReady() && taskInfo.getIncompleteDependencies() == 0 && taskInfo.getExecutionIndex() >= 0) {
+            readyTasks.add(taskInfo);
+        } else {
+            readyTasks.remove(taskInfo);
+        }
+    }
+
+    private void skipExecution(TaskInfo taskInfo) {
+        taskInfo.skipExecution();
+        readyTasks.remove(taskInfo);
+        unblock(taskInfo);
+        taskCompleted(taskInfo);
+    }
+
+    private void enforceRun(TaskInfo taskInfo) {
+        boolean wasComplete = taskInfo.isComplete();
+        taskInfo.enforceRun();
+        if (wasComplete && taskInfo.getExecutionIndex() >= 0) {
+            incompleteTasks++;
+            for (TaskInfo dependent : taskInfo.getDependentNodes()) {
+                dependent.dependencyIncomplete();
+                updateReadyState(dependent);
+            }
+        }
+        updateReadyState(taskInfo);
+    }
+
+    private void taskCompleted(TaskInfo taskInfo) {
+        if (taskInfo.getExecutionIndex() < 0) {
+            return;
+        }
+        incompleteTasks--;
+        for (TaskInfo dependent : taskInfo.getDependentNodes()) {
+            dependent.dependencyComplete();
+            updateReadyState(dependent);
+        }
+    }
+
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
@@ -345,13 +646,26 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
-            runningProjects.remove(taskInfo.getTask().getProject().getPath());
+            taskCompleted(taskInfo);
+            removeRunningTask(taskInfo);
+            recordDuration(taskInfo);
             condition.signalAll();
         } finally {
             lock.unlock();
         }
     }
 
+    private void recordDuration(TaskInfo taskInfo) {
+        if (durationRepository == null) {
+            return;
+        }
+        Long startTime = executionStartTimes.remove(taskInfo);
+        // Only record the tasks that did their work, as these are the durations that matter when the task is out of date
+        if (startTime != null && taskInfo.isSuccessful() && !taskInfo.getTask().getState().getSkipped()) {
+            executionDurations.put(taskInfo.getTask().getPath(), System.currentTimeMillis() - startTime);
+        }
+    }
+
     private void enforceFinalizerTasks(TaskInfo taskInfo) {
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.getMustNotRun()) {
@@ -365,7 +679,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             enforceWithDependencies(dependencyNode);
         }
         if (node.getMustNotRun() || node.isRequired()) {
-            node.enforceRun();
+            enforceRun(node);
         }
     }
 
@@ -393,28 +707,39 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         // Allow currently executing and enforced tasks to complete, but skip everything else.
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
-                taskInfo.skipExecution();
+                skipExecution(taskInfo);
             }
         }
     }
 
     public void awaitCompletion() {
+        Map<String, Long> durations;
+        List<Throwable> failures;
         lock.lock();
         try {
-            while (!allTasksComplete()) {
+            scheduleTasks();
+            while (incompleteTasks > 0) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             }
-            rethrowFailures();
+            durations = new HashMap<String, Long>(executionDurations);
+            executionDurations.clear();
+            failures = new ArrayList<Throwable>(this.failures);
         } finally {
             lock.unlock();
         }
+
+        // Written without holding the lock, as this may wait for the cache
+        if (durationRepository != null) {
+            durationRepository.updateDurations(durations);
+        }
+        rethrowFailures(failures);
     }
 
-    private void rethrowFailures() {
+    private void rethrowFailures(List<Throwable> failures) {
         if (failures.isEmpty()) {
             return;
         }
@@ -426,15 +751,6 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         throw UncheckedException.throwAsUncheckedException(failures.get(0));
     }
 
-    private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     private static class RethrowingFailureHandler implements TaskFailureHandler {
         public void onTaskFailure(Task task) {
             task.getState().rethrowFailure();
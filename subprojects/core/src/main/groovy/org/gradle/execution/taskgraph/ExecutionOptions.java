@@ -18,9 +18,11 @@ package org.gradle.execution.taskgraph;
 
 class ExecutionOptions {
     private final int parallelExecutors;
+    private final boolean parallelTasksWithinProject;
 
-    public ExecutionOptions(int parallelExecutors) {
+    public ExecutionOptions(int parallelExecutors, boolean parallelTasksWithinProject) {
         this.parallelExecutors = parallelExecutors;
+        this.parallelTasksWithinProject = parallelTasksWithinProject;
     }
 
     public boolean executeProjectsInParallel() {
@@ -33,4 +35,8 @@ class ExecutionOptions {
         }
         return parallelExecutors;
     }
+
+    public boolean executeTasksWithinProjectInParallel() {
+        return parallelTasksWithinProject;
+    }
 }
@@ -35,9 +35,11 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     private static final Logger LOGGER = Logging.getLogger(ParallelTaskPlanExecutor.class);
     private final int executorCount;
     private final TaskArtifactStateCacheAccess cacheAccess;
+    private final boolean parallelTasksWithinProject;
 
-    public ParallelTaskPlanExecutor(TaskArtifactStateCacheAccess cacheAccess, int numberOfParallelExecutors) {
+    public ParallelTaskPlanExecutor(TaskArtifactStateCacheAccess cacheAccess, int numberOfParallelExecutors, boolean parallelTasksWithinProject) {
         this.cacheAccess = cacheAccess;
+        this.parallelTasksWithinProject = parallelTasksWithinProject;
         if (numberOfParallelExecutors < 1) {
             throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
         }
@@ -62,8 +64,12 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     }
 
     private void doProcess(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener, ExecutorFactory factory) {
-        List<Project> projects = getAllProjects(taskExecutionPlan);
-        int numExecutors = Math.min(executorCount, projects.size());
+        int numExecutors = executorCount;
+        if (!parallelTasksWithinProject) {
+            // At most one task per project is executed at a time, so there is no point using more workers than projects
+            List<Project> projects = getAllProjects(taskExecutionPlan);
+            numExecutors = Math.min(executorCount, projects.size());
+        }
 
         LOGGER.info("Using {} parallel executor threads", numExecutors);
 
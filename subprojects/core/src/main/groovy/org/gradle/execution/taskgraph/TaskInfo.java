@@ -16,9 +16,10 @@
 
 package org.gradle.execution.taskgraph;
 
-import com.google.common.collect.Iterables;
 import org.gradle.api.internal.TaskInternal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 
 class TaskInfo implements Comparable<TaskInfo> {
@@ -35,6 +36,11 @@ class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> hardSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> softSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    private final List<TaskInfo> dependentNodes = new ArrayList<TaskInfo>();
+    private int executionIndex = -1;
+    private int incompleteDependencies;
+    private long priority;
+    private TaskMutationInfo mutationInfo;
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -128,15 +134,6 @@ class TaskInfo implements Comparable<TaskInfo> {
         return this.getTask().getState().getFailure();
     }
 
-    public boolean allDependenciesComplete() {
-        for (TaskInfo dependency : Iterables.concat(softSuccessors, hardSuccessors)) {
-            if (!dependency.isComplete()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     public boolean allDependenciesSuccessful() {
         for (TaskInfo dependency : hardSuccessors) {
             if (!dependency.isSuccessful()) {
@@ -183,6 +180,62 @@ class TaskInfo implements Comparable<TaskInfo> {
         finalizers.add(finalizerNode);
     }
 
+    /**
+     * The position of this task in the execution plan, or -1 if this task is not scheduled for execution.
+     */
+    public int getExecutionIndex() {
+        return executionIndex;
+    }
+
+    /**
+     * The scheduled tasks that must wait for this task to complete, through either a hard or a soft dependency.
+     */
+    public List<TaskInfo> getDependentNodes() {
+        return dependentNodes;
+    }
+
+    public int getIncompleteDependencies() {
+        return incompleteDependencies;
+    }
+
+    /**
+     * The priority of this task relative to the other tasks that are ready to execute. Tasks with a higher priority are started first.
+     */
+    public long getPriority() {
+        return priority;
+    }
+
+    public void setPriority(long priority) {
+        this.priority = priority;
+    }
+
+    public void schedule(int executionIndex) {
+        this.executionIndex = executionIndex;
+        this.dependentNodes.clear();
+        this.incompleteDependencies = 0;
+        this.priority = 0;
+    }
+
+    public void dependencyIncomplete() {
+        incompleteDependencies++;
+    }
+
+    public void dependencyComplete() {
+        assert incompleteDependencies > 0;
+        incompleteDependencies--;
+    }
+
+    /**
+     * Returns the files of this task, or null when they have not been determined yet.
+     */
+    public TaskMutationInfo getMutationInfo() {
+        return mutationInfo;
+    }
+
+    public void setMutationInfo(TaskMutationInfo mutationInfo) {
+        this.mutationInfo = mutationInfo;
+    }
+
     public int compareTo(TaskInfo otherInfo) {
         return task.compareTo(otherInfo.getTask());
     }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.collections.DefaultFileCollectionResolveContext;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.file.collections.FileTreeAdapter;
+import org.gradle.api.internal.file.collections.LocalFileTree;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The files that a task reads and writes, as declared by its inputs and outputs. Used to decide whether two tasks of the same project can safely be executed at the same time.
+ */
+class TaskMutationInfo {
+    private static final Logger LOGGER = Logging.getLogger(TaskMutationInfo.class);
+    private static final TaskMutationInfo UNKNOWN = new TaskMutationInfo(null, null);
+
+    private final Set<File> inputPaths;
+    private final Set<File> outputPaths;
+
+    private TaskMutationInfo(Set<File> inputPaths, Set<File> outputPaths) {
+        this.inputPaths = inputPaths;
+        this.outputPaths = outputPaths;
+    }
+
+    /**
+     * Collects the root files and directories of the declared inputs and outputs of the given task. The contents of directory trees are not visited. A task
+     * that does not declare any outputs, or whose files cannot be determined, is treated as potentially writing anywhere.
+     */
+    public static TaskMutationInfo of(TaskInternal task) {
+        if (!task.getOutputs().getHasOutput()) {
+            return UNKNOWN;
+        }
+        try {
+            Set<File> inputPaths = task.getInputs().getHasInputs() ? roots(task.getInputs().getFiles()) : Collections.<File>emptySet();
+            Set<File> outputPaths = roots(task.getOutputs().getFiles());
+            if (inputPaths == null || outputPaths == null) {
+                LOGGER.debug("Could not determine the root directories of the files of {}. Will not execute it in parallel with other tasks of the same project.", task);
+                return UNKNOWN;
+            }
+            return new TaskMutationInfo(inputPaths, outputPaths);
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not determine the files of %s. Will not execute it in parallel with other tasks of the same project.", task), e);
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns the absolute paths of the given files, using the base directory in place of the contents of each directory tree. Returns null when the
+     * collection contains a tree that is not backed by local directories.
+     */
+    private static Set<File> roots(FileCollection files) {
+        DefaultFileCollectionResolveContext context = new DefaultFileCollectionResolveContext();
+        context.add(files);
+        Set<File> paths = new HashSet<File>();
+        for (FileCollection collection : context.resolveAsFileCollections()) {
+            if (collection instanceof FileTreeAdapter && ((FileTreeAdapter) collection).getTree() instanceof LocalFileTree) {
+                LocalFileTree tree = (LocalFileTree) ((FileTreeAdapter) collection).getTree();
+                for (DirectoryFileTree directoryTree : tree.getLocalContents()) {
+                    paths.add(directoryTree.getDir().getAbsoluteFile());
+                }
+            } else if (collection instanceof FileTree) {
+                return null;
+            } else {
+                for (File file : collection) {
+                    paths.add(file.getAbsoluteFile());
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns true if either task may write to a location that the other task reads or writes.
+     */
+    public boolean conflictsWith(TaskMutationInfo other) {
+        if (outputPaths == null || other.outputPaths == null) {
+            return true;
+        }
+        return overlaps(outputPaths, other.outputPaths) || overlaps(outputPaths, other.inputPaths) || overlaps(other.outputPaths, inputPaths);
+    }
+
+    private static boolean overlaps(Set<File> paths, Set<File> otherPaths) {
+        return containsSelfOrAncestor(paths, otherPaths) || containsSelfOrAncestor(otherPaths, paths);
+    }
+
+    private static boolean containsSelfOrAncestor(Set<File> candidates, Set<File> paths) {
+        if (candidates.isEmpty()) {
+            return false;
+        }
+        for (File path : paths) {
+            for (File current = path; current != null; current = current.getParentFile()) {
+                if (candidates.contains(current)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
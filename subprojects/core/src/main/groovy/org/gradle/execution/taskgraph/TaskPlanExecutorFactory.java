@@ -23,16 +23,18 @@ public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
 
     private final TaskArtifactStateCacheAccess taskArtifactStateCacheAccess;
     private final int parallelThreads;
+    private final boolean parallelTasksWithinProject;
 
-    public TaskPlanExecutorFactory(TaskArtifactStateCacheAccess taskArtifactStateCacheAccess, int parallelThreads) {
+    public TaskPlanExecutorFactory(TaskArtifactStateCacheAccess taskArtifactStateCacheAccess, int parallelThreads, boolean parallelTasksWithinProject) {
         this.taskArtifactStateCacheAccess = taskArtifactStateCacheAccess;
         this.parallelThreads = parallelThreads;
+        this.parallelTasksWithinProject = parallelTasksWithinProject;
     }
 
     public TaskPlanExecutor create() {
-        ExecutionOptions options = new ExecutionOptions(parallelThreads);
+        ExecutionOptions options = new ExecutionOptions(parallelThreads, parallelTasksWithinProject);
         if (options.executeProjectsInParallel()) {
-            return new ParallelTaskPlanExecutor(taskArtifactStateCacheAccess, options.numberOfParallelThreads());
+            return new ParallelTaskPlanExecutor(taskArtifactStateCacheAccess, options.numberOfParallelThreads(), options.executeTasksWithinProjectInParallel());
         }
         return new DefaultTaskPlanExecutor(taskArtifactStateCacheAccess);
     }
@@ -50,6 +50,7 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
 
     private static final String PARALLEL = "parallel";
     private static final String PARALLEL_THREADS = "parallel-threads";
+    private static final String PARALLEL_TASKS = "parallel-tasks";
 
     private static final String CONFIGURE_ON_DEMAND = "configure-on-demand";
 
@@ -84,6 +85,7 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         parser.option(REFRESH_DEPENDENCIES).hasDescription("Refresh the state of dependencies.");
         parser.option(PARALLEL).hasDescription("Build projects in parallel. Gradle will attempt to determine the optimal number of executor threads to use.").incubating();
         parser.option(PARALLEL_THREADS).hasArgument().hasDescription("Build projects in parallel, using the specified number of executor threads.").incubating();
+        parser.option(PARALLEL_TASKS).hasDescription("When building in parallel, also execute tasks of the same project in parallel when their inputs and outputs do not overlap.").incubating();
         parser.option(CONFIGURE_ON_DEMAND).hasDescription("Only relevant projects are configured in this build run. This means faster build for large multi-project builds.").incubating();
     }
 
@@ -194,6 +196,10 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
             }
         }
 
+        if (options.hasOption(PARALLEL_TASKS)) {
+            startParameter.setParallelTasksWithinProject(true);
+        }
+
         if (options.hasOption(CONFIGURE_ON_DEMAND)) {
             startParameter.setConfigureOnDemand(true);
         }
@@ -70,6 +70,8 @@ import org.gradle.profile.ProfileEventAdapter;
 import org.gradle.profile.ProfileListener;
 import org.gradle.internal.classloader.ClassLoaderFactory;
 
+import java.util.List;
+
 /**
  * Contains the singleton services for a single build invocation.
  */
@@ -80,6 +82,10 @@ public class BuildScopeServices extends DefaultServiceRegistry implements Servic
         super(parent);
         this.startParameter = startParameter;
         add(StartParameter.class, startParameter);
+        List<PluginServiceRegistry> pluginServiceFactories = new ServiceLocator(get(ClassLoaderRegistry.class).getPluginsClassLoader()).getAll(PluginServiceRegistry.class);
+        for (PluginServiceRegistry pluginServiceRegistry : pluginServiceFactories) {
+            add(pluginServiceRegistry.createBuildServices(this));
+        }
     }
 
     protected ImportsReader createImportsReader() {
@@ -18,6 +18,7 @@ package org.gradle.internal.service.scopes;
 
 import org.gradle.StartParameter;
 import org.gradle.api.internal.*;
+import org.gradle.api.internal.changedetection.state.InMemoryFileHashCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -128,6 +129,10 @@ public class GlobalScopeServices extends DefaultServiceRegistry {
         return new DefaultExecutorFactory();
     }
 
+    protected InMemoryFileHashCache createInMemoryFileHashCache() {
+        return new InMemoryFileHashCache();
+    }
+
     protected FileLockManager createFileLockManager() {
         return new DefaultFileLockManager(
                 new DefaultProcessMetaDataProvider(
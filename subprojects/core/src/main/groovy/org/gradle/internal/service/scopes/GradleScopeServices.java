@@ -19,6 +19,7 @@ import org.gradle.StartParameter;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.plugins.DefaultPluginContainer;
 import org.gradle.api.internal.plugins.PluginRegistry;
 import org.gradle.api.internal.project.DefaultProjectRegistry;
@@ -78,7 +79,10 @@ public class GradleScopeServices extends DefaultServiceRegistry implements Servi
     }
 
     protected TaskGraphExecuter createTaskGraphExecuter() {
-        return new DefaultTaskGraphExecuter(get(ListenerManager.class), get(TaskPlanExecutor.class));
+        StartParameter startParameter = get(StartParameter.class);
+        // Ordering the tasks by their durations only pays off when several tasks execute at the same time. Otherwise, keep the requested order
+        TaskDurationRepository durationRepository = startParameter.getParallelThreadCount() == 0 ? null : get(TaskDurationRepository.class);
+        return new DefaultTaskGraphExecuter(get(ListenerManager.class), get(TaskPlanExecutor.class), startParameter.isParallelTasksWithinProject(), durationRepository);
     }
 
     public ServiceRegistryFactory createFor(Object domainObject) {
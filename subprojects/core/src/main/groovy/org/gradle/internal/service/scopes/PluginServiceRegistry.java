@@ -19,10 +19,15 @@ package org.gradle.internal.service.scopes;
 import org.gradle.internal.service.ServiceRegistry;
 
 /**
- * Can be implemented by plugins to provide services in the global scope.
+ * Can be implemented by plugins to provide services in the global scope and in the build scope.
  *
  * <p>Implementations are discovered using the JAR service locator mechanism (see {@link org.gradle.internal.service.ServiceLocator}).
  */
 public interface PluginServiceRegistry {
     ServiceRegistry createGlobalServices(ServiceRegistry parent);
+
+    /**
+     * Creates the services for a build. The services are closed when the build finishes.
+     */
+    ServiceRegistry createBuildServices(ServiceRegistry parent);
 }
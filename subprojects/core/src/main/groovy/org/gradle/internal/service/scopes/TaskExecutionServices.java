@@ -25,13 +25,16 @@ import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.id.RandomLongIdGenerator;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.listener.ListenerManager;
+import org.gradle.util.hash.HashUtil;
 
 public class TaskExecutionServices extends DefaultServiceRegistry {
     private final Gradle gradle;
@@ -65,8 +68,14 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
 
         FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(
                 new CachingHasher(
-                        new DefaultHasher(),
-                        cacheAccess), cacheAccess);
+                        get(ParallelHasher.class),
+                        cacheAccess,
+                        get(InMemoryFileHashCache.class),
+                        get(CacheRepository.class)
+                                .cache("fileHashes")
+                                .withDisplayName("file hash writer cache")
+                                .withLockMode(FileLockManager.LockMode.None)
+                                .open()), cacheAccess);
 
         FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheAccess);
 
@@ -85,9 +94,17 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
         );
     }
 
+    protected ParallelHasher createParallelHasher() {
+        return new ParallelHasher(new DefaultHasher(HashUtil.MURMUR3_128), get(ExecutorFactory.class));
+    }
+
+    protected TaskDurationRepository createTaskDurationRepository() {
+        return new CacheBackedTaskDurationRepository(get(TaskArtifactStateCacheAccess.class));
+    }
+
     protected TaskPlanExecutor createTaskExecutorFactory() {
         StartParameter startParameter = gradle.getStartParameter();
         TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
-        return new TaskPlanExecutorFactory(cacheAccess, startParameter.getParallelThreadCount()).create();
+        return new TaskPlanExecutorFactory(cacheAccess, startParameter.getParallelThreadCount(), startParameter.isParallelTasksWithinProject()).create();
     }
 }
@@ -19,6 +19,7 @@ import org.gradle.CacheUsage;
 import org.gradle.api.Action;
 import org.gradle.cache.*;
 import org.gradle.cache.internal.*;
+import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.messaging.serialize.DefaultSerializer;
 import org.gradle.messaging.serialize.Serializer;
@@ -102,6 +103,15 @@ public class InMemoryCacheFactory implements CacheFactory {
             action.run();
         }
 
+        public <T> T useCacheConcurrently(String operationDisplayName, Factory<? extends T> action) {
+            // The in-memory indexed caches are not thread-safe
+            return useCache(operationDisplayName, action);
+        }
+
+        public void useCacheConcurrently(String operationDisplayName, Runnable action) {
+            useCacheConcurrently(operationDisplayName, Factories.toFactory(action));
+        }
+
         public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
             return action.create();
         }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class CacheBackedTaskDurationRepositoryTest extends Specification {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final PersistentIndexedCache<Object, Object> indexedCache = Mock()
+    TaskDurationRepository repository
+
+    def setup() {
+        1 * cacheAccess.createCache("taskDurations", String, Long, _) >> indexedCache
+        repository = new CacheBackedTaskDurationRepository(cacheAccess)
+    }
+
+    def "returns the known durations of the given tasks"() {
+        when:
+        def result = repository.getDurations([":a", ":b"])
+
+        then:
+        result == [":a": 12L]
+        1 * cacheAccess.useCache(_, _ as Factory) >> { String name, Factory action -> action.create() }
+        1 * indexedCache.get(":a") >> 12L
+        1 * indexedCache.get(":b") >> null
+        0 * _._
+    }
+
+    def "stores durations"() {
+        when:
+        repository.updateDurations([":a": 12L, ":b": 3L])
+
+        then:
+        1 * cacheAccess.useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * indexedCache.put(":a", 12L)
+        1 * indexedCache.put(":b", 3L)
+        0 * _._
+    }
+
+    def "does not use the cache when there are no durations to store"() {
+        when:
+        repository.updateDurations([:])
+
+        then:
+        0 * _._
+    }
+}
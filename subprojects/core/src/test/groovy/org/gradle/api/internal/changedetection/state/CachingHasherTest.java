@@ -15,10 +15,14 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.messaging.serialize.Serializer;
+import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Before;
@@ -26,7 +30,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
-import java.io.File;
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.gradle.util.Matchers.reflectionEquals;
 import static org.hamcrest.Matchers.*;
@@ -40,9 +47,12 @@ public class CachingHasherTest {
     private final Hasher delegate = context.mock(Hasher.class);
     private final PersistentIndexedCache<File, CachingHasher.FileInfo> cache = context.mock(
             PersistentIndexedCache.class);
+    private final PersistentCache writerStore = context.mock(PersistentCache.class);
     private final TaskArtifactStateCacheAccess cacheAccess = context.mock(TaskArtifactStateCacheAccess.class);
+    private final InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache();
     private final byte[] hash = "hash".getBytes();
     private final File file = tmpDir.createFile("testfile").write("content");
+    private final TestFile writerDir = tmpDir.createDir("writer");
     private CachingHasher hasher;
 
     @Before
@@ -59,8 +69,8 @@ public class CachingHasherTest {
         context.checking(new Expectations() {{
             one(cache).get(file);
             will(returnValue(null));
-            one(delegate).hash(file);
-            will(returnValue(hash));
+            one(delegate).hash(Collections.singletonList(file));
+            will(returnValue(Collections.singletonList(hash)));
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
@@ -73,8 +83,8 @@ public class CachingHasherTest {
         context.checking(new Expectations() {{
             one(cache).get(file);
             will(returnValue(new CachingHasher.FileInfo(hash, 1078, file.lastModified())));
-            one(delegate).hash(file);
-            will(returnValue(hash));
+            one(delegate).hash(Collections.singletonList(file));
+            will(returnValue(Collections.singletonList(hash)));
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
@@ -87,8 +97,8 @@ public class CachingHasherTest {
         context.checking(new Expectations() {{
             one(cache).get(file);
             will(returnValue(new CachingHasher.FileInfo(hash, file.length(), 12)));
-            one(delegate).hash(file);
-            will(returnValue(hash));
+            one(delegate).hash(Collections.singletonList(file));
+            will(returnValue(Collections.singletonList(hash)));
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
@@ -105,4 +115,175 @@ public class CachingHasherTest {
 
         assertThat(hasher.hash(file), sameInstance(hash));
     }
+
+    @Test
+    public void hashesChangedFilesOfBatchInSingleCallToDelegate() {
+        final File unchanged = tmpDir.createFile("unchanged").write("unchanged content");
+        final File changed = tmpDir.createFile("changed").write("changed content");
+        final byte[] unchangedHash = "unchanged".getBytes();
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(cache).get(unchanged);
+            will(returnValue(new CachingHasher.FileInfo(unchangedHash, unchanged.length(), unchanged.lastModified())));
+            one(cache).get(changed);
+            will(returnValue(new CachingHasher.FileInfo(unchangedHash, changed.length(), 12)));
+            one(delegate).hash(Arrays.asList(file, changed));
+            will(returnValue(Arrays.asList(hash, hash)));
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified()))));
+            one(cache).put(with(equalTo(changed)), with(reflectionEquals(new CachingHasher.FileInfo(hash, changed.length(),
+                    changed.lastModified()))));
+        }});
+
+        List<byte[]> hashes = hasher.hash(Arrays.asList(file, unchanged, changed));
+        assertThat(hashes.size(), equalTo(3));
+        assertThat(hashes.get(0), sameInstance(hash));
+        assertThat(hashes.get(1), sameInstance(unchangedHash));
+        assertThat(hashes.get(2), sameInstance(hash));
+    }
+
+    @Test
+    public void doesNotCallDelegateWhenNoFileOfBatchHasChanged() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        List<byte[]> hashes = hasher.hash(Arrays.asList(file));
+        assertThat(hashes.size(), equalTo(1));
+        assertThat(hashes.get(0), sameInstance(hash));
+    }
+
+    @Test
+    public void usesHashFromHeapWhenThisProcessWasLastToWriteCache() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        writeMarker(inMemoryCache.getWriterId());
+        inMemoryCache.put(file, new CachingHasher.FileInfo(hash, file.length(), file.lastModified()));
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void keepsHashesLoadedFromCacheInHeap() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void keepsNewHashesInHeap() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(Collections.singletonList(file));
+            will(returnValue(Collections.singletonList(hash)));
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void ignoresHashInHeapWhenFileHasChanged() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        writeMarker(inMemoryCache.getWriterId());
+        inMemoryCache.put(file, new CachingHasher.FileInfo("old".getBytes(), file.length(), 12));
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void discardsHashesInHeapWhenCacheWasWrittenByOtherProcess() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        writeMarker(inMemoryCache.getWriterId() + 1);
+        inMemoryCache.put(file, new CachingHasher.FileInfo("old".getBytes(), file.length(), file.lastModified()));
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(readMarker(), equalTo(inMemoryCache.getWriterId()));
+    }
+
+    @Test
+    public void claimsCacheWhenNoProcessHasWrittenIt() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(readMarker(), equalTo(inMemoryCache.getWriterId()));
+    }
+
+    @Test
+    public void checksWhichProcessLastWroteHashesOnlyOncePerBuild() {
+        CachingHasher hasher = createHasherWithInMemoryCache();
+        inMemoryCache.put(file, new CachingHasher.FileInfo(hash, file.length(), file.lastModified()));
+        writeMarker(inMemoryCache.getWriterId());
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        // Another process hashes files while this build is running. Its hashes are picked up by the next build.
+        writeMarker(inMemoryCache.getWriterId() + 1);
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    private CachingHasher createHasherWithInMemoryCache() {
+        context.checking(new Expectations(){{
+            one(cacheAccess).createCache(with(equalTo("fileHashes")), with(equalTo(File.class)), with(notNullValue(Class.class)), with(notNullValue(Serializer.class)));
+            will(returnValue(cache));
+            one(writerStore).useCache(with(equalTo("Check file hash writer")), with(notNullValue(Runnable.class)));
+            will(new CustomAction("run action") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    ((Runnable) invocation.getParameter(1)).run();
+                    return null;
+                }
+            });
+            allowing(writerStore).getBaseDir();
+            will(returnValue(writerDir));
+        }});
+        return new CachingHasher(delegate, cacheAccess, inMemoryCache, writerStore);
+    }
+
+    private void writeMarker(long writerId) {
+        try {
+            DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(writerDir.file("writer.bin")));
+            try {
+                outputStream.writeLong(writerId);
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long readMarker() {
+        try {
+            DataInputStream inputStream = new DataInputStream(new FileInputStream(writerDir.file("writer.bin")));
+            try {
+                return inputStream.readLong();
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
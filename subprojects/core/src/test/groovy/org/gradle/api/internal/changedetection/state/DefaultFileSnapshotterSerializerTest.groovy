@@ -24,18 +24,20 @@ class DefaultFileSnapshotterSerializerTest extends Specification {
 
     def "reads and writes the snapshot"() {
         def bytes = new ByteArrayOutputStream()
-        serializer.write(bytes, new DefaultFileSnapshotter.FileCollectionSnapshotImpl([
-                "1": new DefaultFileSnapshotter.DirSnapshot(),
-                "2": new DefaultFileSnapshotter.MissingFileSnapshot(),
-                "3": new DefaultFileSnapshotter.FileHashSnapshot("foo".bytes)]))
+        serializer.write(bytes, new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder()
+                .addDirectory("1")
+                .addMissingFile("2")
+                .addFile("3", "foo".bytes)
+                .build())
 
         when:
         DefaultFileSnapshotter.FileCollectionSnapshotImpl out = serializer.read(new ByteArrayInputStream(bytes.toByteArray()))
 
         then:
-        out.snapshots.size() == 3
-        out.snapshots['1'] instanceof DefaultFileSnapshotter.DirSnapshot
-        out.snapshots['2'] instanceof DefaultFileSnapshotter.MissingFileSnapshot
-        ((DefaultFileSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
+        out.size() == 3
+        out.getKind(out.indexOf('1')) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.DIRECTORY
+        out.getKind(out.indexOf('2')) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.MISSING_FILE
+        out.getKind(out.indexOf('3')) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.FILE
+        out.getHash(out.indexOf('3')) == "foo".bytes
     }
 }
@@ -33,7 +33,7 @@ public class DefaultFileSnapshotterTest extends Specification {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
     def setup() {
-        cacheAccess.useCache(_, _) >> { args ->
+        cacheAccess.useCacheConcurrently(_, _) >> { args ->
             args[1].run()
         }
     }
@@ -336,6 +336,52 @@ public class DefaultFileSnapshotterTest extends Specification {
         0 * _
     }
 
+    def reportsAllChangesBetweenSnapshotsOfManyFiles() {
+        TestFile removed = tmpDir.createFile('a')
+        TestFile changed = tmpDir.createFile('b')
+        TestFile unchanged = tmpDir.createFile('c')
+        TestFile added = tmpDir.createFile('d')
+
+        when:
+        FileCollectionSnapshot original = snapshotter.snapshot(files(removed, changed, unchanged))
+        changed.write('new content')
+        FileCollectionSnapshot modified = snapshotter.snapshot(files(unchanged, added, changed))
+        def iterator = modified.iterateChangesSince(original)
+        while (iterator.next(listener)) {
+        }
+
+        then:
+        1 * listener.removed(removed.path)
+        1 * listener.changed(changed.path)
+        1 * listener.added(added.path)
+        0 * listener._
+    }
+
+    def diffKeepsOtherFilesOfTargetSnapshot() {
+        def original = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addFile('b', [1, 1] as byte[]).addDirectory('c').build()
+        def modified = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addFile('b', [2, 2] as byte[]).addMissingFile('d').build()
+        def target = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addDirectory('e').addFile('b', [1, 1] as byte[]).addDirectory('a').addDirectory('c').build()
+
+        when:
+        DefaultFileSnapshotter.FileCollectionSnapshotImpl result = modified.changesSince(original).applyTo(target)
+
+        then:
+        (0..<result.size()).collect { result.getPath(it) } == ['a', 'b', 'd', 'e']
+        result.getHash(result.indexOf('b')) == [2, 2] as byte[]
+        result.getKind(result.indexOf('d')) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.MISSING_FILE
+        result.getKind(result.indexOf('e')) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.DIRECTORY
+    }
+
+    def lastEntryWinsWhenPathIsAddedToSnapshotMoreThanOnce() {
+        when:
+        def snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addDirectory('a').addFile('a', [1] as byte[]).addMissingFile('b').build()
+
+        then:
+        snapshot.size() == 2
+        snapshot.getKind(0) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.FILE
+        snapshot.getHash(0) == [1] as byte[]
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = Mock(FileTree.class)
         _ * collection.asFileTree >> collection
@@ -20,7 +20,7 @@ import spock.lang.Specification
 
 class FileSnapshotSerializerTest extends Specification {
 
-    def snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl(["hey": new DefaultFileSnapshotter.DirSnapshot()])
+    def snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addDirectory("hey").build()
     def outputSnapshot = new OutputFilesSnapshotter.OutputFilesSnapshot(["foo": 1L, "bar": 2L], snapshot)
 
     def "handles default snapshots"() {
@@ -31,8 +31,9 @@ class FileSnapshotSerializerTest extends Specification {
         DefaultFileSnapshotter.FileCollectionSnapshotImpl out = new FileSnapshotSerializer().read(new ByteArrayInputStream(bytes.toByteArray()))
 
         then:
-        out.snapshots.size() == 1
-        out.snapshots['hey'] instanceof DefaultFileSnapshotter.DirSnapshot
+        out.size() == 1
+        out.getPath(0) == 'hey'
+        out.getKind(0) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.DIRECTORY
     }
 
     def "handles output snapshots"() {
@@ -45,7 +46,8 @@ class FileSnapshotSerializerTest extends Specification {
         then:
         out.rootFileIds == ["foo": 1L, "bar": 2L]
         DefaultFileSnapshotter.FileCollectionSnapshotImpl filesSnapshot = out.filesSnapshot
-        filesSnapshot.snapshots.size() == 1
-        filesSnapshot.snapshots['hey'] instanceof DefaultFileSnapshotter.DirSnapshot
+        filesSnapshot.size() == 1
+        filesSnapshot.getPath(0) == 'hey'
+        filesSnapshot.getKind(0) == DefaultFileSnapshotter.FileCollectionSnapshotImpl.DIRECTORY
     }
 }
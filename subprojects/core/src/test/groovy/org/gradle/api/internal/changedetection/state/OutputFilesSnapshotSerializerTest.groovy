@@ -24,7 +24,7 @@ class OutputFilesSnapshotSerializerTest extends Specification {
 
     def "reads and writes the snapshot"() {
         def bytes = new ByteArrayOutputStream()
-        def snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl(["1": new DefaultFileSnapshotter.DirSnapshot()])
+        def snapshot = new DefaultFileSnapshotter.FileCollectionSnapshotImpl.Builder().addDirectory("1").build()
         def outputSnapshot = new OutputFilesSnapshotter.OutputFilesSnapshot(["x": 14L], snapshot)
         serializer.write(bytes, outputSnapshot)
 
@@ -32,7 +32,7 @@ class OutputFilesSnapshotSerializerTest extends Specification {
         OutputFilesSnapshotter.OutputFilesSnapshot out = serializer.read(new ByteArrayInputStream(bytes.toByteArray()))
 
         then:
-        ((DefaultFileSnapshotter.FileCollectionSnapshotImpl)out.filesSnapshot).snapshots.size() == 1
+        ((DefaultFileSnapshotter.FileCollectionSnapshotImpl)out.filesSnapshot).size() == 1
         out.rootFileIds == ['x': 14L]
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import spock.lang.Specification
+
+class ParallelHasherTest extends Specification {
+    final Hasher delegate = Mock()
+    final ExecutorFactory executorFactory = Mock()
+    final hasher = new ParallelHasher(delegate, executorFactory, 4)
+
+    def "hashes single file using delegate"() {
+        def file = new File("file")
+        def hash = "hash".bytes
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result.is(hash)
+        1 * delegate.hash(file) >> hash
+        0 * _
+    }
+
+    def "hashes small batch of files using delegate in current thread"() {
+        def files = files(ParallelHasher.MIN_FILES_PER_WORKER * 2 - 1)
+        def hashes = files.collect { it.name.bytes }
+
+        when:
+        def result = hasher.hash(files)
+
+        then:
+        result.is(hashes)
+        1 * delegate.hash(files) >> hashes
+        0 * _
+    }
+
+    def "hashes large batch of files using several threads and returns the hashes in order"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def hasher = new ParallelHasher(delegate, executorFactory, 4)
+        def files = files(1000)
+        def threads = Collections.synchronizedSet(new HashSet<Thread>())
+
+        when:
+        def result = hasher.hash(files)
+
+        then:
+        result.collect { new String(it) } == files.collect { it.name }
+        1000 * delegate.hash(_ as File) >> { File file ->
+            threads << Thread.currentThread()
+            Thread.sleep(1)
+            file.name.bytes
+        }
+        0 * _
+
+        and:
+        threads.size() > 1
+        threads.size() <= 4
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    def "uses one bounded executor for all batches until stopped"() {
+        StoppableExecutor executor = Mock()
+
+        when:
+        hasher.hash(files(1000))
+        hasher.hash(files(1000))
+
+        then:
+        1 * executorFactory.create("File hasher", 3) >> executor
+        6 * executor.execute(_)
+        2000 * delegate.hash(_ as File) >> "hash".bytes
+        0 * _
+
+        when:
+        hasher.stop()
+
+        then:
+        1 * executor.stop()
+        0 * _
+    }
+
+    def "rethrows the failure for the first file that could not be hashed"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def hasher = new ParallelHasher(delegate, executorFactory, 4)
+        def files = files(1000)
+        def failure1 = new RuntimeException("broken 1")
+        def failure2 = new RuntimeException("broken 2")
+
+        given:
+        delegate.hash(files[10]) >> { throw failure1 }
+        delegate.hash(files[900]) >> { throw failure2 }
+        delegate.hash(_ as File) >> "hash".bytes
+
+        when:
+        hasher.hash(files)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure1)
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    private static List<File> files(int count) {
+        return (0..<count).collect { new File("file$it") }
+    }
+}
@@ -159,6 +159,38 @@ class PathKeyFileStoreTest extends Specification {
         search.collect {entry -> entry.file.name}.sort() == ["a", "c"]
     }
 
+    def "move and copy write entry via staging file"() {
+        when:
+        store.move("a", createFile("abc"))
+        store.copy("b", createFile("def"))
+
+        then:
+        fsBase.file("a").text == "abc"
+        fsBase.file("b").text == "def"
+        fsBase.listFiles()*.name.sort() == ["a", "b"]
+    }
+
+    def "search ignores staging files"() {
+        when:
+        store.move("a/a", createFile("a"))
+        createFile("partial", "fs/a/b.fspart")
+        def search = store.search("**/*")
+
+        then:
+        search.collect { entry -> entry.file.name } == ["a"]
+    }
+
+    def "get cleans up staging file of stale entry"() {
+        when:
+        createFile("abc", "fs/a")
+        createFile("partial", "fs/a.fspart")
+        createFile("lock", "fs/a.fslck")
+
+        then:
+        store.get("a") == null
+        !fsBase.file("a.fspart").exists()
+    }
+
     def "move filestore"() {
         given:
         def a = store.move("a", createFile("abc"))
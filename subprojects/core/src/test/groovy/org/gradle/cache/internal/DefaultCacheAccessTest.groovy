@@ -19,13 +19,13 @@ import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack
 import org.gradle.internal.Factory
 import org.gradle.messaging.serialize.Serializer
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
-import spock.lang.Specification
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.*
 
-class DefaultCacheAccessTest extends Specification {
+class DefaultCacheAccessTest extends ConcurrentSpec {
     @Rule final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     final FileLockManager lockManager = Mock()
     final File lockFile = tmpDir.file('lock.bin')
@@ -126,6 +126,254 @@ class DefaultCacheAccessTest extends Specification {
         !access.owner
     }
 
+    def "using cache concurrently pushes an operation and shares ownership"() {
+        Factory<String> action = Mock()
+
+        when:
+        access.useCacheConcurrently("some operation", action)
+
+        then:
+        1 * operations.pushCacheAction("some operation")
+
+        then:
+        1 * operations.description >> "some operation"
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.allowContention(lock, _ as Runnable)
+
+        then:
+        1 * action.create() >> {
+            assert !access.owner
+            assert access.sharedOwners == [Thread.currentThread()] as Set
+        }
+
+        then:
+        1 * operations.popCacheAction("some operation")
+        1 * operations.inCacheAction >> false
+        1 * lock.getMode() >> Exclusive
+        0 * _._
+
+        and:
+        access.sharedOwners.empty
+    }
+
+    def "use cache concurrently does not allow shared locks"() {
+        access.open(Shared)
+
+        when:
+        access.useCacheConcurrently("some operation", Mock(Factory))
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "several threads can use cache concurrently"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        async {
+            start {
+                access.useCacheConcurrently("operation 1", {
+                    instant.operation1Started
+                    thread.blockUntil.operation2Started
+                } as Runnable)
+            }
+            start {
+                access.useCacheConcurrently("operation 2", {
+                    instant.operation2Started
+                    thread.blockUntil.operation1Started
+                } as Runnable)
+            }
+        }
+
+        then:
+        access.sharedOwners.empty
+        !access.owner
+    }
+
+    def "file lock is acquired by the first concurrent user and released by the last when contended"() {
+        access = newAccess(new CacheAccessOperationsStack())
+
+        when:
+        async {
+            start {
+                access.useCacheConcurrently("operation 1", {
+                    instant.operation1Started
+                    thread.blockUntil.operation2Started
+                    access.whenContended().run()
+                    instant.operation1Finished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.operation1Started
+                access.useCacheConcurrently("operation 2", {
+                    instant.operation2Started
+                    thread.blockUntil.operation1Finished
+                } as Runnable)
+            }
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "operation 1") >> lock
+        1 * lock.close()
+        !access.fileLock
+    }
+
+    def "using cache waits for concurrent users to finish"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        async {
+            start {
+                access.useCacheConcurrently("shared operation", {
+                    instant.sharedStarted
+                    thread.block()
+                    instant.sharedFinished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.sharedStarted
+                access.useCache("exclusive operation", {
+                    instant.exclusiveStarted
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.exclusiveStarted > instant.sharedFinished
+    }
+
+    def "using cache concurrently waits for the owner to finish"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        async {
+            start {
+                access.useCache("exclusive operation", {
+                    instant.exclusiveStarted
+                    thread.block()
+                    instant.exclusiveFinished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.exclusiveStarted
+                access.useCacheConcurrently("shared operation", {
+                    instant.sharedStarted
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.sharedStarted > instant.exclusiveFinished
+    }
+
+    def "using cache concurrently waits while another thread is waiting to use cache"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        async {
+            start {
+                access.useCacheConcurrently("shared operation 1", {
+                    instant.shared1Started
+                    thread.blockUntil.shared2Waiting
+                    thread.block()
+                    instant.shared1Finished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.shared1Started
+                instant.exclusiveWaiting
+                access.useCache("exclusive operation", {
+                    instant.exclusiveStarted
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.exclusiveWaiting
+                thread.block()
+                instant.shared2Waiting
+                access.useCacheConcurrently("shared operation 2", {
+                    instant.shared2Started
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.exclusiveStarted > instant.shared1Finished
+        instant.shared2Started > instant.exclusiveStarted
+    }
+
+    def "file lock is acquired for concurrent users without blocking other threads"() {
+        access = newAccess(new CacheAccessOperationsStack())
+
+        when:
+        async {
+            start {
+                access.useCacheConcurrently("shared operation", {
+                    instant.sharedStarted
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.locking
+                access.whenContended().run()
+                instant.contentionHandled
+            }
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "shared operation") >> {
+            instant.locking
+            thread.blockUntil.contentionHandled
+            return lock
+        }
+        instant.sharedStarted > instant.contentionHandled
+    }
+
+    def "nested use cache operation within concurrent use does not take exclusive ownership"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        access.useCacheConcurrently("shared operation", {
+            access.useCache("nested operation", {
+                assert !access.owner
+                assert access.sharedOwners == [Thread.currentThread()] as Set
+            } as Runnable)
+        } as Runnable)
+
+        then:
+        access.sharedOwners.empty
+        !access.owner
+    }
+
+    def "long running operation waits for concurrent users before restoring ownership"() {
+        access = newAccess(new CacheAccessOperationsStack())
+        lockManager.lock(lockFile, Exclusive, "<display-name>", _) >> lock
+
+        when:
+        async {
+            access.useCache("exclusive operation", {
+                access.longRunningOperation("long running", {
+                    start {
+                        access.useCacheConcurrently("shared operation", {
+                            instant.sharedStarted
+                            thread.block()
+                            instant.sharedFinished
+                        } as Runnable)
+                    }
+                    thread.blockUntil.sharedStarted
+                } as Runnable)
+                instant.ownerRestored
+                assert access.owner == Thread.currentThread()
+            } as Runnable)
+        }
+
+        then:
+        instant.ownerRestored > instant.sharedFinished
+    }
+
     def "nested use cache operation does not release the ownership"() {
         Factory<String> action = Mock()
 
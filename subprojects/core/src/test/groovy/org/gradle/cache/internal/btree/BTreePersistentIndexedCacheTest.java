@@ -37,13 +37,22 @@ public class BTreePersistentIndexedCacheTest {
     public TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
     private final Serializer<String> stringSerializer = new DefaultSerializer<String>();
     private final Serializer<Integer> integerSerializer = new DefaultSerializer<Integer>();
-    private BTreePersistentIndexedCache<String, Integer> cache;
-    private TestFile cacheFile;
+    protected BTreePersistentIndexedCache<String, Integer> cache;
+    protected TestFile cacheFile;
 
     @Before
     public void setup() {
         cacheFile = tmpDir.file("cache.bin");
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = createCache((short) 4, 100);
+    }
+
+    protected boolean isMemoryMapped() {
+        return false;
+    }
+
+    protected BTreePersistentIndexedCache<String, Integer> createCache(short maxChildIndexEntries, int maxFreeListEntries) {
+        return new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, maxChildIndexEntries, maxFreeListEntries,
+                BTreePersistentIndexedCache.DEFAULT_BLOCK_CACHE_SIZE, isMemoryMapped());
     }
 
     @Test
@@ -161,6 +170,31 @@ public class BTreePersistentIndexedCacheTest {
         assertThat(cacheFile.length(), lessThan((long) (1.4 * 1.4 * len)));
     }
 
+    @Test
+    public void canHandleLargeNumberOfEntriesWithSmallBlockCache() {
+        cache.close();
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, 1024, isMemoryMapped());
+
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 500; i++) {
+            values.add(i);
+        }
+
+        checkAddsAndRemoves(null, values);
+    }
+
+    @Test
+    public void returnsNewValueInstanceForEachLookup() {
+        BTreePersistentIndexedCache<String, List<String>> cache = new BTreePersistentIndexedCache<String, List<String>>(cacheFile, stringSerializer, new DefaultSerializer<List<String>>());
+        cache.put("key", new ArrayList<String>(Arrays.asList("a", "b")));
+
+        List<String> value = cache.get("key");
+        value.add("c");
+
+        assertThat(cache.get("key"), equalTo(Arrays.asList("a", "b")));
+        assertThat(cache.get("key"), not(sameInstance(cache.get("key"))));
+    }
+
     @Test
     public void persistsRemovalOfEntries() {
         checkAddsAndRemoves(1, 2, 3, 4, 5);
@@ -220,7 +254,7 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile.assertIsFile();
         cacheFile.write("some junk");
 
-        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer);
+        BTreePersistentIndexedCache<String, Integer> cache = createCache((short) 512, 512);
 
         assertNull(cache.get("key_1"));
         cache.put("key_1", 99);
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import spock.lang.Specification
+
+class CachingBlockStoreTest extends Specification {
+    final BlockStore backingStore = Mock()
+    final store = new CachingBlockStore(backingStore, 250, TestBlock, OtherBlock)
+
+    def "reads block from backing store once"() {
+        def block = block(1, 100)
+
+        when:
+        def result1 = store.read(block.pos, TestBlock)
+        def result2 = store.read(block.pos, TestBlock)
+
+        then:
+        result1.is(block)
+        result2.is(block)
+        1 * backingStore.read(block.pos, TestBlock) >> block
+        0 * backingStore._
+
+        and:
+        store.statistics.startsWith("1 hits, 1 misses (50% hit rate), 0 evictions, 1 blocks (100 bytes) cached")
+    }
+
+    def "does not cache blocks of other types"() {
+        def block = new UncachedBlock()
+
+        when:
+        store.read(new BlockPointer(1), UncachedBlock)
+        store.read(new BlockPointer(1), UncachedBlock)
+
+        then:
+        2 * backingStore.read(new BlockPointer(1), UncachedBlock) >> block
+        0 * backingStore._
+
+        and:
+        store.statistics.startsWith("0 hits, 0 misses")
+    }
+
+    def "evicts least recently used blocks when the total size of the cached blocks exceeds the maximum"() {
+        def block1 = block(1, 100)
+        def block2 = block(2, 100)
+        def block3 = block(3, 100)
+
+        given:
+        backingStore.read(block1.pos, TestBlock) >> block1
+        backingStore.read(block2.pos, TestBlock) >> block2
+        backingStore.read(block3.pos, TestBlock) >> block3
+        store.read(block1.pos, TestBlock)
+        store.read(block2.pos, TestBlock)
+        store.read(block1.pos, TestBlock)
+
+        when:
+        store.read(block3.pos, TestBlock)
+        store.read(block1.pos, TestBlock)
+        store.read(block3.pos, TestBlock)
+        store.read(block2.pos, TestBlock)
+
+        then:
+        1 * backingStore.read(block2.pos, TestBlock) >> block2
+
+        and:
+        store.statistics == "3 hits, 4 misses (42% hit rate), 2 evictions, 2 blocks (200 bytes) cached"
+    }
+
+    def "evicts blocks of lower priority types before blocks of higher priority types"() {
+        def block1 = block(1, 100)
+        def block2 = new OtherBlock(new BlockPointer(2), 100)
+        def block3 = block(3, 100)
+
+        given:
+        backingStore.read(block1.pos, TestBlock) >> block1
+        backingStore.read(block2.pos, OtherBlock) >> block2
+        backingStore.read(block3.pos, TestBlock) >> block3
+        store.read(block1.pos, TestBlock)
+        store.read(block2.pos, OtherBlock)
+
+        when:
+        store.read(block3.pos, TestBlock)
+        store.read(block1.pos, TestBlock)
+        store.read(block3.pos, TestBlock)
+        store.read(block2.pos, OtherBlock)
+
+        then:
+        1 * backingStore.read(block2.pos, OtherBlock) >> block2
+
+        and:
+        store.statistics == "2 hits, 4 misses (33% hit rate), 2 evictions, 2 blocks (200 bytes) cached"
+    }
+
+    def "does not cache block that is larger than the maximum size"() {
+        def block = block(1, 300)
+
+        when:
+        store.read(block.pos, TestBlock)
+        store.read(block.pos, TestBlock)
+
+        then:
+        2 * backingStore.read(block.pos, TestBlock) >> block
+    }
+
+    def "discards removed block"() {
+        def block = block(1, 100)
+
+        given:
+        backingStore.read(block.pos, TestBlock) >> block
+        store.read(block.pos, TestBlock)
+
+        when:
+        store.remove(block)
+        store.read(block.pos, TestBlock)
+
+        then:
+        1 * backingStore.remove(block)
+        1 * backingStore.read(block.pos, TestBlock) >> block
+    }
+
+    def "written block is cached and flushed on close"() {
+        def block = block(1, 100)
+
+        when:
+        store.write(block)
+        store.close()
+
+        then:
+        1 * backingStore.attach(block)
+        1 * backingStore.write(block)
+        1 * backingStore.flush()
+        1 * backingStore.close()
+
+        when:
+        store.read(block.pos, TestBlock)
+
+        then:
+        1 * backingStore.read(block.pos, TestBlock) >> block
+    }
+
+    def "evicts blocks when a cached block grows"() {
+        def block1 = block(1, 100)
+        def block2 = block(2, 100)
+
+        given:
+        backingStore.read(block1.pos, TestBlock) >> block1
+        store.read(block1.pos, TestBlock)
+        store.write(block2)
+
+        when:
+        block2.size = 200
+        store.write(block2)
+
+        then:
+        store.statistics == "0 hits, 1 misses (0% hit rate), 1 evictions, 1 blocks (200 bytes) cached"
+
+        when:
+        store.read(block1.pos, TestBlock)
+
+        then:
+        1 * backingStore.read(block1.pos, TestBlock) >> block1
+    }
+
+    def "resets statistics when opened"() {
+        def block = block(1, 100)
+        backingStore.read(block.pos, TestBlock) >> block
+
+        given:
+        store.read(block.pos, TestBlock)
+        store.read(block.pos, TestBlock)
+        store.close()
+
+        when:
+        store.open(Mock(Runnable), Mock(BlockStore.Factory))
+
+        then:
+        store.statistics == "0 hits, 0 misses (0% hit rate), 0 evictions, 0 blocks (0 bytes) cached"
+    }
+
+    private static TestBlock block(long pos, int size) {
+        return new TestBlock(new BlockPointer(pos), size)
+    }
+
+    private static class TestBlock extends BlockPayload {
+        final BlockPointer pos
+        int size
+
+        TestBlock(BlockPointer pos, int size) {
+            this.pos = pos
+            this.size = size
+        }
+
+        @Override
+        BlockPointer getPos() {
+            return pos
+        }
+
+        @Override
+        protected int getSize() {
+            return size
+        }
+
+        @Override
+        protected int getType() {
+            return 1
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) {
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) {
+        }
+    }
+
+    private static class OtherBlock extends TestBlock {
+        OtherBlock(BlockPointer pos, int size) {
+            super(pos, size)
+        }
+    }
+
+    private static class UncachedBlock extends TestBlock {
+        UncachedBlock() {
+            super(new BlockPointer(1), 10)
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.messaging.serialize.DefaultSerializer;
+import org.gradle.test.fixtures.file.TestFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs the cache tests against a memory mapped cache file, and checks that a cache file written through a memory mapped region can be used after the process
+ * stops without closing the cache.
+ */
+public class MemoryMappedBTreePersistentIndexedCacheTest extends BTreePersistentIndexedCacheTest {
+    @Override
+    protected boolean isMemoryMapped() {
+        return true;
+    }
+
+    @Override
+    @Test
+    public void handlesBadlyFormedCacheFile() throws IOException {
+        // The file has unused space at its end while the cache is open, so truncate the file once the cache has been closed
+        cacheFile.write("some junk");
+
+        BTreePersistentIndexedCache<String, Integer> cache = createCache((short) 512, 512);
+
+        assertNull(cache.get("key_1"));
+        cache.put("key_1", 99);
+        cache.close();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        try {
+            file.setLength(file.length() - 10);
+        } finally {
+            file.close();
+        }
+
+        cache.reset();
+
+        assertNull(cache.get("key_1"));
+        cache.verify();
+    }
+
+    @Test
+    public void entriesAreVisibleToCacheThatDoesNotUseMemoryMappingBeforeCacheIsClosed() {
+        addEntries(cache, 0, 100);
+
+        BTreePersistentIndexedCache<String, Integer> other = createCacheWithoutMemoryMapping(cacheFile);
+        other.verify();
+        checkEntries(other, 0, 100);
+        other.close();
+    }
+
+    @Test
+    public void canReopenFileThatWasNotClosed() {
+        addEntries(cache, 0, 100);
+
+        BTreePersistentIndexedCache<String, Integer> reopened = createCache((short) 4, 100);
+        reopened.verify();
+        checkEntries(reopened, 0, 100);
+
+        addEntries(reopened, 100, 200);
+        reopened.verify();
+        reopened.reset();
+        reopened.verify();
+        checkEntries(reopened, 0, 200);
+    }
+
+    @Test
+    public void closeTrimsFileToTheLengthOfTheBlocks() {
+        TestFile otherFile = tmpDir.file("other.bin");
+        BTreePersistentIndexedCache<String, Integer> other = createCacheWithoutMemoryMapping(otherFile);
+        addEntries(cache, 0, 100);
+        addEntries(other, 0, 100);
+
+        cache.close();
+        other.close();
+
+        assertThat(cacheFile.length(), equalTo(otherFile.length()));
+    }
+
+    @Test
+    public void fileThatWasNotClosedCanBeUsedByCacheThatDoesNotUseMemoryMapping() {
+        addEntries(cache, 0, 100);
+        assertThat(cacheFile.length(), greaterThan(0L));
+
+        BTreePersistentIndexedCache<String, Integer> other = createCacheWithoutMemoryMapping(cacheFile);
+        addEntries(other, 100, 200);
+        other.reset();
+        other.verify();
+        checkEntries(other, 0, 200);
+        other.close();
+    }
+
+    @Test
+    public void treatsFileWithClearedFirstByteAsEmpty() throws IOException {
+        cache.close();
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        try {
+            file.setLength(64 * 1024);
+        } finally {
+            file.close();
+        }
+
+        BTreePersistentIndexedCache<String, Integer> cache = createCache((short) 4, 100);
+        assertNull(cache.get("key_1"));
+        addEntries(cache, 0, 10);
+        cache.reset();
+        cache.verify();
+        checkEntries(cache, 0, 10);
+        cache.close();
+    }
+
+    @Test
+    public void usesLengthTrailerOfFileThatCouldNotBeTrimmed() throws IOException {
+        addEntries(cache, 0, 100);
+        cache.close();
+        long length = cacheFile.length();
+
+        // Simulates a platform that cannot truncate a mapped file
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        try {
+            file.setLength(64 * 1024);
+            file.seek(file.length() - 12);
+            file.writeLong(length);
+            file.writeInt(0x4C454E47);
+        } finally {
+            file.close();
+        }
+
+        BTreePersistentIndexedCache<String, Integer> cache = createCache((short) 4, 100);
+        cache.verify();
+        checkEntries(cache, 0, 100);
+        addEntries(cache, 100, 200);
+        cache.close();
+        assertThat(cacheFile.length(), lessThan(64 * 1024L));
+
+        BTreePersistentIndexedCache<String, Integer> other = createCacheWithoutMemoryMapping(cacheFile);
+        other.verify();
+        checkEntries(other, 0, 200);
+        other.close();
+    }
+
+    @Test
+    public void fileWithLengthTrailerIsTrimmedByCacheThatDoesNotUseMemoryMapping() throws IOException {
+        addEntries(cache, 0, 100);
+        cache.close();
+        long length = cacheFile.length();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        try {
+            file.setLength(64 * 1024);
+            file.seek(file.length() - 12);
+            file.writeLong(length);
+            file.writeInt(0x4C454E47);
+        } finally {
+            file.close();
+        }
+
+        BTreePersistentIndexedCache<String, Integer> other = createCacheWithoutMemoryMapping(cacheFile);
+        other.verify();
+        checkEntries(other, 0, 100);
+        other.close();
+        assertThat(cacheFile.length(), equalTo(length));
+    }
+
+    @Test
+    public void detectsBlocksLostWhenFileIsTruncated() throws IOException {
+        addEntries(cache, 0, 100);
+        cache.close();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        try {
+            file.setLength(file.length() / 2);
+        } finally {
+            file.close();
+        }
+
+        BTreePersistentIndexedCache<String, Integer> cache = createCache((short) 4, 100);
+        for (int i = 0; i < 100; i++) {
+            Integer value = cache.get(String.format("key_%d", i));
+            assertThat(value, anyOf(nullValue(), equalTo(i)));
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    private BTreePersistentIndexedCache<String, Integer> createCacheWithoutMemoryMapping(TestFile file) {
+        return new BTreePersistentIndexedCache<String, Integer>(file, new DefaultSerializer<String>(), new DefaultSerializer<Integer>(), (short) 4, 100,
+                BTreePersistentIndexedCache.DEFAULT_BLOCK_CACHE_SIZE, false);
+    }
+
+    private void addEntries(BTreePersistentIndexedCache<String, Integer> cache, int start, int end) {
+        for (int i = start; i < end; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+    }
+
+    private void checkEntries(BTreePersistentIndexedCache<String, Integer> cache, int start, int end) {
+        for (int i = start; i < end; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i));
+        }
+    }
+}
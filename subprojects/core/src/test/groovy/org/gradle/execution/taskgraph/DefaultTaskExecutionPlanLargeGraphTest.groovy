@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.Task
+import org.gradle.api.internal.project.DefaultProject
+import org.gradle.util.TestUtil
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+
+/**
+ * Schedules synthetic task graphs of increasing size, to make sure that the cost of picking the next task does not grow with the size of the plan.
+ */
+class DefaultTaskExecutionPlanLargeGraphTest extends Specification {
+    DefaultProject project = TestUtil.createRootProject()
+    DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan()
+
+    @Unroll
+    @Timeout(120)
+    def "schedules graph of #taskCount tasks in dependency order"() {
+        given:
+        def tasks = createGraph(taskCount)
+        executionPlan.addToTaskGraph(tasks)
+        executionPlan.determineExecutionPlan()
+
+        when:
+        def executed = new LinkedHashSet<Task>()
+        def taskInfo
+        while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+            def task = taskInfo.task
+            assert executed.containsAll(task.taskDependencies.getDependencies(task))
+            executed << task
+            executionPlan.taskComplete(taskInfo)
+        }
+        executionPlan.awaitCompletion()
+
+        then:
+        executed.size() == taskCount
+
+        where:
+        taskCount << [1000, 10000, 100000]
+    }
+
+    private List<Task> createGraph(int taskCount) {
+        def random = new Random(taskCount)
+        def tasks = []
+        taskCount.times { i ->
+            def task = TestUtil.createTask(DefaultTask, project, "task$i")
+            if (i > 0) {
+                3.times {
+                    task.dependsOn(tasks[random.nextInt(i)])
+                }
+            }
+            tasks << task
+        }
+        return tasks
+    }
+}
@@ -19,13 +19,18 @@ package org.gradle.execution.taskgraph
 import org.gradle.api.CircularReferenceException
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
+import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.project.DefaultProject
 import org.gradle.api.specs.Spec
 import org.gradle.api.tasks.TaskDependency
+import org.gradle.api.tasks.TaskInputs
 import org.gradle.api.tasks.TaskState
 import org.gradle.execution.TaskFailureHandler
 import org.gradle.util.TextUtil
 import spock.lang.Specification
+import spock.lang.Unroll
 
 import static org.gradle.util.TestUtil.createChildProject
 import static org.gradle.util.TestUtil.createRootProject
@@ -644,6 +649,174 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         t3.task.project != t4.task.project
     }
 
+    def "starts a task blocked by a running task of its project once that task completes"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+        def fooA = projectA.task("foo")
+        def barA = projectA.task("bar")
+        def fooB = projectB.task("foo")
+        def barB = projectB.task("bar")
+        addToGraphAndPopulate([barA, fooA, barB, fooB])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == barA
+        t2.task == barB
+
+        when:
+        executionPlan.taskComplete(t2)
+        def t3 = executionPlan.getTaskToExecute()
+        executionPlan.taskComplete(t1)
+        def t4 = executionPlan.getTaskToExecute()
+
+        then:
+        t3.task == fooB
+        t4.task == fooA
+    }
+
+    def "tasks of the same project with separate files are executed in parallel when enabled"() {
+        given:
+        executionPlan = new DefaultTaskExecutionPlan(true, null)
+        def a = taskWithFiles("a", [new File("src/a")], [new File("build/a")])
+        def b = taskWithFiles("b", [new File("src/b")], [new File("build/b")])
+        addToGraphAndPopulate([a, b])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == a
+        t2.task == b
+    }
+
+    def "tasks of the same project are not executed in parallel when not enabled"() {
+        given:
+        def a = taskWithFiles("a", [new File("src/a")], [new File("build/a")])
+        def b = taskWithFiles("b", [new File("src/b")], [new File("build/b")])
+        addToGraphAndPopulate([a, b])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        executionPlan.taskComplete(t1)
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == a
+        t2.task == b
+        0 * a.getOutputs()
+        0 * b.getOutputs()
+    }
+
+    @Unroll
+    def "does not execute tasks of the same project in parallel when #description"() {
+        given:
+        executionPlan = new DefaultTaskExecutionPlan(true, null)
+        def a = taskWithFiles("a", aInputs, aOutputs)
+        def b = taskWithFiles("b", bInputs, bOutputs)
+        def c = taskWithFiles("c", [], [new File("build/c")])
+        addToGraphAndPopulate([a, b, c])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == a
+        t2.task == c
+
+        when:
+        executionPlan.taskComplete(t1)
+        executionPlan.taskComplete(t2)
+        def t3 = executionPlan.getTaskToExecute()
+
+        then:
+        t3.task == b
+
+        where:
+        description                          | aInputs                 | aOutputs                | bInputs                   | bOutputs
+        "outputs overlap"                    | []                      | [new File("build/a")]   | []                        | [new File("build/a/b")]
+        "one reads the output of the other"  | []                      | [new File("build/a")]   | [new File("build/a/x")]   | [new File("build/b")]
+        "one writes to the input of another" | [new File("src/a/x")]   | [new File("build/a")]   | []                        | [new File("src")]
+        "one has no declared outputs"        | []                      | [new File("build/a")]   | []                        | []
+    }
+
+    def "starts the longest chain of tasks first when durations are known"() {
+        given:
+        TaskDurationRepository durationRepository = Mock()
+        executionPlan = new DefaultTaskExecutionPlan(false, durationRepository)
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+        def foo = projectA.task("foo")
+        def compile = projectB.task("compile")
+        def test = projectB.task("test").dependsOn(compile)
+        1 * durationRepository.getDurations([":a:foo", ":b:compile", ":b:test"]) >> [":a:foo": 150L, ":b:compile": 100L, ":b:test": 100L]
+        addToGraphAndPopulate([foo, test])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        0 * durationRepository._
+        t1.task == compile
+        t2.task == foo
+    }
+
+    def "keeps the order of the tasks of a project when durations are known"() {
+        given:
+        TaskDurationRepository durationRepository = Mock()
+        executionPlan = new DefaultTaskExecutionPlan(false, durationRepository)
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+        def clean = projectA.task("clean")
+        def build = projectA.task("build")
+        def foo = projectB.task("foo")
+        executionPlan.addToTaskGraph([clean])
+        executionPlan.addToTaskGraph([build, foo])
+        1 * durationRepository.getDurations(_) >> [":a:clean": 1L, ":a:build": 200L, ":b:foo": 100L]
+        executionPlan.determineExecutionPlan()
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == clean
+        t2.task == foo
+    }
+
+    def "records the durations of the tasks that did work"() {
+        given:
+        TaskDurationRepository durationRepository = Mock()
+        executionPlan = new DefaultTaskExecutionPlan(false, durationRepository)
+        def a = root.task("a")
+        def b = root.task("b")
+        def c = root.task("c")
+        1 * durationRepository.getDurations(_) >> [:]
+        addToGraphAndPopulate([a, b, c])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        executionPlan.taskComplete(t1)
+        def t2 = executionPlan.getTaskToExecute()
+        b.state.upToDate()
+        executionPlan.taskComplete(t2)
+        def t3 = executionPlan.getTaskToExecute()
+        c.state.executed(new RuntimeException("broken"))
+        executionPlan.useFailureHandler(createIgnoreTaskFailureHandler(c))
+        executionPlan.taskComplete(t3)
+        executionPlan.awaitCompletion()
+
+        then:
+        1 * durationRepository.updateDurations({ it.keySet() == [":a"] as Set })
+        thrown(RuntimeException)
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -708,6 +881,19 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         finalizedBy(task, options.finalizedBy ?: [])
     }
 
+    private TaskInternal taskWithFiles(final String name, List<File> inputFiles, List<File> outputFiles) {
+        def task = task(name)
+        TaskInputs inputs = Mock()
+        TaskOutputsInternal outputs = Mock()
+        task.getInputs() >> inputs
+        task.getOutputs() >> outputs
+        inputs.getHasInputs() >> !inputFiles.empty
+        inputs.getFiles() >> new SimpleFileCollection(inputFiles)
+        outputs.getHasOutput() >> !outputFiles.empty
+        outputs.getFiles() >> new SimpleFileCollection(outputFiles)
+        return task
+    }
+
     private TaskInternal filteredTask(final String name) {
         def task = createTask(name);
         task.getTaskDependencies() >> brokenDependencies()
@@ -83,7 +83,7 @@ public class DefaultTaskGraphExecuterTest {
                 }
             });
         }});
-        taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(taskArtifactStateCacheAccess));
+        taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(taskArtifactStateCacheAccess), false, null);
     }
 
     @Test
@@ -575,6 +575,10 @@ public class DefaultTaskGraphExecuterTest {
             action.run();
         }
 
+        public void useCacheConcurrently(String operationDisplayName, Runnable action) {
+            action.run();
+        }
+
         public void longRunningOperation(String operationDisplayName, Runnable action) {
             action.run();
         }
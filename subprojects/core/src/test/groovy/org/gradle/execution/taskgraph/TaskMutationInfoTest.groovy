@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileTree
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.tasks.TaskInputs
+import spock.lang.Specification
+
+class TaskMutationInfoTest extends Specification {
+
+    def "tasks with separate files do not conflict"() {
+        def a = mutationInfo([file("src/a")], [file("build/a")])
+        def b = mutationInfo([file("src/b")], [file("build/b")])
+
+        expect:
+        !a.conflictsWith(b)
+        !b.conflictsWith(a)
+    }
+
+    def "tasks that read the same files do not conflict"() {
+        def a = mutationInfo([file("src/shared")], [file("build/a")])
+        def b = mutationInfo([file("src/shared")], [file("build/b")])
+
+        expect:
+        !a.conflictsWith(b)
+    }
+
+    def "tasks conflict when #description"() {
+        def a = mutationInfo(aInputs, aOutputs)
+        def b = mutationInfo(bInputs, bOutputs)
+
+        expect:
+        a.conflictsWith(b)
+        b.conflictsWith(a)
+
+        where:
+        description                                   | aInputs                     | aOutputs              | bInputs                     | bOutputs
+        "they write the same file"                    | []                          | [file("build/out")]   | []                          | [file("build/out")]
+        "one writes into the output dir of the other" | []                          | [file("build")]       | []                          | [file("build/b")]
+        "one reads a file the other writes"           | []                          | [file("build/a")]     | [file("build/a/x.class")]   | [file("build/b")]
+        "one writes into a dir the other reads"       | [file("src")]               | [file("build/a")]     | []                          | [file("src/generated")]
+    }
+
+    def "task without declared outputs conflicts with everything"() {
+        def a = mutationInfo([file("src/a")], [])
+        def b = mutationInfo([file("src/b")], [file("build/b")])
+
+        expect:
+        a.conflictsWith(b)
+        b.conflictsWith(a)
+    }
+
+    def "task whose files cannot be determined conflicts with everything"() {
+        TaskInternal task = Mock()
+        TaskOutputsInternal outputs = Mock()
+        task.getOutputs() >> outputs
+        outputs.getHasOutput() >> true
+        outputs.getFiles() >> { throw new RuntimeException("broken") }
+        def b = mutationInfo([file("src/b")], [file("build/b")])
+
+        expect:
+        TaskMutationInfo.of(task).conflictsWith(b)
+    }
+
+    def "uses the base directory of an input directory tree without visiting its contents"() {
+        def a = mutationInfo(new FileTreeAdapter(new DirectoryFileTree(file("src/a"))), [file("build/a")])
+        def b = mutationInfo([file("src/b")], [file("src/a/generated")])
+        def c = mutationInfo([file("src/c")], [file("build/c")])
+
+        expect:
+        a.conflictsWith(b)
+        b.conflictsWith(a)
+        !a.conflictsWith(c)
+    }
+
+    def "task with an input tree that is not backed by local directories conflicts with everything"() {
+        FileTree tree = Mock()
+        def a = mutationInfo(tree, [file("build/a")])
+        def b = mutationInfo([file("src/b")], [file("build/b")])
+
+        expect:
+        a.conflictsWith(b)
+    }
+
+    private TaskMutationInfo mutationInfo(List<File> inputFiles, List<File> outputFiles) {
+        return mutationInfo(new SimpleFileCollection(inputFiles), outputFiles)
+    }
+
+    private TaskMutationInfo mutationInfo(FileCollection inputFiles, List<File> outputFiles) {
+        TaskInternal task = Mock()
+        TaskInputs inputs = Mock()
+        TaskOutputsInternal outputs = Mock()
+        task.getInputs() >> inputs
+        task.getOutputs() >> outputs
+        inputs.getHasInputs() >> true
+        inputs.getFiles() >> inputFiles
+        outputs.getHasOutput() >> !outputFiles.empty
+        outputs.getFiles() >> new SimpleFileCollection(outputFiles)
+        return TaskMutationInfo.of(task)
+    }
+
+    private static File file(String path) {
+        return new File("/root", path)
+    }
+}
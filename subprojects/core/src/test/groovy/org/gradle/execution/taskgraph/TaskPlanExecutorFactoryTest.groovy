@@ -25,7 +25,7 @@ public class TaskPlanExecutorFactoryTest extends Specification {
 
     def "creates a default executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(cache, 0)
+        def factory = new TaskPlanExecutorFactory(cache, 0, false)
 
         then:
         factory.create().class == DefaultTaskPlanExecutor
@@ -33,7 +33,7 @@ public class TaskPlanExecutorFactoryTest extends Specification {
 
     def "creates a parallel executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(cache, parallelExecuterCount)
+        def factory = new TaskPlanExecutorFactory(cache, parallelExecuterCount, false)
 
         then:
         factory.create().class == ParallelTaskPlanExecutor
@@ -69,6 +69,7 @@ public class DefaultCommandLineConverterTest {
     private boolean expectedRecompileScripts;
     private int expectedParallelExecutorCount;
     private boolean expectedConfigureOnDemand;
+    private boolean expectedParallelTasksWithinProject;
 
     @Test
     public void withoutAnyOptions() {
@@ -109,6 +110,7 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedProjectCacheDir, startParameter.getProjectCacheDir());
         assertEquals(expectedParallelExecutorCount, startParameter.getParallelThreadCount());
         assertEquals(expectedConfigureOnDemand, startParameter.isConfigureOnDemand());
+        assertEquals(expectedParallelTasksWithinProject, startParameter.isParallelTasksWithinProject());
     }
 
     @Test
@@ -405,6 +407,12 @@ public class DefaultCommandLineConverterTest {
         checkConversion("--parallel-threads", "foo");
     }
 
+    @Test
+    public void withParallelTasksWithinProject() {
+        expectedParallelTasksWithinProject = true;
+        checkConversion("--parallel-tasks");
+    }
+
     @Test
     public void withConfigureOnDemand() {
         expectedConfigureOnDemand = true;
@@ -68,18 +68,20 @@ public class BuildScopeServicesTest extends Specification {
     ClosableCacheFactory cacheFactory = Mock()
     ClassLoaderRegistry classLoaderRegistry = Mock()
 
-    BuildScopeServices registry = new BuildScopeServices(parent, startParameter)
+    BuildScopeServices registry
 
     def setup() {
         startParameter.gradleUserHomeDir = tmpDir.testDirectory
         parent.getFactory(CacheFactory) >> cacheFactoryFactory
         cacheFactoryFactory.create() >> cacheFactory
         parent.get(ClassLoaderRegistry) >> classLoaderRegistry
+        classLoaderRegistry.pluginsClassLoader >> new ClassLoader(getClass().classLoader) {}
         parent.getFactory(LoggingManagerInternal) >> Stub(Factory)
         parent.get(ModuleRegistry) >> new DefaultModuleRegistry()
         parent.get(PluginModuleRegistry) >> Stub(PluginModuleRegistry)
         parent.get(Instantiator) >> ThreadGlobalInstantiator.getOrCreate()
         parent.get(FileResolver) >> Stub(FileResolver)
+        registry = new BuildScopeServices(parent, startParameter)
     }
 
     def delegatesToParentForUnknownService() {
@@ -17,6 +17,7 @@
 package org.gradle.internal.service.scopes;
 
 import org.gradle.api.internal.*;
+import org.gradle.api.internal.changedetection.state.InMemoryFileHashCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -134,6 +135,11 @@ public class GlobalScopeServicesTest {
         assertThat(registry.get(ExecutorFactory.class), instanceOf(DefaultExecutorFactory.class));
     }
 
+    @Test
+    public void providesAnInMemoryFileHashCache() {
+        assertThat(registry.get(InMemoryFileHashCache.class), notNullValue());
+    }
+
     @Test
     public void providesAFileLockManager() {
         assertThat(registry.get(FileLockManager.class), instanceOf(DefaultFileLockManager.class));
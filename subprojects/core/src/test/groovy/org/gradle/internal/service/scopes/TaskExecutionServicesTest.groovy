@@ -16,12 +16,14 @@
 package org.gradle.internal.service.scopes
 
 import org.gradle.StartParameter
+import org.gradle.api.internal.changedetection.state.InMemoryFileHashCache
 import org.gradle.api.internal.tasks.TaskExecuter
 import org.gradle.api.internal.tasks.execution.ExecuteAtMostOnceTaskExecuter
 import org.gradle.api.invocation.Gradle
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.DirectoryCacheBuilder
 import org.gradle.cache.PersistentCache
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.reflect.Instantiator
 import org.gradle.internal.service.ServiceRegistry
 import org.gradle.listener.ListenerManager
@@ -44,6 +46,8 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.get(StartParameter) >> startParameter
         _ * parent.get(CacheRepository) >> cacheRepository
         _ * parent.get(Instantiator) >> instantiator
+        _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
+        _ * parent.get(InMemoryFileHashCache) >> new InMemoryFileHashCache()
         _ * cacheRepository.cache(!null) >> cacheBuilder
         _ * cacheBuilder.forObject(gradle) >> cacheBuilder
         _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
@@ -29,4 +29,8 @@ class TestExecutorFactory implements ExecutorFactory {
     StoppableExecutor create(String displayName) {
         return new TestStoppableExecutor(executor)
     }
+
+    StoppableExecutor create(String displayName, int fixedSize) {
+        return new TestStoppableExecutor(executor)
+    }
 }
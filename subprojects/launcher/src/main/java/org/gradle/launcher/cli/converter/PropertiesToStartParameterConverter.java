@@ -31,6 +31,10 @@ public class PropertiesToStartParameterConverter {
         if (isTrue(parallel)) {
             startParameter.setParallelThreadCount(-1);
         }
+
+        if (isTrue(properties.get(GradleProperties.PARALLEL_TASKS_PROPERTY))) {
+            startParameter.setParallelTasksWithinProject(true);
+        }
         return startParameter;
     }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.tooling.internal.provider;
 
+import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 
@@ -24,4 +25,8 @@ public class ToolingServices implements PluginServiceRegistry {
         return new ToolingGlobalScopeServices();
     }
 
+    public ServiceRegistry createBuildServices(ServiceRegistry parent) {
+        return new DefaultServiceRegistry();
+    }
+
 }
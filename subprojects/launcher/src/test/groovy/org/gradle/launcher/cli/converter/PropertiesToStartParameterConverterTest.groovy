@@ -21,6 +21,7 @@ import spock.lang.Specification
 
 import static org.gradle.launcher.daemon.configuration.GradleProperties.CONFIGURE_ON_DEMAND_PROPERTY
 import static org.gradle.launcher.daemon.configuration.GradleProperties.PARALLEL_PROPERTY
+import static org.gradle.launcher.daemon.configuration.GradleProperties.PARALLEL_TASKS_PROPERTY
 
 class PropertiesToStartParameterConverterTest extends Specification {
 
@@ -32,5 +33,7 @@ class PropertiesToStartParameterConverterTest extends Specification {
         converter.convert([(PARALLEL_PROPERTY): "false"], new StartParameter()).parallelThreadCount == 0
         converter.convert([(CONFIGURE_ON_DEMAND_PROPERTY): "TRUE"], new StartParameter()).configureOnDemand
         !converter.convert([(CONFIGURE_ON_DEMAND_PROPERTY): "xxx"], new StartParameter()).configureOnDemand
+        converter.convert([(PARALLEL_TASKS_PROPERTY): "true"], new StartParameter()).parallelTasksWithinProject
+        !converter.convert([(PARALLEL_TASKS_PROPERTY): "false"], new StartParameter()).parallelTasksWithinProject
     }
 }
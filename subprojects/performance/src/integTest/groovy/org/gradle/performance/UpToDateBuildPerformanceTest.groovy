@@ -41,5 +41,6 @@ class UpToDateBuildPerformanceTest extends AbstractPerformanceTest {
         "small"           | millis(500)
         "multi"           | millis(1000)
         "lotDependencies" | millis(1000)
+        "manySourceFiles" | millis(1000)
     }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the information needed to decide what to recompile from a class file: the classes it refers to, the source file it was compiled from, and
+ * whether other classes may depend on it in ways that do not show in their class files.
+ *
+ * <p>Every class that the code of a class uses has an entry in the constant pool, as do its super class, interfaces and nested classes. The types that only
+ * appear in the descriptors of members and annotations are found by looking for type descriptors in the strings of the constant pool. This may find some
+ * classes that are not really used, which only means that a few more classes are considered affected by a change.</p>
+ */
+public class ClassDependenciesAnalyzer {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final Pattern TYPE_DESCRIPTOR = Pattern.compile("L([^;\\[()<>.]+)[;<]");
+
+    public ClassDependencyInfo.ClassInfo analyze(InputStream classFile) throws IOException {
+        DataInputStream input = new DataInputStream(classFile);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        input.readUnsignedShort(); // minor version
+        input.readUnsignedShort(); // major version
+
+        int count = input.readUnsignedShort();
+        String[] strings = new String[count];
+        int[] classNameIndexes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    strings[i] = input.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = input.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                    skip(input, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(input, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 18: // InvokeDynamic
+                    skip(input, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(input, 8);
+                    i++; // Takes two entries
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown constant pool tag %s.", tag));
+            }
+        }
+        int access = input.readUnsignedShort();
+        String className = strings[classNameIndexes[input.readUnsignedShort()]];
+        input.readUnsignedShort(); // super class
+        skip(input, 2 * input.readUnsignedShort()); // interfaces
+
+        // The compiler copies the value of a constant into the classes that use it, so these classes do not refer to this class
+        boolean hasConstants = false;
+        int fieldCount = input.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            int fieldAccess = input.readUnsignedShort();
+            skip(input, 4); // name and descriptor
+            int attributeCount = input.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = strings[input.readUnsignedShort()];
+                skip(input, input.readInt());
+                if ((fieldAccess & ACC_PRIVATE) == 0 && "ConstantValue".equals(attributeName)) {
+                    hasConstants = true;
+                }
+            }
+        }
+        int methodCount = input.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            skip(input, 6); // access, name and descriptor
+            int attributeCount = input.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                skip(input, 2);
+                skip(input, input.readInt());
+            }
+        }
+        String sourceFile = null;
+        int attributeCount = input.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = strings[input.readUnsignedShort()];
+            int length = input.readInt();
+            if ("SourceFile".equals(attributeName)) {
+                sourceFile = strings[input.readUnsignedShort()];
+            } else {
+                skip(input, length);
+            }
+        }
+
+        Set<String> dependencies = new TreeSet<String>();
+        boolean retention = false;
+        boolean sourceRetention = false;
+        for (int classNameIndex : classNameIndexes) {
+            if (classNameIndex != 0) {
+                addClassName(strings[classNameIndex], dependencies);
+            }
+        }
+        for (String string : strings) {
+            if (string != null && string.indexOf(';') > 0) {
+                Matcher matcher = TYPE_DESCRIPTOR.matcher(string);
+                while (matcher.find()) {
+                    dependencies.add(matcher.group(1));
+                }
+                retention |= string.equals("Ljava/lang/annotation/Retention;");
+            }
+            sourceRetention |= "SOURCE".equals(string);
+        }
+        dependencies.remove(className);
+
+        // Annotations retained only in the source do not appear in the class files that use them
+        boolean dependencyToAll = hasConstants || (access & ACC_ANNOTATION) != 0 && retention && sourceRetention;
+        return new ClassDependencyInfo.ClassInfo(sourcePath(className, sourceFile), dependencyToAll, dependencies.toArray(new String[dependencies.size()]));
+    }
+
+    private static String sourcePath(String className, String sourceFile) {
+        if (sourceFile != null) {
+            int separator = className.lastIndexOf('/');
+            return separator < 0 ? sourceFile : className.substring(0, separator + 1) + sourceFile;
+        }
+        // Compiled without debug information, so guess the source file from the name of the top level class
+        int nested = className.indexOf('$');
+        return (nested < 0 ? className : className.substring(0, nested)) + ".java";
+    }
+
+    private void addClassName(String name, Set<String> dependencies) {
+        if (name.startsWith("[")) {
+            // An array type, so the name is a descriptor
+            Matcher matcher = TYPE_DESCRIPTOR.matcher(name);
+            if (matcher.find()) {
+                dependencies.add(matcher.group(1));
+            }
+        } else {
+            dependencies.add(name);
+        }
+    }
+
+    private static void skip(DataInputStream input, int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            int skipped = input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+}
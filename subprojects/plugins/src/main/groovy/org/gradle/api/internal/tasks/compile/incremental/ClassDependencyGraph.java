@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A set of classes along with the classes each of them refers to, as found by {@link ClassDependenciesAnalyzer}, which can be kept in a file between builds.
+ *
+ * <p>Classes are identified by their internal name. Subclasses add the information they need about each class, and about the graph as a whole.</p>
+ *
+ * @param <T> The type of the information about each class.
+ */
+public abstract class ClassDependencyGraph<T extends ClassDependencyGraph.Node> {
+    private static final Logger LOGGER = Logging.getLogger(ClassDependencyGraph.class);
+
+    private final Map<String, T> classes = new HashMap<String, T>();
+
+    /**
+     * Reads the contents of the given graph from the given file. Returns null when there is no graph, or when it cannot be read.
+     */
+    protected static <G extends ClassDependencyGraph<?>> G read(File graphFile, G graph) {
+        if (!graphFile.isFile()) {
+            return null;
+        }
+        ClassDependencyGraph<?> target = graph;
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(graphFile));
+            try {
+                return target.read(new Input(inputStream)) ? graph : null;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not read class dependencies from %s.", graphFile), e);
+            return null;
+        }
+    }
+
+    private boolean read(Input input) {
+        if (input.readInt(true) != getVersion()) {
+            return false;
+        }
+        readHeader(input);
+        int classCount = input.readInt(true);
+        for (int i = 0; i < classCount; i++) {
+            String className = input.readString();
+            String[] dependencies = new String[input.readInt(true)];
+            for (int j = 0; j < dependencies.length; j++) {
+                dependencies[j] = input.readString();
+            }
+            addClass(className, readClass(input, dependencies));
+        }
+        return true;
+    }
+
+    public void write(File graphFile) {
+        try {
+            OutputStream outputStream = new FileOutputStream(graphFile);
+            try {
+                Output output = new Output(outputStream);
+                write(output);
+                output.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(Output output) {
+        output.writeInt(getVersion(), true);
+        writeHeader(output);
+        output.writeInt(classes.size(), true);
+        for (Map.Entry<String, T> entry : classes.entrySet()) {
+            T node = entry.getValue();
+            output.writeString(entry.getKey());
+            output.writeInt(node.getDependencies().length, true);
+            for (String dependency : node.getDependencies()) {
+                output.writeString(dependency);
+            }
+            writeClass(output, node);
+        }
+    }
+
+    /**
+     * Returns the version of the file format, which changes whenever the format of the header or of the classes changes.
+     */
+    protected abstract int getVersion();
+
+    protected abstract void readHeader(Input input);
+
+    protected abstract void writeHeader(Output output);
+
+    protected abstract T readClass(Input input, String[] dependencies);
+
+    protected abstract void writeClass(Output output, T node);
+
+    public T getClass(String className) {
+        return classes.get(className);
+    }
+
+    public boolean hasClass(String className) {
+        return classes.containsKey(className);
+    }
+
+    public void addClass(String className, T node) {
+        classes.put(className, node);
+    }
+
+    /**
+     * Removes the given class, returning the information about it, or null when there is no such class.
+     */
+    public T removeClass(String className) {
+        return classes.remove(className);
+    }
+
+    protected Map<String, T> getClasses() {
+        return classes;
+    }
+
+    /**
+     * Returns the classes that depend on any of the given classes, directly or indirectly, not including the given classes.
+     */
+    public Set<String> getDependents(Collection<String> classNames) {
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        for (Map.Entry<String, T> entry : classes.entrySet()) {
+            for (String dependency : entry.getValue().getDependencies()) {
+                List<String> classDependents = dependents.get(dependency);
+                if (classDependents == null) {
+                    classDependents = new ArrayList<String>();
+                    dependents.put(dependency, classDependents);
+                }
+                classDependents.add(entry.getKey());
+            }
+        }
+
+        Set<String> result = new HashSet<String>();
+        LinkedList<String> queue = new LinkedList<String>(classNames);
+        while (!queue.isEmpty()) {
+            List<String> classDependents = dependents.get(queue.removeFirst());
+            if (classDependents != null) {
+                for (String dependent : classDependents) {
+                    if (!classNames.contains(dependent) && result.add(dependent)) {
+                        queue.add(dependent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public static class Node {
+        private final String[] dependencies;
+
+        /**
+         * @param dependencies The classes the class refers to.
+         */
+        public Node(String[] dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        public String[] getDependencies() {
+            return dependencies;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The classes produced by a compilation, along with the source file each class was compiled from and the classes it refers to.
+ *
+ * <p>Classes are identified by their internal name. Source files are identified by their path relative to the source directory they were found in.</p>
+ */
+public class ClassDependencyInfo extends ClassDependencyGraph<ClassDependencyInfo.ClassInfo> {
+    private static final int INFO_VERSION = 2;
+
+    private final Map<String, String> sourceFiles = new HashMap<String, String>();
+    private final Map<String, Set<String>> classesBySource = new HashMap<String, Set<String>>();
+
+    /**
+     * Reads the information from the given file. Returns null when there is no information, or when it cannot be read.
+     */
+    public static ClassDependencyInfo read(File infoFile) {
+        return read(infoFile, new ClassDependencyInfo());
+    }
+
+    @Override
+    protected int getVersion() {
+        return INFO_VERSION;
+    }
+
+    @Override
+    protected void readHeader(Input input) {
+        int sourceFileCount = input.readInt(true);
+        for (int i = 0; i < sourceFileCount; i++) {
+            sourceFiles.put(input.readString(), input.readString());
+        }
+    }
+
+    @Override
+    protected void writeHeader(Output output) {
+        output.writeInt(sourceFiles.size(), true);
+        for (Map.Entry<String, String> entry : sourceFiles.entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeString(entry.getValue());
+        }
+    }
+
+    @Override
+    protected ClassInfo readClass(Input input, String[] dependencies) {
+        String sourcePath = input.readString();
+        boolean dependencyToAll = input.readBoolean();
+        return new ClassInfo(sourcePath, dependencyToAll, dependencies);
+    }
+
+    @Override
+    protected void writeClass(Output output, ClassInfo classInfo) {
+        output.writeString(classInfo.sourcePath);
+        output.writeBoolean(classInfo.dependencyToAll);
+    }
+
+    /**
+     * Returns the relative paths of the source files that were compiled, by absolute path.
+     */
+    public Map<String, String> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    public void setSourceFiles(Map<String, String> sourceFiles) {
+        this.sourceFiles.clear();
+        this.sourceFiles.putAll(sourceFiles);
+    }
+
+    @Override
+    public void addClass(String className, ClassInfo classInfo) {
+        removeClass(className);
+        super.addClass(className, classInfo);
+        Set<String> classesFromSource = classesBySource.get(classInfo.sourcePath);
+        if (classesFromSource == null) {
+            classesFromSource = new HashSet<String>();
+            classesBySource.put(classInfo.sourcePath, classesFromSource);
+        }
+        classesFromSource.add(className);
+    }
+
+    @Override
+    public ClassInfo removeClass(String className) {
+        ClassInfo classInfo = super.removeClass(className);
+        if (classInfo == null) {
+            return null;
+        }
+        Set<String> classesFromSource = classesBySource.get(classInfo.sourcePath);
+        classesFromSource.remove(className);
+        if (classesFromSource.isEmpty()) {
+            classesBySource.remove(classInfo.sourcePath);
+        }
+        return classInfo;
+    }
+
+    /**
+     * Returns the classes compiled from the source file with the given relative path.
+     */
+    public Set<String> getClassesFromSource(String sourcePath) {
+        Set<String> classesFromSource = classesBySource.get(sourcePath);
+        return classesFromSource == null ? new HashSet<String>() : new HashSet<String>(classesFromSource);
+    }
+
+    public static class ClassInfo extends ClassDependencyGraph.Node {
+        private final String sourcePath;
+        private final boolean dependencyToAll;
+
+        /**
+         * @param sourcePath The relative path of the source file the class was compiled from.
+         * @param dependencyToAll Whether a change to the class may affect classes that do not refer to it, such as when it declares constants.
+         * @param dependencies The classes the class refers to.
+         */
+        public ClassInfo(String sourcePath, boolean dependencyToAll, String[] dependencies) {
+            super(dependencies);
+            this.sourcePath = sourcePath;
+            this.dependencyToAll = dependencyToAll;
+        }
+
+        public String getSourcePath() {
+            return sourcePath;
+        }
+
+        public boolean isDependencyToAll() {
+            return dependencyToAll;
+        }
+    }
+}
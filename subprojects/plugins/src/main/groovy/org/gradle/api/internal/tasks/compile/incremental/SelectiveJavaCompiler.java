@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.api.internal.tasks.SimpleWorkResult;
+import org.gradle.api.internal.tasks.compile.Compiler;
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Recompiles only the source files that changed since the previous compilation, along with the source files of the classes that depend on them, directly
+ * or indirectly. The dependencies between classes are read from the compiled class files, and kept in a {@link ClassDependencyInfo} for the next
+ * compilation.
+ *
+ * <p>Everything is recompiled when there is no information from the previous compilation, when the inputs cannot be compared with the previous
+ * compilation, when a file other than a source file changes, such as a file on the classpath, or when a changed class declares constants, which the
+ * compiler copies into the classes that use them.</p>
+ */
+public class SelectiveJavaCompiler implements Compiler<JavaCompileSpec> {
+    private static final Logger LOGGER = Logging.getLogger(SelectiveJavaCompiler.class);
+
+    private final Compiler<JavaCompileSpec> cleaningCompiler;
+    private final Compiler<JavaCompileSpec> compiler;
+    private final IncrementalTaskInputs inputs;
+    private final File infoFile;
+    private final ClassDependenciesAnalyzer analyzer = new ClassDependenciesAnalyzer();
+
+    /**
+     * @param cleaningCompiler The compiler to recompile everything with, which removes the classes from the previous compilation.
+     * @param compiler The compiler to recompile some source files with, which leaves the other classes alone.
+     * @param inputs The changes to the inputs since the previous compilation.
+     * @param infoFile The file to keep the class dependencies in.
+     */
+    public SelectiveJavaCompiler(Compiler<JavaCompileSpec> cleaningCompiler, Compiler<JavaCompileSpec> compiler, IncrementalTaskInputs inputs, File infoFile) {
+        this.cleaningCompiler = cleaningCompiler;
+        this.compiler = compiler;
+        this.inputs = inputs;
+        this.infoFile = infoFile;
+    }
+
+    public WorkResult execute(JavaCompileSpec spec) {
+        ClassDependencyInfo info = ClassDependencyInfo.read(infoFile);
+        // Should compilation fail, the next compilation has no information from this one, and recompiles everything
+        GFileUtils.deleteQuietly(infoFile);
+        if (!(spec.getSource() instanceof FileTree)) {
+            return cleaningCompiler.execute(spec);
+        }
+        Map<String, String> sourceFiles = sourceFiles((FileTree) spec.getSource());
+
+        RecompilationSpec recompilation = info == null ? new RecompilationSpec("there is no information from the previous compilation")
+                : !inputs.isIncremental() ? new RecompilationSpec("the inputs cannot be compared with the previous compilation")
+                : recompilationSpec(info, sourceFiles);
+        WorkResult result;
+        if (recompilation.fullRebuildReason != null) {
+            LOGGER.info("Recompiling all source files, as {}.", recompilation.fullRebuildReason);
+            info = new ClassDependencyInfo();
+            result = cleaningCompiler.execute(spec);
+        } else {
+            LOGGER.info("Recompiling {} source files, {} classes affected.", recompilation.sourceFiles.size(), recompilation.staleClasses.size());
+            for (String staleClass : recompilation.staleClasses) {
+                GFileUtils.deleteQuietly(new File(spec.getDestinationDir(), staleClass + ".class"));
+                info.removeClass(staleClass);
+            }
+            if (recompilation.sourceFiles.isEmpty()) {
+                result = new SimpleWorkResult(!recompilation.staleClasses.isEmpty());
+            } else {
+                List<File> classpath = new ArrayList<File>();
+                classpath.add(spec.getDestinationDir());
+                for (File file : spec.getClasspath()) {
+                    classpath.add(file);
+                }
+                spec.setSource(new SimpleFileCollection(recompilation.sourceFiles));
+                spec.setClasspath(classpath);
+                result = compiler.execute(spec);
+            }
+        }
+
+        info.setSourceFiles(sourceFiles);
+        addCompiledClasses(info, spec.getDestinationDir(), "");
+        info.write(infoFile);
+        return result;
+    }
+
+    private RecompilationSpec recompilationSpec(final ClassDependencyInfo info, Map<String, String> sourceFiles) {
+        final Set<File> changedSources = new LinkedHashSet<File>();
+        final Set<String> changedSourcePaths = new HashSet<String>();
+        final Set<String> changedClasses = new HashSet<String>();
+        final String[] fullRebuildReason = new String[1];
+        Action<InputFileDetails> changeAction = new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                if (fullRebuildReason[0] != null) {
+                    return;
+                }
+                String sourcePath = info.getSourceFiles().get(details.getFile().getAbsolutePath());
+                if (sourcePath == null) {
+                    if (details.isAdded() && details.getFile().getName().endsWith(".java")) {
+                        changedSources.add(details.getFile());
+                    } else {
+                        fullRebuildReason[0] = String.format("%s changed", details.getFile());
+                    }
+                    return;
+                }
+                Set<String> classesFromSource = info.getClassesFromSource(sourcePath);
+                if (classesFromSource.isEmpty()) {
+                    fullRebuildReason[0] = String.format("the classes compiled from %s are not known", details.getFile());
+                    return;
+                }
+                for (String className : classesFromSource) {
+                    if (info.getClass(className).isDependencyToAll()) {
+                        fullRebuildReason[0] = String.format("%s declares constants or source annotations", className.replace('/', '.'));
+                        return;
+                    }
+                }
+                changedSourcePaths.add(sourcePath);
+                changedClasses.addAll(classesFromSource);
+            }
+        };
+        inputs.outOfDate(changeAction);
+        inputs.removed(changeAction);
+        if (fullRebuildReason[0] != null) {
+            return new RecompilationSpec(fullRebuildReason[0]);
+        }
+
+        Map<String, File> sourceFilesByPath = new HashMap<String, File>();
+        for (Map.Entry<String, String> entry : sourceFiles.entrySet()) {
+            sourceFilesByPath.put(entry.getValue(), new File(entry.getKey()));
+        }
+        Set<String> sourcePaths = new HashSet<String>(changedSourcePaths);
+        for (String dependent : info.getDependents(changedClasses)) {
+            sourcePaths.add(info.getClass(dependent).getSourcePath());
+        }
+        Set<String> staleClasses = new HashSet<String>();
+        for (String sourcePath : sourcePaths) {
+            staleClasses.addAll(info.getClassesFromSource(sourcePath));
+            File sourceFile = sourceFilesByPath.get(sourcePath);
+            if (sourceFile != null) {
+                changedSources.add(sourceFile);
+            } else if (!changedSourcePaths.contains(sourcePath)) {
+                return new RecompilationSpec(String.format("the source file of %s is not known", sourcePath));
+            }
+        }
+        return new RecompilationSpec(changedSources, staleClasses);
+    }
+
+    private static Map<String, String> sourceFiles(FileTree source) {
+        final Map<String, String> sourceFiles = new HashMap<String, String>();
+        source.visit(new EmptyFileVisitor() {
+            public void visitFile(FileVisitDetails fileDetails) {
+                sourceFiles.put(fileDetails.getFile().getAbsolutePath(), fileDetails.getRelativePath().getPathString());
+            }
+        });
+        return sourceFiles;
+    }
+
+    private void addCompiledClasses(ClassDependencyInfo info, File dir, String packagePath) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addCompiledClasses(info, file, packagePath + file.getName() + "/");
+            } else if (file.getName().endsWith(".class")) {
+                String className = packagePath + file.getName().substring(0, file.getName().length() - ".class".length());
+                if (!info.hasClass(className)) {
+                    try {
+                        info.addClass(className, analyze(file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(String.format("Could not read class file %s.", file), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private ClassDependencyInfo.ClassInfo analyze(File classFile) throws IOException {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(classFile));
+        try {
+            return analyzer.analyze(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static class RecompilationSpec {
+        final String fullRebuildReason;
+        final Collection<File> sourceFiles;
+        final Set<String> staleClasses;
+
+        RecompilationSpec(String fullRebuildReason) {
+            this.fullRebuildReason = fullRebuildReason;
+            this.sourceFiles = null;
+            this.staleClasses = null;
+        }
+
+        RecompilationSpec(Collection<File> sourceFiles, Set<String> staleClasses) {
+            this.fullRebuildReason = null;
+            this.sourceFiles = sourceFiles;
+            this.staleClasses = staleClasses;
+        }
+    }
+}
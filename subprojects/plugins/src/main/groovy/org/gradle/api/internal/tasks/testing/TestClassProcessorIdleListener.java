@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * Notified when a {@link TestClassProcessor} that processes test classes asynchronously is ready to accept another test class.
+ */
+public interface TestClassProcessorIdleListener {
+    /**
+     * Called when the processor has finished with the test class it was last given, or when it can no longer process test classes, for example because
+     * the worker process it uses has stopped unexpectedly while executing the test class.
+     */
+    void idle();
+
+    /**
+     * Called when the processor cannot process the given test class, because it can no longer process test classes, for example because the worker process
+     * it uses has stopped unexpectedly. The test class has not been started. The processor should not be given any more test classes.
+     */
+    void rejected(TestClassRunInfo testClass);
+}
@@ -22,39 +22,77 @@ import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.BoundedJobQueue;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.util.hash.HashUtil;
+import org.gradle.util.hash.HashValue;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+/**
+ * Detects test classes by inspecting class files, walking up the super classes of a class file that is not a test by itself.
+ *
+ * <p>When there are multiple processors, the candidate class files are read ahead by a number of worker threads. The super classes are still walked, and
+ * the test classes published, by the thread doing the detection, in the order the candidate class files are given to this detector.</p>
+ *
+ * <p>When a cache file is given, the details of class files and the decisions for super classes from library jars are kept in a {@link
+ * TestClassDetectionCache}, so that unchanged class files do not need to be parsed, and library jars do not need to be searched, in the next execution.</p>
+ */
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
+    private static final int PENDING_CLASSES_PER_THREAD = 16;
 
     private List<File> testClassDirectories;
+    private boolean libraryJarsAdded;
     private final ClassFileExtractionManager classFileExtractionManager;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
     private final Map<File, Boolean> superClasses;
+    private final Map<File, ClassDetails> classes;
+    private final LinkedList<PendingClass> pendingClasses;
     private TestClassProcessor testClassProcessor;
     private final List<String> knownTestCaseClassNames;
+    private BoundedJobQueue readAhead;
+    private TestClassDetectionCache cache;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
+    private File cacheFile;
 
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
+        this(classFileExtractionManager, new DefaultExecutorFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager, ExecutorFactory executorFactory, int maxThreads) {
         assert classFileExtractionManager != null;
         this.classFileExtractionManager = classFileExtractionManager;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
         this.superClasses = new HashMap<File, Boolean>();
+        this.classes = new HashMap<File, ClassDetails>();
+        this.pendingClasses = new LinkedList<PendingClass>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
+    private File getTestClassDirectoryFile(String superClassName) {
         prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
@@ -70,12 +108,19 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 superTestClassFile = superTestClassFileCandidate;
             }
         }
+        return superTestClassFile;
+    }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+    private File getLibraryClassFile(String superClassName) {
+        prepareClasspath();
+        // Listing the packages of the library jars is expensive, so only do this when a class needs to be extracted from them
+        if (!libraryJarsAdded) {
+            libraryJarsAdded = true;
+            for (File libraryJar : getLibraryJars()) {
+                classFileExtractionManager.addLibraryJar(libraryJar);
+            }
         }
+        return classFileExtractionManager.getLibraryClassFile(superClassName);
     }
 
     private void prepareClasspath() {
@@ -92,13 +137,31 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
             for (File file : testClasspath) {
                 if (file.isDirectory()) {
                     testClassDirectories.add(file);
-                } else if (file.isFile() && file.getName().endsWith(".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
                 }
             }
         }
     }
 
+    private List<File> getLibraryJars() {
+        List<File> libraryJars = new ArrayList<File>();
+        if (testClasspath != null) {
+            for (File file : testClasspath) {
+                if (file.isFile() && file.getName().endsWith(".jar")) {
+                    libraryJars.add(file);
+                }
+            }
+        }
+        return libraryJars;
+    }
+
+    private String getLibraryKey() {
+        StringBuilder key = new StringBuilder();
+        for (File libraryJar : getLibraryJars()) {
+            key.append(libraryJar.getAbsolutePath()).append(File.pathSeparatorChar).append(libraryJar.length()).append(File.pathSeparatorChar).append(libraryJar.lastModified()).append('\n');
+        }
+        return HashUtil.createHash(key.toString(), HashUtil.MURMUR3_128).asHexString();
+    }
+
     public void setTestClassesDirectory(File testClassesDirectory) {
         this.testClassesDirectory = testClassesDirectory;
     }
@@ -107,6 +170,43 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
+    public void setCacheFile(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the details of the given class file, reading the class file when its details are not already known.
+     */
+    protected ClassDetails classDetails(File testClassFile) {
+        ClassDetails details = classes.get(testClassFile);
+        if (details == null) {
+            details = readClassDetails(testClassFile);
+            classes.put(testClassFile, details);
+        }
+        return details;
+    }
+
+    /**
+     * Reads the details of the given class file, or takes them from the cache when the class file is unchanged. Can be called from any thread.
+     */
+    private ClassDetails readClassDetails(File testClassFile) {
+        if (cache == null) {
+            return new ClassDetails(classVisitor(testClassFile));
+        }
+        HashValue hash;
+        try {
+            hash = HashUtil.createHash(testClassFile, HashUtil.MURMUR3_128);
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
+        }
+        ClassDetails details = cache.get(hash);
+        if (details == null) {
+            details = new ClassDetails(classVisitor(testClassFile));
+            cache.put(hash, details);
+        }
+        return details;
+    }
+
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -124,8 +224,25 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         return classVisitor;
     }
 
-    public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+    public void processTestClass(File testClassFile) {
+        PendingClass pendingClass = new PendingClass(testClassFile);
+        pendingClasses.add(pendingClass);
+        readAhead.add(pendingClass.details);
+        while (!pendingClasses.isEmpty() && (pendingClasses.getFirst().details.isDone() || pendingClasses.size() > maxThreads * PENDING_CLASSES_PER_THREAD)) {
+            processNextPendingClass();
+        }
+    }
+
+    private void processNextPendingClass() {
+        PendingClass pendingClass = pendingClasses.removeFirst();
+        try {
+            classes.put(pendingClass.classFile, pendingClass.details.get());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+        processTestClass(pendingClass.classFile, false);
     }
 
     protected abstract boolean processTestClass(File testClassFile, boolean superClass);
@@ -146,19 +263,63 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         return isTest;
     }
 
+    /**
+     * Determines whether the given super class is a test, by looking for its class file in the test class directories first, then in the library jars.
+     */
+    protected boolean processSuperClass(String superClassName) {
+        File superClassFile = getTestClassDirectoryFile(superClassName);
+        if (superClassFile != null) {
+            return processSuperClass(superClassFile);
+        }
+
+        Boolean isTest = cache == null ? null : cache.getLibraryClass(superClassName);
+        if (isTest == null) {
+            superClassFile = getLibraryClassFile(superClassName);
+            if (superClassFile != null) {
+                isTest = processSuperClass(superClassFile);
+            } else {
+                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file", superClassName);
+                isTest = false;
+            }
+            if (cache != null) {
+                cache.putLibraryClass(superClassName, isTest);
+            }
+        }
+        return isTest;
+    }
+
     /**
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, ClassDetails classDetails, boolean superClass) {
+        if (isTest && !classDetails.isAbstract() && !superClass) {
+            String className = Type.getObjectType(classDetails.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
 
     public void startDetection(TestClassProcessor testClassProcessor) {
         this.testClassProcessor = testClassProcessor;
+        if (cacheFile != null) {
+            cache = TestClassDetectionCache.read(cacheFile, getClass().getName(), getLibraryKey());
+        }
+        readAhead = new BoundedJobQueue(executorFactory, "Test class detection", maxThreads);
+    }
+
+    public void stopDetection() {
+        try {
+            while (!pendingClasses.isEmpty()) {
+                processNextPendingClass();
+            }
+        } finally {
+            readAhead.stop();
+            pendingClasses.clear();
+        }
+        if (cache != null) {
+            cache.write(cacheFile);
+            cache = null;
+        }
     }
 
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
@@ -180,4 +341,20 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
         return isKnownTestCase;
     }
+
+    /**
+     * A candidate class file whose details are being read ahead.
+     */
+    private class PendingClass implements Callable<ClassDetails> {
+        final File classFile;
+        final FutureTask<ClassDetails> details = new FutureTask<ClassDetails>(this);
+
+        PendingClass(File classFile) {
+            this.classFile = classFile;
+        }
+
+        public ClassDetails call() {
+            return readClassDetails(classFile);
+        }
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+/**
+ * The details of a class file that test detection needs, as collected by a {@link TestClassVisitor}.
+ */
+public class ClassDetails {
+    private final String className;
+    private final String superClassName;
+    private final boolean test;
+    private final boolean isAbstract;
+
+    public ClassDetails(String className, String superClassName, boolean test, boolean isAbstract) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.test = test;
+        this.isAbstract = isAbstract;
+    }
+
+    public ClassDetails(TestClassVisitor classVisitor) {
+        this(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isTest(), classVisitor.isAbstract());
+    }
+
+    /**
+     * Returns the internal name of the class.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the internal name of the super class, or null for java.lang.Object.
+     */
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    /**
+     * Returns whether the class itself is a test, regardless of its super classes.
+     */
+    public boolean isTest() {
+        return test;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+}
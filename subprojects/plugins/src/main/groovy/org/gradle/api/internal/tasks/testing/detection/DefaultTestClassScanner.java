@@ -22,23 +22,40 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults;
 
 import java.io.File;
+import java.util.*;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
  * a detection or filename scan is performed to find test classes.
+ *
+ * <p>When previous test results are given, the test classes found are passed on once the scan is complete, with the test classes that failed in the
+ * previous execution first, followed by the test classes whose class file changed since. Otherwise, test classes are passed on as they are found.</p>
  */
 public class DefaultTestClassScanner implements Runnable {
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final PreviousTestResults previousResults;
+    private final Map<String, Long> classFileTimestamps = new HashMap<String, Long>();
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, null);
+    }
+
+    /**
+     * @param previousResults The results to order the test classes by, or null to pass test classes on in the order they are found.
+     */
+    public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor, PreviousTestResults previousResults) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
-        this.testClassProcessor = testClassProcessor;
+        this.testClassProcessor = previousResults == null ? testClassProcessor : new OrderingTestClassProcessor(testClassProcessor);
+        this.previousResults = previousResults;
     }
 
     public void run() {
@@ -47,22 +64,28 @@ public class DefaultTestClassScanner implements Runnable {
         } else {
             detectionScan();
         }
+        if (previousResults != null) {
+            ((OrderingTestClassProcessor) testClassProcessor).flush();
+        }
     }
 
     private void detectionScan() {
         testFrameworkDetector.startDetection(testClassProcessor);
-        candidateClassFiles.visit(new ClassFileVisitor() {
-            public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
-            }
-        });
+        try {
+            candidateClassFiles.visit(new ClassFileVisitor() {
+                public void visitClassFile(FileVisitDetails fileDetails) {
+                    testFrameworkDetector.processTestClass(fileDetails.getFile());
+                }
+            });
+        } finally {
+            testFrameworkDetector.stopDetection();
+        }
     }
 
     private void filenameScan() {
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                String className = fileDetails.getRelativePath().getPathString().replaceAll("\\.class", "").replace('/', '.');
-                TestClassRunInfo testClass = new DefaultTestClassRunInfo(className);
+                TestClassRunInfo testClass = new DefaultTestClassRunInfo(className(fileDetails));
                 testClassProcessor.processTestClass(testClass);
             }
         });
@@ -73,10 +96,49 @@ public class DefaultTestClassScanner implements Runnable {
             final File file = fileDetails.getFile();
 
             if (file.getAbsolutePath().endsWith(".class")) {
+                if (previousResults != null) {
+                    classFileTimestamps.put(className(fileDetails), fileDetails.getLastModified());
+                }
                 visitClassFile(fileDetails);
             }
         }
 
         public abstract void visitClassFile(FileVisitDetails fileDetails);
     }
+
+    private static String className(FileVisitDetails fileDetails) {
+        return fileDetails.getRelativePath().getPathString().replaceAll("\\.class", "").replace('/', '.');
+    }
+
+    /**
+     * Holds on to the test classes found, and passes them on in order when flushed.
+     */
+    private class OrderingTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+        private OrderingTestClassProcessor(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            processor.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            testClasses.add(testClass);
+        }
+
+        public void stop() {
+            processor.stop();
+        }
+
+        void flush() {
+            Collections.sort(testClasses, previousResults.getFailedFirstOrder(classFileTimestamps));
+            for (TestClassRunInfo testClass : testClasses) {
+                processor.processTestClass(testClass);
+            }
+            testClasses.clear();
+        }
+    }
 }
@@ -16,21 +16,33 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Transformer;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorIdleListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults;
+import org.gradle.api.internal.tasks.testing.processors.FilteringTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.PullingMaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.io.File;
+import java.util.Comparator;
+
 /**
  * The default test class scanner factory.
  */
@@ -43,23 +55,44 @@ public class DefaultTestExecuter implements TestExecuter {
         this.actorFactor = actorFactor;
     }
 
-    public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
+    public void execute(final Test testTask, TestResultProcessor testResultProcessor, PreviousTestResults previousResults, Spec<? super TestClassRunInfo> testClassSpec) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
-        final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
-            }
-        };
-        Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
+        final TestWorkerPool workerPool;
+        if (TestWorkerPool.isReuseWorkers() && testTask.getForkEvery() == 0) {
+            workerPool = ((ProjectInternal) testTask.getProject()).getServices().get(TestWorkerPool.class);
+        } else {
+            workerPool = null;
+        }
+        final Transformer<TestClassProcessor, TestClassProcessorIdleListener> reforkingProcessorFactory = new Transformer<TestClassProcessor, TestClassProcessorIdleListener>() {
+            public TestClassProcessor transform(final TestClassProcessorIdleListener idleListener) {
+                Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                    public TestClassProcessor create() {
+                        return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                                testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), idleListener, workerPool);
+                    }
+                };
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+        // When executing failed test classes first, the scanner puts the test classes in order
+        PreviousTestResults orderBy = testTask.isFailedFirst() ? previousResults : null;
+
+        TestClassProcessor processor;
+        if (testTask.getMaxParallelForks() > 1) {
+            Comparator<TestClassRunInfo> order = orderBy == null ? previousResults.getLongestFirstOrder() : new ScanOrder();
+            processor = new PullingMaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
+                    reforkingProcessorFactory, actorFactor, order);
+        } else {
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(), new Factory<TestClassProcessor>() {
+                public TestClassProcessor create() {
+                    return reforkingProcessorFactory.transform(new IgnoringIdleListener());
+                }
+            }, actorFactor);
+        }
+
+        processor = new FilteringTestClassProcessor(testClassSpec, processor);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -68,10 +101,26 @@ public class DefaultTestExecuter implements TestExecuter {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            testFrameworkDetector.setCacheFile(new File(testTask.getTemporaryDir(), "testClassDetection.bin"));
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, orderBy);
         } else {
-            detector = new DefaultTestClassScanner(testClassFiles, null, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, null, processor, orderBy);
         }
         new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
     }
+
+    private static class ScanOrder implements Comparator<TestClassRunInfo> {
+        public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+            return 0;
+        }
+    }
+
+    private static class IgnoringIdleListener implements TestClassProcessorIdleListener {
+        public void idle() {
+        }
+
+        public void rejected(TestClassRunInfo testClass) {
+            // There is no other processor to give the test class to. The failure of the processor is reported when it is stopped
+        }
+    }
 }
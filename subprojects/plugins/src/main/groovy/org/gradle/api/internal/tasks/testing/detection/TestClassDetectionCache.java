@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.util.hash.HashValue;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The results of test detection from the previous execution of a test task, so that unchanged class files do not need to be parsed again.
+ *
+ * <p>The details of class files are keyed by the hash of the class file, and can be used from any thread. The decisions whether classes from the library jars
+ * of the test classpath are tests are keyed by class name. These decisions are only kept while the library jars do not change.</p>
+ *
+ * <p>Only the entries used by the current execution are written back, so that the cache does not grow as classes are changed or removed.</p>
+ */
+public class TestClassDetectionCache {
+    private static final Logger LOGGER = Logging.getLogger(TestClassDetectionCache.class);
+    private static final int CACHE_VERSION = 1;
+
+    private final String detectorKey;
+    private final String libraryKey;
+    private final Map<HashValue, ClassDetails> previousClasses = new HashMap<HashValue, ClassDetails>();
+    private final Map<HashValue, ClassDetails> classes = new ConcurrentHashMap<HashValue, ClassDetails>();
+    private final Map<String, Boolean> previousLibraryClasses = new HashMap<String, Boolean>();
+    private final Map<String, Boolean> libraryClasses = new HashMap<String, Boolean>();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param detectorKey Identifies the kind of detection. The details of a class file differ between test frameworks.
+     * @param libraryKey Identifies the library jars of the test classpath.
+     */
+    public TestClassDetectionCache(String detectorKey, String libraryKey) {
+        this.detectorKey = detectorKey;
+        this.libraryKey = libraryKey;
+    }
+
+    /**
+     * Reads the cache from the given file. Produces an empty cache when there is no cache file, when it cannot be read, or when it was written for a different
+     * kind of detection. Discards the decisions for library classes when the library jars have changed.
+     */
+    public static TestClassDetectionCache read(File cacheFile, String detectorKey, String libraryKey) {
+        TestClassDetectionCache cache = new TestClassDetectionCache(detectorKey, libraryKey);
+        if (!cacheFile.isFile()) {
+            return cache;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(cacheFile);
+            try {
+                cache.read(new Input(inputStream));
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not read test detection cache from %s.", cacheFile), e);
+            cache.previousClasses.clear();
+            cache.previousLibraryClasses.clear();
+        }
+        return cache;
+    }
+
+    private void read(Input input) {
+        if (input.readInt(true) != CACHE_VERSION || !detectorKey.equals(input.readString())) {
+            return;
+        }
+        boolean librariesUnchanged = libraryKey.equals(input.readString());
+        int classCount = input.readInt(true);
+        for (int i = 0; i < classCount; i++) {
+            HashValue hash = new HashValue(input.readBytes(input.readInt(true)));
+            previousClasses.put(hash, new ClassDetails(input.readString(), input.readString(), input.readBoolean(), input.readBoolean()));
+        }
+        if (librariesUnchanged) {
+            int libraryClassCount = input.readInt(true);
+            for (int i = 0; i < libraryClassCount; i++) {
+                previousLibraryClasses.put(input.readString(), input.readBoolean());
+            }
+        }
+    }
+
+    /**
+     * Returns the details of the class file with the given hash, or null if not known. Can be called from any thread.
+     */
+    public ClassDetails get(HashValue classFileHash) {
+        ClassDetails details = classes.get(classFileHash);
+        if (details == null) {
+            details = previousClasses.get(classFileHash);
+            if (details != null) {
+                classes.put(classFileHash, details);
+            }
+        }
+        return details;
+    }
+
+    /**
+     * Records the details of the class file with the given hash. Can be called from any thread.
+     */
+    public void put(HashValue classFileHash, ClassDetails details) {
+        classes.put(classFileHash, details);
+    }
+
+    /**
+     * Returns whether the given library class is a test, or null if not known. Must be called from the thread doing the detection.
+     */
+    public Boolean getLibraryClass(String className) {
+        Boolean test = libraryClasses.get(className);
+        if (test == null) {
+            test = previousLibraryClasses.get(className);
+            if (test != null) {
+                libraryClasses.put(className, test);
+            }
+        }
+        return test;
+    }
+
+    /**
+     * Records whether the given library class is a test. Must be called from the thread doing the detection.
+     */
+    public void putLibraryClass(String className, boolean test) {
+        libraryClasses.put(className, test);
+    }
+
+    /**
+     * Writes the entries used since this cache was read to the given file.
+     */
+    public void write(File cacheFile) {
+        try {
+            OutputStream outputStream = new FileOutputStream(cacheFile);
+            try {
+                Output output = new Output(outputStream);
+                write(output);
+                output.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(Output output) {
+        output.writeInt(CACHE_VERSION, true);
+        output.writeString(detectorKey);
+        output.writeString(libraryKey);
+        output.writeInt(classes.size(), true);
+        for (Map.Entry<HashValue, ClassDetails> entry : classes.entrySet()) {
+            byte[] hash = entry.getKey().asByteArray();
+            output.writeInt(hash.length, true);
+            output.writeBytes(hash);
+            ClassDetails details = entry.getValue();
+            output.writeString(details.getClassName());
+            output.writeString(details.getSuperClassName());
+            output.writeBoolean(details.isTest());
+            output.writeBoolean(details.isAbstract());
+        }
+        output.writeInt(libraryClasses.size(), true);
+        for (Map.Entry<String, Boolean> entry : libraryClasses.entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeBoolean(entry.getValue());
+        }
+    }
+}
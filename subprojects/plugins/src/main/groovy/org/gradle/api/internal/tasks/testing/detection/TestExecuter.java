@@ -16,9 +16,17 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.testing.Test;
 
 public interface TestExecuter {
-    void execute(Test testTask, TestResultProcessor testResultProcessor);
+    /**
+     * Executes the tests of the given task.
+     *
+     * @param testClassSpec Selects the detected test classes to execute.
+     */
+    void execute(Test testTask, TestResultProcessor testResultProcessor, PreviousTestResults previousResults, Spec<? super TestClassRunInfo> testClassSpec);
 }
@@ -23,9 +23,19 @@ import java.io.File;
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
-    boolean processTestClass(File testClassFile);
+    void processTestClass(File testClassFile);
+
+    /**
+     * Finishes processing the test class files given to {@link #processTestClass(java.io.File)}.
+     */
+    void stopDetection();
 
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
+
+    /**
+     * Sets the file used to keep the results of detection between executions. May be null, for no caching.
+     */
+    void setCacheFile(File cacheFile);
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.gradle.api.internal.tasks.compile.incremental.ClassDependencyGraph;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The classes of a test classpath that the test classes depend on, directly or indirectly, along with the classes each of them refers to.
+ *
+ * <p>A class loaded from a jar also records the jar and the CRC of its entry, so that the classes that changed within a changed jar can be found.</p>
+ */
+public class TestDependencyGraph extends ClassDependencyGraph<TestDependencyGraph.ClassNode> {
+    private static final int GRAPH_VERSION = 2;
+
+    private final List<String> classpath;
+    private final Set<String> testClasses = new HashSet<String>();
+
+    public TestDependencyGraph(List<String> classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * Reads the graph from the given file. Returns null when there is no graph, or when it cannot be read.
+     */
+    public static TestDependencyGraph read(File graphFile) {
+        return read(graphFile, new TestDependencyGraph(new ArrayList<String>()));
+    }
+
+    @Override
+    protected int getVersion() {
+        return GRAPH_VERSION;
+    }
+
+    @Override
+    protected void readHeader(Input input) {
+        int classpathSize = input.readInt(true);
+        for (int i = 0; i < classpathSize; i++) {
+            classpath.add(input.readString());
+        }
+        int testClassCount = input.readInt(true);
+        for (int i = 0; i < testClassCount; i++) {
+            testClasses.add(input.readString());
+        }
+    }
+
+    @Override
+    protected void writeHeader(Output output) {
+        output.writeInt(classpath.size(), true);
+        for (String entry : classpath) {
+            output.writeString(entry);
+        }
+        output.writeInt(testClasses.size(), true);
+        for (String testClass : testClasses) {
+            output.writeString(testClass);
+        }
+    }
+
+    @Override
+    protected ClassNode readClass(Input input, String[] dependencies) {
+        String jar = input.readString();
+        long crc = input.readLong();
+        return new ClassNode(jar, crc, dependencies);
+    }
+
+    @Override
+    protected void writeClass(Output output, ClassNode node) {
+        output.writeString(node.jar);
+        output.writeLong(node.crc);
+    }
+
+    /**
+     * Returns the absolute paths of the entries of the classpath this graph was built for, in order.
+     */
+    public List<String> getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Removes all classes except the given classes.
+     */
+    public void retainClasses(Set<String> classNames) {
+        getClasses().keySet().retainAll(classNames);
+    }
+
+    /**
+     * Returns the classes loaded from the given jar, by name.
+     */
+    public Map<String, ClassNode> getClassesFromJar(String jar) {
+        Map<String, ClassNode> classesFromJar = new HashMap<String, ClassNode>();
+        for (Map.Entry<String, ClassNode> entry : getClasses().entrySet()) {
+            if (jar.equals(entry.getValue().jar)) {
+                classesFromJar.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return classesFromJar;
+    }
+
+    public Set<String> getTestClasses() {
+        return testClasses;
+    }
+
+    public static class ClassNode extends ClassDependencyGraph.Node {
+        private final String jar;
+        private final long crc;
+
+        /**
+         * @param jar The absolute path of the jar the class was loaded from, or null when the class was loaded from a directory.
+         * @param crc The CRC of the jar entry of the class.
+         * @param dependencies The classes the class refers to.
+         */
+        public ClassNode(String jar, long crc, String[] dependencies) {
+            super(dependencies);
+            this.jar = jar;
+            this.crc = crc;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.compile.incremental.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Selects the test classes affected by the classes that changed since the previous execution of a test task, using a {@link TestDependencyGraph} of the
+ * test classpath kept from the previous execution.
+ *
+ * <p>A test class is selected when it depends, directly or indirectly, on a class that changed, when it failed in the previous execution, or when it was not
+ * known to be a test class. All test classes
+ * are selected when there is no graph from the previous execution, when the inputs of the task cannot be compared with the previous execution, when the
+ * entries of the classpath are different, or when a file on the classpath changed that is not a class file or a jar.</p>
+ */
+public class TestImpactAnalysis implements Spec<TestClassRunInfo> {
+    private static final Logger LOGGER = Logging.getLogger(TestImpactAnalysis.class);
+
+    private final File graphFile;
+    private final List<File> classpath;
+    private final ClassDependenciesAnalyzer dependenciesAnalyzer = new ClassDependenciesAnalyzer();
+    private TestDependencyGraph graph;
+    private PreviousTestResults previousResults;
+    private boolean selectAll;
+    private Set<String> affectedClasses = Collections.emptySet();
+
+    public TestImpactAnalysis(File graphFile, Iterable<File> classpath) {
+        this.graphFile = graphFile;
+        this.classpath = new ArrayList<File>();
+        for (File file : classpath) {
+            this.classpath.add(file);
+        }
+    }
+
+    /**
+     * Determines the classes affected by the changes to the inputs of the task.
+     *
+     * @param previousResults The results of the previous execution, used to select the test classes that failed.
+     */
+    public void inputsChanged(IncrementalTaskInputs inputs, PreviousTestResults previousResults) {
+        this.previousResults = previousResults;
+        List<String> classpathPaths = new ArrayList<String>();
+        for (File file : classpath) {
+            classpathPaths.add(file.getAbsolutePath());
+        }
+        graph = TestDependencyGraph.read(graphFile);
+        if (graph == null || !inputs.isIncremental() || !graph.getClasspath().equals(classpathPaths)) {
+            LOGGER.info("Selecting all test classes, as the classes changed since the previous execution are not known.");
+            graph = new TestDependencyGraph(classpathPaths);
+            selectAll = true;
+            return;
+        }
+
+        final Set<String> changedClasses = new HashSet<String>();
+        Action<InputFileDetails> changeAction = new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                fileChanged(details.getFile(), changedClasses);
+            }
+        };
+        inputs.outOfDate(changeAction);
+        inputs.removed(changeAction);
+
+        affectedClasses = graph.getDependents(changedClasses);
+        affectedClasses.addAll(changedClasses);
+        for (String changedClass : changedClasses) {
+            graph.removeClass(changedClass);
+        }
+        if (selectAll) {
+            LOGGER.info("Selecting all test classes, as a file on the test classpath changed that is not a class file or a jar.");
+        } else {
+            LOGGER.info("{} classes changed since the previous execution.", changedClasses.size());
+        }
+    }
+
+    private void fileChanged(File file, Set<String> changedClasses) {
+        String path = file.getAbsolutePath();
+        for (File entry : classpath) {
+            String entryPath = entry.getAbsolutePath();
+            if (path.equals(entryPath)) {
+                if (entry.getName().endsWith(".jar")) {
+                    jarChanged(entry, changedClasses);
+                } else {
+                    selectAll = true;
+                }
+                return;
+            }
+            if (path.startsWith(entryPath + File.separator)) {
+                String relativePath = path.substring(entryPath.length() + 1);
+                if (relativePath.endsWith(".class")) {
+                    changedClasses.add(relativePath.substring(0, relativePath.length() - ".class".length()).replace(File.separatorChar, '/'));
+                } else {
+                    selectAll = true;
+                }
+                return;
+            }
+        }
+        // Not on the test classpath, such as a source file
+    }
+
+    private void jarChanged(File jar, Set<String> changedClasses) {
+        Map<String, TestDependencyGraph.ClassNode> classesFromJar = graph.getClassesFromJar(jar.getAbsolutePath());
+        if (!jar.isFile()) {
+            changedClasses.addAll(classesFromJar.keySet());
+            return;
+        }
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                for (Map.Entry<String, TestDependencyGraph.ClassNode> entry : classesFromJar.entrySet()) {
+                    ZipEntry zipEntry = zipFile.getEntry(entry.getKey() + ".class");
+                    if (zipEntry == null || zipEntry.getCrc() != entry.getValue().getCrc()) {
+                        changedClasses.add(entry.getKey());
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not read %s.", jar), e);
+            selectAll = true;
+        }
+    }
+
+    /**
+     * Returns true when the given test class should be executed.
+     */
+    public boolean isSatisfiedBy(TestClassRunInfo testClass) {
+        String className = testClass.getTestClassName().replace('.', '/');
+        return selectAll || affectedClasses.contains(className) || previousResults.isFailed(testClass.getTestClassName())
+                || !graph.getTestClasses().contains(className);
+    }
+
+    /**
+     * Records the dependencies of the given test classes, and of the test classes known from the previous execution, for the next execution.
+     *
+     * @param executedTestClasses The names of the test classes that were executed.
+     */
+    public void testClassesExecuted(Collection<String> executedTestClasses) {
+        for (String testClass : executedTestClasses) {
+            graph.getTestClasses().add(testClass.replace('.', '/'));
+        }
+
+        ClasspathLookup lookup = new ClasspathLookup(classpath);
+        try {
+            Set<String> reachable = new HashSet<String>();
+            LinkedList<String> queue = new LinkedList<String>();
+            for (Iterator<String> iterator = graph.getTestClasses().iterator(); iterator.hasNext();) {
+                String testClass = iterator.next();
+                if (addClass(testClass, lookup)) {
+                    reachable.add(testClass);
+                    queue.add(testClass);
+                } else {
+                    // No longer on the classpath, or not a test class at all
+                    iterator.remove();
+                }
+            }
+            Set<String> unknown = new HashSet<String>();
+            while (!queue.isEmpty()) {
+                for (String dependency : graph.getClass(queue.removeFirst()).getDependencies()) {
+                    if (!reachable.contains(dependency) && !unknown.contains(dependency)) {
+                        if (addClass(dependency, lookup)) {
+                            reachable.add(dependency);
+                            queue.add(dependency);
+                        } else {
+                            // Not on the test classpath, such as a class from the JRE
+                            unknown.add(dependency);
+                        }
+                    }
+                }
+            }
+            graph.retainClasses(reachable);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lookup.close();
+        }
+        graph.write(graphFile);
+    }
+
+    private boolean addClass(String className, ClasspathLookup lookup) throws IOException {
+        if (graph.getClass(className) != null) {
+            return true;
+        }
+        TestDependencyGraph.ClassNode node = lookup.read(className);
+        if (node == null) {
+            return false;
+        }
+        graph.addClass(className, node);
+        return true;
+    }
+
+    /**
+     * Finds classes on a classpath, keeping the jars open.
+     */
+    private class ClasspathLookup {
+        private final List<ZipFile> jars = new ArrayList<ZipFile>();
+        private final List<Object> entries = new ArrayList<Object>();
+
+        ClasspathLookup(List<File> classpath) {
+            for (File file : classpath) {
+                if (file.isDirectory()) {
+                    entries.add(file);
+                } else if (file.isFile()) {
+                    try {
+                        ZipFile zipFile = new ZipFile(file);
+                        jars.add(zipFile);
+                        entries.add(zipFile);
+                    } catch (IOException e) {
+                        LOGGER.debug(String.format("Could not read %s.", file), e);
+                    }
+                }
+            }
+        }
+
+        TestDependencyGraph.ClassNode read(String className) throws IOException {
+            String fileName = className + ".class";
+            for (Object entry : entries) {
+                if (entry instanceof File) {
+                    File classFile = new File((File) entry, fileName);
+                    if (classFile.isFile()) {
+                        return new TestDependencyGraph.ClassNode(null, 0, readDependencies(new FileInputStream(classFile)));
+                    }
+                } else {
+                    ZipFile zipFile = (ZipFile) entry;
+                    ZipEntry zipEntry = zipFile.getEntry(fileName);
+                    if (zipEntry != null) {
+                        return new TestDependencyGraph.ClassNode(new File(zipFile.getName()).getAbsolutePath(), zipEntry.getCrc(), readDependencies(zipFile.getInputStream(zipEntry)));
+                    }
+                }
+            }
+            return null;
+        }
+
+        private String[] readDependencies(InputStream inputStream) throws IOException {
+            try {
+                return dependenciesAnalyzer.analyze(new BufferedInputStream(inputStream)).getDependencies();
+            } finally {
+                inputStream.close();
+            }
+        }
+
+        void close() {
+            for (ZipFile jar : jars) {
+                try {
+                    jar.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
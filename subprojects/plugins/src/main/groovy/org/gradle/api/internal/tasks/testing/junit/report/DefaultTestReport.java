@@ -22,6 +22,9 @@ import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.BoundedJobQueue;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.util.Clock;
 
@@ -30,11 +33,26 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.List;
 
+/**
+ * Generates the HTML test report. The page for each test class is rendered by a bounded number of worker threads as soon as the results of the class have been
+ * read, after which the results of the individual tests of the class are discarded, so that only the totals and failures of each class are held in memory.
+ * The package pages are rendered by the worker threads once all classes have been read, and the overview page is rendered last.
+ */
 public class DefaultTestReport implements TestReporter {
     private final HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
+    // Renders the pages other than the overview, which copies the resources into the report directory for all pages
+    private final HtmlReportRenderer pageRenderer = new HtmlReportRenderer();
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
 
     public DefaultTestReport() {
+        this(new DefaultExecutorFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    DefaultTestReport(ExecutorFactory executorFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/report.js"));
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/base-style.css"));
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/css3-pie-1.0beta3.htc"));
@@ -45,31 +63,29 @@ public class DefaultTestReport implements TestReporter {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        try {
+            generateFiles(resultsProvider, reportDir);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
+        }
         LOG.info("Finished generating test html results (" + clock.getTime() + ")");
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED) {
-                        testResult.ignored();
-                    } else {
-                        List<Throwable> failures = collectedResult.getExceptions();
-                        for (Throwable throwable : failures) {
-                            testResult.addFailure(throwable.getMessage(), stackTrace(throwable));
-                        }
-                    }
+    private ClassTestResults addClass(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED) {
+                testResult.ignored();
+            } else {
+                List<Throwable> failures = collectedResult.getExceptions();
+                for (Throwable throwable : failures) {
+                    testResult.addFailure(throwable.getMessage(), stackTrace(throwable));
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
     private String stackTrace(Throwable throwable) {
@@ -88,21 +104,36 @@ public class DefaultTestReport implements TestReporter {
         }
     }
 
-    private void generateFiles(AllTestResults model, TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(final TestResultsProvider resultsProvider, final File reportDir) throws Exception {
+        final AllTestResults model = new AllTestResults();
+        final BoundedJobQueue pages = new BoundedJobQueue(executorFactory, "HTML test report", maxThreads);
         try {
-            generatePage(model, new OverviewPageRenderer(), new File(reportDir, "index.html"));
-            for (PackageTestResults packageResults : model.getPackages()) {
-                generatePage(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html"));
-                for (ClassTestResults classResults : packageResults.getClasses()) {
-                    generatePage(classResults, new ClassPageRenderer(classResults.getId(), resultsProvider), new File(reportDir, classResults.getName() + ".html"));
+            resultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    final ClassTestResults classResults = addClass(model, classResult);
+                    pages.add(new Runnable() {
+                        public void run() {
+                            generatePage(classResults, new ClassPageRenderer(classResults.getId(), resultsProvider), new File(reportDir, classResults.getName() + ".html"));
+                            classResults.discardTestResults();
+                        }
+                    });
                 }
+            });
+            for (final PackageTestResults packageResults : model.getPackages()) {
+                pages.add(new Runnable() {
+                    public void run() {
+                        generatePage(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html"));
+                    }
+                });
             }
-        } catch (Exception e) {
-            throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
+        } finally {
+            pages.stop();
         }
+
+        htmlRenderer.renderer(new OverviewPageRenderer()).writeTo(model, new File(reportDir, "index.html"));
     }
 
-    private <T extends CompositeTestResults> void generatePage(T model, PageRenderer<T> renderer, File outputFile) throws Exception {
-        htmlRenderer.renderer(renderer).writeTo(model, outputFile);
+    private <T extends CompositeTestResults> void generatePage(T model, PageRenderer<T> renderer, File outputFile) {
+        pageRenderer.renderer(renderer).writeTo(model, outputFile);
     }
 }
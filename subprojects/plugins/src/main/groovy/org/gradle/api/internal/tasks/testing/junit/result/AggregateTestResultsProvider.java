@@ -25,10 +25,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.gradle.util.CollectionUtils.any;
 
@@ -43,8 +43,9 @@ public class AggregateTestResultsProvider implements TestResultsProvider {
     }
 
     public void visitClasses(final Action<? super TestClassResult> visitor) {
-        classOutputProviders = new HashMap<Long, TestResultsProvider>();
-        idMappings = new HashMap<Long, Long>();
+        // The output of a class may be read by other threads while the remaining classes are visited
+        classOutputProviders = new ConcurrentHashMap<Long, TestResultsProvider>();
+        idMappings = new ConcurrentHashMap<Long, Long>();
         final Set<String> seenClasses = new HashSet<String>();
         final long[] newIdCounter = {1};
         for (final TestResultsProvider provider : providers) {
@@ -21,6 +21,9 @@ import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.BoundedJobQueue;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.util.Clock;
 
 import java.io.BufferedOutputStream;
@@ -34,35 +37,59 @@ public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
     JUnitXmlResultWriter saxWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+        this(testResultsDir, testResultsProvider, outputAssociation, new DefaultExecutorFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, ExecutorFactory executorFactory, int maxThreads) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
         this.saxWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
+    /**
+     * Writes the results file for each test class. The files are written by a bounded number of worker threads, each class as soon as its results have been read.
+     */
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, "TEST-" + result.getClassName() + ".xml");
-                OutputStream output = null;
-                try {
-                    output = new BufferedOutputStream(new FileOutputStream(file));
-                    saxWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
+        final BoundedJobQueue files = new BoundedJobQueue(executorFactory, "JUnit XML test results", maxThreads);
+        try {
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(final TestClassResult result) {
+                    files.add(new Runnable() {
+                        public void run() {
+                            writeFile(result);
+                        }
+                    });
                 }
-            }
-        });
+            });
+        } finally {
+            files.stop();
+        }
         LOG.info("Finished generating test XML results (" + clock.getTime() + ")");
     }
 
+    private void writeFile(TestClassResult result) {
+        File file = new File(testResultsDir, "TEST-" + result.getClassName() + ".xml");
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(file));
+            saxWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private static String getHostname() {
         try {
             return InetAddress.getLocalHost().getHostName();
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The results of the previous execution of a test task, as read from its binary results.
+ */
+public class PreviousTestResults {
+    private static final Logger LOGGER = Logging.getLogger(PreviousTestResults.class);
+
+    private final Map<String, Long> durations = new HashMap<String, Long>();
+    private final Map<String, Long> startTimes = new HashMap<String, Long>();
+    private final Set<String> failed = new HashSet<String>();
+
+    /**
+     * Reads the results from the given binary results directory. Produces empty results when there are no results, or when they cannot be read.
+     */
+    public static PreviousTestResults read(File binaryResultsDir) {
+        final PreviousTestResults results = new PreviousTestResults();
+        TestResultSerializer serializer = new TestResultSerializer(binaryResultsDir);
+        if (!serializer.isHasResults()) {
+            return results;
+        }
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    results.add(classResult.getClassName(), classResult.getStartTime(), classResult.getDuration(), classResult.getFailuresCount() > 0);
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not read previous test results from %s.", binaryResultsDir), e);
+            results.durations.clear();
+            results.startTimes.clear();
+            results.failed.clear();
+        }
+        return results;
+    }
+
+    public void add(String className, long duration) {
+        durations.put(className, duration);
+    }
+
+    public void add(String className, long startTime, long duration, boolean failed) {
+        durations.put(className, duration);
+        startTimes.put(className, startTime);
+        if (failed) {
+            this.failed.add(className);
+        }
+    }
+
+    /**
+     * Returns the duration of the given test class in the previous execution, or -1 if the test class was not executed.
+     */
+    public long getDuration(String className) {
+        Long duration = durations.get(className);
+        return duration == null ? -1 : duration;
+    }
+
+    /**
+     * Returns the time the given test class started in the previous execution, or -1 if the test class was not executed.
+     */
+    public long getStartTime(String className) {
+        Long startTime = startTimes.get(className);
+        return startTime == null ? -1 : startTime;
+    }
+
+    /**
+     * Returns true if the given test class had failures in the previous execution.
+     */
+    public boolean isFailed(String className) {
+        return failed.contains(className);
+    }
+
+    /**
+     * Returns an ordering of test classes which puts the test classes that failed in the previous execution first, followed by the test classes that
+     * changed since they were executed, and then the longest running test classes. Test classes that were not executed previously count as changed.
+     *
+     * @param classFileTimestamps The last modified time of the class file of each test class, by class name.
+     */
+    public Comparator<TestClassRunInfo> getFailedFirstOrder(final Map<String, Long> classFileTimestamps) {
+        final Comparator<TestClassRunInfo> longestFirstOrder = getLongestFirstOrder();
+        return new Comparator<TestClassRunInfo>() {
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                int rank1 = rank(o1.getTestClassName());
+                int rank2 = rank(o2.getTestClassName());
+                if (rank1 != rank2) {
+                    return rank1 < rank2 ? -1 : 1;
+                }
+                return longestFirstOrder.compare(o1, o2);
+            }
+
+            private int rank(String className) {
+                if (isFailed(className)) {
+                    return 0;
+                }
+                long startTime = getStartTime(className);
+                Long timestamp = classFileTimestamps.get(className);
+                if (startTime < 0 || timestamp != null && timestamp >= startTime) {
+                    return 1;
+                }
+                return 2;
+            }
+        };
+    }
+
+    /**
+     * Returns an ordering of test classes which puts the longest running test classes first. Test classes that were not executed previously are
+     * placed before all other test classes, as their duration is not known.
+     */
+    public Comparator<TestClassRunInfo> getLongestFirstOrder() {
+        return new Comparator<TestClassRunInfo>() {
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                long duration1 = getDuration(o1.getTestClassName());
+                long duration2 = getDuration(o2.getTestClassName());
+                if (duration1 < 0 || duration2 < 0) {
+                    return duration1 < 0 ? (duration2 < 0 ? 0 : -1) : 1;
+                }
+                return duration1 > duration2 ? -1 : duration1 == duration2 ? 0 : 1;
+            }
+        };
+    }
+}
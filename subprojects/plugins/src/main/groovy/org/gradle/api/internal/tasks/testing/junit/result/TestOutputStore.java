@@ -16,21 +16,41 @@
 
 package org.gradle.api.internal.tasks.testing.junit.result;
 
-import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.util.GFileUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.LinkedHashMap;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Stores the output of tests. The output is written to a data file as a sequence of records, one per output event. The index file contains one fixed-width
+ * entry per test that has output, sorted by class id and test id, which holds the region of the data file that contains the output of the test. The class level
+ * output of a test class uses test id 0.
+ *
+ * <p>The reader maps both files into memory where possible, so that it does not hold any state per test, and the output of any test can be found without
+ * reading the output of other tests.</p>
+ */
 public class TestOutputStore {
 
+    private static final int INDEX_VERSION = 2;
+    private static final int INDEX_HEADER_LENGTH = 4; // int(4)
+    private static final int INDEX_ENTRY_LENGTH = 6 * 8; // classId(8) + testId(8) + stdOut start(8) + stdOut stop(8) + stdErr start(8) + stdErr stop(8)
+
     private final File resultsDir;
     private final Charset messageStorageCharset;
 
@@ -55,11 +75,6 @@ public class TestOutputStore {
             start = -1;
             stop = -1;
         }
-
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
-        }
     }
 
     private static class TestCaseRegion {
@@ -70,7 +85,7 @@ public class TestOutputStore {
     public class Writer implements Closeable {
         private final Output output;
 
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        private final Map<Long, Map<Long, TestCaseRegion>> index = new HashMap<Long, Map<Long, TestCaseRegion>>();
 
         public Writer() {
             try {
@@ -108,17 +123,17 @@ public class TestOutputStore {
         }
 
         private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
-            }
-
             Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
-                testCaseRegions.put(testId, region);
+            if (testCaseRegions == null) {
+                testCaseRegions = new HashMap<Long, TestCaseRegion>();
+                index.put(classId, testCaseRegions);
             }
 
             TestCaseRegion region = testCaseRegions.get(testId);
+            if (region == null) {
+                region = new TestCaseRegion();
+                testCaseRegions.put(testId, region);
+            }
 
             Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
 
@@ -137,21 +152,14 @@ public class TestOutputStore {
                 throw new UncheckedIOException(e);
             }
 
-
             try {
-                indexOutput.writeInt(index.size(), true);
-
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
+                indexOutput.writeInt(INDEX_VERSION);
+                for (Long classId : sorted(index.keySet())) {
+                    Map<Long, TestCaseRegion> regions = index.get(classId);
+                    for (Long testId : sorted(regions.keySet())) {
+                        TestCaseRegion region = regions.get(testId);
+                        indexOutput.writeLong(classId);
+                        indexOutput.writeLong(testId);
                         indexOutput.writeLong(region.stdOutRegion.start);
                         indexOutput.writeLong(region.stdOutRegion.stop);
                         indexOutput.writeLong(region.stdErrRegion.start);
@@ -162,71 +170,47 @@ public class TestOutputStore {
                 indexOutput.close();
             }
         }
-    }
-
-    public Writer writer() {
-        return new Writer();
-    }
-
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index() {
-            this(new Region(), new Region());
-        }
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-    }
-
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
-
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
 
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
-            }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
-            }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
+        private List<Long> sorted(Iterable<Long> ids) {
+            List<Long> sorted = new ArrayList<Long>();
+            for (Long id : ids) {
+                sorted.add(id);
             }
-
-            children.put(key, index);
+            Collections.sort(sorted);
+            return sorted;
         }
+    }
 
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
-        }
+    public Writer writer() {
+        return new Writer();
     }
 
+    /**
+     * Reads the output of tests. The methods of a reader may be called concurrently from multiple threads.
+     *
+     * <p>The data file is mapped into memory, so that the output of a test is decoded straight from the mapped region. On Windows, where a mapped file cannot
+     * be deleted until the mapping has been garbage collected, and for data files that are too large to be mapped, the output is read through the file channel
+     * instead.</p>
+     */
     public class Reader implements Closeable {
 
         private final static int RECORD_HEADER_LENGTH = 1 + 8 + 8 + 4; // bool(1) + long(8) + long(8) + int(4)
+        private final static int MESSAGE_BUFFER_LENGTH = 2048;
 
-        private final Index index;
+        private final ByteBuffer index;
+        private final int indexEntries;
         private final RandomAccessFile dataFile;
-        private byte[] recordHeaderBuffer = new byte[RECORD_HEADER_LENGTH];
+        private final FileChannel dataChannel;
+        private final boolean memoryMapped;
+        // null when the data file is not mapped
+        private final ByteBuffer mappedData;
 
         public Reader() {
+            this(!OperatingSystem.current().isWindows());
+        }
+
+        Reader(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
             File indexFile = getIndexFile();
             File outputsFile = getOutputsFile();
 
@@ -234,52 +218,56 @@ public class TestOutputStore {
                 if (!indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '{}' exists but the index file '{}' does not", outputsFile, indexFile));
                 }
-
-                Input input;
-                try {
-                    input = new Input(new FileInputStream(indexFile));
-                } catch (FileNotFoundException e) {
-                    throw new UncheckedIOException(e);
-                }
-
-                IndexBuilder rootBuilder = null;
-                try {
-                    int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
-                    for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
-                        long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
-                    }
-                } finally {
-                    input.close();
-                }
-
-                index = rootBuilder.build();
+                index = readIndex(indexFile);
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '{}' does not exist but the index file '{}' does", outputsFile, indexFile));
                 }
 
                 GFileUtils.touch(getOutputsFile());
-                index = new Index();
+                index = ByteBuffer.allocate(INDEX_HEADER_LENGTH);
             }
+            indexEntries = (index.limit() - INDEX_HEADER_LENGTH) / INDEX_ENTRY_LENGTH;
 
             try {
                 dataFile = new RandomAccessFile(getOutputsFile(), "r");
-            } catch (FileNotFoundException e) {
+                dataChannel = dataFile.getChannel();
+                mappedData = canMap(dataChannel.size()) ? dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size()) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private boolean canMap(long size) {
+            return memoryMapped && size <= Integer.MAX_VALUE;
+        }
+
+        private ByteBuffer readIndex(File indexFile) {
+            ByteBuffer buffer;
+            try {
+                RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    long size = channel.size();
+                    if (size < INDEX_HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                        throw new IllegalStateException(String.format("Test outputs index file '%s' is not valid.", indexFile));
+                    }
+                    if (canMap(size)) {
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    } else {
+                        buffer = read(channel, 0, ByteBuffer.allocate((int) size));
+                    }
+                } finally {
+                    file.close();
+                }
+            } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
+            int version = buffer.getInt(0);
+            if (version != INDEX_VERSION) {
+                throw new IllegalStateException(String.format("Unexpected test outputs index file version %d found in %s.", version, indexFile));
+            }
+            return buffer;
         }
 
         public void close() throws IOException {
@@ -287,13 +275,13 @@ public class TestOutputStore {
         }
 
         public boolean hasOutput(long classId, TestOutputEvent.Destination destination) {
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
-                return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
+            int regionOffset = destination == TestOutputEvent.Destination.StdOut ? 16 : 32;
+            for (int entry = firstEntry(classId); entry < indexEntries && classIdOf(entry) == classId; entry++) {
+                if (index.getLong(offsetOf(entry) + regionOffset) >= 0) {
+                    return true;
+                }
             }
+            return false;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -308,20 +296,55 @@ public class TestOutputStore {
             doRead(classId, testId, false, destination, writer);
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
-            }
+        private int offsetOf(int entry) {
+            return INDEX_HEADER_LENGTH + entry * INDEX_ENTRY_LENGTH;
+        }
 
-            if (targetIndex == null) {
-                return;
+        private long classIdOf(int entry) {
+            return index.getLong(offsetOf(entry));
+        }
+
+        private long testIdOf(int entry) {
+            return index.getLong(offsetOf(entry) + 8);
+        }
+
+        /**
+         * Returns the first index entry of the given class, or the entry where it would be inserted if the class has no entries.
+         */
+        private int firstEntry(long classId) {
+            int low = 0;
+            int high = indexEntries;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (classIdOf(mid) < classId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
             }
+            return low;
+        }
 
+        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
             boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+            int regionOffset = stdout ? 16 : 32;
+
+            // Find the region of the data file that contains the output: either the region of the test, or the union of the regions of all tests of the class
+            long start = -1;
+            long stop = -1;
+            for (int entry = firstEntry(classId); entry < indexEntries && classIdOf(entry) == classId; entry++) {
+                if (testId != 0 && testIdOf(entry) != testId) {
+                    continue;
+                }
+                long entryStart = index.getLong(offsetOf(entry) + regionOffset);
+                if (entryStart < 0) {
+                    continue;
+                }
+                start = start < 0 ? entryStart : Math.min(start, entryStart);
+                stop = Math.max(stop, index.getLong(offsetOf(entry) + regionOffset + 8));
+            }
 
-            if (region.start < 0) {
+            if (start < 0) {
                 return;
             }
 
@@ -329,60 +352,135 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
-
-                while (dataFile.getFilePointer() <= region.stop) {
-                    dataFile.read(recordHeaderBuffer);
-                    Input input = new Input(recordHeaderBuffer);
-                    boolean readStdout = input.readBoolean();
-                    long readClassId = input.readLong();
-                    long readTestId = input.readLong();
-                    int readLength = input.readInt();
-                    input.close();
+                ByteBuffer recordHeaderBuffer = mappedData == null ? ByteBuffer.allocate(RECORD_HEADER_LENGTH) : null;
+                MessageDecoder decoder = null;
+                long position = start;
+                while (position <= stop) {
+                    ByteBuffer header;
+                    int headerOffset;
+                    if (mappedData != null) {
+                        header = mappedData;
+                        headerOffset = (int) position;
+                    } else {
+                        recordHeaderBuffer.clear();
+                        header = read(dataChannel, position, recordHeaderBuffer);
+                        headerOffset = 0;
+                    }
+                    boolean readStdout = header.get(headerOffset) != 0;
+                    long readClassId = header.getLong(headerOffset + 1);
+                    long readTestId = header.getLong(headerOffset + 9);
+                    int messageLength = header.getInt(headerOffset + 17);
+                    long messageStart = position + RECORD_HEADER_LENGTH;
+                    position = messageStart + messageLength;
 
                     boolean isClassLevel = readTestId == 0;
 
                     if (stdout != readStdout || classId != readClassId) {
-                        dataFile.skipBytes(readLength);
                         continue;
                     }
 
                     if (ignoreClassLevel && isClassLevel) {
-                        dataFile.skipBytes(readLength);
                         continue;
                     }
 
                     if (ignoreTestLevel && !isClassLevel) {
-                        dataFile.skipBytes(readLength);
                         continue;
                     }
 
-                    if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        dataFile.read(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
-                        }
-
-                        writer.write(message);
-                    } else {
-                        dataFile.skipBytes(readLength);
+                    if (testId != 0 && testId != readTestId) {
                         continue;
                     }
+
+                    if (decoder == null) {
+                        decoder = new MessageDecoder();
+                    }
+                    decoder.copy(messageStart, messageLength, writer);
                 }
             } catch (IOException e1) {
                 throw new UncheckedIOException(e1);
             }
 
         }
+
+        /**
+         * Decodes messages from the data file straight into a writer, rather than creating a string per message. A mapped message is decoded in place,
+         * otherwise the message is read in chunks into a buffer which is reused for all messages.
+         */
+        private class MessageDecoder {
+            private final CharsetDecoder decoder = messageStorageCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            private final CharBuffer chars = CharBuffer.allocate(MESSAGE_BUFFER_LENGTH);
+            private ByteBuffer bytes;
+
+            void copy(long position, int length, java.io.Writer writer) throws IOException {
+                decoder.reset();
+                if (mappedData != null) {
+                    ByteBuffer message = mappedData.duplicate();
+                    message.limit((int) position + length);
+                    message.position((int) position);
+                    decode(message, true, writer);
+                } else {
+                    if (bytes == null) {
+                        bytes = ByteBuffer.allocate(MESSAGE_BUFFER_LENGTH);
+                    }
+                    bytes.clear();
+                    long remaining = length;
+                    do {
+                        int count = (int) Math.min(bytes.remaining(), remaining);
+                        ByteBuffer chunk = bytes.duplicate();
+                        chunk.limit(chunk.position() + count);
+                        read(dataChannel, position, chunk);
+                        bytes.position(bytes.position() + count);
+                        position += count;
+                        remaining -= count;
+                        bytes.flip();
+                        decode(bytes, remaining == 0, writer);
+                        bytes.compact();
+                    } while (remaining > 0);
+                }
+                while (decoder.flush(chars).isOverflow()) {
+                    write(writer);
+                }
+                write(writer);
+            }
+
+            private void decode(ByteBuffer input, boolean endOfInput, java.io.Writer writer) throws IOException {
+                CoderResult result;
+                do {
+                    result = decoder.decode(input, chars, endOfInput);
+                    write(writer);
+                } while (result.isOverflow());
+            }
+
+            private void write(java.io.Writer writer) throws IOException {
+                chars.flip();
+                writer.write(chars.array(), 0, chars.limit());
+                chars.clear();
+            }
+        }
+    }
+
+    /**
+     * Fills the given buffer from the given position of the channel, and returns the buffer flipped for reading. Positional reads do not change the position
+     * of the channel, so the channel can be shared by multiple threads.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            position += count;
+        }
+        buffer.flip();
+        return buffer;
     }
 
     // IMPORTANT: return must be closed when done with.
     public Reader reader() {
         return new Reader();
     }
+
+    Reader reader(boolean memoryMapped) {
+        return new Reader(memoryMapped);
+    }
 }
@@ -24,7 +24,8 @@ import java.io.Writer;
 
 public interface TestResultsProvider extends Closeable {
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the test class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
+     * The output methods may be called concurrently from multiple threads, including while {@link #visitClasses(org.gradle.api.Action)} is visiting the remaining classes.
      *
      * Writes all output for the test class.
      */
@@ -33,7 +34,7 @@ public interface TestResultsProvider extends Closeable {
     void writeNonTestOutput(long id, TestOutputEvent.Destination destination, Writer writer);
 
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the test class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
      *
      * Write all output for the given test case name of the test class.
      */
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorIdleListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.CompositeStoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a set of parallel TestClassProcessors. Test classes are queued, and each processor is given the next test class from the queue whenever it
+ * becomes idle. This means that a processor that is given some slow test classes does not hold up the test classes queued behind them, as happens when
+ * test classes are assigned to processors up front.
+ *
+ * <p>Queued test classes are given out in the order specified by a comparator, for example longest first.</p>
+ *
+ * <p>A processor that rejects a test class, for example because its worker process has stopped unexpectedly, is not given any more test classes. The
+ * rejected test class is queued again, to be given to another processor. A processor that had executed some test classes before it stopped is replaced by
+ * a new processor, whereas a processor that stopped before executing any test class is not, so that a processor that cannot start at all does not cause
+ * processors to be started over and over. When no processor is left to execute the queued test classes, these are reported as failed when this processor
+ * is stopped.</p>
+ */
+public class PullingMaxNParallelTestClassProcessor implements TestClassProcessor {
+    private final int maxProcessors;
+    private final Transformer<TestClassProcessor, TestClassProcessorIdleListener> factory;
+    private final ActorFactory actorFactory;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final PriorityQueue<QueuedTestClass> queue;
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private final LinkedList<Slot> idleSlots = new LinkedList<Slot>();
+    private int stoppedSlots;
+    private int replaceableSlots;
+    private long queued;
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+
+    /**
+     * @param factory Creates a processor, given the listener to notify when the processor is idle.
+     * @param order The order to give out queued test classes in.
+     */
+    public PullingMaxNParallelTestClassProcessor(int maxProcessors, Transformer<TestClassProcessor, TestClassProcessorIdleListener> factory,
+                                                 ActorFactory actorFactory, final Comparator<? super TestClassRunInfo> order) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        queue = new PriorityQueue<QueuedTestClass>(11, new Comparator<QueuedTestClass>() {
+            public int compare(QueuedTestClass o1, QueuedTestClass o2) {
+                int result = order.compare(o1.testClass, o2.testClass);
+                if (result != 0) {
+                    return result;
+                }
+                return o1.sequence < o2.sequence ? -1 : o1.sequence == o2.sequence ? 0 : 1;
+            }
+        });
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        lock.lock();
+        try {
+            queue.add(new QueuedTestClass(testClass, queued++));
+            maybeStartProcessor();
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void maybeStartProcessor() {
+        if (idleSlots.isEmpty() && processors.size() - replaceableSlots < maxProcessors) {
+            Slot slot = new Slot();
+            TestClassProcessor processor = new RejectOnFailureTestClassProcessor(factory.transform(slot), slot);
+            Actor actor = actorFactory.createActor(processor);
+            slot.processor = actor.getProxy(TestClassProcessor.class);
+            actors.add(actor);
+            processors.add(slot.processor);
+            slot.processor.startProcessing(resultProcessor);
+            idleSlots.add(slot);
+        }
+    }
+
+    private boolean hasLiveProcessors() {
+        return stoppedSlots < processors.size();
+    }
+
+    private void dispatch() {
+        while (!idleSlots.isEmpty() && !queue.isEmpty()) {
+            Slot slot = idleSlots.removeFirst();
+            slot.busy = true;
+            slot.processor.processTestClass(queue.poll().testClass);
+        }
+        condition.signalAll();
+    }
+
+    public void stop() {
+        List<String> notExecuted = new ArrayList<String>();
+        lock.lock();
+        try {
+            while (!queue.isEmpty() && hasLiveProcessors()) {
+                condition.await();
+            }
+            while (!queue.isEmpty()) {
+                notExecuted.add(queue.poll().testClass.getTestClassName());
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+        if (!notExecuted.isEmpty()) {
+            throw new GradleException(String.format("Could not execute %s test classes, as all of the test processors have stopped. The test classes not executed: %s",
+                    notExecuted.size(), notExecuted));
+        }
+    }
+
+    private class Slot implements TestClassProcessorIdleListener {
+        TestClassProcessor processor;
+        boolean busy;
+        boolean stopped;
+        boolean executedTestClass;
+
+        public void idle() {
+            lock.lock();
+            try {
+                if (busy && !stopped) {
+                    busy = false;
+                    executedTestClass = true;
+                    idleSlots.add(this);
+                    dispatch();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void rejected(TestClassRunInfo testClass) {
+            lock.lock();
+            try {
+                queue.add(new QueuedTestClass(testClass, queued++));
+                if (!stopped) {
+                    stopped = true;
+                    stoppedSlots++;
+                    if (executedTestClass) {
+                        replaceableSlots++;
+                    }
+                    busy = false;
+                    idleSlots.remove(this);
+                    maybeStartProcessor();
+                }
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class QueuedTestClass {
+        final TestClassRunInfo testClass;
+        final long sequence;
+
+        private QueuedTestClass(TestClassRunInfo testClass, long sequence) {
+            this.testClass = testClass;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Treats a processor that fails to accept a test class as having rejected it, so that the test class and the remaining test classes are given to other
+     * processors. The failure is reported when the processor is stopped.
+     */
+    private static class RejectOnFailureTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private final TestClassProcessorIdleListener idleListener;
+
+        private RejectOnFailureTestClassProcessor(TestClassProcessor processor, TestClassProcessorIdleListener idleListener) {
+            this.processor = processor;
+            this.idleListener = idleListener;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            processor.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            try {
+                processor.processTestClass(testClass);
+            } catch (RuntimeException e) {
+                idleListener.rejected(testClass);
+                throw e;
+            }
+        }
+
+        public void stop() {
+            processor.stop();
+        }
+    }
+}
@@ -16,16 +16,12 @@
 package org.gradle.api.internal.tasks.testing.testng;
 
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
+import org.gradle.api.internal.tasks.testing.detection.ClassDetails;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
-import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
 class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetecter> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(TestNGDetector.class);
-
     TestNGDetector(ClassFileExtractionManager classFileExtractionManager) {
         super(classFileExtractionManager);
     }
@@ -40,24 +36,15 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
      * parent class is a test class all the extending classes are marked as test classes.
      */
     protected boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
+        final ClassDetails classDetails = classDetails(testClassFile);
 
-        boolean isTest = classVisitor.isTest();
+        boolean isTest = classDetails.isTest();
 
         if (!isTest) {
-            final String superClassName = classVisitor.getSuperClassName();
-
-            final File superClassFile = getSuperTestClassFile(superClassName);
-
-            if (superClassFile != null) {
-                isTest = processSuperClass(superClassFile);
-            } else {
-                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
-                        superClassName);
-            }
+            isTest = processSuperClass(classDetails.getSuperClassName());
         }
 
-        publishTestClass(isTest, classVisitor, superClass);
+        publishTestClass(isTest, classDetails, superClass);
 
         return isTest;
     }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+/**
+ * A {@link TestResultProcessor} which collects the output of tests into batches, so that chatty tests do not send a message to the build process for each
+ * line of output.
+ *
+ * <p>A batch is sent once it reaches a maximum length, once it has been held for a maximum delay, before any other event is sent, and when {@link #flush()}
+ * or {@link #stop()} is called.</p>
+ */
+public class BatchTestOutputTestResultProcessor implements TestResultProcessor, Stoppable {
+    static final int MAX_BATCH_LENGTH = 8192;
+    static final long MAX_BATCH_DELAY_MILLIS = 100;
+
+    private final TestWorkerClientProtocol client;
+    private final int maxLength;
+    private final long maxDelayMillis;
+    private final StoppableExecutor executor;
+    private final Object lock = new Object();
+    private TestOutputBatch batch = new TestOutputBatch();
+    private long batchStarted;
+    private boolean stopped;
+
+    public BatchTestOutputTestResultProcessor(TestWorkerClientProtocol client, ExecutorFactory executorFactory) {
+        this(client, executorFactory, MAX_BATCH_LENGTH, MAX_BATCH_DELAY_MILLIS);
+    }
+
+    BatchTestOutputTestResultProcessor(TestWorkerClientProtocol client, ExecutorFactory executorFactory, int maxLength, long maxDelayMillis) {
+        this.client = client;
+        this.maxLength = maxLength;
+        this.maxDelayMillis = maxDelayMillis;
+        executor = executorFactory.create("Test output batching");
+        executor.execute(new DelayedFlush());
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        synchronized (lock) {
+            flushBatch();
+            client.started(test, event);
+        }
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        synchronized (lock) {
+            flushBatch();
+            client.completed(testId, event);
+        }
+    }
+
+    public void failure(Object testId, Throwable result) {
+        synchronized (lock) {
+            flushBatch();
+            client.failure(testId, result);
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        synchronized (lock) {
+            if (batch.isEmpty()) {
+                batchStarted = System.currentTimeMillis();
+                lock.notifyAll();
+            }
+            batch.add(testId, event);
+            if (batch.getLength() >= maxLength) {
+                flushBatch();
+            }
+        }
+    }
+
+    /**
+     * Sends the output collected so far.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Sends the output collected so far, and stops the thread which sends delayed output.
+     */
+    public void stop() {
+        synchronized (lock) {
+            flushBatch();
+            stopped = true;
+            lock.notifyAll();
+        }
+        executor.stop();
+    }
+
+    private void flushBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        TestOutputBatch completed = batch.complete();
+        batch = new TestOutputBatch();
+        client.outputBatch(completed);
+    }
+
+    private class DelayedFlush implements Runnable {
+        public void run() {
+            synchronized (lock) {
+                try {
+                    while (!stopped) {
+                        if (batch.isEmpty()) {
+                            lock.wait();
+                            continue;
+                        }
+                        long remaining = batchStarted + maxDelayMillis - System.currentTimeMillis();
+                        if (remaining > 0) {
+                            lock.wait(remaining);
+                        } else {
+                            flushBatch();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+    }
+}
@@ -17,13 +17,14 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorIdleListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.process.JavaForkOptions;
-import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
 import java.io.File;
@@ -34,16 +35,29 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
-    private RemoteTestClassProcessor remoteProcessor;
-    private WorkerProcess workerProcess;
+    private final TestClassProcessorIdleListener idleListener;
+    private final TestWorkerPool workerPool;
+    private TestWorkerClient worker;
     private TestResultProcessor resultProcessor;
 
-    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     TestClassProcessorIdleListener idleListener) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, idleListener, null);
+    }
+
+    /**
+     * @param workerPool The pool to take the worker process from, and to return it to once stopped. When null, a worker process is started and stopped
+     * by this processor.
+     */
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     TestClassProcessorIdleListener idleListener, @Nullable TestWorkerPool workerPool) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.idleListener = idleListener;
+        this.workerPool = workerPool;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -51,30 +65,39 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        if (remoteProcessor == null) {
+        if (worker == null) {
             WorkerProcessBuilder builder = workerFactory.create();
-            builder.applicationClasspath(classPath);
             builder.setLoadApplicationInSystemClassLoader(true);
-            builder.worker(new TestWorker(processorFactory));
             options.copyTo(builder.getJavaCommand());
             buildConfigAction.execute(builder);
-            
-            workerProcess = builder.build();
-            workerProcess.start();
-
-            workerProcess.getConnection().addIncoming(TestResultProcessor.class, resultProcessor);
-            remoteProcessor = workerProcess.getConnection().addOutgoing(RemoteTestClassProcessor.class);
 
-            remoteProcessor.startProcessing();
+            if (workerPool == null) {
+                builder.applicationClasspath(classPath);
+                builder.worker(new TestWorker(processorFactory));
+                worker = TestWorkerClient.start(builder, null);
+                worker.startProcessing(resultProcessor, idleListener);
+            } else {
+                // The application classes are loaded by the worker for this use only, so that the worker can be used with other application classes
+                builder.worker(new TestWorker(null));
+                Object key = TestWorkerPool.keyFor(builder);
+                worker = workerPool.acquire(key);
+                if (worker == null) {
+                    worker = TestWorkerClient.start(builder, key);
+                }
+                worker.startProcessing(resultProcessor, idleListener, classPath, builder.getSharedPackages(), processorFactory);
+            }
         }
 
-        remoteProcessor.processTestClass(testClass);
+        worker.processTestClass(testClass);
     }
 
     public void stop() {
-        if (remoteProcessor != null) {
-            remoteProcessor.stop();
-            workerProcess.waitForStop();
+        if (worker != null) {
+            if (workerPool != null && worker.stopProcessing()) {
+                workerPool.release(worker);
+            } else {
+                worker.stop();
+            }
         }
     }
 }
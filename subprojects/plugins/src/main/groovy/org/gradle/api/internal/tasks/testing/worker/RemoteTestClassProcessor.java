@@ -18,6 +18,9 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 
+import java.net.URI;
+import java.util.List;
+
 /**
  * @see org.gradle.api.internal.tasks.testing.TestClassProcessor
  */
@@ -27,13 +30,30 @@ public interface RemoteTestClassProcessor {
      */
     void startProcessing();
 
+    /**
+     * Starts processing test classes, with the application classes and the test framework classes loaded in ClassLoaders that are discarded by
+     * {@link #stopProcessing()}. Does not block.
+     *
+     * @param applicationClassPath The application classpath.
+     * @param sharedPackages The packages of the application classpath that are visible to the test framework classes.
+     * @param testFrameworkPackage The package that contains the test framework classes.
+     * @param serializedProcessorFactory The serialized {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory} of the test framework.
+     */
+    void startProcessing(List<URI> applicationClassPath, List<String> sharedPackages, String testFrameworkPackage, byte[] serializedProcessorFactory);
+
     /**
      * Does not block.
      */
     void processTestClass(TestClassRunInfo testClass);
 
     /**
-     * Does not block.
+     * Stops processing test classes, and then stops the worker process. Does not block.
      */
     void stop();
+
+    /**
+     * Stops processing test classes and resets the worker process, but leaves it running so that it can start processing test classes again. Does not
+     * block.
+     */
+    void stopProcessing();
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of output events of one or more tests, which is sent from a test worker process to the build process as a single message. Consecutive output
+ * of the same test and destination is combined into a single event. The events keep the order in which the output was written.
+ */
+public class TestOutputBatch implements Serializable {
+    private final List<Object> testIds = new ArrayList<Object>();
+    private final List<TestOutputEvent> events = new ArrayList<TestOutputEvent>();
+    private transient StringBuilder current;
+    private transient TestOutputEvent.Destination currentDestination;
+    private transient int length;
+
+    /**
+     * Adds output to this batch.
+     */
+    public void add(Object testId, TestOutputEvent event) {
+        if (current == null || currentDestination != event.getDestination() || !testIds.get(testIds.size() - 1).equals(testId)) {
+            finishCurrent();
+            current = new StringBuilder();
+            currentDestination = event.getDestination();
+            testIds.add(testId);
+            events.add(null);
+        }
+        current.append(event.getMessage());
+        length += event.getMessage().length();
+    }
+
+    /**
+     * Returns the number of characters of output in this batch.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return testIds.isEmpty();
+    }
+
+    /**
+     * Completes this batch so that it can be sent. No more output can be added after this has been called.
+     */
+    public TestOutputBatch complete() {
+        finishCurrent();
+        return this;
+    }
+
+    /**
+     * Forwards the output events of this batch to the given processor, in order.
+     */
+    public void forwardTo(TestResultProcessor processor) {
+        for (int i = 0; i < testIds.size(); i++) {
+            processor.output(testIds.get(i), events.get(i));
+        }
+    }
+
+    private void finishCurrent() {
+        if (current != null) {
+            events.set(events.size() - 1, new DefaultTestOutputEvent(currentDestination, current.toString()));
+            current = null;
+            currentDestination = null;
+        }
+    }
+}
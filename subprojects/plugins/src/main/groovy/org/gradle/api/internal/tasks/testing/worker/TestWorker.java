@@ -19,15 +19,16 @@ package org.gradle.api.internal.tasks.testing.worker;
 import org.gradle.api.Action;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.TrueTimeProvider;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.*;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.listener.ContextClassLoaderProxy;
@@ -38,7 +39,13 @@ import org.gradle.process.internal.WorkerProcessContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Serializable;
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
 
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable {
@@ -46,8 +53,13 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
     private CountDownLatch completed;
+    private WorkerProcessContext workerProcessContext;
+    private ServiceRegistry testServices;
+    private SystemState initialSystemState;
     private TestClassProcessor processor;
-    private TestResultProcessor resultProcessor;
+    private TestWorkerClientProtocol client;
+    private BatchTestOutputTestResultProcessor resultProcessor;
+    private final List<ClassLoader> classLoadersForUse = new ArrayList<ClassLoader>();
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
         this.factory = factory;
@@ -59,6 +71,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         completed = new CountDownLatch(1);
 
         System.setProperty(WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        initialSystemState = SystemState.capture();
 
         DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext);
         startReceivingTests(workerProcessContext, testServices);
@@ -78,22 +91,59 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     }
 
     private void startReceivingTests(WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
+        this.workerProcessContext = workerProcessContext;
+        this.testServices = testServices;
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        this.client = serverConnection.addOutgoing(TestWorkerClientProtocol.class);
+        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
+    }
+
+    private TestClassProcessor createProcessor(WorkerTestClassProcessorFactory factory, ClassLoader applicationClassLoader) {
         TestClassProcessor targetProcessor = factory.create(testServices);
         IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
 
         targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
                 workerProcessContext.getDisplayName(), new TrueTimeProvider());
         ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
-                TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
-        processor = proxy.getSource();
-
-        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
-        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
+                TestClassProcessor.class, targetProcessor, applicationClassLoader);
+        return proxy.getSource();
     }
 
     public void startProcessing() {
         Thread.currentThread().setName("Test worker");
+        startProcessing(factory, workerProcessContext.getApplicationClassLoader());
+    }
+
+    public void startProcessing(List<URI> applicationClassPath, List<String> sharedPackages, String testFrameworkPackage, byte[] serializedProcessorFactory) {
+        Thread.currentThread().setName("Test worker");
+        ClassLoader applicationClassLoader = new DefaultClassLoaderFactory().createIsolatedClassLoader(applicationClassPath);
+        classLoadersForUse.add(applicationClassLoader);
+
+        // Load the test framework classes again, linked against the test framework of the application classpath
+        FilteringClassLoader filteredApplication = new FilteringClassLoader(applicationClassLoader);
+        for (String sharedPackage : sharedPackages) {
+            filteredApplication.allowPackage(sharedPackage);
+        }
+        ClassLoader implementationClassLoader = getClass().getClassLoader();
+        ClassLoader testFrameworkClassLoader = new MutableURLClassLoader(new CachingClassLoader(new MultiParentClassLoader(filteredApplication,
+                new PackageHidingClassLoader(implementationClassLoader, testFrameworkPackage))), ClasspathUtil.getClasspath(implementationClassLoader));
+        classLoadersForUse.add(testFrameworkClassLoader);
+
+        WorkerTestClassProcessorFactory factory;
+        try {
+            ObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedProcessorFactory), testFrameworkClassLoader);
+            factory = (WorkerTestClassProcessorFactory) instr.readObject();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        startProcessing(factory, applicationClassLoader);
+    }
+
+    private void startProcessing(WorkerTestClassProcessorFactory factory, ClassLoader applicationClassLoader) {
+        processor = createProcessor(factory, applicationClassLoader);
+        // Combine the output of chatty tests, rather than sending each line of output to the build process as a separate message
+        resultProcessor = new BatchTestOutputTestResultProcessor(client, testServices.get(ExecutorFactory.class));
         processor.startProcessing(resultProcessor);
     }
 
@@ -104,18 +154,123 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            resultProcessor.flush();
+            client.idle();
         }
     }
 
     public void stop() {
         Thread.currentThread().setName("Test worker");
         try {
-            processor.stop();
+            try {
+                processor.stop();
+            } finally {
+                resultProcessor.stop();
+            }
         } finally {
             completed.countDown();
         }
     }
 
+    public void stopProcessing() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            try {
+                processor.stop();
+            } finally {
+                resultProcessor.stop();
+            }
+        } finally {
+            // Discards the application and test framework classes, when these were loaded for this use only
+            processor = null;
+            resultProcessor = null;
+            boolean reusable = closeClassLoadersForUse();
+            // Undo the changes the tests might have made to the state of the process, so that it can be used for other tests
+            Thread.interrupted();
+            System.setSecurityManager(null);
+            initialSystemState.restore();
+            client.processingStopped(reusable);
+        }
+    }
+
+    /**
+     * Closes the ClassLoaders created for the current use, so that they release the jars and directories of the project. Returns false when one of them
+     * could not be closed, such as on a JVM older than Java 7, where a URLClassLoader cannot be closed.
+     */
+    private boolean closeClassLoadersForUse() {
+        boolean closed = true;
+        for (ClassLoader classLoader : classLoadersForUse) {
+            try {
+                classLoader.getClass().getMethod("close").invoke(classLoader);
+            } catch (NoSuchMethodException e) {
+                closed = false;
+            } catch (Exception e) {
+                LOGGER.debug(String.format("Could not close %s.", classLoader), e);
+                closed = false;
+            }
+        }
+        classLoadersForUse.clear();
+        return closed;
+    }
+
+    /**
+     * Hides the classes of a package and its sub-packages, so that a child ClassLoader loads its own copies of them.
+     */
+    private static class PackageHidingClassLoader extends ClassLoader {
+        private final String packagePrefix;
+
+        private PackageHidingClassLoader(ClassLoader parent, String packageName) {
+            super(parent);
+            this.packagePrefix = packageName + ".";
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith(packagePrefix)) {
+                throw new ClassNotFoundException(String.format("%s not found.", name));
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    /**
+     * The process wide state that tests commonly change.
+     */
+    private static class SystemState {
+        private final Properties systemProperties;
+        private final InputStream in;
+        private final PrintStream out;
+        private final PrintStream err;
+        private final Locale locale;
+        private final TimeZone timeZone;
+
+        private SystemState(Properties systemProperties, InputStream in, PrintStream out, PrintStream err, Locale locale, TimeZone timeZone) {
+            this.systemProperties = systemProperties;
+            this.in = in;
+            this.out = out;
+            this.err = err;
+            this.locale = locale;
+            this.timeZone = timeZone;
+        }
+
+        static SystemState capture() {
+            Properties systemProperties = new Properties();
+            systemProperties.putAll(System.getProperties());
+            return new SystemState(systemProperties, System.in, System.out, System.err, Locale.getDefault(), TimeZone.getDefault());
+        }
+
+        void restore() {
+            Properties properties = new Properties();
+            properties.putAll(systemProperties);
+            System.setProperties(properties);
+            System.setIn(in);
+            System.setOut(out);
+            System.setErr(err);
+            Locale.setDefault(locale);
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
     private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The build process side of a test worker process. Forwards the messages from the worker to whichever processor is currently using the worker, so that
+ * the worker can be used by several processors one after the other.
+ */
+public class TestWorkerClient implements TestWorkerClientProtocol, ExecHandleListener, Stoppable {
+    private final Object key;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private WorkerProcess workerProcess;
+    private RemoteTestClassProcessor remoteProcessor;
+    private volatile TestResultProcessor resultProcessor;
+    private volatile TestClassProcessorIdleListener idleListener;
+    private boolean processing;
+    private boolean reusable;
+    private boolean stopping;
+    private boolean stoppedUnexpectedly;
+
+    private TestWorkerClient(Object key) {
+        this.key = key;
+    }
+
+    /**
+     * Starts a worker process.
+     *
+     * @param key Identifies the configuration of the worker process, for reusing the worker.
+     */
+    public static TestWorkerClient start(WorkerProcessBuilder builder, Object key) {
+        TestWorkerClient client = new TestWorkerClient(key);
+        builder.getJavaCommand().listener(client);
+        client.workerProcess = builder.build();
+        client.workerProcess.start();
+        client.workerProcess.getConnection().addIncoming(TestWorkerClientProtocol.class, client);
+        client.remoteProcessor = client.workerProcess.getConnection().addOutgoing(RemoteTestClassProcessor.class);
+        return client;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Returns true if the worker process is still running.
+     */
+    public boolean isAlive() {
+        lock.lock();
+        try {
+            return !stoppedUnexpectedly;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts processing test classes with the application classes and test framework that the worker process was started with.
+     */
+    public void startProcessing(TestResultProcessor resultProcessor, TestClassProcessorIdleListener idleListener) {
+        beforeProcessing(resultProcessor, idleListener);
+        remoteProcessor.startProcessing();
+    }
+
+    /**
+     * Starts processing test classes with the given application classes and test framework, which the worker process loads for this use only.
+     */
+    public void startProcessing(TestResultProcessor resultProcessor, TestClassProcessorIdleListener idleListener, Iterable<File> applicationClassPath,
+                                Collection<String> sharedPackages, WorkerTestClassProcessorFactory processorFactory) {
+        beforeProcessing(resultProcessor, idleListener);
+        List<URI> applicationClassPathUris = new ArrayList<URI>();
+        for (File file : applicationClassPath) {
+            applicationClassPathUris.add(file.toURI());
+        }
+        remoteProcessor.startProcessing(applicationClassPathUris, new ArrayList<String>(sharedPackages), processorFactory.getClass().getPackage().getName(),
+                GUtil.serialize(processorFactory));
+    }
+
+    private void beforeProcessing(TestResultProcessor resultProcessor, TestClassProcessorIdleListener idleListener) {
+        this.resultProcessor = resultProcessor;
+        this.idleListener = idleListener;
+        lock.lock();
+        try {
+            processing = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (!isAlive()) {
+            // The failure of the worker process is reported when the worker is stopped
+            idleListener.rejected(testClass);
+            return;
+        }
+        remoteProcessor.processTestClass(testClass);
+    }
+
+    /**
+     * Stops processing test classes and resets the worker process, blocking until all results have been received.
+     *
+     * @return true if the worker process can be used again, false if it has stopped and should be stopped by calling {@link #stop()}.
+     */
+    public boolean stopProcessing() {
+        lock.lock();
+        try {
+            if (stoppedUnexpectedly) {
+                return false;
+            }
+            remoteProcessor.stopProcessing();
+            while (processing && !stoppedUnexpectedly) {
+                condition.await();
+            }
+            return !processing && reusable;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops processing test classes, and stops the worker process. Blocks until the worker process has stopped.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopping = true;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.stop();
+        workerProcess.waitForStop();
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        resultProcessor.started(test, event);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        resultProcessor.completed(testId, event);
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        resultProcessor.output(testId, event);
+    }
+
+    public void outputBatch(TestOutputBatch batch) {
+        batch.forwardTo(resultProcessor);
+    }
+
+    public void failure(Object testId, Throwable result) {
+        resultProcessor.failure(testId, result);
+    }
+
+    public void idle() {
+        idleListener.idle();
+    }
+
+    public void processingStopped(boolean reusable) {
+        lock.lock();
+        try {
+            processing = false;
+            this.reusable = reusable;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void executionStarted(ExecHandle execHandle) {
+    }
+
+    public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+        TestClassProcessorIdleListener idleListener;
+        lock.lock();
+        try {
+            if (stopping) {
+                return;
+            }
+            stoppedUnexpectedly = true;
+            condition.signalAll();
+            idleListener = processing ? this.idleListener : null;
+        } finally {
+            lock.unlock();
+        }
+        if (idleListener != null) {
+            idleListener.idle();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * The messages sent by a test worker process back to the build process. These are all sent through one channel, so that they are received in the order
+ * they were sent.
+ *
+ * @see RemoteTestClassProcessor
+ */
+public interface TestWorkerClientProtocol extends TestResultProcessor {
+    /**
+     * Called when the worker has finished with the test class it was last given.
+     */
+    void idle();
+
+    /**
+     * Called when the worker has stopped processing test classes in response to {@link RemoteTestClassProcessor#stopProcessing()}, after all results
+     * have been sent.
+     *
+     * @param reusable false when the worker could not release the classes it loaded for this use, in which case the worker should not be used again.
+     */
+    void processingStopped(boolean reusable);
+
+    /**
+     * Called with a batch of output events, which are forwarded as if each of them had been passed to {@link #output(Object,
+     * org.gradle.api.tasks.testing.TestOutputEvent)}.
+     */
+    void outputBatch(TestOutputBatch batch);
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.CompositeStoppable;
+import org.gradle.internal.Stoppable;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.util.*;
+
+/**
+ * Keeps test worker processes running once a test task has finished with them, so that they can be used by later test tasks in the same build. A worker
+ * is only given to a test task that would otherwise start a worker process with the same configuration. The workers are stopped at the end of the
+ * build, when the build services are closed.
+ *
+ * <p>The application classes are not loaded by the worker process when it starts. Instead, each use of the worker loads the application classes and the
+ * test framework in ClassLoaders which are discarded at the end of the use. This means that a worker can be used with a different application classpath,
+ * and that the static state of the application classes does not leak from one use to the next.</p>
+ */
+@ThreadSafe
+public class TestWorkerPool implements Stoppable {
+    /**
+     * The system property to set to true to reuse test worker processes.
+     */
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+
+    private final int maxIdleWorkers;
+    private final LinkedList<TestWorkerClient> idleWorkers = new LinkedList<TestWorkerClient>();
+    private int reusedCount;
+
+    TestWorkerPool(int maxIdleWorkers) {
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    public static boolean isReuseWorkers() {
+        return Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Returns a key that identifies the configuration of the worker process that the given builder would start. A worker is only reused by a processor
+     * whose key is equal to the key of the worker. The key is made up of the options of the java command and of the configuration that the test
+     * framework applies to the worker. It does not include the application classpath, as this is loaded for each use of the worker.
+     */
+    public static Object keyFor(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        Map<String, String> environment = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return Arrays.asList(
+                javaCommand.getExecutable(),
+                javaCommand.getAllJvmArgs(),
+                environment,
+                javaCommand.getWorkingDir(),
+                new TreeSet<String>(builder.getSharedPackages()),
+                builder.getLogLevel());
+    }
+
+    /**
+     * Takes an idle worker with the given key from the pool.
+     *
+     * @return The worker, or null when there is no such worker.
+     */
+    public synchronized TestWorkerClient acquire(Object key) {
+        for (Iterator<TestWorkerClient> iterator = idleWorkers.iterator(); iterator.hasNext();) {
+            TestWorkerClient worker = iterator.next();
+            if (worker.getKey().equals(key) && worker.isAlive()) {
+                iterator.remove();
+                reusedCount++;
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a worker to the pool, once it has stopped processing test classes. Stops the least recently used worker when there are too many idle
+     * workers.
+     */
+    public void release(TestWorkerClient worker) {
+        TestWorkerClient evicted = null;
+        synchronized (this) {
+            idleWorkers.addFirst(worker);
+            if (idleWorkers.size() > maxIdleWorkers) {
+                evicted = idleWorkers.removeLast();
+            }
+        }
+        if (evicted != null && evicted.isAlive()) {
+            evicted.stop();
+        }
+    }
+
+    /**
+     * Stops the idle workers.
+     */
+    public void stop() {
+        List<TestWorkerClient> workers;
+        int reused;
+        synchronized (this) {
+            workers = new ArrayList<TestWorkerClient>();
+            for (TestWorkerClient worker : idleWorkers) {
+                // A worker that has already stopped has nothing left to report
+                if (worker.isAlive()) {
+                    workers.add(worker);
+                }
+            }
+            idleWorkers.clear();
+            reused = reusedCount;
+            reusedCount = 0;
+        }
+        if (workers.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Stopping {} test worker process(es), which were reused {} time(s).", workers.size(), reused);
+        CompositeStoppable.stoppable(workers).stop();
+    }
+}
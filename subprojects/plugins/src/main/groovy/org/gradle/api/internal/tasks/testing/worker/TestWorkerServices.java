@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.internal.service.scopes.PluginServiceRegistry;
+
+public class TestWorkerServices implements PluginServiceRegistry {
+    public ServiceRegistry createGlobalServices(ServiceRegistry parent) {
+        return new DefaultServiceRegistry();
+    }
+
+    public ServiceRegistry createBuildServices(ServiceRegistry parent) {
+        return new BuildScopeServices();
+    }
+
+    private static class BuildScopeServices extends DefaultServiceRegistry {
+        protected TestWorkerPool createTestWorkerPool() {
+            return new TestWorkerPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
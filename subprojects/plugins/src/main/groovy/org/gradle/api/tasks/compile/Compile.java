@@ -17,13 +17,17 @@
 package org.gradle.api.tasks.compile;
 
 import org.gradle.api.AntBuilder;
+import org.gradle.api.Incubating;
+import org.gradle.api.internal.changedetection.changes.RebuildIncrementalTaskInputs;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.compile.Compiler;
 import org.gradle.api.internal.tasks.compile.*;
+import org.gradle.api.internal.tasks.compile.incremental.SelectiveJavaCompiler;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.Factory;
 import org.gradle.util.DeprecationLogger;
 
@@ -37,6 +41,7 @@ import java.io.File;
 @Deprecated
 public class Compile extends AbstractCompile {
     private Compiler<JavaCompileSpec> javaCompiler;
+    private final Compiler<JavaCompileSpec> delegatingCompiler;
     private File dependencyCacheDir;
     private final CompileOptions compileOptions = new CompileOptions();
 
@@ -48,12 +53,21 @@ public class Compile extends AbstractCompile {
         JavaCompilerFactory inProcessCompilerFactory = new InProcessJavaCompilerFactory();
         ProjectInternal projectInternal = (ProjectInternal) getProject();
         JavaCompilerFactory defaultCompilerFactory = new DefaultJavaCompilerFactory(projectInternal, antBuilderFactory, inProcessCompilerFactory);
-        Compiler<JavaCompileSpec> delegatingCompiler = new DelegatingJavaCompiler(defaultCompilerFactory);
+        delegatingCompiler = new DelegatingJavaCompiler(defaultCompilerFactory);
         javaCompiler = new IncrementalJavaCompiler(delegatingCompiler, antBuilderFactory, getOutputs());
     }
 
-    @TaskAction
     protected void compile() {
+        compile(new RebuildIncrementalTaskInputs(this));
+    }
+
+    /**
+     * Compiles the source files. When {@link CompileOptions#isIncremental()} is {@code true}, only the source files affected by the given changes are
+     * recompiled.
+     */
+    @TaskAction
+    @Incubating
+    protected void compile(IncrementalTaskInputs inputs) {
         DefaultJavaCompileSpec spec = new DefaultJavaCompileSpec();
         spec.setSource(getSource());
         spec.setDestinationDir(getDestinationDir());
@@ -62,7 +76,11 @@ public class Compile extends AbstractCompile {
         spec.setSourceCompatibility(getSourceCompatibility());
         spec.setTargetCompatibility(getTargetCompatibility());
         spec.setCompileOptions(compileOptions);
-        WorkResult result = javaCompiler.execute(spec);
+        Compiler<JavaCompileSpec> compiler = javaCompiler;
+        if (compileOptions.isIncremental() && !compileOptions.isUseAnt()) {
+            compiler = new SelectiveJavaCompiler(javaCompiler, delegatingCompiler, inputs, new File(getTemporaryDir(), "classDependencies.bin"));
+        }
+        WorkResult result = compiler.execute(spec);
         setDidWork(result.getDidWork());
     }
 
@@ -18,6 +18,7 @@ package org.gradle.api.tasks.compile;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import org.gradle.api.Incubating;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
@@ -33,7 +34,7 @@ public class CompileOptions extends AbstractOptions {
     private static final long serialVersionUID = 0;
 
     private static final ImmutableSet<String> EXCLUDE_FROM_ANT_PROPERTIES =
-            ImmutableSet.of("debugOptions", "forkOptions", "compilerArgs", "dependOptions", "useDepend", "useAnt");
+            ImmutableSet.of("debugOptions", "forkOptions", "compilerArgs", "dependOptions", "useDepend", "useAnt", "incremental");
 
     private boolean failOnError = true;
 
@@ -73,6 +74,8 @@ public class CompileOptions extends AbstractOptions {
 
     private boolean useAnt;
 
+    private boolean incremental;
+
     /**
      * Tells whether to fail the build when compilation fails. Defaults to {@code true}.
      */
@@ -452,6 +455,26 @@ public class CompileOptions extends AbstractOptions {
         this.useAnt = useAnt;
     }
 
+    /**
+     * Tells whether to only recompile the source files affected by the changes since the previous compilation. The dependencies between classes
+     * are read from the compiled class files. Everything is recompiled when the changes cannot be traced to individual classes, such as when
+     * the classpath changes, or when a changed class declares constants. Does not take effect if {@code useAnt} is {@code true}. Defaults to
+     * {@code false}.
+     */
+    @Incubating
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets whether to only recompile the source files affected by the changes since the previous compilation. Does not take effect if
+     * {@code useAnt} is {@code true}. Defaults to {@code false}.
+     */
+    @Incubating
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     /**
      * Convenience method to set {@link ForkOptions} with named parameter syntax.
      * Calling this method will set {@code fork} to {@code true}.
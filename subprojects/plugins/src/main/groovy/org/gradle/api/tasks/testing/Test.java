@@ -19,16 +19,19 @@ package org.gradle.api.tasks.testing;
 import groovy.lang.Closure;
 import org.gradle.api.GradleException;
 import org.gradle.api.Incubating;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.ConventionTask;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.tasks.testing.DefaultTestTaskReports;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalysis;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
@@ -40,7 +43,9 @@ import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.api.tasks.testing.logging.TestLogging;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
@@ -126,6 +131,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
     private FileCollection classpath;
     private TestFramework testFramework;
     private boolean scanForTestClasses = true;
+    private boolean onlyAffectedTests;
+    private boolean failedFirst;
     private long forkEvery;
     private int maxParallelForks = 1;
     private TestReporter testReporter;
@@ -425,8 +432,28 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         return this;
     }
 
-    @TaskAction
+    /**
+     * Executes all detected tests.
+     */
     public void executeTests() {
+        runTests(null);
+    }
+
+    /**
+     * The action of this task. When {@link #isOnlyAffectedTests()} is {@code true}, executes only the tests affected by the given changes. Otherwise,
+     * calls {@link #executeTests()}, without looking at the changes.
+     */
+    @TaskAction
+    @Incubating
+    public void executeTests(IncrementalTaskInputs inputs) {
+        if (!onlyAffectedTests) {
+            executeTests();
+            return;
+        }
+        runTests(inputs);
+    }
+
+    private void runTests(@Nullable IncrementalTaskInputs affectedTestsInputs) {
         LogLevel currentLevel = getCurrentLogLevel();
         TestLogging levelLogging = testLogging.get(currentLevel);
         TestExceptionFormatter exceptionFormatter = getExceptionFormatter(levelLogging);
@@ -435,9 +462,16 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         addTestOutputListener(eventLogger);
 
         File binaryResultsDir = getBinResultsDir();
+        PreviousTestResults previousResults = PreviousTestResults.read(binaryResultsDir);
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
+        TestImpactAnalysis impactAnalysis = null;
+        if (affectedTestsInputs != null) {
+            impactAnalysis = new TestImpactAnalysis(new File(getTemporaryDir(), "testDependencies.bin"), getClasspath());
+            impactAnalysis.inputsChanged(affectedTestsInputs, previousResults);
+        }
+
         Map<String, TestClassResult> results = new HashMap<String, TestClassResult>();
         TestOutputStore testOutputStore = new TestOutputStore(binaryResultsDir);
 
@@ -453,8 +487,10 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new TestListenerAdapter(
                 getTestListenerBroadcaster().getSource(), testOutputListenerBroadcaster.getSource());
 
+        Spec<TestClassRunInfo> testClassSpec = impactAnalysis != null ? impactAnalysis : Specs.<TestClassRunInfo>satisfyAll();
+
         try {
-            testExecuter.execute(this, resultProcessor);
+            testExecuter.execute(this, resultProcessor, previousResults, testClassSpec);
         } finally {
             testListenerBroadcaster.removeAll(asList(eventLogger, testReportDataCollector, testCountLogger));
             testOutputListenerBroadcaster.removeAll(asList(eventLogger, testReportDataCollector));
@@ -462,6 +498,9 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        if (impactAnalysis != null) {
+            impactAnalysis.testClassesExecuted(results.keySet());
+        }
 
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore.reader());
 
@@ -977,6 +1016,39 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.scanForTestClasses = scanForTestClasses;
     }
 
+    /**
+     * Specifies whether to execute only the test classes affected by the changes since the previous execution of this task. When {@code true}, the classes
+     * that each test class depends on, directly or indirectly, are recorded from the class files of the test classpath. The next execution then executes only
+     * the test classes that depend on a class that has changed, along with any new test classes. All test classes are executed when the changes cannot be
+     * traced to individual classes, such as when the classpath or a resource changes. The reports only contain the test classes that were executed. The
+     * default value is {@code false}.
+     */
+    @Input
+    @Incubating
+    public boolean isOnlyAffectedTests() {
+        return onlyAffectedTests;
+    }
+
+    @Incubating
+    public void setOnlyAffectedTests(boolean onlyAffectedTests) {
+        this.onlyAffectedTests = onlyAffectedTests;
+    }
+
+    /**
+     * Specifies whether to execute the test classes that failed in the previous execution of this task first, followed by the test classes whose class file
+     * changed since, so that their results are known as early as possible. When {@code true}, test classes are only executed once all test classes have
+     * been found. The default value is {@code false}.
+     */
+    @Incubating
+    public boolean isFailedFirst() {
+        return failedFirst;
+    }
+
+    @Incubating
+    public void setFailedFirst(boolean failedFirst) {
+        this.failedFirst = failedFirst;
+    }
+
     /**
      * Returns the maximum number of test classes to execute in a forked test process. The forked test process will be restarted when this limit is reached. The default value is 0 (no maximum).
      *
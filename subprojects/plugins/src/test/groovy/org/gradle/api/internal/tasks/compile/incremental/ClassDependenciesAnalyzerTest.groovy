@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class ClassDependenciesAnalyzerTest extends Specification {
+    def analyzer = new ClassDependenciesAnalyzer()
+
+    def "reads classes referred to by class file"() {
+        when:
+        def dependencies = analyzer.analyze(SomeClass.getResourceAsStream("ClassDependenciesAnalyzerTest\$SomeClass.class")).dependencies as List
+
+        then:
+        dependencies.contains("java/lang/Object")
+        dependencies.contains("java/lang/Runnable")
+        dependencies.contains("java/util/Set")
+        dependencies.contains("java/util/List")
+        dependencies.contains("java/util/Map")
+        dependencies.contains("java/lang/Integer")
+        dependencies.contains("java/lang/Deprecated")
+        dependencies.contains("org/gradle/api/internal/tasks/compile/incremental/ClassDependenciesAnalyzerTest")
+        !dependencies.contains("org/gradle/api/internal/tasks/compile/incremental/ClassDependenciesAnalyzerTest\$SomeClass")
+    }
+
+    def "reads dependencies and source file of class"() {
+        def writer = classWriter("org/gradle/SomeClass\$Inner", "org/gradle/Base")
+        writer.visitSource("SomeClass.java", null)
+        writer.visitField(Opcodes.ACC_PRIVATE, "field", "Ljava/util/List;", null, null).visitEnd()
+
+        when:
+        def info = analyze(writer)
+
+        then:
+        info.sourcePath == "org/gradle/SomeClass.java"
+        info.dependencies as List == ["java/util/List", "org/gradle/Base"]
+        !info.dependencyToAll
+    }
+
+    def "guesses source file of class without debug information"() {
+        expect:
+        analyze(classWriter("org/gradle/SomeClass\$Inner", "java/lang/Object")).sourcePath == "org/gradle/SomeClass.java"
+        analyze(classWriter("SomeClass", "java/lang/Object")).sourcePath == "SomeClass.java"
+    }
+
+    def "class with non-private constants is a dependency to all classes"() {
+        def writer = classWriter("org/gradle/SomeClass", "java/lang/Object")
+        writer.visitField(access | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "VALUE", "I", null, 12).visitEnd()
+
+        expect:
+        analyze(writer).dependencyToAll == dependencyToAll
+
+        where:
+        access                | dependencyToAll
+        Opcodes.ACC_PUBLIC    | true
+        0                     | true
+        Opcodes.ACC_PRIVATE   | false
+    }
+
+    def "annotation retained only in source is a dependency to all classes"() {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_ANNOTATION | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "org/gradle/SomeAnnotation", null, "java/lang/Object", ["java/lang/annotation/Annotation"] as String[])
+        def annotation = writer.visitAnnotation("Ljava/lang/annotation/Retention;", true)
+        annotation.visitEnum("value", "Ljava/lang/annotation/RetentionPolicy;", retention)
+        annotation.visitEnd()
+
+        expect:
+        analyze(writer).dependencyToAll == dependencyToAll
+
+        where:
+        retention | dependencyToAll
+        "SOURCE"  | true
+        "CLASS"   | false
+        "RUNTIME" | false
+    }
+
+    def "fails for file that is not a class file"() {
+        when:
+        analyzer.analyze(new ByteArrayInputStream("not a class file".bytes))
+
+        then:
+        thrown(IOException)
+    }
+
+    private ClassDependencyInfo.ClassInfo analyze(ClassWriter writer) {
+        writer.visitEnd()
+        return analyzer.analyze(new ByteArrayInputStream(writer.toByteArray()))
+    }
+
+    private ClassWriter classWriter(String className, String superClassName) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className, null, superClassName, null)
+        return writer
+    }
+
+    @Deprecated
+    static class SomeClass implements Runnable {
+        List<Map<String, String>> field
+
+        void run() {
+            new ArrayList()
+        }
+
+        Set<String> otherMethod() {
+            return null
+        }
+
+        void method(Integer value) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassDependencyInfoTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def info = new ClassDependencyInfo()
+
+    def "finds the classes compiled from a source file"() {
+        when:
+        info.addClass("a/A", classInfo("a/A.java"))
+        info.addClass("a/A\$Inner", classInfo("a/A.java"))
+        info.addClass("a/B", classInfo("a/B.java"))
+
+        then:
+        info.getClassesFromSource("a/A.java") == ["a/A", "a/A\$Inner"] as Set
+        info.getClassesFromSource("a/B.java") == ["a/B"] as Set
+        info.getClassesFromSource("a/C.java").empty
+    }
+
+    def "forgets the source file of a class that is removed or replaced"() {
+        given:
+        info.addClass("a/A", classInfo("a/A.java"))
+        info.addClass("a/A\$Inner", classInfo("a/A.java"))
+        info.addClass("a/B", classInfo("a/B.java"))
+
+        when:
+        info.removeClass("a/A\$Inner")
+        info.addClass("a/B", classInfo("a/C.java"))
+
+        then:
+        info.getClassesFromSource("a/A.java") == ["a/A"] as Set
+        info.getClassesFromSource("a/B.java").empty
+        info.getClassesFromSource("a/C.java") == ["a/B"] as Set
+    }
+
+    def "finds the classes compiled from a source file after reading the information back"() {
+        def file = tmpDir.file("info.bin")
+        info.addClass("a/A", classInfo("a/A.java"))
+        info.addClass("a/A\$Inner", classInfo("a/A.java"))
+
+        when:
+        info.write(file)
+        def read = ClassDependencyInfo.read(file)
+
+        then:
+        read.getClassesFromSource("a/A.java") == ["a/A", "a/A\$Inner"] as Set
+    }
+
+    def "finds the classes that depend on a class, directly or indirectly"() {
+        given:
+        info.addClass("a/A", classInfo("a/A.java"))
+        info.addClass("a/B", classInfo("a/B.java", "a/A"))
+        info.addClass("a/C", classInfo("a/C.java", "a/B", "java/util/List"))
+        info.addClass("a/D", classInfo("a/D.java", "a/C", "a/A"))
+        info.addClass("a/E", classInfo("a/E.java"))
+
+        expect:
+        info.getDependents(["a/A"]) == ["a/B", "a/C", "a/D"] as Set
+        info.getDependents(["a/B", "a/C"]) == ["a/D"] as Set
+        info.getDependents(["a/E"]).empty
+    }
+
+    def "reads back the dependencies of each class"() {
+        def file = tmpDir.file("info.bin")
+        info.addClass("a/A", classInfo("a/A.java"))
+        info.addClass("a/B", new ClassDependencyInfo.ClassInfo("a/B.java", true, ["a/A", "java/util/List"] as String[]))
+
+        when:
+        info.write(file)
+        def read = ClassDependencyInfo.read(file)
+
+        then:
+        read.getDependents(["a/A"]) == ["a/B"] as Set
+        read.getClass("a/B").dependencies as List == ["a/A", "java/util/List"]
+        read.getClass("a/B").sourcePath == "a/B.java"
+        read.getClass("a/B").dependencyToAll
+    }
+
+    private static ClassDependencyInfo.ClassInfo classInfo(String sourcePath, String... dependencies) {
+        return new ClassDependencyInfo.ClassInfo(sourcePath, false, dependencies)
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.gradle.api.Action
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.internal.tasks.SimpleWorkResult
+import org.gradle.api.internal.tasks.compile.Compiler
+import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec
+import org.gradle.api.tasks.WorkResult
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.ToolProvider
+
+class SelectiveJavaCompilerTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def srcDir = tmp.createDir("src")
+    def classesDir = tmp.createDir("classes")
+    def libraryJar = tmp.file("library.jar")
+    def infoFile = tmp.file("classDependencies.bin")
+    def compiled = []
+    def cleaned = false
+
+    def setup() {
+        srcDir.file("org/Base.java") << "package org; public class Base { }"
+        srcDir.file("org/Sub.java") << "package org; public class Sub extends Base { }"
+        srcDir.file("org/User.java") << "package org; public class User { private Sub sub; Runnable runnable = new Runnable() { public void run() { } }; }"
+        srcDir.file("org/Other.java") << "package org; public class Other { }"
+        srcDir.file("org/Constants.java") << "package org; public class Constants { public static final int VALUE = 1; }"
+        srcDir.file("org/ConstantUser.java") << "package org; public class ConstantUser { int value = Constants.VALUE; }"
+        libraryJar.text = "library"
+    }
+
+    def "compiles everything when there is no information from previous compilation"() {
+        when:
+        compile(incremental())
+
+        then:
+        cleaned
+        compiled == ["Base", "ConstantUser", "Constants", "Other", "Sub", "User"]
+        infoFile.file
+    }
+
+    def "recompiles changed source file and the source files of dependent classes"() {
+        compile(incremental())
+
+        when:
+        compile(incremental(srcDir.file("org/Base.java")))
+
+        then:
+        !cleaned
+        compiled == ["Base", "Sub", "User"]
+        classesDir.file("org/User\$1.class").file
+    }
+
+    def "recompiles only changed source file when no classes depend on it"() {
+        compile(incremental())
+
+        when:
+        compile(incremental(srcDir.file("org/User.java")))
+
+        then:
+        !cleaned
+        compiled == ["User"]
+    }
+
+    def "compiles added source file"() {
+        compile(incremental())
+
+        when:
+        def added = srcDir.file("org/Added.java") << "package org; public class Added extends Other { }"
+        compile(incremental([added], [], [added]))
+
+        then:
+        !cleaned
+        compiled == ["Added"]
+        classesDir.file("org/Added.class").file
+
+        when:
+        compile(incremental(srcDir.file("org/Other.java")))
+
+        then:
+        compiled == ["Added", "Other"]
+    }
+
+    def "removes classes of removed source file"() {
+        compile(incremental())
+
+        when:
+        def removed = srcDir.file("org/Other.java")
+        removed.delete()
+        compile(incremental([], [removed]))
+
+        then:
+        !cleaned
+        compiled == []
+        !classesDir.file("org/Other.class").exists()
+        classesDir.file("org/Base.class").file
+    }
+
+    def "recompiles everything when class with constants changes"() {
+        compile(incremental())
+
+        when:
+        compile(incremental(srcDir.file("org/Constants.java")))
+
+        then:
+        cleaned
+        compiled.size() == 6
+    }
+
+    def "recompiles everything when classpath changes"() {
+        compile(incremental())
+
+        when:
+        compile(incremental(libraryJar))
+
+        then:
+        cleaned
+        compiled.size() == 6
+    }
+
+    def "recompiles everything when inputs are not incremental"() {
+        compile(incremental())
+        IncrementalTaskInputs inputs = Mock()
+        inputs.isIncremental() >> false
+
+        when:
+        compile(inputs)
+
+        then:
+        cleaned
+        compiled.size() == 6
+    }
+
+    def "recompiles everything when previous compilation failed"() {
+        compile(incremental())
+
+        when:
+        compile(incremental(srcDir.file("org/Base.java")), true)
+
+        then:
+        thrown(RuntimeException)
+        !infoFile.exists()
+
+        when:
+        compile(incremental(srcDir.file("org/Base.java")))
+
+        then:
+        cleaned
+        compiled.size() == 6
+    }
+
+    private void compile(IncrementalTaskInputs inputs, boolean fail = false) {
+        compiled.clear()
+        cleaned = false
+        def spec = new DefaultJavaCompileSpec()
+        spec.source = new FileTreeAdapter(new DirectoryFileTree(srcDir))
+        spec.destinationDir = classesDir
+        spec.classpath = [libraryJar]
+        def compiler = { JavaCompileSpec compileSpec ->
+            if (fail) {
+                throw new RuntimeException("Compilation failed.")
+            }
+            javac(compileSpec)
+        } as Compiler
+        def cleaningCompiler = { JavaCompileSpec compileSpec ->
+            cleaned = true
+            classesDir.deleteDir()
+            classesDir.createDir()
+            javac(compileSpec)
+        } as Compiler
+        new SelectiveJavaCompiler(cleaningCompiler, compiler, inputs, infoFile).execute(spec)
+    }
+
+    private WorkResult javac(JavaCompileSpec spec) {
+        def files = spec.source.files as List
+        compiled.addAll(files.collect { it.name - ".java" }.sort())
+        def classpath = spec.classpath.findAll { it.directory }.join(File.pathSeparator)
+        def args = ["-d", classesDir.path, "-classpath", classpath ?: classesDir.path] + files*.path
+        assert ToolProvider.systemJavaCompiler.run(null, null, null, args as String[]) == 0
+        return new SimpleWorkResult(true)
+    }
+
+    private IncrementalTaskInputs incremental(File... outOfDate) {
+        return incremental(outOfDate as List, [])
+    }
+
+    private IncrementalTaskInputs incremental(List<File> outOfDate, List<File> removed, List<File> added = []) {
+        IncrementalTaskInputs inputs = Mock()
+        inputs.isIncremental() >> true
+        inputs.outOfDate(_) >> { Action<InputFileDetails> action ->
+            outOfDate.each { file -> action.execute([getFile: { file }, isAdded: { added.contains(file) }] as InputFileDetails) }
+        }
+        inputs.removed(_) >> { Action<InputFileDetails> action -> removed.each { file -> action.execute([getFile: { file }, isAdded: { false }] as InputFileDetails) } }
+        return inputs
+    }
+}
@@ -27,6 +27,9 @@ import org.jmock.Sequence
 import org.gradle.api.file.FileTree
 import static org.hamcrest.Matchers.*
 import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults
 
 @RunWith(JMock.class)
 public class DefaultTestClassScannerTest {
@@ -51,8 +54,41 @@ public class DefaultTestClassScannerTest {
             one(detector).processTestClass(new File('class1.class'))
             one(detector).processTestClass(new File('class2.class'))
             inSequence(sequence)
+            one(detector).stopDetection()
+            inSequence(sequence)
         }
         
         scanner.run()
     }
+
+    @Test
+    public void passesTestClassesOnInFailedFirstOrderWhenPreviousResultsAreGiven() {
+        PreviousTestResults previousResults = new PreviousTestResults()
+        previousResults.add('org.Passed', 1000, 10, false)
+        previousResults.add('org.Failed', 1000, 10, true)
+        previousResults.add('org.Changed', 1000, 10, false)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, null, processor, previousResults)
+
+        context.checking {
+            Sequence sequence = context.sequence('seq')
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                visitor.visitFile(classFile('org/Passed.class', 500))
+                visitor.visitFile(classFile('org/Changed.class', 2000))
+                visitor.visitFile(classFile('org/Failed.class', 500))
+            }
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('org.Failed'))))
+            inSequence(sequence)
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('org.Changed'))))
+            inSequence(sequence)
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('org.Passed'))))
+            inSequence(sequence)
+        }
+
+        scanner.run()
+    }
+
+    private FileVisitDetails classFile(String path, long lastModified) {
+        return [getFile: { new File(path) }, getRelativePath: { RelativePath.parse(true, path) }, getLastModified: { lastModified }] as FileVisitDetails
+    }
 }
@@ -20,6 +20,8 @@ import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTree
 import org.gradle.api.internal.tasks.testing.TestFramework
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults
+import org.gradle.api.specs.Specs
 import org.gradle.api.tasks.testing.Test
 import org.gradle.messaging.actor.Actor
 import org.gradle.messaging.actor.ActorFactory
@@ -51,7 +53,7 @@ class DefaultTestExecuterTest extends Specification {
 
     def "testClassDirectory for testclassdetector is configured before executing"() {
         when:
-        executer.execute(testTask, testResultProcessor);
+        executer.execute(testTask, testResultProcessor, new PreviousTestResults(), Specs.satisfyAll());
         then:
         1 * testFramework.getDetector() >> testFrameworkTestDetector
         1 * testTask.getTestClassesDir() >> testClassesDir
@@ -60,9 +62,19 @@ class DefaultTestExecuterTest extends Specification {
 
     def "testClasspath for testclassdetector is configured before executing"() {
         when:
-        executer.execute(testTask, testResultProcessor);
+        executer.execute(testTask, testResultProcessor, new PreviousTestResults(), Specs.satisfyAll());
         then:
         1 * testTask.getClasspath() >> testClasspath
         1 * testFrameworkTestDetector.setTestClasspath(testClasspath)
     }
+
+    def "cache file for testclassdetector is configured before executing"() {
+        File temporaryDir = new File("tmp")
+
+        when:
+        executer.execute(testTask, testResultProcessor, new PreviousTestResults(), Specs.satisfyAll());
+        then:
+        1 * testTask.getTemporaryDir() >> temporaryDir
+        1 * testFrameworkTestDetector.setCacheFile(new File(temporaryDir, "testClassDetection.bin"))
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import org.gradle.api.Action
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.junit.result.PreviousTestResults
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class TestImpactAnalysisTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def classesDir = tmp.createDir("classes")
+    def testClassesDir = tmp.createDir("test-classes")
+    def libraryClassesDir = tmp.createDir("library")
+    def libraryJar = tmp.file("library.jar")
+    def graphFile = tmp.file("dependencies.bin")
+    def previousResults = new PreviousTestResults()
+
+    def setup() {
+        writeClass(libraryClassesDir, "lib/Library")
+        writeClass(libraryClassesDir, "lib/Other")
+        libraryClassesDir.zipTo(libraryJar)
+        writeClass(classesDir, "org/Service", "lib/Library")
+        writeClass(classesDir, "org/Repository")
+        writeClass(classesDir, "org/Controller", "org/Service")
+        writeClass(testClassesDir, "org/ControllerTest", "org/Controller")
+        writeClass(testClassesDir, "org/RepositoryTest", "org/Repository", "java/util/List")
+        writeClass(testClassesDir, "org/OtherTest", "lib/Other")
+    }
+
+    def "selects all test classes when there is no previous execution"() {
+        when:
+        def selected = execute(incremental())
+
+        then:
+        selected == ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"]
+        graphFile.file
+    }
+
+    def "selects test classes which depend on changed classes"() {
+        execute(incremental())
+
+        expect:
+        execute(incremental(classesDir.file("org/Service.class"))) == ["org.ControllerTest"]
+        execute(incremental(classesDir.file("org/Repository.class"))) == ["org.RepositoryTest"]
+        execute(incremental(testClassesDir.file("org/OtherTest.class"))) == ["org.OtherTest"]
+        execute(incremental()) == []
+    }
+
+    def "selects test classes which depend on classes that changed within a changed jar"() {
+        execute(incremental())
+
+        when:
+        writeClass(libraryClassesDir, "lib/Library", "java/util/List")
+        libraryJar.delete()
+        libraryClassesDir.zipTo(libraryJar)
+
+        then:
+        execute(incremental(libraryJar)) == ["org.ControllerTest"]
+    }
+
+    def "selects test classes which depend on removed classes"() {
+        execute(incremental())
+
+        when:
+        def removed = classesDir.file("org/Repository.class")
+        removed.delete()
+
+        then:
+        execute(incremental([], [removed])) == ["org.RepositoryTest"]
+    }
+
+    def "selects new test classes"() {
+        execute(incremental())
+
+        when:
+        def newTest = writeClass(testClassesDir, "org/NewTest", "org/Repository")
+
+        then:
+        execute(incremental(newTest), ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest", "org.NewTest"]) == ["org.NewTest"]
+        execute(incremental(classesDir.file("org/Repository.class")), ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest", "org.NewTest"]) == ["org.RepositoryTest", "org.NewTest"]
+    }
+
+    def "selects test classes which failed in the previous execution"() {
+        execute(incremental())
+
+        when:
+        previousResults.add("org.OtherTest", 0, 10, true)
+        previousResults.add("org.ControllerTest", 0, 10, false)
+
+        then:
+        execute(incremental(classesDir.file("org/Repository.class"))) == ["org.RepositoryTest", "org.OtherTest"]
+    }
+
+    def "selects all test classes when a resource changes"() {
+        execute(incremental())
+
+        when:
+        def resource = classesDir.file("org/some.properties") << "a=b"
+
+        then:
+        execute(incremental(resource)) == ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"]
+    }
+
+    def "selects all test classes when inputs are not incremental"() {
+        execute(incremental())
+
+        IncrementalTaskInputs inputs = Mock()
+        inputs.isIncremental() >> false
+
+        expect:
+        execute(inputs) == ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"]
+    }
+
+    def "selects all test classes when classpath changes"() {
+        execute(incremental())
+
+        expect:
+        execute(incremental(), ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"], [testClassesDir, classesDir]) == ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"]
+    }
+
+    def "ignores changed files which are not on the classpath"() {
+        execute(incremental())
+
+        expect:
+        execute(incremental(tmp.file("src/org/Service.java") << "class Service {}")) == []
+    }
+
+    private List<String> execute(IncrementalTaskInputs inputs, List<String> testClasses = ["org.ControllerTest", "org.RepositoryTest", "org.OtherTest"],
+                                 List<File> classpath = [testClassesDir, classesDir, libraryJar]) {
+        def analysis = new TestImpactAnalysis(graphFile, classpath)
+        analysis.inputsChanged(inputs, previousResults)
+        def selected = testClasses.findAll { analysis.isSatisfiedBy(new DefaultTestClassRunInfo(it)) }
+        analysis.testClassesExecuted(selected)
+        return selected
+    }
+
+    private IncrementalTaskInputs incremental(File... outOfDate) {
+        return incremental(outOfDate as List, [])
+    }
+
+    private IncrementalTaskInputs incremental(List<File> outOfDate, List<File> removed) {
+        IncrementalTaskInputs inputs = Mock()
+        inputs.isIncremental() >> true
+        inputs.outOfDate(_) >> { Action<InputFileDetails> action -> outOfDate.each { file -> action.execute({ file } as InputFileDetails) } }
+        inputs.removed(_) >> { Action<InputFileDetails> action -> removed.each { file -> action.execute({ file } as InputFileDetails) } }
+        return inputs
+    }
+
+    private TestFile writeClass(TestFile dir, String className, String... dependencies) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null)
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "someMethod", "()V", null, null)
+        method.visitCode()
+        dependencies.each { dependency ->
+            method.visitTypeInsn(Opcodes.NEW, dependency)
+            method.visitInsn(Opcodes.POP)
+        }
+        method.visitInsn(Opcodes.RETURN)
+        method.visitMaxs(1, 1)
+        method.visitEnd()
+        writer.visitEnd()
+        def classFile = dir.file("${className}.class")
+        classFile.parentFile.mkdirs()
+        classFile.bytes = writer.toByteArray()
+        return classFile
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class JUnitDetectorTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def classesDir = tmp.createDir("classes")
+    def libraryClassesDir = tmp.createDir("library")
+    def libraryJar = tmp.file("library.jar")
+    def cacheFile = tmp.file("detection.bin")
+    def extractedClasses = []
+    def detected = []
+
+    @Unroll
+    def "detects test classes in order using #threads threads"() {
+        writeClass(classesDir, "org/SomeTest", "java/lang/Object", true)
+        writeClass(classesDir, "org/NotATest", "java/lang/Object", false)
+        writeClass(classesDir, "org/AbstractTest", "java/lang/Object", true, true)
+        writeClass(classesDir, "org/SubTest", "org/AbstractTest", false)
+        writeClass(classesDir, "org/LibraryTest", "lib/LibraryBase", false)
+        writeClass(classesDir, "org/TestCaseTest", "junit/framework/TestCase", false)
+        writeClass(libraryClassesDir, "lib/LibraryBase", "java/lang/Object", true, true)
+        libraryClassesDir.zipTo(libraryJar)
+        def files = (1..20).collect { writeClass(classesDir, "org/Test$it", "java/lang/Object", true) }
+
+        when:
+        detect(threads, ["SomeTest", "NotATest", "AbstractTest", "SubTest", "LibraryTest", "TestCaseTest"].collect { classesDir.file("org/${it}.class") } + files)
+
+        then:
+        detected == ["org.SomeTest", "org.SubTest", "org.LibraryTest", "org.TestCaseTest"] + (1..20).collect { "org.Test$it" }
+
+        where:
+        threads << [1, 4]
+    }
+
+    def "uses cached details of unchanged class files and detects changed class files"() {
+        def base = writeClass(classesDir, "org/Base", "java/lang/Object", true, true)
+        def subClass = writeClass(classesDir, "org/SubClass", "org/Base", false)
+        def other = writeClass(classesDir, "org/Other", "java/lang/Object", true)
+
+        when:
+        detect(1, [base, subClass, other])
+
+        then:
+        detected == ["org.SubClass", "org.Other"]
+        cacheFile.file
+
+        when:
+        writeClass(classesDir, "org/Base", "java/lang/Object", false, true)
+        detect(1, [base, subClass, other])
+
+        then:
+        detected == ["org.Other"]
+    }
+
+    def "uses cached decisions for super classes from unchanged library jars"() {
+        writeClass(libraryClassesDir, "lib/LibraryBase", "java/lang/Object", true, true)
+        libraryClassesDir.zipTo(libraryJar)
+        def testClass = writeClass(classesDir, "org/LibraryTest", "lib/LibraryBase", false)
+
+        when:
+        detect(1, [testClass])
+
+        then:
+        detected == ["org.LibraryTest"]
+        extractedClasses == ["lib/LibraryBase"]
+
+        when:
+        extractedClasses.clear()
+        detect(1, [testClass])
+
+        then:
+        detected == ["org.LibraryTest"]
+        extractedClasses.empty
+
+        when:
+        libraryJar.setLastModified(libraryJar.lastModified() - 10000)
+        detect(1, [testClass])
+
+        then:
+        detected == ["org.LibraryTest"]
+        extractedClasses == ["lib/LibraryBase"]
+    }
+
+    def "detects test classes when cache file cannot be read"() {
+        def testClass = writeClass(classesDir, "org/SomeTest", "java/lang/Object", true)
+        cacheFile.text = "broken"
+
+        when:
+        detect(1, [testClass])
+
+        then:
+        detected == ["org.SomeTest"]
+    }
+
+    private void detect(int threads, List<File> classFiles) {
+        detected.clear()
+        def extractionManager = new ClassFileExtractionManager({ tmp.createDir("extracted") } as Factory) {
+            @Override
+            File getLibraryClassFile(String className) {
+                extractedClasses << className
+                return super.getLibraryClassFile(className)
+            }
+        }
+        def detector = new JUnitDetector(extractionManager, new DefaultExecutorFactory(), threads)
+        detector.testClassesDirectory = classesDir
+        detector.testClasspath = new SimpleFileCollection(libraryJar)
+        detector.cacheFile = cacheFile
+        detector.startDetection({ TestClassRunInfo testClass -> detected << testClass.testClassName } as TestClassProcessor)
+        classFiles.each { detector.processTestClass(it) }
+        detector.stopDetection()
+    }
+
+    private TestFile writeClass(TestFile dir, String className, String superClassName, boolean hasTestMethod, boolean isAbstract = false) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | (isAbstract ? Opcodes.ACC_ABSTRACT : 0), className, null, superClassName, null)
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "someMethod", "()V", null, null)
+        if (hasTestMethod) {
+            method.visitAnnotation("Lorg/junit/Test;", true).visitEnd()
+        }
+        method.visitEnd()
+        writer.visitEnd()
+        def classFile = dir.file("${className}.class")
+        classFile.parentFile.mkdirs()
+        classFile.bytes = writer.toByteArray()
+        return classFile
+    }
+}
@@ -23,4 +23,20 @@ class ClassTestResultsTest extends Specification {
         new ClassTestResults(1, 'org.gradle.Test', null).simpleName == 'Test'
         new ClassTestResults(2, 'Test', null).simpleName == 'Test'
     }
+
+    def discardsResultsOfIndividualTestsButKeepsTotalsAndFailures() {
+        def classResults = new ClassTestResults(1, 'org.gradle.Test', null)
+        classResults.addTest('passed', 100)
+        def failed = classResults.addTest('failed', 200)
+        failed.addFailure('message', 'stack trace')
+
+        when:
+        classResults.discardTestResults()
+
+        then:
+        classResults.testResults.empty
+        classResults.testCount == 2
+        classResults.duration == 300
+        classResults.failures as List == [failed]
+    }
 }
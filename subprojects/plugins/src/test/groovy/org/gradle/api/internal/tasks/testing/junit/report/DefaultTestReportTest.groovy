@@ -15,9 +15,12 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report
 
+import org.gradle.api.Action
+import org.gradle.api.GradleException
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
 import org.gradle.api.tasks.testing.TestResult
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -258,6 +261,73 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def rendersPagesForManyClassesUsingMultipleThreads() {
+        given:
+        def report = new DefaultTestReport(new DefaultExecutorFactory(), 4)
+        def testTestResults = buildResults {
+            100.times { index ->
+                testClassResult("org.gradle.p${index % 5}.Test${index}") {
+                    testcase("test1")
+                    testcase("test2") {
+                        stdout "output of ${index}"
+                        if (index % 10 == 0) {
+                            failure("failed ${index}", "stack trace of ${index}")
+                        }
+                    }
+                }
+            }
+        }
+
+        when:
+        report.generateReport(testTestResults, reportDir)
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(200)
+        index.assertHasFailures(10)
+        index.assertHasFailedTest('org.gradle.p0.Test90', 'test2')
+
+        and:
+        def packageFile = results(reportDir.file('org.gradle.p0.html'))
+        packageFile.assertHasTests(40)
+        packageFile.assertHasFailures(10)
+
+        and:
+        def testClassFile = results(reportDir.file('org.gradle.p0.Test90.html'))
+        testClassFile.assertHasTests(2)
+        testClassFile.assertHasFailures(1)
+        testClassFile.assertHasTest('test1')
+        testClassFile.assertHasFailure('test2', 'stack trace of 90')
+        testClassFile.assertHasStandardOutput('output of 90')
+
+        and:
+        reportDir.file('org.gradle.p4.Test99.html').assertIsFile()
+    }
+
+    def reportsFailureToRenderAClassPage() {
+        given:
+        def failure = new RuntimeException("broken")
+        def report = new DefaultTestReport(new DefaultExecutorFactory(), 2)
+        def testTestResults = buildResults {
+            10.times { index ->
+                testClassResult("org.gradle.Test${index}") {
+                    testcase("test1")
+                }
+            }
+        }
+        def resultsProvider = Mock(TestResultsProvider)
+        _ * resultsProvider.visitClasses(_) >> { Action visitor -> testTestResults.visitClasses(visitor) }
+        _ * resultsProvider.hasOutput(_, _) >> { throw failure }
+
+        when:
+        report.generateReport(resultsProvider, reportDir)
+
+        then:
+        GradleException e = thrown()
+        e.message == "Could not generate test report to '${reportDir}'."
+        e.cause.cause == failure
+    }
+
     def results(TestFile file) {
         return new HtmlTestResultsFixture(file)
     }
@@ -18,7 +18,10 @@ package org.gradle.api.internal.tasks.testing.junit.result
 
 import org.gradle.api.Action
 import org.gradle.api.GradleException
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
 import org.gradle.api.tasks.testing.TestResult
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -72,4 +75,29 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         ex.message.startsWith('Could not write XML test results for FooTest')
         ex.cause.message == "Boo!"
     }
+
+    def "writes results for many classes using multiple threads"() {
+        def output = new TestOutputStore(temp.createDir("output"))
+        def outputWriter = output.writer()
+        def results = (1..50).collect { id ->
+            outputWriter.onOutput(id, 0, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output of class ${id}"))
+            new TestClassResult(id, "org.gradle.Test${id}", 100).add(new TestMethodResult(id, "test", TestResult.ResultType.SUCCESS, 10, 110, []))
+        }
+        outputWriter.close()
+        def reader = output.reader()
+        def provider = new InMemoryTestResultsProvider(results, reader)
+        def generator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, provider, TestOutputAssociation.WITH_SUITE, new DefaultExecutorFactory(), 4)
+
+        when:
+        generator.generate()
+
+        then:
+        (1..50).every { id ->
+            def file = temp.file("TEST-org.gradle.Test${id}.xml")
+            file.isFile() && file.text.contains("output of class ${id}")
+        }
+
+        cleanup:
+        reader?.close()
+    }
 }
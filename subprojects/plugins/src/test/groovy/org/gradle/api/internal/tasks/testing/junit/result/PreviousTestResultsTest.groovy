@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PreviousTestResultsTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def "reads durations of test classes from binary results"() {
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+        class1.add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100, []))
+        class1.add(new TestMethodResult(2, "method2", TestResult.ResultType.SUCCESS, 200, 1300, []))
+        def class2 = new TestClassResult(2, 'Class2', 2000)
+        new TestResultSerializer(tmp.testDirectory).write([class1, class2])
+
+        when:
+        def results = PreviousTestResults.read(tmp.testDirectory)
+
+        then:
+        results.getDuration('Class1') == 300
+        results.getDuration('Class2') == 0
+        results.getDuration('Class3') == -1
+    }
+
+    def "reads start times and failures of test classes from binary results"() {
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+        class1.add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100, []))
+        class1.add(new TestMethodResult(2, "method2", TestResult.ResultType.FAILURE, 200, 1300, []))
+        def class2 = new TestClassResult(2, 'Class2', 2000)
+        class2.add(new TestMethodResult(3, "method1", TestResult.ResultType.SUCCESS, 100, 2100, []))
+        new TestResultSerializer(tmp.testDirectory).write([class1, class2])
+
+        when:
+        def results = PreviousTestResults.read(tmp.testDirectory)
+
+        then:
+        results.getStartTime('Class1') == 1000
+        results.getStartTime('Class2') == 2000
+        results.getStartTime('Class3') == -1
+        results.isFailed('Class1')
+        !results.isFailed('Class2')
+        !results.isFailed('Class3')
+    }
+
+    def "has no durations when there are no binary results"() {
+        when:
+        def results = PreviousTestResults.read(tmp.file("missing"))
+
+        then:
+        results.getDuration('Class1') == -1
+    }
+
+    def "has no durations when binary results cannot be read"() {
+        tmp.file("results.bin").text = "broken"
+
+        when:
+        def results = PreviousTestResults.read(tmp.testDirectory)
+
+        then:
+        results.getDuration('Class1') == -1
+    }
+
+    def "orders test classes with unknown duration first, then longest first"() {
+        def results = new PreviousTestResults()
+        results.add('Fast', 10)
+        results.add('Slow', 1000)
+        results.add('Medium', 100)
+        def testClasses = ['Fast', 'Unknown', 'Slow', 'Medium'].collect { new DefaultTestClassRunInfo(it) }
+
+        when:
+        def ordered = testClasses.sort(false, results.longestFirstOrder)
+
+        then:
+        ordered*.testClassName == ['Unknown', 'Slow', 'Medium', 'Fast']
+    }
+
+    def "orders failed test classes first, then changed and new test classes, then longest first"() {
+        def results = new PreviousTestResults()
+        results.add('Fast', 1000, 10, false)
+        results.add('Slow', 1000, 1000, false)
+        results.add('FailedFast', 1000, 10, true)
+        results.add('FailedSlow', 1000, 1000, true)
+        results.add('Changed', 1000, 10, false)
+        def timestamps = [Fast: 500L, Slow: 500L, FailedFast: 500L, FailedSlow: 2000L, Changed: 2000L, New: 500L]
+        def testClasses = ['Fast', 'Slow', 'New', 'FailedFast', 'Changed', 'FailedSlow'].collect { new DefaultTestClassRunInfo(it) }
+
+        when:
+        def ordered = testClasses.sort(false, results.getFailedFirstOrder(timestamps))
+
+        then:
+        ordered*.testClassName == ['FailedSlow', 'FailedFast', 'New', 'Changed', 'Slow', 'Fast']
+    }
+}
@@ -42,12 +42,64 @@ class TestOutputStoreSpec extends WorkspaceTest {
         writer.onOutput(1, 1, output(StdErr, "[err]"))
         writer.onOutput(1, 1, output(StdOut, "[out2]"))
         writer.close()
-        def reader = output.reader()
+        def reader = output.reader(memoryMapped)
 
         then:
         collectOutput(reader, 1, StdOut) == "[out][out2]"
         collectOutput(reader, 1, StdErr) == "[err]"
         collectOutput(reader, 2, StdErr) == "[err]"
+
+        cleanup:
+        reader?.close()
+
+        where:
+        memoryMapped << [true, false]
+    }
+
+    def "reads output of a single test or of the class when classes and tests are written out of order"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(3, 7, output(StdOut, "[3-7]"))
+        writer.onOutput(1, 5, output(StdOut, "[1-5]"))
+        writer.onOutput(3, 0, output(StdOut, "[3]"))
+        writer.onOutput(1, 2, output(StdOut, "[1-2]"))
+        writer.onOutput(3, 4, output(StdOut, "[3-4]"))
+        writer.onOutput(1, 5, output(StdErr, "[1-5 err]"))
+        writer.onOutput(3, 7, output(StdOut, "[3-7 again]"))
+        writer.close()
+        def reader = output.reader(memoryMapped)
+
+        then:
+        collectOutput(reader, 1, StdOut) == "[1-5][1-2]"
+        collectOutput(reader, 3, StdOut) == "[3-7][3][3-4][3-7 again]"
+        testOutput(reader, 3, 7, StdOut) == "[3-7][3-7 again]"
+        testOutput(reader, 3, 4, StdOut) == "[3-4]"
+        testOutput(reader, 1, 5, StdErr) == "[1-5 err]"
+        testOutput(reader, 1, 3, StdOut) == ""
+        nonTestOutput(reader, 3, StdOut) == "[3]"
+        nonTestOutput(reader, 1, StdOut) == ""
+        reader.hasOutput(1, StdErr)
+        !reader.hasOutput(3, StdErr)
+        !reader.hasOutput(2, StdOut)
+
+        cleanup:
+        reader?.close()
+
+        where:
+        memoryMapped << [true, false]
+    }
+
+    def "fails to read index with unexpected version"() {
+        given:
+        output.writer().close()
+        output.indexFile.bytes = [0, 0, 0, 1] as byte[]
+
+        when:
+        output.reader()
+
+        then:
+        IllegalStateException e = thrown()
+        e.message.startsWith("Unexpected test outputs index file version 1")
     }
 
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
@@ -110,6 +162,70 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader?.close()
     }
 
+    def "output can be read concurrently"() {
+        given:
+        def writer = output.writer()
+        20.times { round ->
+            (1..10).each { classId ->
+                writer.onOutput(classId, round + 1, output(StdOut, "[out ${classId} ${round}]"))
+                writer.onOutput(classId, round + 1, output(StdErr, "[err ${classId} ${round}]"))
+            }
+        }
+        writer.close()
+        def reader = output.reader(memoryMapped)
+        def collected = Collections.synchronizedMap([:])
+
+        when:
+        def threads = (1..10).collect { classId ->
+            Thread.start {
+                5.times {
+                    collected[classId] = collectOutput(reader, classId, StdOut)
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        (1..10).every { classId -> collected[classId] == (0..<20).collect { "[out ${classId} ${it}]" }.join() }
+
+        cleanup:
+        reader?.close()
+
+        where:
+        memoryMapped << [true, false]
+    }
+
+    def "reads output that is larger than the read buffer and contains multi-byte characters"() {
+        given:
+        def message = (1..2000).collect { "[\u20ac ${it}]" }.join()
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, message))
+        writer.onOutput(1, 1, output(StdOut, "[out2]"))
+        writer.close()
+        def reader = output.reader(memoryMapped)
+
+        expect:
+        collectOutput(reader, 1, StdOut) == message + "[out2]"
+
+        cleanup:
+        reader?.close()
+
+        where:
+        memoryMapped << [true, false]
+    }
+
+    String testOutput(TestOutputStore.Reader reader, long classId, long testId, TestOutputEvent.Destination destination) {
+        def writer = new StringWriter()
+        reader.writeTestOutput(classId, testId, destination, writer)
+        return writer.toString()
+    }
+
+    String nonTestOutput(TestOutputStore.Reader reader, long classId, TestOutputEvent.Destination destination) {
+        def writer = new StringWriter()
+        reader.writeNonTestOutput(classId, destination, writer)
+        return writer.toString()
+    }
+
     String collectOutput(TestOutputStore.Reader reader, long classId, TestOutputEvent.Destination destination) {
         def writer = new StringWriter()
         reader.writeAllOutput(classId, destination, writer)
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.specs.Spec
+import spock.lang.Specification
+
+class FilteringTestClassProcessorTest extends Specification {
+    private final TestClassProcessor delegate = Mock()
+    private final Spec<TestClassRunInfo> spec = Mock()
+    private final FilteringTestClassProcessor processor = new FilteringTestClassProcessor(spec, delegate)
+
+    def "passes on test classes which satisfy spec"() {
+        TestResultProcessor resultProcessor = Mock()
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.stop()
+
+        then:
+        1 * delegate.startProcessing(resultProcessor)
+        1 * spec.isSatisfiedBy(test1) >> true
+        1 * delegate.processTestClass(test1)
+        1 * spec.isSatisfiedBy(test2) >> false
+        0 * delegate.processTestClass(test2)
+        1 * delegate.stop()
+    }
+}
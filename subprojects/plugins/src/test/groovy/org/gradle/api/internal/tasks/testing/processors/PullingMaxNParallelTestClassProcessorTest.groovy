@@ -0,0 +1,363 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.GradleException
+import org.gradle.api.Transformer
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassProcessorIdleListener
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import org.gradle.messaging.dispatch.MethodInvocation
+import spock.lang.Specification
+
+class PullingMaxNParallelTestClassProcessorTest extends Specification {
+    private final Transformer<TestClassProcessor, TestClassProcessorIdleListener> factory = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final TestResultProcessor asyncResultProcessor = Mock()
+    private final Actor resultProcessorActor = Mock()
+    private final ActorFactory actorFactory = Mock()
+    private final Comparator<TestClassRunInfo> order = { a, b -> a.testClassName <=> b.testClassName } as Comparator
+    private final PullingMaxNParallelTestClassProcessor processor = new PullingMaxNParallelTestClassProcessor(2, factory, actorFactory, order)
+    private final List<TestClassProcessorIdleListener> idleListeners = []
+    private final List<SynchronousActor> actors = []
+
+    def setup() {
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * actorFactory.createActor(_ as TestClassProcessor) >> { TestClassProcessor target ->
+            def actor = new SynchronousActor(target)
+            actors << actor
+            return actor
+        }
+        processor.startProcessing(resultProcessor)
+    }
+
+    def doesNothingWhenNoTestsProcessed() {
+        when:
+        processor.stop()
+
+        then:
+        0 * factory._
+        1 * resultProcessorActor.stop()
+    }
+
+    def startsProcessorsOnDemandAndStopsAtEnd() {
+        TestClassRunInfo test1 = test('a')
+        TestClassRunInfo test2 = test('b')
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+
+        when:
+        processor.processTestClass(test1)
+
+        then:
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor1 }
+        1 * processor1.startProcessing(asyncResultProcessor)
+        1 * processor1.processTestClass(test1)
+
+        when:
+        processor.processTestClass(test2)
+
+        then:
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor2 }
+        1 * processor2.startProcessing(asyncResultProcessor)
+        1 * processor2.processTestClass(test2)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * processor1.stop()
+        1 * processor2.stop()
+        1 * resultProcessorActor.stop()
+
+        and:
+        actors.size() == 2
+        actors.every { it.stopped }
+    }
+
+    def reusesIdleProcessorRatherThanStartingAnotherProcessor() {
+        TestClassRunInfo test1 = test('a')
+        TestClassRunInfo test2 = test('b')
+        TestClassProcessor processor1 = Mock()
+
+        given:
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor1 }
+        processor.processTestClass(test1)
+        idleListeners[0].idle()
+
+        when:
+        processor.processTestClass(test2)
+
+        then:
+        0 * factory._
+        1 * processor1.processTestClass(test2)
+    }
+
+    def givesQueuedTestClassToTheProcessorThatBecomesIdle() {
+        TestClassRunInfo test3 = test('c')
+        TestClassRunInfo test4 = test('d')
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+
+        given:
+        2 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; idleListeners.size() == 1 ? processor1 : processor2 }
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+
+        when:
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+
+        then:
+        0 * processor1.processTestClass(_)
+        0 * processor2.processTestClass(_)
+
+        when:
+        idleListeners[1].idle()
+
+        then:
+        1 * processor2.processTestClass(test3)
+        0 * processor1.processTestClass(_)
+
+        when:
+        idleListeners[1].idle()
+
+        then:
+        1 * processor2.processTestClass(test4)
+        0 * processor1.processTestClass(_)
+    }
+
+    def givesOutQueuedTestClassesInTheSpecifiedOrder() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        def processed = []
+
+        given:
+        2 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; idleListeners.size() == 1 ? processor1 : processor2 }
+        processor.processTestClass(test('x'))
+        processor.processTestClass(test('y'))
+        processor.processTestClass(test('c'))
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+
+        when:
+        idleListeners[0].idle()
+        idleListeners[0].idle()
+        idleListeners[1].idle()
+
+        then:
+        3 * _.processTestClass(_) >> { TestClassRunInfo testClass -> processed << testClass.testClassName }
+        processed == ['a', 'b', 'c']
+    }
+
+    def ignoresIdleNotificationFromProcessorThatIsAlreadyIdle() {
+        TestClassRunInfo test2 = test('b')
+        TestClassRunInfo test3 = test('c')
+        TestClassProcessor processor1 = Mock()
+
+        given:
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor1 }
+        processor.processTestClass(test('a'))
+        idleListeners[0].idle()
+
+        when:
+        idleListeners[0].idle()
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        then:
+        1 * processor1.processTestClass(test2)
+        1 * factory.transform(_) >> Mock(TestClassProcessor)
+        0 * processor1.processTestClass(_)
+    }
+
+    def treatsProcessorThatFailsToAcceptTestClassAsHavingRejectedIt() {
+        TestClassRunInfo test3 = test('c')
+        TestClassRunInfo test4 = test('d')
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor processor3 = Mock()
+        def failure = new RuntimeException()
+
+        given:
+        2 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; idleListeners.size() == 1 ? processor1 : processor2 }
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+
+        when:
+        idleListeners[0].idle()
+
+        then:
+        1 * processor1.processTestClass(test3) >> { throw failure }
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor3 }
+        1 * processor3.processTestClass(test3)
+        0 * processor1.processTestClass(_)
+        RuntimeException e = thrown()
+        e == failure
+
+        when:
+        idleListeners[1].idle()
+
+        then:
+        1 * processor2.processTestClass(test4)
+        0 * processor1.processTestClass(_)
+    }
+
+    def startsAnotherProcessorWhenProcessorStopsAfterAllProcessorsHaveStarted() {
+        TestClassRunInfo test3 = test('c')
+        TestClassRunInfo test4 = test('d')
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor processor3 = Mock()
+
+        given:
+        2 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; idleListeners.size() == 1 ? processor1 : processor2 }
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+
+        when:
+        idleListeners[0].idle()
+
+        then:
+        1 * processor1.processTestClass(test3) >> { idleListeners[0].rejected(test3) }
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor3 }
+        1 * processor3.startProcessing(asyncResultProcessor)
+        1 * processor3.processTestClass(test3)
+
+        when:
+        idleListeners[2].idle()
+
+        then:
+        1 * processor3.processTestClass(test4)
+        0 * processor1.processTestClass(_)
+        0 * processor2.processTestClass(_)
+    }
+
+    def givesRejectedTestClassToAnotherProcessor() {
+        TestClassRunInfo test2 = test('b')
+        TestClassRunInfo test3 = test('c')
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+
+        given:
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor1 }
+        processor.processTestClass(test('a'))
+        idleListeners[0].idle()
+
+        when:
+        processor.processTestClass(test2)
+
+        then:
+        1 * processor1.processTestClass(test2) >> { idleListeners[0].rejected(test2) }
+        1 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor2 }
+        1 * processor2.processTestClass(test2)
+
+        when:
+        idleListeners[0].idle()
+        idleListeners[1].idle()
+        processor.processTestClass(test3)
+
+        then:
+        1 * processor2.processTestClass(test3)
+        0 * processor1.processTestClass(_)
+    }
+
+    def failsTestClassesThatCannotBeGivenToAnyProcessor() {
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+
+        given:
+        2 * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; idleListeners.size() == 1 ? processor1 : processor2 }
+        _ * processor1.processTestClass(_) >> { TestClassRunInfo testClass -> idleListeners[0].rejected(testClass) }
+        _ * processor2.processTestClass(_) >> { TestClassRunInfo testClass -> idleListeners[1].rejected(testClass) }
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+        processor.processTestClass(test('c'))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * processor1.stop()
+        1 * processor2.stop()
+        1 * resultProcessorActor.stop()
+        GradleException e = thrown()
+        e.message == "Could not execute 3 test classes, as all of the test processors have stopped. The test classes not executed: [a, b, c]"
+    }
+
+    def stopWaitsUntilQueuedTestClassesHaveBeenGivenToProcessors() {
+        TestClassProcessor processor1 = Mock()
+        def processed = []
+
+        given:
+        _ * factory.transform(_) >> { TestClassProcessorIdleListener listener -> idleListeners << listener; processor1 }
+        _ * processor1.processTestClass(_) >> { TestClassRunInfo testClass -> processed << testClass.testClassName }
+        processor.processTestClass(test('a'))
+        processor.processTestClass(test('b'))
+        processor.processTestClass(test('c'))
+
+        when:
+        def thread = Thread.start {
+            Thread.sleep(200)
+            idleListeners[0].idle()
+        }
+        processor.stop()
+        def processedOnStop = processed.clone()
+        thread.join()
+
+        then:
+        processedOnStop == ['a', 'b', 'c']
+    }
+
+    private TestClassRunInfo test(String name) {
+        TestClassRunInfo test = Mock()
+        _ * test.testClassName >> name
+        return test
+    }
+
+    /**
+     * Delivers method calls to the target object in the calling thread, so that test classes are processed as soon as they are dispatched.
+     */
+    private static class SynchronousActor implements Actor {
+        final Object target
+        boolean stopped
+
+        SynchronousActor(Object target) {
+            this.target = target
+        }
+
+        def <T> T getProxy(Class<T> type) {
+            return type.cast(target)
+        }
+
+        void dispatch(MethodInvocation message) {
+            throw new UnsupportedOperationException()
+        }
+
+        void stop() {
+            stopped = true
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.*
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class BatchTestOutputTestResultProcessorTest extends Specification {
+    def TestWorkerClientProtocol client = Mock()
+    def processor = new BatchTestOutputTestResultProcessor(client, new DefaultExecutorFactory(), 20, 60000)
+
+    def cleanup() {
+        processor.stop()
+    }
+
+    def "combines output of tests and sends it before a test completes"() {
+        TestCompleteEvent completeEvent = Mock()
+
+        when:
+        processor.output('test', output(StdOut, 'line 1\n'))
+        processor.output('test', output(StdOut, 'line 2\n'))
+
+        then:
+        0 * client._
+
+        when:
+        processor.completed('test', completeEvent)
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, 'line 1\nline 2\n']] })
+
+        then:
+        1 * client.completed('test', completeEvent)
+        0 * client._
+    }
+
+    def "keeps the order of output of different tests and destinations"() {
+        when:
+        processor.output('test', output(StdOut, 'a'))
+        processor.output('test', output(StdOut, 'b'))
+        processor.output('test', output(StdErr, 'c'))
+        processor.output('test', output(StdOut, 'd'))
+        processor.output('other', output(StdOut, 'e'))
+        processor.output('other', output(StdOut, 'f'))
+        processor.flush()
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, 'ab'], ['test', StdErr, 'c'], ['test', StdOut, 'd'], ['other', StdOut, 'ef']] })
+        0 * client._
+    }
+
+    def "sends output before other events"() {
+        TestDescriptorInternal test = Mock()
+        TestStartEvent startEvent = Mock()
+        def failure = new RuntimeException()
+
+        when:
+        processor.output('suite', output(StdOut, 'a'))
+        processor.started(test, startEvent)
+        processor.output('test', output(StdOut, 'b'))
+        processor.failure('test', failure)
+
+        then:
+        1 * client.outputBatch({ events(it) == [['suite', StdOut, 'a']] })
+
+        then:
+        1 * client.started(test, startEvent)
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, 'b']] })
+
+        then:
+        1 * client.failure('test', failure)
+        0 * client._
+    }
+
+    def "sends output when it reaches the maximum length"() {
+        when:
+        processor.output('test', output(StdOut, '0123456789'))
+        processor.output('test', output(StdErr, '0123456789'))
+        processor.output('test', output(StdOut, 'more'))
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, '0123456789'], ['test', StdErr, '0123456789']] })
+        0 * client._
+    }
+
+    def "sends output when it has been held for the maximum delay"() {
+        def processor = new BatchTestOutputTestResultProcessor(client, new DefaultExecutorFactory(), 1000, 50)
+        def sent = new CountDownLatch(1)
+
+        when:
+        processor.output('test', output(StdOut, 'a'))
+        processor.output('test', output(StdOut, 'b'))
+        def done = sent.await(10, TimeUnit.SECONDS)
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, 'ab']] }) >> { sent.countDown() }
+        done
+
+        cleanup:
+        processor.stop()
+    }
+
+    def "sends output on stop"() {
+        when:
+        processor.output('test', output(StdOut, 'a'))
+        processor.stop()
+
+        then:
+        1 * client.outputBatch({ events(it) == [['test', StdOut, 'a']] })
+        0 * client._
+    }
+
+    private static TestOutputEvent output(TestOutputEvent.Destination destination, String message) {
+        return new DefaultTestOutputEvent(destination, message)
+    }
+
+    private static List events(TestOutputBatch batch) {
+        def events = []
+        batch.forwardTo([output: { testId, TestOutputEvent event -> events << [testId, event.destination, event.message] }] as TestResultProcessor)
+        return events
+    }
+}
@@ -17,23 +17,40 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.Factory;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorIdleListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.GUtil;
 import org.gradle.util.JUnit4GroovyMockery;
 import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
 import static java.util.Arrays.asList;
@@ -54,7 +71,13 @@ public class ForkingTestClassProcessorTest {
     private final JavaForkOptions options = context.mock(JavaForkOptions.class);
     @SuppressWarnings("unchecked")
     private final Action<WorkerProcessBuilder> action = context.mock(Action.class);
-    private final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action);
+    private final TestClassProcessorIdleListener idleListener = context.mock(TestClassProcessorIdleListener.class);
+    private final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action, idleListener);
+    private WorkerProcessBuilder builder;
+    private JavaExecHandleBuilder javaCommandBuilder;
+    private int builderCount;
+    private ExecHandleListener workerStopListener;
+    private TestWorkerClientProtocol client;
 
     @Test
     public void onFirstTestCaseStartsWorkerProcess() {
@@ -94,17 +117,195 @@ public class ForkingTestClassProcessorTest {
         processor.stop();
     }
 
+    @Test
+    public void forwardsResultsAndIdleNotificationsFromWorkerProcess() {
+        expectWorkerProcessStarted();
+        final TestDescriptorInternal test = context.mock(TestDescriptorInternal.class);
+        final TestStartEvent event = new TestStartEvent(100L);
+        context.checking(new Expectations() {{
+            one(worker).processTestClass(test1);
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+
+        context.checking(new Expectations() {{
+            one(resultProcessor).started(test, event);
+            one(idleListener).idle();
+        }});
+
+        client.started(test, event);
+        client.idle();
+    }
+
+    @Test
+    public void forwardsBatchedOutputFromWorkerProcessInOrder() {
+        expectWorkerProcessStarted();
+        final TestOutputBatch batch = new TestOutputBatch();
+        batch.add("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "a"));
+        batch.add("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "b"));
+        batch.add("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdErr, "c"));
+        context.checking(new Expectations() {{
+            one(worker).processTestClass(test1);
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+
+        final Sequence sequence = context.sequence("output");
+        context.checking(new Expectations() {{
+            one(resultProcessor).output("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "ab"));
+            inSequence(sequence);
+            one(resultProcessor).output("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdErr, "c"));
+            inSequence(sequence);
+        }});
+
+        client.outputBatch(batch.complete());
+    }
+
+    @Test
+    public void notifiesIdleListenerAndRejectsTestClassesWhenWorkerProcessStopsUnexpectedly() {
+        expectWorkerProcessStarted();
+        context.checking(new Expectations() {{
+            one(worker).processTestClass(test1);
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+
+        context.checking(new Expectations() {{
+            one(idleListener).idle();
+        }});
+
+        workerStopListener.executionFinished(context.mock(ExecHandle.class), context.mock(ExecResult.class));
+
+        context.checking(new Expectations() {{
+            one(idleListener).rejected(test2);
+        }});
+
+        processor.processTestClass(test2);
+    }
+
+    @Test
+    public void doesNotNotifyIdleListenerWhenWorkerProcessIsStopped() {
+        expectWorkerProcessStarted();
+        context.checking(new Expectations() {{
+            one(worker).processTestClass(test1);
+            one(worker).stop();
+            one(workerProcess).waitForStop();
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+        processor.stop();
+
+        workerStopListener.executionFinished(context.mock(ExecHandle.class), context.mock(ExecResult.class));
+    }
+
+    @Test
+    public void returnsWorkerToPoolAndLoadsApplicationClassesForEachUse() {
+        final TestWorkerPool workerPool = new TestWorkerPool(1);
+        final WorkerTestClassProcessorFactory processorFactory = new SerializableProcessorFactory();
+        final ForkingTestClassProcessor processor1 = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action, idleListener, workerPool);
+        final ForkingTestClassProcessor processor2 = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action, idleListener, workerPool);
+        expectPooledWorkerConfigured();
+        expectWorkerProcessBuilt();
+        context.checking(new Expectations() {{
+            exactly(2).of(worker).startProcessing(asList(new File("classpath.jar").toURI()), asList("org.junit"), SerializableProcessorFactory.class.getPackage().getName(),
+                    GUtil.serialize(processorFactory));
+            one(worker).processTestClass(test1);
+            one(worker).processTestClass(test2);
+            exactly(2).of(worker).stopProcessing();
+            will(new CustomAction("stop processing") {
+                public Object invoke(Invocation invocation) {
+                    client.processingStopped(true);
+                    return null;
+                }
+            });
+        }});
+
+        processor1.startProcessing(resultProcessor);
+        processor1.processTestClass(test1);
+        processor1.stop();
+
+        expectPooledWorkerConfigured();
+
+        processor2.startProcessing(resultProcessor);
+        processor2.processTestClass(test2);
+        processor2.stop();
+    }
+
+    @Test
+    public void stopsPooledWorkerThatCouldNotReleaseApplicationClasses() {
+        final TestWorkerPool workerPool = new TestWorkerPool(1);
+        final WorkerTestClassProcessorFactory processorFactory = new SerializableProcessorFactory();
+        final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action, idleListener, workerPool);
+        expectPooledWorkerConfigured();
+        expectWorkerProcessBuilt();
+        context.checking(new Expectations() {{
+            one(worker).startProcessing(asList(new File("classpath.jar").toURI()), asList("org.junit"), SerializableProcessorFactory.class.getPackage().getName(),
+                    GUtil.serialize(processorFactory));
+            one(worker).processTestClass(test1);
+            one(worker).stopProcessing();
+            will(new CustomAction("stop processing") {
+                public Object invoke(Invocation invocation) {
+                    client.processingStopped(false);
+                    return null;
+                }
+            });
+            one(worker).stop();
+            one(workerProcess).waitForStop();
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+        processor.stop();
+    }
+
     @Test
     public void onEndProcessingDoesNothingIfNoTestsProcessed() {
         processor.startProcessing(resultProcessor);
         processor.stop();
     }
 
+    private void expectPooledWorkerConfigured() {
+        context.checking(new Expectations() {{
+            builder = context.mock(WorkerProcessBuilder.class, "builder" + ++builderCount);
+            javaCommandBuilder = context.mock(JavaExecHandleBuilder.class, "javaCommandBuilder" + builderCount);
+
+            one(workerFactory).create();
+            will(returnValue(builder));
+
+            one(builder).worker(with(notNullValue(TestWorker.class)));
+
+            one(builder).setLoadApplicationInSystemClassLoader(true);
+
+            one(action).execute(builder);
+
+            allowing(builder).getJavaCommand();
+            will(returnValue(javaCommandBuilder));
+
+            one(options).copyTo(javaCommandBuilder);
+
+            allowing(builder).getSharedPackages();
+            will(returnValue(Collections.singleton("org.junit")));
+            allowing(builder).getLogLevel();
+            will(returnValue(LogLevel.INFO));
+            allowing(javaCommandBuilder).getExecutable();
+            will(returnValue("java"));
+            allowing(javaCommandBuilder).getAllJvmArgs();
+            will(returnValue(asList("-Xmx64m")));
+            allowing(javaCommandBuilder).getEnvironment();
+            will(returnValue(Collections.emptyMap()));
+            allowing(javaCommandBuilder).getWorkingDir();
+            will(returnValue(new File("working-dir")));
+        }});
+    }
+
     private void expectWorkerProcessStarted() {
         context.checking(new Expectations() {{
-            WorkerProcessBuilder builder = context.mock(WorkerProcessBuilder.class);
-            ObjectConnection connection = context.mock(ObjectConnection.class);
-            JavaExecHandleBuilder javaCommandBuilder = context.mock(JavaExecHandleBuilder.class);
+            builder = context.mock(WorkerProcessBuilder.class);
+            javaCommandBuilder = context.mock(JavaExecHandleBuilder.class);
 
             one(workerFactory).create();
             will(returnValue(builder));
@@ -122,20 +323,47 @@ public class ForkingTestClassProcessorTest {
 
             one(options).copyTo(javaCommandBuilder);
 
+            one(worker).startProcessing();
+        }});
+        expectWorkerProcessBuilt();
+    }
+
+    private void expectWorkerProcessBuilt() {
+        context.checking(new Expectations() {{
+            ObjectConnection connection = context.mock(ObjectConnection.class);
+
+            one(javaCommandBuilder).listener(with(notNullValue(ExecHandleListener.class)));
+            will(new CustomAction("capture listener") {
+                public Object invoke(Invocation invocation) {
+                    workerStopListener = (ExecHandleListener) invocation.getParameter(0);
+                    return null;
+                }
+            });
+
             one(builder).build();
             will(returnValue(workerProcess));
 
             allowing(workerProcess).getConnection();
             will(returnValue(connection));
 
-            one(connection).addIncoming(TestResultProcessor.class, resultProcessor);
-            
+            one(connection).addIncoming(with(equal(TestWorkerClientProtocol.class)), with(notNullValue(TestWorkerClientProtocol.class)));
+            will(new CustomAction("capture client") {
+                public Object invoke(Invocation invocation) {
+                    client = (TestWorkerClientProtocol) invocation.getParameter(1);
+                    return null;
+                }
+            });
+
             one(connection).addOutgoing(RemoteTestClassProcessor.class);
             will(returnValue(worker));
 
             one(workerProcess).start();
-
-            one(worker).startProcessing();
         }});
     }
+
+    private static class SerializableProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        public TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
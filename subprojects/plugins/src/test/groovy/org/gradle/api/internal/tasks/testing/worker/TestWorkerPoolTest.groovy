@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.Action
+import org.gradle.api.internal.file.IdentityFileResolver
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.process.internal.WorkerProcessBuilder
+import org.gradle.process.internal.WorkerProcessContext
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    private final TestWorkerPool pool = new TestWorkerPool(2)
+
+    def "has no worker when nothing has been released"() {
+        expect:
+        pool.acquire('key') == null
+    }
+
+    def "gives released worker to processor with equal key"() {
+        def worker = worker('key')
+        pool.release(worker)
+
+        expect:
+        pool.acquire('other') == null
+        pool.acquire('key') == worker
+        pool.acquire('key') == null
+    }
+
+    def "does not give out worker that has stopped"() {
+        def worker = worker('key')
+        pool.release(worker)
+
+        when:
+        def acquired = pool.acquire('key')
+
+        then:
+        _ * worker.alive >> false
+        acquired == null
+    }
+
+    def "stops least recently released worker when there are too many idle workers"() {
+        def worker1 = worker('key')
+        def worker2 = worker('key')
+        def worker3 = worker('key')
+        pool.release(worker1)
+        pool.release(worker2)
+
+        when:
+        pool.release(worker3)
+
+        then:
+        1 * worker1.stop()
+        0 * worker2.stop()
+        0 * worker3.stop()
+
+        and:
+        pool.acquire('key') == worker3
+        pool.acquire('key') == worker2
+        pool.acquire('key') == null
+    }
+
+    def "stops idle workers when stopped"() {
+        def idle = worker('key1')
+        def stopped = worker('key2')
+        pool.release(idle)
+        pool.release(stopped)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idle.stop()
+        _ * stopped.alive >> false
+        0 * stopped.stop()
+
+        and:
+        pool.acquire('key1') == null
+    }
+
+    def "workers started by identical builders have equal keys"() {
+        expect:
+        TestWorkerPool.keyFor(builder()) == TestWorkerPool.keyFor(builder())
+    }
+
+    def "workers have different keys when the configuration of the java command or the test framework differs"() {
+        def baseline = TestWorkerPool.keyFor(builder())
+
+        expect:
+        TestWorkerPool.keyFor(builder { it.javaCommand.jvmArgs('-Xmx64m') }) != baseline
+        TestWorkerPool.keyFor(builder { it.javaCommand.systemProperty('some.prop', 'value') }) != baseline
+        TestWorkerPool.keyFor(builder { it.javaCommand.environment('SOME_VAR', 'value') }) != baseline
+        TestWorkerPool.keyFor(builder { it.javaCommand.workingDir = tmp.createDir('other') }) != baseline
+        TestWorkerPool.keyFor(builder { it.sharedPackages('org.gradle') }) != baseline
+    }
+
+    def "workers have equal keys when only the application classpath or the worker action differ"() {
+        def baseline = TestWorkerPool.keyFor(builder())
+
+        expect:
+        TestWorkerPool.keyFor(builder { it.applicationClasspath([tmp.createFile('lib.jar')]) }) == baseline
+        TestWorkerPool.keyFor(builder { it.worker(new TestAction('other')) }) == baseline
+    }
+
+    private TestWorkerClient worker(Object key) {
+        TestWorkerClient worker = Mock()
+        _ * worker.key >> key
+        _ * worker.alive >> true
+        return worker
+    }
+
+    private WorkerProcessBuilder builder(Closure configure = {}) {
+        def builder = new WorkerProcessBuilder(new IdentityFileResolver()) {
+            WorkerProcess build() {
+                throw new UnsupportedOperationException()
+            }
+        }
+        builder.javaCommand.workingDir = tmp.testDirectory
+        builder.worker(new TestAction('worker'))
+        configure(builder)
+        return builder
+    }
+
+    private static class TestAction implements Action<WorkerProcessContext>, Serializable {
+        final String name
+
+        TestAction(String name) {
+            this.name = name
+        }
+
+        void execute(WorkerProcessContext context) {
+        }
+    }
+}
@@ -17,7 +17,6 @@
 
 package org.gradle.api.internal.tasks.testing.worker
 
-import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.messaging.remote.ObjectConnection
@@ -33,17 +32,23 @@ import static org.hamcrest.Matchers.*
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.junit.Rule
 import org.gradle.util.SetSystemProperties
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.GUtil
 
 @RunWith(JMock.class)
 public class TestWorkerTest extends MultithreadedTestCase {
     @Rule public final SetSystemProperties properties = new SetSystemProperties()
+    @Rule public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
     private final WorkerProcessContext workerContext = context.mock(WorkerProcessContext.class)
     private final ObjectConnection connection = context.mock(ObjectConnection.class)
     private final WorkerTestClassProcessorFactory factory = context.mock(WorkerTestClassProcessorFactory.class)
     private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
     private final TestClassRunInfo test = context.mock(TestClassRunInfo.class)
-    private final TestResultProcessor resultProcessor = context.mock(TestResultProcessor.class)
+    private final TestClassProcessor processor2 = context.mock(TestClassProcessor.class, "processor2")
+    private final TestWorkerClientProtocol client = context.mock(TestWorkerClientProtocol.class)
     private final TestWorker worker = new TestWorker(factory)
 
     @Before
@@ -67,12 +72,50 @@ public class TestWorkerTest extends MultithreadedTestCase {
             one(factory).create(withParam(notNullValue()))
             will(returnValue(processor))
 
-            one(connection).addOutgoing(TestResultProcessor.class)
-            will(returnValue(resultProcessor))
+            one(connection).addOutgoing(TestWorkerClientProtocol.class)
+            will(returnValue(client))
+
+            one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
+            will {
+                start {
+                    worker.startProcessing()
+                    worker.processTestClass(test)
+                    syncAt(1)
+                    worker.stop()
+                }
+            }
+
+            ignoring(client).started(withParam(anything()), withParam(anything()))
+            ignoring(client).completed(withParam(anything()), withParam(anything()))
+
+            one(processor).startProcessing(withParam(notNullValue()))
+            one(processor).processTestClass(test)
+            one(client).idle()
+            one(processor).stop()
+        }
+
+        run {
+            expectBlocksUntil(1) {
+                worker.execute(workerContext)
+            }
+        }
+
+        assertThat(System.properties['org.gradle.test.worker'], equalTo('<worker-id>'))
+    }
+
+    @Test
+    public void resetsWorkerWhenProcessingStopsSoThatItCanProcessTestsAgain() {
+        context.checking {
+            one(connection).addOutgoing(TestWorkerClientProtocol.class)
+            will(returnValue(client))
 
             one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
             will {
                 start {
+                    worker.startProcessing()
+                    worker.processTestClass(test)
+                    worker.stopProcessing()
+                    assertThat(System.properties['some.property'], nullValue())
                     worker.startProcessing()
                     worker.processTestClass(test)
                     syncAt(1)
@@ -80,11 +123,25 @@ public class TestWorkerTest extends MultithreadedTestCase {
                 }
             }
 
-            ignoring(resultProcessor)
+            ignoring(client).started(withParam(anything()), withParam(anything()))
+            ignoring(client).completed(withParam(anything()), withParam(anything()))
+            exactly(2).of(client).idle()
 
+            one(factory).create(withParam(notNullValue()))
+            will(returnValue(processor))
             one(processor).startProcessing(withParam(notNullValue()))
             one(processor).processTestClass(test)
+            will {
+                System.setProperty('some.property', 'value')
+            }
             one(processor).stop()
+            one(client).processingStopped(true)
+
+            one(factory).create(withParam(notNullValue()))
+            will(returnValue(processor2))
+            one(processor2).startProcessing(withParam(notNullValue()))
+            one(processor2).processTestClass(test)
+            one(processor2).stop()
         }
 
         run {
@@ -95,4 +152,69 @@ public class TestWorkerTest extends MultithreadedTestCase {
 
         assertThat(System.properties['org.gradle.test.worker'], equalTo('<worker-id>'))
     }
+
+    @Test
+    public void loadsApplicationClassesAndTestFrameworkInNewClassLoadersForEachUse() {
+        def classes1 = tmpDir.createDir('classes1')
+        classes1.createFile('resource.txt')
+        def classes2 = tmpDir.createDir('classes2')
+        def factory = GUtil.serialize(new IsolatedProcessorFactory())
+        def framework = IsolatedProcessorFactory.package.name
+        def uses = []
+
+        context.checking {
+            one(connection).addOutgoing(TestWorkerClientProtocol.class)
+            will(returnValue(client))
+
+            one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
+            will {
+                start {
+                    worker.startProcessing([classes1.toURI()], ['org.junit'], framework, factory)
+                    worker.processTestClass(test)
+                    uses << [System.getProperty('factory.loader'), System.getProperty('resource.visible')]
+                    worker.stopProcessing()
+                    worker.startProcessing([classes2.toURI()], ['org.junit'], framework, factory)
+                    worker.processTestClass(test)
+                    uses << [System.getProperty('factory.loader'), System.getProperty('resource.visible')]
+                    syncAt(1)
+                    worker.stop()
+                }
+            }
+
+            ignoring(client).started(withParam(anything()), withParam(anything()))
+            ignoring(client).completed(withParam(anything()), withParam(anything()))
+            exactly(2).of(client).idle()
+            one(client).processingStopped(true)
+        }
+
+        run {
+            expectBlocksUntil(1) {
+                worker.execute(workerContext)
+            }
+        }
+
+        assertThat(uses[0][0], not(equalTo(String.valueOf(System.identityHashCode(IsolatedProcessorFactory.classLoader)))))
+        assertThat(uses[0][0], not(equalTo(uses[1][0])))
+        assertThat(uses[0][1], equalTo('true'))
+        assertThat(uses[1][1], equalTo('false'))
+    }
+
+    static class IsolatedProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            return new IsolatedProcessor()
+        }
+    }
+
+    static class IsolatedProcessor implements TestClassProcessor {
+        void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            System.setProperty('factory.loader', String.valueOf(System.identityHashCode(getClass().classLoader)))
+            System.setProperty('resource.visible', String.valueOf(Thread.currentThread().contextClassLoader.getResource('resource.txt') != null))
+        }
+
+        void stop() {
+        }
+    }
 }
@@ -20,6 +20,8 @@ import org.gradle.api.internal.tasks.testing.TestFramework
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter
+import org.gradle.api.specs.Specs
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
 import org.gradle.listener.ListenerBroadcast
 import org.gradle.util.TestUtil
 import spock.lang.Specification
@@ -48,7 +50,7 @@ class TestTaskSpec extends Specification {
         2 * testOutputListenerBroadcaster.add(_)
 
         then:
-        1 * testExecuter.execute(task, _ as TestResultProcessor)
+        1 * testExecuter.execute(task, _ as TestResultProcessor, _, _)
 
         then:
         1 * testListenerBroadcaster.removeAll({it.size() == 3})
@@ -56,7 +58,7 @@ class TestTaskSpec extends Specification {
     }
 
     def "removes listeners even if execution fails"() {
-        testExecuter.execute(task, _ as TestResultProcessor) >> { throw new RuntimeException("Boo!")}
+        testExecuter.execute(task, _ as TestResultProcessor, _, _) >> { throw new RuntimeException("Boo!")}
 
         when:
         task.executeTests()
@@ -69,4 +71,15 @@ class TestTaskSpec extends Specification {
         1 * testListenerBroadcaster.removeAll({it.size() == 3})
         1 * testOutputListenerBroadcaster.removeAll({it.size() == 2})
     }
+
+    def "executes all tests without looking at the changed inputs when only affected tests is disabled"() {
+        def inputs = Mock(IncrementalTaskInputs)
+
+        when:
+        task.executeTests(inputs)
+
+        then:
+        1 * testExecuter.execute(task, _ as TestResultProcessor, _, Specs.satisfyAll())
+        0 * inputs._
+    }
 }